@@ -0,0 +1,109 @@
+package pl.edu.agh.qa.pesel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.edu.agh.qa.pesel.client.PeselApiClient;
+import pl.edu.agh.qa.pesel.client.PeselAsyncClient;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.client.PeselResponse;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups against an embedded stand-in, from the request to the decoded {@link PeselResponse}: one at a time and
+ * {@value #FAN_OUT} at a time, by the blocking {@link PeselApiClient} (one platform thread per outstanding request,
+ * like {@code TransportBenchmark}) and by the {@link PeselAsyncClient} over HTTP/1.1, the protocol of the stand-in.
+ * Includes the stand-in's own work, so it compares the clients rather than measuring them alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientRoundTripBenchmark {
+
+    static final int FAN_OUT = 32;
+    private static final String PESEL = "44051401458";
+
+    private PeselValidatorStub stub;
+    private PeselApiClient blocking;
+    private ExecutorService threads;
+    private ExecutorService executor;
+    private PeselAsyncClient async;
+
+    @Setup
+    public void start() throws IOException {
+        stub = PeselValidatorStub.start(0);
+        blocking = new PeselApiClient(stub.baseUri(), new PeselApiClient.Settings(FAN_OUT, 5000, 10000, 30000, false));
+        threads = Executors.newFixedThreadPool(FAN_OUT);
+        executor = VirtualThreads.newExecutor("benchmark-async");
+        async = new PeselAsyncClient(new PeselHttpClient(stub.baseUri(), Duration.ofSeconds(10), executor,
+                HttpClient.Version.HTTP_1_1), FAN_OUT);
+    }
+
+    @TearDown
+    public void stop() {
+        blocking.close();
+        threads.shutdownNow();
+        executor.shutdownNow();
+        stub.stop();
+    }
+
+    @Benchmark
+    public PeselResponse blocking() {
+        return PeselResponse.of(blocking.get(PESEL));
+    }
+
+    @Benchmark
+    public PeselResponse async() {
+        return async.get(PESEL).join().response();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAN_OUT)
+    public void blockingFanOut(Blackhole blackhole) throws Exception {
+        List<Future<PeselResponse>> calls = new ArrayList<>(FAN_OUT);
+        for (int i = 0; i < FAN_OUT; i++) {
+            calls.add(threads.submit(() -> PeselResponse.of(blocking.get(PESEL))));
+        }
+        for (Future<PeselResponse> call : calls) {
+            blackhole.consume(call.get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FAN_OUT)
+    public void asyncFanOut(Blackhole blackhole) {
+        List<CompletableFuture<PeselAsyncClient.Call>> calls = new ArrayList<>(FAN_OUT);
+        for (int i = 0; i < FAN_OUT; i++) {
+            calls.add(async.get(PESEL));
+        }
+        // the Blackhole belongs to the benchmark thread, not to the ones completing the calls
+        for (CompletableFuture<PeselAsyncClient.Call> call : calls) {
+            blackhole.consume(call.join().response());
+        }
+    }
+}
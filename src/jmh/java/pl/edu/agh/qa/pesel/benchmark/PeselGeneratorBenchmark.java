@@ -0,0 +1,57 @@
+package pl.edu.agh.qa.pesel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.edu.agh.qa.pesel.PeselGenerator;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating every valid PESEL of 1998 ({@value #PESELS} of them) with {@link PeselGenerator}, as numbers and as
+ * digits, on one thread and on a parallel stream. Results are reduced to a checksum so nothing is kept.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeselGeneratorBenchmark {
+
+    static final int PESELS = 365 * 10000;
+
+    private final PeselGenerator generator = new PeselGenerator(LocalDate.of(1998, 1, 1), LocalDate.of(1998, 12, 31));
+
+    @Benchmark
+    @OperationsPerInvocation(PESELS)
+    public long numbers() {
+        return generator.numbers().sum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PESELS)
+    public long numbersParallel() {
+        return generator.numbers().parallel().sum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PESELS)
+    public long digits() {
+        return generator.stream().mapToLong(digits -> digits[10]).sum();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PESELS)
+    public long digitsParallel() {
+        return generator.stream().parallel().mapToLong(digits -> digits[10]).sum();
+    }
+}
@@ -0,0 +1,110 @@
+package pl.edu.agh.qa.pesel.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.edu.agh.qa.pesel.PeselEncoder;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link PeselValidator#validate} call per outcome: inputs stopping at the length (INVL) or character
+ * (NBRQ) check, those failing the month (INVM), day (INVD) or check sum (INVC) rule, and valid ones. Every outcome
+ * is measured on {@value #INPUTS} different PESELs of random dates, as text and as UTF-8 bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeselRulesBenchmark {
+
+    static final int INPUTS = 1024;
+
+    @Param({"valid", "INVL", "NBRQ", "INVM", "INVD", "INVC"})
+    public String outcome;
+
+    private String[] text;
+    private byte[][] utf8;
+
+    @Setup
+    public void generate() {
+        SplittableRandom random = new SplittableRandom(1);
+        text = new String[INPUTS];
+        utf8 = new byte[INPUTS][];
+        for (int i = 0; i < INPUTS; i++) {
+            String pesel = generate(random);
+            long result = PeselValidator.validate(pesel);
+            if (outcome.equals("valid") ? !PeselValidator.isValid(result)
+                    : !PeselValidator.hasError(result, PeselError.valueOf(outcome))) {
+                throw new IllegalStateException(pesel + " is not " + outcome + ": " + PeselValidator.describe(result));
+            }
+            text[i] = pesel;
+            utf8[i] = pesel.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private String generate(SplittableRandom random) {
+        int year = random.nextInt(1800, 2300);
+        int month = random.nextInt(1, 13);
+        int monthCode = PeselEncoder.monthCode(year, month);
+        int day = random.nextInt(1, PeselValidator.lengthOfMonth(year, month) + 1);
+        byte[] digits = new byte[PeselValidator.LENGTH];
+        switch (outcome) {
+            case "INVM":
+                // no century uses the month fields 13-20
+                monthCode = random.nextInt(13, 21);
+                break;
+            case "INVD":
+                day = random.nextBoolean() ? 0 : PeselValidator.lengthOfMonth(year, month) + 1;
+                break;
+            default:
+                break;
+        }
+        PeselEncoder.encode(year, monthCode, day, random.nextInt(10000), digits, 0);
+        switch (outcome) {
+            case "INVL":
+                return new String(digits, 0, PeselValidator.LENGTH - 1, StandardCharsets.US_ASCII);
+            case "NBRQ":
+                digits[random.nextInt(PeselValidator.LENGTH)] = 'a';
+                break;
+            case "INVC":
+                digits[10] = (byte) ('0' + (digits[10] - '0' + random.nextInt(1, 10)) % 10);
+                break;
+            default:
+                break;
+        }
+        return new String(digits, StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public void text(Blackhole blackhole) {
+        for (String pesel : text) {
+            blackhole.consume(PeselValidator.validate(pesel));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public void utf8(Blackhole blackhole) {
+        for (byte[] pesel : utf8) {
+            blackhole.consume(PeselValidator.validate(pesel));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package pl.edu.agh.qa.pesel.benchmark;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.edu.agh.qa.pesel.client.PeselResponse;
+import pl.edu.agh.qa.pesel.client.PeselResponseDecoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the fields the suites assert on (pesel, isValid, gender, dateOfBirth, error codes and messages) from a
+ * response body of the service:
+ * <ul>
+ * <li>gpath - {@code response.path(...)} per field, as the suites did before {@link PeselResponse}</li>
+ * <li>gpathOnce - one {@code response.jsonPath()} queried for every field</li>
+ * <li>typed - {@link PeselResponse#decode(int, byte[])}, one streaming pass into a typed view</li>
+ * <li>packed - {@link PeselResponseDecoder#decode(byte[])}, the packed result of the sweeps and snapshots</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseDecodingBenchmark {
+
+    // as answered by the service and the stand-in
+    private static final String VALID = "{\"pesel\":\"44051401458\",\"isValid\":true,\"gender\":\"Male\","
+            + "\"dateOfBirth\":\"1944-05-14T00:00:00\",\"errors\":[]}";
+    private static final String INVALID = "{\"pesel\":\"44051401450\",\"isValid\":false,\"gender\":null,"
+            + "\"dateOfBirth\":null,\"errors\":[{\"errorCode\":\"INVC\","
+            + "\"errorMessage\":\"Check sum is invalid. Check last digit.\"}]}";
+
+    @Param({"valid", "invalid"})
+    public String body;
+
+    private byte[] bytes;
+    private Response response;
+
+    @Setup
+    public void prepare() {
+        bytes = (body.equals("valid") ? VALID : INVALID).getBytes(StandardCharsets.UTF_8);
+        response = new ResponseBuilder().setStatusCode(200).setContentType("application/json; charset=utf-8")
+                .setBody(bytes).build();
+    }
+
+    @Benchmark
+    public void gpath(Blackhole blackhole) {
+        blackhole.consume(response.<String>path("pesel"));
+        blackhole.consume(response.<Boolean>path("isValid"));
+        blackhole.consume(response.<String>path("gender"));
+        blackhole.consume(response.<String>path("dateOfBirth"));
+        blackhole.consume(response.<Object>path("errors.errorCode"));
+        blackhole.consume(response.<Object>path("errors.errorMessage"));
+    }
+
+    @Benchmark
+    public void gpathOnce(Blackhole blackhole) {
+        JsonPath json = response.jsonPath();
+        blackhole.consume(json.getString("pesel"));
+        blackhole.consume(json.getBoolean("isValid"));
+        blackhole.consume(json.getString("gender"));
+        blackhole.consume(json.getString("dateOfBirth"));
+        blackhole.consume(json.getList("errors.errorCode"));
+        blackhole.consume(json.getList("errors.errorMessage"));
+    }
+
+    @Benchmark
+    public void typed(Blackhole blackhole) throws IOException {
+        PeselResponse decoded = PeselResponse.decode(200, bytes);
+        blackhole.consume(decoded.pesel());
+        blackhole.consume(decoded.isValid());
+        blackhole.consume(decoded.gender());
+        blackhole.consume(decoded.dateOfBirth());
+        blackhole.consume(decoded.errorCodes());
+        blackhole.consume(decoded.errorMessages());
+    }
+
+    @Benchmark
+    public long packed() throws IOException {
+        return PeselResponseDecoder.decode(bytes);
+    }
+}
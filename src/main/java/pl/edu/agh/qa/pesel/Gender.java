@@ -0,0 +1,40 @@
+package pl.edu.agh.qa.pesel;
+
+/**
+ * 'gender' field of the PeselValidator API response.
+ */
+public enum Gender {
+
+    MALE("Male"),
+    FEMALE("Female");
+
+    private final String label;
+
+    Gender(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return value of the API 'gender' field, e.g. "Male"
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * @return gender for the API 'gender' field or null when the value is unknown
+     */
+    public static Gender fromLabel(String label) {
+        for (Gender gender : values()) {
+            if (gender.label.equals(label)) {
+                return gender;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,174 @@
+package pl.edu.agh.qa.pesel;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Buffer of PESELs validated together by a {@link PeselBatchValidator}, laid out as structure of arrays:
+ * one int array per digit position, holding {@code character - '0'} of that position for every PESEL,
+ * so a validator reads the same position of many PESELs with one vector load.
+ *
+ * Inputs that are not 11 characters long are validated when they are added and skip the batch rules.
+ * Inputs of 11 characters that turn out not to be digits are validated again one by one after the batch,
+ * which keeps the results identical to {@link PeselValidator#validate(CharSequence)} and its byte overloads.
+ */
+public final class PeselBatch {
+
+    // marks a lane whose digits were out of range, so it needs the single validation
+    static final int NOT_DIGITS = -1;
+
+    final int capacity;
+    final int[][] digits;
+    final int[] flags;
+    final int[] epochDays;
+    final int[] prefixes;
+    private final long[] results;
+    // lanes validated when added, and lanes added as text rather than UTF-8
+    private final boolean[] done;
+    private final boolean[] text;
+    private int size;
+
+    public PeselBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.digits = new int[PeselValidator.LENGTH][capacity];
+        this.flags = new int[capacity];
+        this.epochDays = new int[capacity];
+        this.prefixes = new int[capacity];
+        this.results = new long[capacity];
+        this.done = new boolean[capacity];
+        this.text = new boolean[capacity];
+    }
+
+    /**
+     * @return index of the PESEL in the batch
+     * @throws IllegalStateException when the batch is full
+     */
+    public int add(CharSequence pesel) {
+        int lane = nextLane();
+        if (pesel.length() != PeselValidator.LENGTH) {
+            return validated(lane, PeselValidator.validate(pesel));
+        }
+        for (int i = 0; i < PeselValidator.LENGTH; i++) {
+            digits[i][lane] = pesel.charAt(i) - '0';
+        }
+        text[lane] = true;
+        return lane;
+    }
+
+    /**
+     * Adds {@code length} UTF-8 bytes starting at {@code offset}.
+     *
+     * @return index of the PESEL in the batch
+     */
+    public int add(byte[] utf8, int offset, int length) {
+        int lane = nextLane();
+        if (length != PeselValidator.LENGTH) {
+            return validated(lane, PeselValidator.validate(utf8, offset, length));
+        }
+        for (int i = 0; i < PeselValidator.LENGTH; i++) {
+            digits[i][lane] = utf8[offset + i] - '0';
+        }
+        return lane;
+    }
+
+    /**
+     * Adds {@code length} UTF-8 bytes starting at the absolute {@code offset} of {@code utf8}.
+     *
+     * @return index of the PESEL in the batch
+     */
+    public int add(ByteBuffer utf8, int offset, int length) {
+        int lane = nextLane();
+        if (length != PeselValidator.LENGTH) {
+            return validated(lane, PeselValidator.validate(utf8, offset, length));
+        }
+        for (int i = 0; i < PeselValidator.LENGTH; i++) {
+            digits[i][lane] = utf8.get(offset + i) - '0';
+        }
+        return lane;
+    }
+
+    private int nextLane() {
+        if (size == capacity) {
+            throw new IllegalStateException("Batch is full: " + capacity);
+        }
+        int lane = size++;
+        done[lane] = false;
+        text[lane] = false;
+        return lane;
+    }
+
+    private int validated(int lane, long result) {
+        for (int i = 0; i < PeselValidator.LENGTH; i++) {
+            digits[i][lane] = 0;
+        }
+        done[lane] = true;
+        results[lane] = result;
+        return lane;
+    }
+
+    /**
+     * Packs the flags and epoch days left by a validator into results.
+     */
+    void complete() {
+        for (int lane = 0; lane < size; lane++) {
+            if (done[lane]) {
+                continue;
+            }
+            results[lane] = flags[lane] == NOT_DIGITS
+                    ? validateSingle(lane)
+                    : (long) epochDays[lane] << 32 | flags[lane] & 0xFFFFFFFFL;
+        }
+    }
+
+    private long validateSingle(int lane) {
+        if (text[lane]) {
+            char[] pesel = new char[PeselValidator.LENGTH];
+            for (int i = 0; i < pesel.length; i++) {
+                pesel[i] = (char) (digits[i][lane] + '0');
+            }
+            return PeselValidator.validate(new String(pesel));
+        }
+        byte[] utf8 = new byte[PeselValidator.LENGTH];
+        for (int i = 0; i < utf8.length; i++) {
+            utf8[i] = (byte) (digits[i][lane] + '0');
+        }
+        return PeselValidator.validate(utf8);
+    }
+
+    /**
+     * @return packed result of the PESEL at {@code index}, see the {@link PeselValidator} accessors;
+     * valid after {@link PeselBatchValidator#validate(PeselBatch)}
+     */
+    public long result(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return results[index];
+    }
+
+    /**
+     * @return results of all PESELs in the batch, in the order they were added
+     */
+    public long[] results() {
+        return Arrays.copyOf(results, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,43 @@
+package pl.edu.agh.qa.pesel;
+
+/**
+ * Validates all PESELs of a {@link PeselBatch} at once, with the results of {@link PeselValidator}.
+ *
+ * {@link #create()} picks the implementation once: lanes of SIMD registers through the incubating Vector API
+ * when the JVM was started with {@code --add-modules jdk.incubator.vector} (JDK 17+), a plain loop otherwise.
+ * {@code -Dpesel.vector=false} forces the plain loop.
+ */
+public interface PeselBatchValidator {
+
+    String VECTOR_PROPERTY = "pesel.vector";
+
+    /**
+     * Fills the results of {@code batch}.
+     */
+    void validate(PeselBatch batch);
+
+    /**
+     * @return e.g. "vector (8 x 32 bit lanes)" or "scalar"
+     */
+    String name();
+
+    /**
+     * @return the vector implementation when the Vector API is available, the scalar one otherwise
+     */
+    static PeselBatchValidator create() {
+        if (Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (PeselBatchValidator) Class.forName("pl.edu.agh.qa.pesel.VectorBatchValidator")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // compiled without the vector profile, or for a newer JDK than the running one
+            }
+        }
+        return scalar();
+    }
+
+    static PeselBatchValidator scalar() {
+        return ScalarBatchValidator.INSTANCE;
+    }
+}
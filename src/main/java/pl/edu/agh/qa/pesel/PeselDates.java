@@ -0,0 +1,120 @@
+package pl.edu.agh.qa.pesel;
+
+/**
+ * Date rules of PESEL, precomputed for all 10^6 YYMMDD prefixes when the class is loaded.
+ *
+ * The month field encodes the century (see {@link PeselValidator}), so a prefix is valid when the month
+ * field names one of the 60 century-encoded months and the day exists in it. Two tables are kept:
+ * <ul>
+ *     <li>a bitset of the valid prefixes (125 kB), for validity checks only,</li>
+ *     <li>a packed int per prefix (4 MB): bits 0-10 the date part of a {@link PeselValidator} result
+ *     (INVY and INVM, or INVD, or the has-date flag), bits 11-13 the century, bits 14-31 the signed epoch day.</li>
+ * </ul>
+ * Both are filled in a few milliseconds from {@link PeselValidator#lengthOfMonth(int, int)}, so validating
+ * and decoding a date is one array load with no calendar arithmetic.
+ */
+public final class PeselDates {
+
+    public static final int PREFIXES = 1_000_000;
+
+    static final int FLAGS = 0x7FF;
+    private static final int DATE_ERRORS = PeselError.INVY.mask() | PeselError.INVM.mask() | PeselError.INVD.mask();
+    private static final int CENTURY_SHIFT = 11;
+    static final int EPOCH_DAY_SHIFT = 14;
+    // century index 0 marks an invalid month field
+    private static final int[] CENTURIES = {0, 1900, 2000, 2100, 2200, 1800};
+
+    private static final long[] VALID = new long[PREFIXES / 64 + 1];
+    private static final int[] DATES = new int[PREFIXES];
+
+    static {
+        int invalidMonth = PeselError.INVY.mask() | PeselError.INVM.mask();
+        for (int month = 0; month < 100; month++) {
+            int monthOfYear = month % 20;
+            for (int year = 0; year < 100; year++) {
+                int prefix = year * 10000 + month * 100;
+                if (monthOfYear < 1 || monthOfYear > 12) {
+                    for (int day = 0; day < 100; day++) {
+                        DATES[prefix + day] = invalidMonth;
+                    }
+                    continue;
+                }
+                int century = month / 20 + 1;
+                int fullYear = CENTURIES[century] + year;
+                int length = PeselValidator.lengthOfMonth(fullYear, monthOfYear);
+                for (int day = 0; day < 100; day++) {
+                    int packed = century << CENTURY_SHIFT;
+                    if (day < 1 || day > length) {
+                        packed |= PeselError.INVD.mask();
+                    } else {
+                        long epochDay = PeselValidator.epochDay(fullYear, monthOfYear, day);
+                        packed |= PeselValidator.HAS_DATE | (int) epochDay << EPOCH_DAY_SHIFT;
+                        VALID[(prefix + day) >>> 6] |= 1L << (prefix + day);
+                    }
+                    DATES[prefix + day] = packed;
+                }
+            }
+        }
+    }
+
+    private PeselDates() {
+    }
+
+    /**
+     * @param yymmdd first six digits of a PESEL as a number, 0-999999
+     * @return packed date, see the accessors
+     */
+    public static int lookup(int yymmdd) {
+        return DATES[yymmdd];
+    }
+
+    /**
+     * @param yymmdd first six digits of a PESEL as a number, 0-999999
+     * @return true when they encode an existing date
+     */
+    public static boolean isValid(int yymmdd) {
+        return (VALID[yymmdd >>> 6] & 1L << yymmdd) != 0;
+    }
+
+    /**
+     * @return mask of {@link PeselError#mask()} bits: INVY and INVM, INVD or none
+     */
+    public static int errors(int packed) {
+        return packed & DATE_ERRORS;
+    }
+
+    /**
+     * @return date as {@link java.time.LocalDate#toEpochDay()}, 0 for an invalid date
+     */
+    public static int epochDay(int packed) {
+        return packed >> EPOCH_DAY_SHIFT;
+    }
+
+    /**
+     * @return first year of the century encoded by the month field, e.g. 1800, or 0 for an invalid month field
+     */
+    public static int century(int packed) {
+        return CENTURIES[packed >>> CENTURY_SHIFT & 7];
+    }
+
+    /**
+     * @return the low 32 bits of the date part of a {@link PeselValidator} result
+     */
+    static int flags(int packed) {
+        return packed & FLAGS;
+    }
+
+    /**
+     * @return the packed dates indexed by YYMMDD, not to be modified; for vector gathers
+     */
+    static int[] table() {
+        return DATES;
+    }
+
+    /**
+     * @return the date bits of a {@link PeselValidator} result
+     */
+    static long result(int packed) {
+        return (long) (packed >> EPOCH_DAY_SHIFT) << 32 | packed & FLAGS;
+    }
+}
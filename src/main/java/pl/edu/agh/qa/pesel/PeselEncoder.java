@@ -0,0 +1,70 @@
+package pl.edu.agh.qa.pesel;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes PESEL digits: YYMMDD with the century encoded in the month, four serial digits
+ * (the last one being the gender digit, odd for men) and the check digit.
+ */
+public final class PeselEncoder {
+
+    private static final int[] WEIGHTS = {1, 3, 7, 9, 1, 3, 7, 9, 1, 3};
+
+    private PeselEncoder() {
+    }
+
+    /**
+     * @return month field for the month of the year, e.g. 81 for January 1800, 21 for January 2000
+     */
+    public static int monthCode(int year, int month) {
+        if (year < 1800 || year > 2299) {
+            throw new IllegalArgumentException("PESEL encodes years 1800-2299 only: " + year);
+        }
+        if (year < 1900) {
+            return month + 80;
+        }
+        return month + (year - 1900) / 100 * 20;
+    }
+
+    /**
+     * Writes 11 ASCII digits with a correct check digit.
+     *
+     * @param year      two last digits of the year are written
+     * @param monthCode month field as written, see {@link #monthCode(int, int)}, may be out of range
+     * @param day       day field as written, may be out of range
+     * @param serial    0-9999, the last digit is the gender digit
+     */
+    public static void encode(int year, int monthCode, int day, int serial, byte[] out, int offset) {
+        writeTwoDigits(year % 100, out, offset);
+        writeTwoDigits(monthCode, out, offset + 2);
+        writeTwoDigits(day, out, offset + 4);
+        writeTwoDigits(serial / 100, out, offset + 6);
+        writeTwoDigits(serial % 100, out, offset + 8);
+        out[offset + 10] = (byte) ('0' + checkDigit(out, offset));
+    }
+
+    /**
+     * @return check digit of the first ten ASCII digits
+     */
+    public static int checkDigit(byte[] digits, int offset) {
+        int sum = 0;
+        for (int i = 0; i < WEIGHTS.length; i++) {
+            sum += WEIGHTS[i] * (digits[offset + i] - '0');
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * @return PESEL of a person born on the given date, allocates the String
+     */
+    public static String encode(int year, int month, int day, int serial) {
+        byte[] digits = new byte[PeselValidator.LENGTH];
+        encode(year, monthCode(year, month), day, serial, digits, 0);
+        return new String(digits, StandardCharsets.US_ASCII);
+    }
+
+    private static void writeTwoDigits(int value, byte[] out, int offset) {
+        out[offset] = (byte) ('0' + value / 10);
+        out[offset + 1] = (byte) ('0' + value % 10);
+    }
+}
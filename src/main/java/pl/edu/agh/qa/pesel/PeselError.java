@@ -0,0 +1,66 @@
+package pl.edu.agh.qa.pesel;
+
+/**
+ * Error codes returned by the PeselValidator API, in the order the API reports them.
+ */
+public enum PeselError {
+
+    INVL("Invalid length. Pesel should have exactly 11 digits."),
+    NBRQ("Invalid characters. Pesel should be a number."),
+    INVY("Invalid year."),
+    INVM("Invalid month."),
+    INVD("Invalid day."),
+    INVC("Check sum is invalid. Check last digit.");
+
+    private static final PeselError[] VALUES = values();
+
+    private final String message;
+
+    PeselError(String message) {
+        this.message = message;
+    }
+
+    /**
+     * @return 'errorCode' field of the API response, e.g. "INVL"
+     */
+    public String code() {
+        return name();
+    }
+
+    /**
+     * @return 'errorMessage' field of the API response
+     */
+    public String message() {
+        return message;
+    }
+
+    /**
+     * @return bit of this error in the masks returned by {@link PeselValidator}
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public boolean isSet(int errors) {
+        return (errors & mask()) != 0;
+    }
+
+    /**
+     * @return error with the given bit index
+     */
+    public static PeselError ofBit(int bit) {
+        return VALUES[bit];
+    }
+
+    /**
+     * @return error for the API 'errorCode' or null when the code is unknown
+     */
+    public static PeselError fromCode(String code) {
+        for (PeselError error : VALUES) {
+            if (error.name().equals(code)) {
+                return error;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,370 @@
+package pl.edu.agh.qa.pesel;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates every PESEL of a date range and serial range, in date order, with correct check digits, or
+ * deliberately invalid ones failing a single rule.
+ *
+ * The PESELs are addressed by index: {@code [0, size())} covers the dates of the range, each with every serial
+ * number (the four digits before the check digit) of {@code [firstSerial, lastSerial]} whose last digit matches
+ * the gender (odd for men, even for women; null takes both). The variant decides what the date part holds:
+ * <ul>
+ *     <li>null: every day of the range, giving valid PESELs,</li>
+ *     <li>INVC: the same dates with a wrong check digit,</li>
+ *     <li>INVD: every month of the range with day 00 and with the day after its last one,</li>
+ *     <li>INVY or INVM (reported together, as a month field outside the five centuries encodes no year): every
+ *     year of the range, at most 100, with the 40 month fields 00, 13-20, 33-40, 53-60, 73-80 and 93-99.</li>
+ * </ul>
+ * Streams split their index range in halves, so parallel streams get even shares. Digits are written into a
+ * buffer per spliterator that is rewritten for every element; {@link #numbers()} gives the 11 digits as a long
+ * (like {@code ResultStore.input}) and allocates nothing at all.
+ */
+public final class PeselGenerator {
+
+    private static final int[] INVALID_MONTH_CODES = new int[40];
+    // the four serial digits of 0-9999 as ASCII, and their weighted sum (weights 7, 9, 1, 3) modulo 10
+    private static final byte[] SERIAL_DIGITS = new byte[4 * 10000];
+    private static final byte[] SERIAL_SUMS = new byte[10000];
+
+    static {
+        for (int code = 0, i = 0; code < 100; code++) {
+            if (code % 20 == 0 || code % 20 > 12) {
+                INVALID_MONTH_CODES[i++] = code;
+            }
+        }
+        for (int serial = 0; serial < 10000; serial++) {
+            int a = serial / 1000;
+            int b = serial / 100 % 10;
+            int c = serial / 10 % 10;
+            int d = serial % 10;
+            SERIAL_DIGITS[4 * serial] = (byte) ('0' + a);
+            SERIAL_DIGITS[4 * serial + 1] = (byte) ('0' + b);
+            SERIAL_DIGITS[4 * serial + 2] = (byte) ('0' + c);
+            SERIAL_DIGITS[4 * serial + 3] = (byte) ('0' + d);
+            SERIAL_SUMS[serial] = (byte) ((7 * a + 9 * b + c + 3 * d) % 10);
+        }
+    }
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final PeselError variant;
+    private final long dates;
+    private final int firstSerial;
+    private final int serialStep;
+    private final int serials;
+
+    /**
+     * Every valid PESEL of the date range, both genders.
+     */
+    public PeselGenerator(LocalDate from, LocalDate to) {
+        this(from, to, null, 0, 9999, null);
+    }
+
+    /**
+     * @param gender      null for both
+     * @param firstSerial first serial number, 0-9999
+     * @param lastSerial  last serial number, 0-9999
+     * @param variant     null for valid PESELs, otherwise the error all of them have: INVY, INVM, INVD or INVC
+     */
+    public PeselGenerator(LocalDate from, LocalDate to, Gender gender, int firstSerial, int lastSerial,
+                          PeselError variant) {
+        if (from.getYear() < 1800 || to.getYear() > 2299 || to.isBefore(from)) {
+            throw new IllegalArgumentException("Date range must lie within 1800-01-01 - 2299-12-31: " + from + " - " + to);
+        }
+        if (firstSerial < 0 || lastSerial > 9999 || lastSerial < firstSerial) {
+            throw new IllegalArgumentException("Serial range must lie within 0-9999: " + firstSerial + " - " + lastSerial);
+        }
+        if (variant == PeselError.INVL || variant == PeselError.NBRQ) {
+            throw new IllegalArgumentException("Generated PESELs always have 11 digits: " + variant);
+        }
+        this.from = from;
+        this.to = to;
+        this.variant = variant;
+        if (variant == null || variant == PeselError.INVC) {
+            dates = to.toEpochDay() - from.toEpochDay() + 1;
+        } else if (variant == PeselError.INVD) {
+            dates = 2 * (monthIndex(to) - monthIndex(from) + 1);
+        } else {
+            dates = INVALID_MONTH_CODES.length * Math.min(100, to.getYear() - from.getYear() + 1);
+        }
+        if (gender == null) {
+            this.firstSerial = firstSerial;
+            this.serialStep = 1;
+        } else {
+            // odd last digits for men
+            int odd = gender == Gender.MALE ? 1 : 0;
+            this.firstSerial = firstSerial + ((firstSerial & 1) == odd ? 0 : 1);
+            this.serialStep = 2;
+        }
+        this.serials = this.firstSerial > lastSerial ? 0 : (lastSerial - this.firstSerial) / serialStep + 1;
+        if (serials == 0) {
+            throw new IllegalArgumentException("No " + gender + " serial numbers in " + firstSerial + " - " + lastSerial);
+        }
+    }
+
+    public long size() {
+        return dates * serials;
+    }
+
+    /**
+     * @return PESEL number {@code index}; allocates, for occasional lookups
+     */
+    public String get(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside 0-" + (size() - 1));
+        }
+        byte[] digits = new byte[PeselValidator.LENGTH];
+        new Cursor(index).next(digits, 0);
+        return new String(digits, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the PESELs as 11 ASCII digits; the array is reused for every element of a split,
+     * so copy it (e.g. into a String) to keep it
+     */
+    public Stream<byte[]> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * @return the PESELs as numbers, 11 digits with leading zeros dropped
+     */
+    public LongStream numbers() {
+        return StreamSupport.longStream(numberSpliterator(), false);
+    }
+
+    public Spliterator<byte[]> spliterator() {
+        return new DigitsSpliterator(0, size());
+    }
+
+    public Spliterator.OfLong numberSpliterator() {
+        return new NumberSpliterator(0, size());
+    }
+
+    @Override
+    public String toString() {
+        return (variant == null ? "valid" : variant.name()) + " PESELs " + from + " - " + to + ", serials "
+                + firstSerial + "-" + (firstSerial + (serials - 1) * serialStep) + (serialStep == 2
+                ? (firstSerial % 2 == 1 ? " (male)" : " (female)") : "");
+    }
+
+    private static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /**
+     * Walks the index range one PESEL at a time. The date part only changes every {@code serials} PESELs,
+     * and days are advanced without calendar arithmetic, so a PESEL costs a few table loads and stores.
+     */
+    private final class Cursor {
+
+        private final byte[] date = new byte[6];
+        private long index;
+        private long dateIndex = -1;
+        private int serial;
+        private int dateSum;
+        private long yymmdd;
+        private int year;
+        private int month;
+        private int day;
+
+        Cursor(long index) {
+            this.index = index;
+        }
+
+        long index() {
+            return index;
+        }
+
+        /**
+         * Writes the next PESEL at {@code offset} of {@code out}.
+         */
+        void next(byte[] out, int offset) {
+            int serial = advance();
+            for (int i = 0; i < 6; i++) {
+                out[offset + i] = date[i];
+            }
+            for (int i = 0, digits = 4 * serial; i < 4; i++) {
+                out[offset + 6 + i] = SERIAL_DIGITS[digits + i];
+            }
+            out[offset + 10] = (byte) ('0' + checkDigit(serial));
+        }
+
+        /**
+         * @return the next PESEL as a number
+         */
+        long nextNumber() {
+            int serial = advance();
+            return yymmdd * 100_000 + serial * 10 + checkDigit(serial);
+        }
+
+        private int advance() {
+            long current = index++;
+            if (dateIndex < 0) {
+                dateIndex = current / serials;
+                serial = (int) (current % serials);
+                moveTo(dateIndex, false);
+            } else if (++serial == serials) {
+                serial = 0;
+                moveTo(++dateIndex, true);
+            }
+            return firstSerial + serial * serialStep;
+        }
+
+        private int checkDigit(int serial) {
+            int check = (10 - (dateSum + SERIAL_SUMS[serial]) % 10) % 10;
+            // any other digit, varied with the serial number
+            return variant == PeselError.INVC ? (check + 1 + serial % 9) % 10 : check;
+        }
+
+        private void moveTo(long dateIndex, boolean following) {
+            int monthCode;
+            if (variant == null || variant == PeselError.INVC) {
+                if (following && day < PeselValidator.lengthOfMonth(year, month)) {
+                    day++;
+                } else if (following) {
+                    day = 1;
+                    if (++month > 12) {
+                        month = 1;
+                        year++;
+                    }
+                } else {
+                    LocalDate date = from.plusDays(dateIndex);
+                    year = date.getYear();
+                    month = date.getMonthValue();
+                    day = date.getDayOfMonth();
+                }
+                monthCode = PeselEncoder.monthCode(year, month);
+                write(year % 100, monthCode, day);
+            } else if (variant == PeselError.INVD) {
+                int monthIndex = monthIndex(from) + (int) (dateIndex / 2);
+                year = monthIndex / 12;
+                month = monthIndex % 12 + 1;
+                write(year % 100, PeselEncoder.monthCode(year, month),
+                        dateIndex % 2 == 0 ? 0 : PeselValidator.lengthOfMonth(year, month) + 1);
+            } else {
+                int codes = INVALID_MONTH_CODES.length;
+                write((from.getYear() + (int) (dateIndex / codes)) % 100, INVALID_MONTH_CODES[(int) (dateIndex % codes)],
+                        1 + (int) (dateIndex % 28));
+            }
+        }
+
+        private void write(int yy, int monthCode, int day) {
+            date[0] = (byte) ('0' + yy / 10);
+            date[1] = (byte) ('0' + yy % 10);
+            date[2] = (byte) ('0' + monthCode / 10);
+            date[3] = (byte) ('0' + monthCode % 10);
+            date[4] = (byte) ('0' + day / 10);
+            date[5] = (byte) ('0' + day % 10);
+            dateSum = yy / 10 + 3 * (yy % 10) + 7 * (monthCode / 10) + 9 * (monthCode % 10) + day / 10 + 3 * (day % 10);
+            yymmdd = yy * 10000 + monthCode * 100 + day;
+        }
+    }
+
+    private final class DigitsSpliterator implements Spliterator<byte[]> {
+
+        private final byte[] digits = new byte[PeselValidator.LENGTH];
+        private final long end;
+        private Cursor cursor;
+
+        DigitsSpliterator(long index, long end) {
+            this.cursor = new Cursor(index);
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super byte[]> action) {
+            if (cursor.index() >= end) {
+                return false;
+            }
+            cursor.next(digits, 0);
+            action.accept(digits);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super byte[]> action) {
+            for (long i = cursor.index(); i < end; i++) {
+                cursor.next(digits, 0);
+                action.accept(digits);
+            }
+        }
+
+        @Override
+        public Spliterator<byte[]> trySplit() {
+            long index = cursor.index();
+            long middle = index + (end - index) / 2;
+            if (middle == index) {
+                return null;
+            }
+            cursor = new Cursor(middle);
+            return new DigitsSpliterator(index, middle);
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - cursor.index();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
+    private final class NumberSpliterator implements Spliterator.OfLong {
+
+        private final long end;
+        private Cursor cursor;
+
+        NumberSpliterator(long index, long end) {
+            this.cursor = new Cursor(index);
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (cursor.index() >= end) {
+                return false;
+            }
+            action.accept(cursor.nextNumber());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            for (long i = cursor.index(); i < end; i++) {
+                action.accept(cursor.nextNumber());
+            }
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long index = cursor.index();
+            long middle = index + (end - index) / 2;
+            if (middle == index) {
+                return null;
+            }
+            cursor = new Cursor(middle);
+            return new NumberSpliterator(index, middle);
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - cursor.index();
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | DISTINCT;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package pl.edu.agh.qa.pesel;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Reference implementation of the PESEL rules checked by the PeselValidator API
+ * (https://www.gov.pl/web/gov/czym-jest-numer-pesel).
+ *
+ * Rules, in the order the API reports their errors:
+ * <ul>
+ *     <li>INVL: exactly 11 characters,</li>
+ *     <li>NBRQ: digits only,</li>
+ *     <li>INVY, INVM: the month field encodes the century,
+ *     80-92: 1800-1899, 01-12: 1900-1999, 21-32: 2000-2099, 41-52: 2100-2199, 61-72: 2200-2299,</li>
+ *     <li>INVD: the day exists in that month of that year (leap years included),</li>
+ *     <li>INVC: check sum, weights 1-3-7-9-1-3-7-9-1-3 over the first ten digits, modulo 10.</li>
+ * </ul>
+ * A failed length or character check stops the validation, like in the API.
+ *
+ * Validation creates no objects. The result is packed into a long:
+ * bits 0-5 hold the {@link PeselError} mask, bits 8-10 the gender and flags,
+ * bits 32-63 the date of birth as epoch day. Use the static accessors to read it.
+ */
+public final class PeselValidator {
+
+    public static final int LENGTH = 11;
+
+    private static final int ERRORS = 0x3F;
+    static final int MALE = 1 << 8;
+    static final int HAS_GENDER = 1 << 9;
+    static final int HAS_DATE = 1 << 10;
+
+    private static final long INVALID_LENGTH = PeselError.INVL.mask();
+    private static final long NOT_A_NUMBER = PeselError.NBRQ.mask();
+
+    // the 11th weight (1) adds the control digit itself, a valid PESEL sums up to 0 modulo 10
+    private static final int[] WEIGHTS = {1, 3, 7, 9, 1, 3, 7, 9, 1, 3, 1};
+    private static final int[] DAYS_IN_MONTH = {0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private PeselValidator() {
+    }
+
+    /**
+     * @param pesel PESEL as text, e.g. the 'pesel' query parameter
+     * @return packed result, see the accessors
+     */
+    public static long validate(CharSequence pesel) {
+        if (pesel.length() != LENGTH) {
+            return INVALID_LENGTH;
+        }
+        int sum = 0;
+        int yymmdd = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = pesel.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_NUMBER;
+            }
+            sum += WEIGHTS[i] * digit;
+            yymmdd = i < 6 ? yymmdd * 10 + digit : yymmdd;
+        }
+        return decode(yymmdd, pesel.charAt(9) - '0', sum % 10 == 0);
+    }
+
+    /**
+     * @param utf8 PESEL as UTF-8 bytes
+     * @return packed result, see the accessors
+     */
+    public static long validate(byte[] utf8) {
+        return validate(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Validates {@code length} UTF-8 bytes starting at {@code offset}.
+     * The length rule counts characters (UTF-16 units, like the API), not bytes.
+     *
+     * @return packed result, see the accessors
+     */
+    public static long validate(byte[] utf8, int offset, int length) {
+        if (length != LENGTH) {
+            // 11 characters taking more bytes contain a non-ASCII one, so they are not a number
+            return charCount(utf8, offset, length) == LENGTH ? NOT_A_NUMBER : INVALID_LENGTH;
+        }
+        int sum = 0;
+        int yymmdd = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = utf8[offset + i] - '0';
+            if (digit < 0 || digit > 9) {
+                return charCount(utf8, offset, length) == LENGTH ? NOT_A_NUMBER : INVALID_LENGTH;
+            }
+            sum += WEIGHTS[i] * digit;
+            yymmdd = i < 6 ? yymmdd * 10 + digit : yymmdd;
+        }
+        return decode(yymmdd, utf8[offset + 9] - '0', sum % 10 == 0);
+    }
+
+    /**
+     * Validates {@code length} UTF-8 bytes starting at the absolute {@code offset} of {@code utf8}, e.g. a line
+     * of a memory-mapped file, without copying them. Leaves the position of the buffer unchanged.
+     *
+     * @return packed result, see the accessors
+     */
+    public static long validate(ByteBuffer utf8, int offset, int length) {
+        if (length != LENGTH) {
+            return charCount(utf8, offset, length) == LENGTH ? NOT_A_NUMBER : INVALID_LENGTH;
+        }
+        int sum = 0;
+        int yymmdd = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            int digit = utf8.get(offset + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return charCount(utf8, offset, length) == LENGTH ? NOT_A_NUMBER : INVALID_LENGTH;
+            }
+            sum += WEIGHTS[i] * digit;
+            yymmdd = i < 6 ? yymmdd * 10 + digit : yymmdd;
+        }
+        return decode(yymmdd, utf8.get(offset + 9) - '0', sum % 10 == 0);
+    }
+
+    /**
+     * Date, gender and check sum rules of an 11 digit PESEL; the date comes from {@link PeselDates}.
+     *
+     * @param yymmdd first six digits as a number
+     */
+    static long decode(int yymmdd, int genderDigit, boolean checkSumValid) {
+        return PeselDates.result(PeselDates.lookup(yymmdd)) | HAS_GENDER | (genderDigit & 1) * MALE
+                | (checkSumValid ? 0 : PeselError.INVC.mask());
+    }
+
+    /**
+     * Packs a result the same way {@link #validate(CharSequence)} does, e.g. from an API response.
+     *
+     * @param errors   mask of {@link PeselError#mask()} bits
+     * @param gender   null when unknown, otherwise true for male
+     * @param epochDay date of birth as epoch day, null when unknown
+     */
+    public static long result(int errors, Boolean gender, Integer epochDay) {
+        int flags = errors & ERRORS;
+        if (gender != null) {
+            flags |= HAS_GENDER | (gender ? MALE : 0);
+        }
+        if (epochDay != null) {
+            flags |= HAS_DATE;
+        }
+        return (epochDay != null ? (long) epochDay << 32 : 0) | (flags & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the part of the result the API exposes: gender and date of birth only for a valid PESEL
+     */
+    public static long apiView(long result) {
+        return isValid(result) ? result : errors(result);
+    }
+
+    /**
+     * @return e.g. "valid, Male, 1998-01-31" or "INVY INVM"
+     */
+    public static String describe(long result) {
+        StringBuilder description = new StringBuilder();
+        int errors = errors(result);
+        if (errors == 0) {
+            description.append("valid");
+        }
+        for (PeselError error : PeselError.values()) {
+            if (error.isSet(errors)) {
+                description.append(description.length() > 0 ? " " : "").append(error.code());
+            }
+        }
+        if (hasGender(result)) {
+            description.append(", ").append(isMale(result) ? "Male" : "Female");
+        }
+        if (hasDateOfBirth(result)) {
+            description.append(", ").append(dateOfBirth(result));
+        }
+        return description.toString();
+    }
+
+    /**
+     * @return mask of {@link PeselError#mask()} bits, 0 for a valid PESEL
+     */
+    public static int errors(long result) {
+        return (int) result & ERRORS;
+    }
+
+    public static boolean isValid(long result) {
+        return errors(result) == 0;
+    }
+
+    public static boolean hasError(long result, PeselError error) {
+        return error.isSet(errors(result));
+    }
+
+    /**
+     * @return true when the PESEL consists of 11 digits, so the gender digit could be read
+     */
+    public static boolean hasGender(long result) {
+        return (result & HAS_GENDER) != 0;
+    }
+
+    /**
+     * @return true for an odd gender digit, meaningful only when {@link #hasGender(long)}
+     */
+    public static boolean isMale(long result) {
+        return (result & MALE) != 0;
+    }
+
+    /**
+     * @return true when year, month and day form an existing date
+     */
+    public static boolean hasDateOfBirth(long result) {
+        return (result & HAS_DATE) != 0;
+    }
+
+    /**
+     * @return date of birth as {@link LocalDate#toEpochDay()}, meaningful only when {@link #hasDateOfBirth(long)}
+     */
+    public static int epochDay(long result) {
+        return (int) (result >> 32);
+    }
+
+    /**
+     * @return date of birth or null, allocates the LocalDate
+     */
+    public static LocalDate dateOfBirth(long result) {
+        return hasDateOfBirth(result) ? LocalDate.ofEpochDay(epochDay(result)) : null;
+    }
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    public static int lengthOfMonth(int year, int month) {
+        return month == 2 && isLeapYear(year) ? 29 : DAYS_IN_MONTH[month];
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date, same as {@link LocalDate#toEpochDay()}.
+     */
+    static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * @return number of UTF-16 units encoded by the UTF-8 bytes
+     */
+    private static int charCount(byte[] utf8, int offset, int length) {
+        int count = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = utf8[i];
+            if ((b & 0xC0) != 0x80) {
+                count += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return count;
+    }
+
+    private static int charCount(ByteBuffer utf8, int offset, int length) {
+        int count = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = utf8.get(i);
+            if ((b & 0xC0) != 0x80) {
+                count += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return count;
+    }
+}
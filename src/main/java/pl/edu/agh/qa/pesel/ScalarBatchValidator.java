@@ -0,0 +1,52 @@
+package pl.edu.agh.qa.pesel;
+
+/**
+ * The rules of {@link PeselValidator} over the lanes of a {@link PeselBatch}, one lane at a time.
+ * Also validates the lanes left over after the last full vector of {@code VectorBatchValidator}.
+ */
+final class ScalarBatchValidator implements PeselBatchValidator {
+
+    static final ScalarBatchValidator INSTANCE = new ScalarBatchValidator();
+
+    private static final int[] WEIGHTS = {1, 3, 7, 9, 1, 3, 7, 9, 1, 3, 1};
+
+    private ScalarBatchValidator() {
+    }
+
+    @Override
+    public void validate(PeselBatch batch) {
+        validate(batch, 0, batch.size());
+        batch.complete();
+    }
+
+    /**
+     * Sets the flags and epoch days of lanes {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    static void validate(PeselBatch batch, int from, int to) {
+        int[][] digits = batch.digits;
+        for (int lane = from; lane < to; lane++) {
+            int sum = 0;
+            int prefix = 0;
+            boolean notDigits = false;
+            for (int i = 0; i < PeselValidator.LENGTH; i++) {
+                int digit = digits[i][lane];
+                notDigits |= digit < 0 || digit > 9;
+                sum += WEIGHTS[i] * digit;
+                prefix = i < 6 ? prefix * 10 + digit : prefix;
+            }
+            if (notDigits) {
+                batch.flags[lane] = PeselBatch.NOT_DIGITS;
+                continue;
+            }
+            int packed = PeselDates.lookup(prefix);
+            batch.flags[lane] = PeselDates.flags(packed) | PeselValidator.HAS_GENDER
+                    | (digits[9][lane] & 1) * PeselValidator.MALE | (sum % 10 == 0 ? 0 : PeselError.INVC.mask());
+            batch.epochDays[lane] = PeselDates.epochDay(packed);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,90 @@
+package pl.edu.agh.qa.pesel.bulk;
+
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+import java.io.PrintStream;
+
+/**
+ * Line counts of a file or chunk validated by {@link BulkValidator}. Not thread safe: every chunk
+ * counts on its own and the results are {@link #add(BulkCounts) added up}.
+ */
+public final class BulkCounts {
+
+    private final long[] errors = new long[PeselError.values().length];
+    private long lines;
+    private long valid;
+    private long blank;
+    private long bytes;
+
+    void count(long result) {
+        lines++;
+        int mask = PeselValidator.errors(result);
+        if (mask == 0) {
+            valid++;
+            return;
+        }
+        while (mask != 0) {
+            errors[Integer.numberOfTrailingZeros(mask)]++;
+            mask &= mask - 1;
+        }
+    }
+
+    void countBlank() {
+        blank++;
+    }
+
+    void countBytes(long count) {
+        bytes += count;
+    }
+
+    public void add(BulkCounts other) {
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] += other.errors[i];
+        }
+        lines += other.lines;
+        valid += other.valid;
+        blank += other.blank;
+        bytes += other.bytes;
+    }
+
+    /**
+     * @return validated lines, blank lines excluded
+     */
+    public long lines() {
+        return lines;
+    }
+
+    public long valid() {
+        return valid;
+    }
+
+    /**
+     * @return lines with at least one error
+     */
+    public long rejected() {
+        return lines - valid;
+    }
+
+    /**
+     * @return lines with the given error; a line may have several
+     */
+    public long errors(PeselError error) {
+        return errors[error.ordinal()];
+    }
+
+    public long blank() {
+        return blank;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("lines: %d, valid: %d, rejected: %d, blank: %d%n", lines, valid, rejected(), blank);
+        for (PeselError error : PeselError.values()) {
+            out.printf("%-5s %12d  %s%n", error.code(), errors[error.ordinal()], error.message());
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package pl.edu.agh.qa.pesel.bulk;
+
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.cli.Target;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.fuzz.PeselFuzzer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Validates a file of PESELs, one per line, against the local rules ({@link PeselValidator}).
+ *
+ * The file is split into line-aligned chunks of about {@code --chunk-mb} MB, each memory-mapped and validated
+ * on a {@link ForkJoinPool} of {@code --threads} workers straight from the mapped bytes, with no String per line.
+ * Chunk results are collected in file order, at most two per worker ahead of the writer, so the rejected lines
+ * are written in order without holding them all. Blank lines are counted but not validated; a trailing '\r' is
+ * ignored.
+ *
+ * Prints the number of lines with each error code (a line may have several). {@code --rejected=FILE} writes
+ * the byte offset and error codes of every rejected line. {@code --sample=N} draws about N random non-blank lines
+ * and checks the answers of the endpoint ({@code --base-uri=...} or an embedded stand-in) for them against the
+ * local rules; the exit code is 1 when they disagree.
+ *
+ * <pre>
+ * BulkValidator FILE [--threads=cores] [--chunk-mb=64] [--rejected=rejected.tsv] [--sample=0] [--seed=random]
+ *                    [--base-uri=https://...] [--in-flight=32] [--timeout=10000]
+ * </pre>
+ */
+public class BulkValidator {
+
+    private static final int LINE_SCAN = 64 * 1024;
+    private static final String[] CODES = new String[1 << PeselError.values().length];
+
+    static {
+        for (int mask = 0; mask < CODES.length; mask++) {
+            StringBuilder codes = new StringBuilder();
+            for (PeselError error : PeselError.values()) {
+                if (error.isSet(mask)) {
+                    codes.append(codes.length() > 0 ? " " : "").append(error.code());
+                }
+            }
+            CODES[mask] = codes.toString();
+        }
+    }
+
+    private final Path input;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final List<Line> samples = new ArrayList<>();
+
+    /**
+     * @param chunkSize bytes per chunk, rounded up to the next line end
+     */
+    public BulkValidator(Path input, ForkJoinPool pool, long chunkSize) {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("chunkSize must be between 1 byte and 1 GB: " + chunkSize);
+        }
+        this.input = input;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        if (arguments.positional().size() != 1) {
+            System.err.println("Usage: BulkValidator FILE [--threads=N] [--chunk-mb=64] [--rejected=FILE] [--sample=N]"
+                    + " [--seed=S] [--base-uri=https://...] [--in-flight=32] [--timeout=10000]");
+            System.exit(2);
+        }
+        Path input = Paths.get(arguments.positional().get(0));
+        int threads = arguments.integer("threads", Runtime.getRuntime().availableProcessors());
+        int sample = arguments.integer("sample", 0);
+        long seed = arguments.longValue("seed", System.nanoTime());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        BulkValidator validator = new BulkValidator(input, pool, arguments.integer("chunk-mb", 64) * (1L << 20));
+        long start = System.nanoTime();
+        BulkCounts counts;
+        try {
+            if (arguments.has("rejected")) {
+                try (BufferedWriter rejected = Files.newBufferedWriter(Paths.get(arguments.string("rejected", "")),
+                        StandardCharsets.UTF_8)) {
+                    counts = validator.run(rejected, sample, seed);
+                }
+            } else {
+                counts = validator.run(null, sample, seed);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %.1f MB in %.2f s on %d threads (%.0f MB/s, %.1f M lines/s)%n", input,
+                counts.bytes() / 1e6, seconds, threads, counts.bytes() / 1e6 / seconds, counts.lines() / 1e6 / seconds);
+        counts.print(System.out);
+        if (sample > 0 && validator.crossCheck(arguments, System.out) > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Validates the whole file.
+     *
+     * @param rejected   receives "offset TAB codes" per rejected line, in file order; null to skip
+     * @param sampleSize about this many non-blank lines are kept for {@link #samples()}
+     * @param seed       seed of the sample
+     */
+    public BulkCounts run(Writer rejected, int sampleSize, long seed) throws IOException {
+        samples.clear();
+        BulkCounts total = new BulkCounts();
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // twice the wanted size from the expected line count, cut down to sampleSize after the run
+            double sampleRate = sampleSize <= 0 ? 0 : Math.min(1, 2.0 * sampleSize * (PeselValidator.LENGTH + 1) / Math.max(1, size));
+            int window = pool.getParallelism() * 2;
+            Deque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>(window);
+            int index = 0;
+            for (long start = 0; start < size; index++) {
+                long end = lineEnd(channel, Math.min(start + chunkSize, size), size);
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException(input + " has a line longer than 1 GB after byte " + start);
+                }
+                if (pending.size() == window) {
+                    collect(pending.poll(), total, rejected);
+                }
+                long chunkStart = start;
+                long chunkSeed = seed ^ (index * 0x9E3779B97F4A7C15L);
+                pending.add(pool.submit(() -> validate(channel, chunkStart, end, rejected != null, sampleRate, chunkSeed)));
+                start = end;
+            }
+            while (!pending.isEmpty()) {
+                collect(pending.poll(), total, rejected);
+            }
+        }
+        if (samples.size() > sampleSize) {
+            Collections.shuffle(samples, new Random(seed));
+            samples.subList(sampleSize, samples.size()).clear();
+            samples.sort(Comparator.comparingLong(Line::offset));
+        }
+        return total;
+    }
+
+    /**
+     * @return offset just after the first line end at or after {@code position - 1}, or {@code size}
+     */
+    static long lineEnd(FileChannel channel, long position, long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(LINE_SCAN);
+        for (long at = position - 1; at < size; at += buffer.limit()) {
+            buffer.clear();
+            if (channel.read(buffer, at) < 0) {
+                break;
+            }
+            buffer.flip();
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return at + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private Chunk validate(FileChannel channel, long start, long end, boolean keepRejected, double sampleRate, long seed) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Chunk chunk = new Chunk();
+        chunk.counts.countBytes(end - start);
+        SplittableRandom random = new SplittableRandom(seed);
+        long line = 0;
+        long nextSample = sampleRate > 0 ? skip(random, sampleRate) : Long.MAX_VALUE;
+        int limit = (int) (end - start);
+        int position = 0;
+        while (position < limit) {
+            int eol = position;
+            while (eol < limit && buffer.get(eol) != '\n') {
+                eol++;
+            }
+            int length = eol > position && buffer.get(eol - 1) == '\r' ? eol - position - 1 : eol - position;
+            if (length == 0) {
+                chunk.counts.countBlank();
+            } else {
+                long result = PeselValidator.validate(buffer, position, length);
+                chunk.counts.count(result);
+                if (keepRejected && !PeselValidator.isValid(result)) {
+                    chunk.reject(start + position, PeselValidator.errors(result));
+                }
+                if (line++ == nextSample) {
+                    byte[] bytes = new byte[length];
+                    for (int i = 0; i < length; i++) {
+                        bytes[i] = buffer.get(position + i);
+                    }
+                    chunk.samples.add(new Line(start + position, new String(bytes, StandardCharsets.UTF_8)));
+                    nextSample = line + skip(random, sampleRate);
+                }
+            }
+            position = eol + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * @return lines to skip before the next sampled one, geometrically distributed
+     */
+    private static long skip(SplittableRandom random, double rate) {
+        return rate >= 1 ? 0 : (long) (Math.log(1 - random.nextDouble()) / Math.log(1 - rate));
+    }
+
+    private void collect(ForkJoinTask<Chunk> task, BulkCounts total, Writer rejected) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        total.add(chunk.counts);
+        samples.addAll(chunk.samples);
+        if (rejected != null) {
+            for (int i = 0; i < chunk.rejectedCount; i++) {
+                rejected.write(Long.toString(chunk.rejectedOffsets[i]));
+                rejected.write('\t');
+                rejected.write(CODES[chunk.rejectedErrors[i]]);
+                rejected.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Sends the sampled lines to the endpoint and prints where its answers differ from the local rules.
+     *
+     * @return number of differing answers
+     */
+    public int crossCheck(Arguments arguments, PrintStream out) throws IOException, InterruptedException {
+        ExecutorService executor = VirtualThreads.newExecutor("bulk-cross-check");
+        try (Target target = Target.of(arguments)) {
+            PeselHttpClient client = new PeselHttpClient(target.baseUri(),
+                    Duration.ofMillis(arguments.integer("timeout", 10000)), executor);
+            List<String> mismatches = crossCheck(client, arguments.integer("in-flight", 32));
+            out.printf("Cross-checked %d sampled lines against %s: %d mismatches%n", samples.size(), target,
+                    mismatches.size());
+            mismatches.stream().limit(20).forEach(out::println);
+            return mismatches.size();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return "offset TAB input TAB expected TAB actual" of every sampled line the endpoint answers differently
+     */
+    public List<String> crossCheck(PeselHttpClient client, int inFlight) throws InterruptedException {
+        Semaphore permits = new Semaphore(inFlight);
+        Queue<String> mismatches = new ConcurrentLinkedQueue<>();
+        for (Line line : samples) {
+            permits.acquire();
+            client.get(line.text).whenComplete((response, failure) -> {
+                try {
+                    String actual = failure != null ? "error: " + failure
+                            : PeselFuzzer.mismatch(line.text, response.statusCode(), response.body());
+                    if (actual != null) {
+                        mismatches.add(line.offset + "\t" + PeselFuzzer.escape(line.text) + "\t"
+                                + PeselValidator.describe(PeselValidator.apiView(PeselValidator.validate(line.text)))
+                                + "\t" + actual);
+                    }
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+        permits.acquire(inFlight);
+        List<String> result = new ArrayList<>(mismatches);
+        result.sort(Comparator.comparingLong(mismatch -> Long.parseLong(mismatch.substring(0, mismatch.indexOf('\t')))));
+        return result;
+    }
+
+    /**
+     * @return the sampled lines of the last run, in file order
+     */
+    public List<Line> samples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * A line of the input and its byte offset.
+     */
+    public static final class Line {
+
+        private final long offset;
+        private final String text;
+
+        Line(long offset, String text) {
+            this.offset = offset;
+            this.text = text;
+        }
+
+        public long offset() {
+            return offset;
+        }
+
+        public String text() {
+            return text;
+        }
+    }
+
+    private static final class Chunk {
+
+        final BulkCounts counts = new BulkCounts();
+        final List<Line> samples = new ArrayList<>();
+        long[] rejectedOffsets = new long[0];
+        byte[] rejectedErrors = new byte[0];
+        int rejectedCount;
+
+        void reject(long offset, int errors) {
+            if (rejectedCount == rejectedOffsets.length) {
+                int capacity = Math.max(1024, rejectedCount * 2);
+                rejectedOffsets = Arrays.copyOf(rejectedOffsets, capacity);
+                rejectedErrors = Arrays.copyOf(rejectedErrors, capacity);
+            }
+            rejectedOffsets[rejectedCount] = offset;
+            rejectedErrors[rejectedCount++] = (byte) errors;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package pl.edu.agh.qa.pesel.bulk;
+
+import pl.edu.agh.qa.pesel.PeselBatch;
+import pl.edu.agh.qa.pesel.PeselBatchValidator;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares validating PESELs one by one ({@link PeselValidator#validate(byte[], int, int)}) with validating them
+ * in batches ({@link PeselBatch}) by the scalar and, when the JVM runs with {@code --add-modules jdk.incubator.vector},
+ * the vector {@link PeselBatchValidator}. The input is {@code --count} 11 digit PESELs packed into one array,
+ * {@code --valid} percent of them valid, the rest random digits; batch times include filling the batch.
+ *
+ * The "filled" rows time the batch validators alone, on input already laid out by digit position as a columnar
+ * source would hand it over: the first {@code --filled} PESELs are added to batches once, before the clock starts,
+ * and those batches are validated over and over until {@code --count} PESELs were validated.
+ *
+ * <pre>
+ * ValidationBenchmark [--count=1000000] [--valid=90] [--batch=1024] [--filled=65536] [--rounds=10] [--seed=1]
+ * </pre>
+ */
+public class ValidationBenchmark {
+
+    public static void main(String[] args) {
+        Arguments arguments = Arguments.parse(args);
+        int count = arguments.integer("count", 1_000_000);
+        int batchSize = arguments.integer("batch", 1024);
+        int rounds = arguments.integer("rounds", 10);
+        byte[] input = generate(count, arguments.integer("valid", 90), arguments.longValue("seed", 1));
+        PeselBatchValidator vector = PeselBatchValidator.create();
+        PeselBatchValidator scalar = PeselBatchValidator.scalar();
+        PeselBatch[] filled = fill(input, Math.min(count, arguments.integer("filled", 65_536)), batchSize);
+        System.out.printf("%d PESELs, batches of %d%n", count, batchSize);
+        System.out.printf("%-40s %5s %10s %12s%n", "validation", "round", "M/s", "checksum");
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            long checksum = single(input, count);
+            print("single", round, count, start, checksum);
+            start = System.nanoTime();
+            checksum = batched(input, count, new PeselBatch(batchSize), scalar);
+            print("batch " + scalar.name(), round, count, start, checksum);
+            if (vector != scalar) {
+                start = System.nanoTime();
+                checksum = batched(input, count, new PeselBatch(batchSize), vector);
+                print("batch " + vector.name(), round, count, start, checksum);
+            }
+            start = System.nanoTime();
+            checksum = validateFilled(filled, count, scalar);
+            print("filled batch " + scalar.name(), round, count, start, checksum);
+            if (vector != scalar) {
+                start = System.nanoTime();
+                checksum = validateFilled(filled, count, vector);
+                print("filled batch " + vector.name(), round, count, start, checksum);
+            }
+        }
+    }
+
+    private static byte[] generate(int count, int validPercent, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[] input = new byte[count * PeselValidator.LENGTH];
+        for (int i = 0; i < count; i++) {
+            int offset = i * PeselValidator.LENGTH;
+            do {
+                for (int j = 0; j < PeselValidator.LENGTH; j++) {
+                    input[offset + j] = (byte) ('0' + random.nextInt(10));
+                }
+            } while (random.nextInt(100) < validPercent && !PeselValidator.isValid(
+                    PeselValidator.validate(input, offset, PeselValidator.LENGTH)));
+        }
+        return input;
+    }
+
+    private static long single(byte[] input, int count) {
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            checksum += PeselValidator.validate(input, i * PeselValidator.LENGTH, PeselValidator.LENGTH);
+        }
+        return checksum;
+    }
+
+    private static long batched(byte[] input, int count, PeselBatch batch, PeselBatchValidator validator) {
+        long checksum = 0;
+        for (int i = 0; i < count; i++) {
+            batch.add(input, i * PeselValidator.LENGTH, PeselValidator.LENGTH);
+            if (batch.isFull() || i == count - 1) {
+                validator.validate(batch);
+                for (int lane = 0; lane < batch.size(); lane++) {
+                    checksum += batch.result(lane);
+                }
+                batch.clear();
+            }
+        }
+        return checksum;
+    }
+
+    private static PeselBatch[] fill(byte[] input, int count, int batchSize) {
+        PeselBatch[] batches = new PeselBatch[(count + batchSize - 1) / batchSize];
+        for (int i = 0; i < count; i++) {
+            if (i % batchSize == 0) {
+                batches[i / batchSize] = new PeselBatch(batchSize);
+            }
+            batches[i / batchSize].add(input, i * PeselValidator.LENGTH, PeselValidator.LENGTH);
+        }
+        return batches;
+    }
+
+    /**
+     * Validates the {@code batches} round robin until {@code count} PESELs were validated.
+     */
+    private static long validateFilled(PeselBatch[] batches, int count, PeselBatchValidator validator) {
+        long checksum = 0;
+        for (int validated = 0, next = 0; validated < count; next = (next + 1) % batches.length) {
+            PeselBatch batch = batches[next];
+            validator.validate(batch);
+            checksum += batch.result(batch.size() - 1);
+            validated += batch.size();
+        }
+        return checksum;
+    }
+
+    private static void print(String name, int round, int count, long startNanos, long checksum) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-40s %5d %10.1f %12x%n", name, round, count / seconds / 1e6, checksum & 0xFFFFFFFFFFFFL);
+    }
+}
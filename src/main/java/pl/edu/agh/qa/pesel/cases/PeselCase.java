@@ -0,0 +1,97 @@
+package pl.edu.agh.qa.pesel.cases;
+
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.PeselError;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One row of a test case table: a request and every field of the response expected for it.
+ */
+public final class PeselCase {
+
+    private final String source;
+    private final String pesel;
+    private final int status;
+    private final List<PeselError> errors;
+    private final List<String> messages;
+    private final Gender gender;
+    private final LocalDate dateOfBirth;
+
+    /**
+     * @param source      where the case was read from, e.g. "regression.csv:12"
+     * @param pesel       'pesel' parameter, null for a request without it
+     * @param status      expected HTTP status
+     * @param errors      expected error codes, in the order the API reports them
+     * @param messages    expected error messages, null for the messages of {@code errors}
+     * @param gender      expected gender, null when the PESEL is not valid
+     * @param dateOfBirth expected date of birth, null when the PESEL is not valid
+     */
+    public PeselCase(String source, String pesel, int status, List<PeselError> errors, List<String> messages,
+                     Gender gender, LocalDate dateOfBirth) {
+        this.source = source;
+        this.pesel = pesel;
+        this.status = status;
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        if (messages == null) {
+            List<String> defaults = new ArrayList<>(errors.size());
+            for (PeselError error : errors) {
+                defaults.add(error.message());
+            }
+            this.messages = Collections.unmodifiableList(defaults);
+        } else {
+            this.messages = Collections.unmodifiableList(new ArrayList<>(messages));
+        }
+        this.gender = gender;
+        this.dateOfBirth = dateOfBirth;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * @return 'pesel' parameter, null for a request without it
+     */
+    public String pesel() {
+        return pesel;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    /**
+     * @return expected 'isValid': a 200 response without errors
+     */
+    public boolean isValid() {
+        return status == 200 && errors.isEmpty();
+    }
+
+    public List<PeselError> errors() {
+        return errors;
+    }
+
+    public List<String> messages() {
+        return messages;
+    }
+
+    public Gender gender() {
+        return gender;
+    }
+
+    public LocalDate dateOfBirth() {
+        return dateOfBirth;
+    }
+
+    /**
+     * @return e.g. "regression.csv:12 44051401458", shown for the DataProvider row
+     */
+    @Override
+    public String toString() {
+        return source + " " + (pesel == null ? "(no pesel)" : pesel);
+    }
+}
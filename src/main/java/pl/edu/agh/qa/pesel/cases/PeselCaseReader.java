@@ -0,0 +1,357 @@
+package pl.edu.agh.qa.pesel.cases;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.PeselError;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads {@link PeselCase}s one line at a time, so a table of any size is read in constant memory
+ * and its first case is available before the rest of the file is read.
+ *
+ * CSV: the first line names the columns, in any order: pesel (required), status (200), errors, messages,
+ * gender, dateOfBirth. Errors and messages are separated by '|'; a field may be quoted with '"' (a quote inside
+ * doubled) and may then hold commas, but not line breaks. An empty unquoted pesel means a request without the
+ * parameter, {@code ""} an empty one.
+ * <pre>
+ * pesel,status,errors,messages,gender,dateOfBirth
+ * 44051401458,200,,,Male,1944-05-14
+ * 44051401459,200,INVC,,,
+ * ,400,,,,
+ * </pre>
+ * JSON lines: one object per line with the same fields; errors and messages are arrays, pesel null or missing
+ * means a request without the parameter.
+ * <pre>
+ * {"pesel":"44051401458","status":200,"errors":[],"gender":"Male","dateOfBirth":"1944-05-14"}
+ * </pre>
+ * Missing messages default to the messages of the errors. Blank lines and lines starting with '#' are skipped.
+ * A malformed line fails with an {@link IllegalArgumentException} naming the file and line.
+ */
+public final class PeselCaseReader implements Iterator<PeselCase>, Closeable {
+
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * @return format by file extension: .csv, .jsonl or .ndjson
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSONL;
+            }
+            throw new IllegalArgumentException("Not a .csv or .jsonl case table: " + file);
+        }
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final String[] COLUMNS = {"pesel", "status", "errors", "messages", "gender", "dateOfBirth"};
+
+    private final BufferedReader reader;
+    private final String name;
+    private final Format format;
+    // CSV column of each of COLUMNS, -1 when absent
+    private int[] columns;
+    private int lineNumber;
+    private PeselCase next;
+    private boolean closed;
+
+    /**
+     * @param name shown in {@link PeselCase#source()} and errors, e.g. the file name
+     */
+    public PeselCaseReader(Reader reader, String name, Format format) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.name = name;
+        this.format = format;
+    }
+
+    public static PeselCaseReader open(Path file) throws IOException {
+        return new PeselCaseReader(Files.newBufferedReader(file, StandardCharsets.UTF_8),
+                file.getFileName().toString(), Format.of(file));
+    }
+
+    /**
+     * @return the cases of all files, in order; each file is opened when the previous one is exhausted and closed
+     * when it is exhausted itself
+     */
+    public static Iterator<PeselCase> readAll(List<Path> files) {
+        return new Iterator<>() {
+            private final Iterator<Path> remaining = files.iterator();
+            private PeselCaseReader current;
+
+            @Override
+            public boolean hasNext() {
+                while (current == null || !current.hasNext()) {
+                    if (current != null) {
+                        current.close();
+                        current = null;
+                    }
+                    if (!remaining.hasNext()) {
+                        return false;
+                    }
+                    try {
+                        current = open(remaining.next());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public PeselCase next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !closed) {
+            try {
+                next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(name + ":" + lineNumber, e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public PeselCase next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        PeselCase result = next;
+        next = null;
+        return result;
+    }
+
+    private PeselCase read() throws IOException {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            if (format == Format.JSONL) {
+                return parseJson(line);
+            }
+            if (columns == null) {
+                columns = header(splitCsv(line));
+                continue;
+            }
+            return parseCsv(splitCsv(line));
+        }
+        return null;
+    }
+
+    private int[] header(List<String> names) {
+        int[] indexes = new int[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            indexes[i] = -1;
+            for (int j = 0; j < names.size(); j++) {
+                if (COLUMNS[i].equalsIgnoreCase(names.get(j) == null ? "" : names.get(j).trim())) {
+                    indexes[i] = j;
+                }
+            }
+        }
+        if (indexes[0] < 0) {
+            throw invalid("no 'pesel' column in " + names);
+        }
+        return indexes;
+    }
+
+    private PeselCase parseCsv(List<String> fields) {
+        String[] values = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            values[i] = columns[i] >= 0 && columns[i] < fields.size() ? fields.get(columns[i]) : null;
+        }
+        String messages = values[3];
+        return create(values[0], values[1], split(values[2]),
+                messages == null || messages.isEmpty() ? null : split(messages), values[4], values[5]);
+    }
+
+    private static List<String> split(String values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int bar = values.indexOf('|'); bar >= 0; bar = values.indexOf('|', start)) {
+            parts.add(values.substring(start, bar));
+            start = bar + 1;
+        }
+        parts.add(values.substring(start));
+        return parts;
+    }
+
+    /**
+     * @return fields of the line; an empty unquoted field is null, an empty quoted one ""
+     */
+    private List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            boolean quoted = i < line.length() && line.charAt(i) == '"';
+            if (quoted) {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw invalid("unterminated quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw invalid("unexpected character after quoted field at column " + (i + 1));
+                }
+            } else {
+                while (i < line.length() && line.charAt(i) != ',') {
+                    field.append(line.charAt(i++));
+                }
+            }
+            fields.add(!quoted && field.length() == 0 ? null : field.toString());
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    private PeselCase parseJson(String line) throws IOException {
+        Map<String, Object> values = new HashMap<>();
+        try (JsonParser parser = JSON.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw invalid("expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    List<String> items = new ArrayList<>();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        items.add(parser.getText());
+                    }
+                    values.put(field, items);
+                } else if (token.isStructStart()) {
+                    throw invalid("unexpected object in '" + field + "'");
+                } else {
+                    values.put(field, token == JsonToken.VALUE_NULL ? null : parser.getText());
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw invalid(e.getOriginalMessage());
+        }
+        return create(string(values, "pesel"), string(values, "status"), list(values, "errors"),
+                values.containsKey("messages") ? list(values, "messages") : null,
+                string(values, "gender"), string(values, "dateOfBirth"));
+    }
+
+    private String string(Map<String, Object> values, String field) {
+        Object value = values.get(field);
+        if (value instanceof List) {
+            throw invalid("'" + field + "' must not be an array");
+        }
+        return (String) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> list(Map<String, Object> values, String field) {
+        Object value = values.get(field);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (!(value instanceof List)) {
+            throw invalid("'" + field + "' must be an array");
+        }
+        return (List<String>) value;
+    }
+
+    private PeselCase create(String pesel, String status, List<String> errorCodes, List<String> messages,
+                             String gender, String dateOfBirth) {
+        int statusCode;
+        try {
+            statusCode = status == null || status.isEmpty() ? 200 : Integer.parseInt(status.trim());
+        } catch (NumberFormatException e) {
+            throw invalid("status is not a number: " + status);
+        }
+        List<PeselError> errors = new ArrayList<>(errorCodes.size());
+        for (String code : errorCodes) {
+            PeselError error = PeselError.fromCode(code.trim());
+            if (error == null) {
+                throw invalid("unknown error code: " + code);
+            }
+            errors.add(error);
+        }
+        if (messages != null && messages.size() != errors.size()) {
+            throw invalid(messages.size() + " messages for " + errors.size() + " errors");
+        }
+        Gender expectedGender = null;
+        if (gender != null && !gender.isEmpty()) {
+            expectedGender = Gender.fromLabel(gender.trim());
+            if (expectedGender == null) {
+                throw invalid("unknown gender: " + gender);
+            }
+        }
+        LocalDate date = null;
+        if (dateOfBirth != null && !dateOfBirth.isEmpty()) {
+            try {
+                date = LocalDate.parse(dateOfBirth.trim());
+            } catch (DateTimeException e) {
+                throw invalid("dateOfBirth is not yyyy-MM-dd: " + dateOfBirth);
+            }
+        }
+        return new PeselCase(name + ":" + lineNumber, pesel, statusCode, errors, messages, expectedGender, date);
+    }
+
+    private IllegalArgumentException invalid(String message) {
+        return new IllegalArgumentException(name + ":" + lineNumber + ": " + message);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        next = null;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
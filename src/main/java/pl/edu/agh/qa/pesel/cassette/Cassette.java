@@ -0,0 +1,293 @@
+package pl.edu.agh.qa.pesel.cassette;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Recorded responses, replayed from a memory-mapped cassette file written by {@link CassetteRecorder}.
+ *
+ * The file is a header followed by appended records:
+ * <pre>
+ * header: "PESELCAS" | int version | int length | base URI (UTF-8, empty for the embedded stand-in)
+ * record: int length | long key hash | long recorded at (epoch ms) | int status | int CRC32 of key and body
+ *         | int key length | key (UTF-8) | body
+ * </pre>
+ * Opening the cassette scans the records once and builds an open-addressed index (linear probing)
+ * from the key hash to the record offset; a key recorded again later replaces the earlier record.
+ * Lookups read the mapped file directly, so they are safe from any number of threads.
+ */
+public final class Cassette implements Closeable {
+
+    static final byte[] MAGIC = "PESELCAS".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int RECORD_HEADER = 32;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final String baseUri;
+    private final long[] hashes;
+    private final int[] offsets;
+    private final int mask;
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private int size;
+
+    private Cassette(Path path, FileChannel channel, MappedByteBuffer buffer, String baseUri, int records) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.baseUri = baseUri;
+        int capacity = Integer.highestOneBit(Math.max(2, records) * 2 - 1) << 1;
+        this.hashes = new long[capacity];
+        this.offsets = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @throws IOException when the file is not a cassette, has another format version or ends in a partial record
+     */
+    public static Cassette open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Cassette " + path + " is larger than 2 GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            String baseUri = readHeader(path, buffer);
+            int[] records = new int[64];
+            int count = 0;
+            int offset = buffer.position();
+            while (offset < length) {
+                int recordLength = length - offset < 4 ? -1 : buffer.getInt(offset);
+                if (recordLength < RECORD_HEADER || recordLength > length - offset
+                        || buffer.getInt(offset + 28) < 0 || buffer.getInt(offset + 28) > recordLength - RECORD_HEADER) {
+                    throw new IOException("Cassette " + path + " ends in a partial record at byte " + offset
+                            + " (interrupted recording?), record it again");
+                }
+                if (count == records.length) {
+                    records = Arrays.copyOf(records, count * 2);
+                }
+                records[count++] = offset;
+                offset += recordLength;
+            }
+            Cassette cassette = new Cassette(path, channel, buffer, baseUri, count);
+            for (int i = 0; i < count; i++) {
+                cassette.put(records[i]);
+            }
+            return cassette;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static String readHeader(Path path, ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() < MAGIC.length + 8) {
+            throw new IOException(path + " is not a PESEL API cassette");
+        }
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException(path + " is not a PESEL API cassette");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Cassette " + path + " has format version " + version + ", expected " + VERSION
+                    + "; record it again");
+        }
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Cassette " + path + " has a damaged header");
+        }
+        byte[] baseUri = new byte[length];
+        buffer.get(baseUri);
+        return new String(baseUri, StandardCharsets.UTF_8);
+    }
+
+    private void put(int offset) {
+        long hash = buffer.getLong(offset + 4);
+        int slot = (int) mix(hash) & mask;
+        while (offsets[slot] != 0) {
+            if (hashes[slot] == hash && sameKey(offsets[slot], offset)) {
+                offsets[slot] = offset;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        offsets[slot] = offset;
+        size++;
+    }
+
+    /**
+     * @return the last recording of {@code key}, null when it was not recorded
+     * @throws IllegalStateException when the recording is damaged
+     */
+    public Entry find(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(bytes);
+        for (int slot = (int) mix(hash) & mask; offsets[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && keyEquals(offsets[slot], bytes)) {
+                return entry(key, offsets[slot]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param maxAge recordings older than this are stale, null for no limit
+     * @return the last recording of {@code key}
+     * @throws CassetteMissException when {@code key} was not recorded or its recording is stale
+     */
+    public Entry replay(String key, Duration maxAge) {
+        Entry entry = find(key);
+        if (entry == null) {
+            misses.increment();
+            throw new CassetteMissException(key, "Request " + key + " was not recorded in cassette " + path
+                    + "; record it against " + describe(baseUri) + " first");
+        }
+        if (maxAge != null && entry.recordedAt().isBefore(Instant.now().minus(maxAge))) {
+            misses.increment();
+            throw new CassetteMissException(key, "Recording of " + key + " in cassette " + path + " is stale: made "
+                    + entry.recordedAt() + ", older than " + maxAge + "; record it again");
+        }
+        replayed.increment();
+        return entry;
+    }
+
+    private Entry entry(String key, int offset) {
+        int length = buffer.getInt(offset);
+        int keyLength = buffer.getInt(offset + 28);
+        byte[] body = new byte[length - RECORD_HEADER - keyLength];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + RECORD_HEADER + keyLength);
+        view.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(key.getBytes(StandardCharsets.UTF_8));
+        crc.update(body);
+        if ((int) crc.getValue() != buffer.getInt(offset + 24)) {
+            throw new IllegalStateException("Recording of " + key + " in cassette " + path + " at byte " + offset
+                    + " is damaged (checksum mismatch); record it again");
+        }
+        return new Entry(Instant.ofEpochMilli(buffer.getLong(offset + 12)), buffer.getInt(offset + 20), body);
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+        if (buffer.getInt(offset + 28) != key.length) {
+            return false;
+        }
+        int start = offset + RECORD_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean sameKey(int first, int second) {
+        int length = buffer.getInt(first + 28);
+        if (buffer.getInt(second + 28) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(first + RECORD_HEADER + i) != buffer.get(second + RECORD_HEADER + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 key.
+     */
+    static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // FNV-1a mixes its low bits poorly for short keys differing in the last characters
+    private static long mix(long hash) {
+        return hash ^ (hash >>> 32) ^ (hash >>> 17);
+    }
+
+    static String describe(String baseUri) {
+        return baseUri.isEmpty() ? "the embedded stand-in" : baseUri;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return service the cassette was recorded against, empty for the embedded stand-in
+     */
+    public String baseUri() {
+        return baseUri;
+    }
+
+    /**
+     * @return number of distinct recorded requests
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return e.g. "recordings: 96, replayed: 96, misses: 0, recorded against: the embedded stand-in"
+     */
+    public String stats() {
+        return String.format("recordings: %d, replayed: %d, misses: %d, recorded against: %s",
+                size, replayed.sum(), misses.sum(), describe(baseUri));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One recorded response.
+     */
+    public static final class Entry {
+
+        private final Instant recordedAt;
+        private final int status;
+        private final byte[] body;
+
+        Entry(Instant recordedAt, int status, byte[] body) {
+            this.recordedAt = recordedAt;
+            this.status = status;
+            this.body = body;
+        }
+
+        public Instant recordedAt() {
+            return recordedAt;
+        }
+
+        public int status() {
+            return status;
+        }
+
+        public byte[] body() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pl.edu.agh.qa.pesel.cassette;
+
+/**
+ * A replayed request has no usable recording; replay never falls back to the network.
+ */
+public class CassetteMissException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String key;
+
+    CassetteMissException(String key, String message) {
+        super(message);
+        this.key = key;
+    }
+
+    /**
+     * @return the request, e.g. "GET /api/Pesel?pesel=44051401458"
+     */
+    public String key() {
+        return key;
+    }
+}
@@ -0,0 +1,111 @@
+package pl.edu.agh.qa.pesel.cassette;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Appends request/response pairs to a {@link Cassette} file.
+ *
+ * An existing cassette is appended to when it was recorded against the same service; records are never
+ * rewritten, a request recorded again shadows its earlier recording on replay. Each record goes to the
+ * file in one write, so a recording interrupted by a crash loses at most its last record, which
+ * {@link Cassette#open(Path)} then reports.
+ */
+public final class CassetteRecorder implements Closeable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final AtomicLong records = new AtomicLong();
+
+    private CassetteRecorder(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * @param baseUri service being recorded, empty for the embedded stand-in
+     * @throws IOException when the file exists and is not a cassette of the same service
+     */
+    public static CassetteRecorder open(Path path, String baseUri) throws IOException {
+        if (Files.exists(path) && Files.size(path) > 0) {
+            try (Cassette existing = Cassette.open(path)) {
+                if (!existing.baseUri().equals(baseUri)) {
+                    throw new IOException("Cassette " + path + " was recorded against "
+                            + Cassette.describe(existing.baseUri()) + ", not " + Cassette.describe(baseUri)
+                            + "; delete it or record to another file");
+                }
+            }
+            return new CassetteRecorder(path, FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        byte[] uri = baseUri.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(Cassette.MAGIC.length + 8 + uri.length);
+        header.put(Cassette.MAGIC).putInt(Cassette.VERSION).putInt(uri.length).put(uri).flip();
+        writeFully(channel, header);
+        return new CassetteRecorder(path, channel);
+    }
+
+    /**
+     * @param key request, e.g. "GET /api/Pesel?pesel=44051401458"
+     */
+    public void record(String key, int status, byte[] body) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(body);
+        int length = Cassette.RECORD_HEADER + keyBytes.length + body.length;
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length)
+                .putLong(Cassette.hash(keyBytes))
+                .putLong(System.currentTimeMillis())
+                .putInt(status)
+                .putInt((int) crc.getValue())
+                .putInt(keyBytes.length)
+                .put(keyBytes)
+                .put(body)
+                .flip();
+        synchronized (this) {
+            writeFully(channel, record);
+        }
+        records.incrementAndGet();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return records appended by this recorder
+     */
+    public long recordCount() {
+        return records.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package pl.edu.agh.qa.pesel.cli;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the tools: {@code --name=value} options, {@code --flag} switches and positional arguments.
+ */
+public final class Arguments {
+
+    private final Map<String, String> options;
+    private final List<String> positional;
+
+    private Arguments(Map<String, String> options, List<String> positional) {
+        this.options = options;
+        this.positional = positional;
+    }
+
+    public static Arguments parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    options.put(arg.substring(2), "true");
+                } else {
+                    options.put(arg.substring(2, eq), arg.substring(eq + 1));
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+        return new Arguments(options, positional);
+    }
+
+    public boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    public String string(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    public int integer(String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long longValue(String name, long defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public double decimal(String name, double defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    public boolean flag(String name) {
+        return Boolean.parseBoolean(options.getOrDefault(name, "false"));
+    }
+
+    public List<String> positional() {
+        return Collections.unmodifiableList(positional);
+    }
+}
@@ -0,0 +1,50 @@
+package pl.edu.agh.qa.pesel.cli;
+
+/**
+ * Escaping of values in the tab separated files the tools write: backslashes, tabs and line breaks become
+ * {@code \\}, {@code \t}, {@code \n} and {@code \r}, so every value stays in its field and every record on its line.
+ */
+public final class TabSeparated {
+
+    private TabSeparated() {
+    }
+
+    public static String escape(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '\\' ? "\\\\" : c == '\t' ? "\\t" : c == '\n' ? "\\n" : c == '\r' ? "\\r" : null;
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
+    /**
+     * Reverses {@link #escape(String)}; a backslash before any other character stands for that character.
+     */
+    public static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder plain = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                plain.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            plain.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return plain.toString();
+    }
+}
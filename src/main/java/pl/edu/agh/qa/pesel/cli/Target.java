@@ -0,0 +1,49 @@
+package pl.edu.agh.qa.pesel.cli;
+
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.io.IOException;
+
+/**
+ * Validator instance a tool talks to: the service given by {@code --base-uri=...},
+ * or an embedded {@link PeselValidatorStub} started for the run when the option is absent.
+ */
+public final class Target implements AutoCloseable {
+
+    private final String baseUri;
+    private final PeselValidatorStub stub;
+
+    private Target(String baseUri, PeselValidatorStub stub) {
+        this.baseUri = baseUri;
+        this.stub = stub;
+    }
+
+    public static Target of(Arguments arguments) throws IOException {
+        String baseUri = arguments.string("base-uri", "").trim();
+        if (!baseUri.isEmpty()) {
+            return new Target(baseUri, null);
+        }
+        PeselValidatorStub stub = PeselValidatorStub.start(0);
+        return new Target(stub.baseUri(), stub);
+    }
+
+    public String baseUri() {
+        return baseUri;
+    }
+
+    public boolean isLocal() {
+        return stub != null;
+    }
+
+    @Override
+    public void close() {
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return isLocal() ? baseUri + " (embedded stand-in)" : baseUri;
+    }
+}
@@ -0,0 +1,109 @@
+package pl.edu.agh.qa.pesel.client;
+
+import java.time.Duration;
+
+/**
+ * Paces requests at a rate adjusted AIMD-style: every successful response adds {@code increase / rate},
+ * i.e. about {@code increase} requests per second for every second of successes, and every throttled one
+ * (429, 5xx, timeout) multiplies the rate by {@code decreaseFactor}. A burst of throttled responses caused by
+ * one overload backs off once: decreases closer than {@code cooldown} to the previous one are ignored.
+ *
+ * Requests are spaced {@code 1 / rate} apart; idle time does not build up credit for a later burst.
+ */
+public class AdaptiveRateLimiter {
+
+    private final double minRate;
+    private final double maxRate;
+    private final double increase;
+    private final double decreaseFactor;
+    private final long cooldownNanos;
+    private double rate;
+    private long nextFreeNanos = System.nanoTime();
+    private long lastDecreaseNanos;
+    private long backoffs;
+
+    /**
+     * @param initialRate    requests per second to start with
+     * @param minRate        lower bound of the rate
+     * @param maxRate        upper bound of the rate
+     * @param increase       requests per second added per second of successful responses
+     * @param decreaseFactor multiplies the rate on a throttled response, between 0 and 1
+     * @param cooldown       minimum time between two decreases
+     */
+    public AdaptiveRateLimiter(double initialRate, double minRate, double maxRate, double increase,
+                               double decreaseFactor, Duration cooldown) {
+        if (minRate <= 0 || minRate > maxRate || initialRate < minRate || initialRate > maxRate) {
+            throw new IllegalArgumentException("Expected 0 < minRate <= initialRate <= maxRate: "
+                    + minRate + ", " + initialRate + ", " + maxRate);
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("decreaseFactor must be between 0 and 1: " + decreaseFactor);
+        }
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increase = increase;
+        this.decreaseFactor = decreaseFactor;
+        this.cooldownNanos = cooldown.toNanos();
+        this.rate = initialRate;
+    }
+
+    /**
+     * Reserves the next free slot.
+     *
+     * @return nanoseconds to wait before sending, 0 to send now
+     */
+    public synchronized long reserve() {
+        long now = System.nanoTime();
+        long at = Math.max(now, nextFreeNanos);
+        nextFreeNanos = at + interval();
+        return at - now;
+    }
+
+    /**
+     * Reserves a slot only when one is free right now, for requests that are not worth waiting for.
+     */
+    public synchronized boolean tryReserve() {
+        long now = System.nanoTime();
+        if (nextFreeNanos - now > 0) {
+            return false;
+        }
+        nextFreeNanos = now + interval();
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + increase / rate);
+    }
+
+    /**
+     * @return true when the rate was decreased, false within the cooldown of the previous decrease
+     */
+    public synchronized boolean onThrottled() {
+        long now = System.nanoTime();
+        if (backoffs > 0 && now - lastDecreaseNanos < cooldownNanos) {
+            return false;
+        }
+        rate = Math.max(minRate, rate * decreaseFactor);
+        lastDecreaseNanos = now;
+        backoffs++;
+        return true;
+    }
+
+    private long interval() {
+        return (long) (1e9 / rate);
+    }
+
+    /**
+     * @return current rate in requests per second
+     */
+    public synchronized double rate() {
+        return rate;
+    }
+
+    /**
+     * @return number of times the rate was decreased
+     */
+    public synchronized long backoffs() {
+        return backoffs;
+    }
+}
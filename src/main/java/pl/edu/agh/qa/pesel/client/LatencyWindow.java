@@ -0,0 +1,51 @@
+package pl.edu.agh.qa.pesel.client;
+
+import java.util.Arrays;
+
+/**
+ * Quantile of the last {@code size} latencies, recomputed every {@value #RECOMPUTE_EVERY} samples
+ * so reading it costs nothing on the request path.
+ */
+final class LatencyWindow {
+
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final long[] samples;
+    private final double quantile;
+    private final int minSamples;
+    private int next;
+    private long count;
+    private volatile long quantileNanos = -1;
+
+    /**
+     * @param size       number of latest samples kept
+     * @param quantile   e.g. 0.95
+     * @param minSamples samples needed before {@link #quantileNanos()} is known
+     */
+    LatencyWindow(int size, double quantile, int minSamples) {
+        if (quantile <= 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile must be in (0, 1]: " + quantile);
+        }
+        this.samples = new long[size];
+        this.quantile = quantile;
+        this.minSamples = Math.min(minSamples, size);
+    }
+
+    synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count++;
+        if (count >= minSamples && (count == minSamples || count % RECOMPUTE_EVERY == 0)) {
+            long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+            Arrays.sort(sorted);
+            quantileNanos = sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+        }
+    }
+
+    /**
+     * @return the quantile of the window, -1 until {@code minSamples} latencies were recorded
+     */
+    long quantileNanos() {
+        return quantileNanos;
+    }
+}
@@ -0,0 +1,267 @@
+package pl.edu.agh.qa.pesel.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeLayeredSocketFactory;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SchemeSocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Shared rest-assured client of the PeselValidator API.
+ *
+ * All requests go through one {@link RequestSpecification} backed by a single
+ * HttpClient instance with a bounded pool of keep-alive connections, so TCP and TLS
+ * handshakes are paid once per connection instead of once per request.
+ * No static RestAssured state is touched, so one client can be shared between threads.
+ *
+ * Unless 'pesel.api.timing' is false, every request is measured phase by phase
+ * (DNS, connect, TLS, time to first byte, body); see {@link RequestTiming#takeLast()}.
+ */
+@SuppressWarnings("deprecation") // rest-assured 5 is built on the HttpClient 4.x classic API
+public class PeselApiClient implements Closeable {
+
+    public static final String PATH = "/api/Pesel";
+    public static final String BATCH_PATH = PATH + "/batch";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final PoolingClientConnectionManager pool;
+    private final RequestSpecification spec;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+
+    public PeselApiClient(String baseUri, Settings settings) {
+        SchemeRegistry schemes = new SchemeRegistry();
+        schemes.register(new Scheme("http", 80, new InstrumentedSocketFactory(null)));
+        schemes.register(new Scheme("https", 443, new InstrumentedSocketFactory(SSLSocketFactory.getSocketFactory())));
+        pool = new PoolingClientConnectionManager(schemes, settings.keepAliveMillis, TimeUnit.MILLISECONDS,
+                new TimedDnsResolver());
+        pool.setMaxTotal(settings.maxConnections);
+        pool.setDefaultMaxPerRoute(settings.maxConnections);
+
+        DefaultHttpClient httpClient = new DefaultHttpClient(pool);
+        httpClient.addRequestInterceptor((request, context) -> {
+            requests.incrementAndGet();
+            RequestTiming.markSent();
+        });
+        httpClient.addResponseInterceptor((response, context) -> RequestTiming.markHeaders());
+
+        HttpClientConfig httpClientConfig = HttpClientConfig.httpClientConfig()
+                .reuseHttpClientInstance()
+                .httpClientFactory(() -> httpClient)
+                .setParam(CoreConnectionPNames.CONNECTION_TIMEOUT, settings.connectTimeoutMillis)
+                .setParam(CoreConnectionPNames.SO_TIMEOUT, settings.readTimeoutMillis);
+        RequestSpecBuilder builder = new RequestSpecBuilder()
+                .setBaseUri(baseUri)
+                .setBasePath(PATH)
+                .setConfig(RestAssuredConfig.config().httpClient(httpClientConfig));
+        if (settings.timing) {
+            builder.addFilter(new PhaseTimingFilter());
+        }
+        spec = builder.build();
+    }
+
+    /**
+     * @return new request based on the shared specification
+     */
+    public RequestSpecification request() {
+        return given().spec(spec);
+    }
+
+    /**
+     * GET /api/Pesel?pesel={pesel}, the value is url-encoded by rest-assured.
+     */
+    public Response get(String pesel) {
+        return buffered(request().queryParam("pesel", pesel).get());
+    }
+
+    /**
+     * GET /api/Pesel without the 'pesel' parameter.
+     */
+    public Response getWithoutPesel() {
+        return buffered(request().get());
+    }
+
+    /**
+     * POST /api/Pesel/batch with a JSON array of PESELs, served by the stand-in only.
+     */
+    public Response postBatch(List<String> pesels) {
+        return buffered(request().contentType(ContentType.JSON).body(batchBody(pesels))
+                .post(BATCH_PATH.substring(PATH.length())));
+    }
+
+    /**
+     * @return JSON array of the PESELs
+     */
+    static String batchBody(List<String> pesels) {
+        StringWriter body = new StringWriter(pesels.size() * 16);
+        try (JsonGenerator json = JSON.createGenerator(body)) {
+            json.writeStartArray();
+            for (String pesel : pesels) {
+                json.writeString(pesel);
+            }
+            json.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toString();
+    }
+
+    /**
+     * Reads the whole body so the connection goes back to the pool even when
+     * the caller only looks at the status code.
+     */
+    private static Response buffered(Response response) {
+        response.asByteArray();
+        return response;
+    }
+
+    /**
+     * @return e.g. "requests: 110, connections opened: 4, leased: 0, available: 4, pending: 0, max: 20"
+     */
+    public String stats() {
+        PoolStats total = pool.getTotalStats();
+        return String.format("requests: %d, connections opened: %d, leased: %d, available: %d, pending: %d, max: %d",
+                requests.get(), connections.get(), total.getLeased(), total.getAvailable(), total.getPending(),
+                total.getMax());
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long connectionCount() {
+        return connections.get();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Pool size and timeouts, read from system properties:
+     * pesel.api.maxConnections (20), pesel.api.connectTimeout (5000 ms),
+     * pesel.api.readTimeout (10000 ms), pesel.api.keepAlive (30000 ms), pesel.api.timing (true).
+     */
+    public static final class Settings {
+
+        final int maxConnections;
+        final int connectTimeoutMillis;
+        final int readTimeoutMillis;
+        final long keepAliveMillis;
+        final boolean timing;
+
+        public Settings(int maxConnections, int connectTimeoutMillis, int readTimeoutMillis, long keepAliveMillis,
+                        boolean timing) {
+            if (maxConnections < 1) {
+                throw new IllegalArgumentException("maxConnections must be positive: " + maxConnections);
+            }
+            this.maxConnections = maxConnections;
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.readTimeoutMillis = readTimeoutMillis;
+            this.keepAliveMillis = keepAliveMillis;
+            this.timing = timing;
+        }
+
+        public int readTimeoutMillis() {
+            return readTimeoutMillis;
+        }
+
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("pesel.api.maxConnections", 20),
+                    Integer.getInteger("pesel.api.connectTimeout", 5000),
+                    Integer.getInteger("pesel.api.readTimeout", 10000),
+                    Long.getLong("pesel.api.keepAlive", 30000L),
+                    Boolean.parseBoolean(System.getProperty("pesel.api.timing", "true")));
+        }
+    }
+
+    /**
+     * Counts the sockets actually opened, i.e. the handshakes the pool did not save us,
+     * and times the TCP connect and the TLS handshake separately.
+     */
+    private final class InstrumentedSocketFactory implements SchemeSocketFactory {
+
+        private final SchemeSocketFactory plain = PlainSocketFactory.getSocketFactory();
+        private final SchemeLayeredSocketFactory tls;
+
+        /**
+         * @param tls layers TLS over the connected socket, null for plain http
+         */
+        InstrumentedSocketFactory(SchemeLayeredSocketFactory tls) {
+            this.tls = tls;
+        }
+
+        @Override
+        public Socket createSocket(HttpParams params) throws IOException {
+            return plain.createSocket(params);
+        }
+
+        @Override
+        public Socket connectSocket(Socket socket, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                                    HttpParams params) throws IOException, UnknownHostException, ConnectTimeoutException {
+            connections.incrementAndGet();
+            long start = System.nanoTime();
+            Socket connected = plain.connectSocket(socket, remoteAddress, localAddress, params);
+            long connectedAt = System.nanoTime();
+            RequestTiming.addConnect(connectedAt - start);
+            if (tls == null) {
+                return connected;
+            }
+            Socket secured = tls.createLayeredSocket(connected, remoteAddress.getHostString(), remoteAddress.getPort(), params);
+            RequestTiming.addTls(System.nanoTime() - connectedAt);
+            return secured;
+        }
+
+        @Override
+        public boolean isSecure(Socket socket) throws IllegalArgumentException {
+            return tls != null;
+        }
+    }
+
+    private static final class TimedDnsResolver implements DnsResolver {
+
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            } finally {
+                RequestTiming.addDns(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package pl.edu.agh.qa.pesel.client;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking transport of the suites: GET /api/Pesel through {@link PeselHttpClient}, which
+ * multiplexes the requests over a few HTTP/2 connections when the service speaks HTTP/2 (TLS with ALPN,
+ * or h2c upgrade) and falls back to HTTP/1.1 otherwise.
+ *
+ * At most {@code maxInFlight} requests are outstanding; further requests wait in a queue without
+ * holding a thread, and are started as earlier ones complete. Over HTTP/1.1 this also bounds the number
+ * of connections, since {@link HttpClient} opens one per outstanding request.
+ *
+ * An optional {@link RequestPolicy} hedges slow requests and paces them by an adaptive rate limit.
+ */
+public class PeselAsyncClient {
+
+    private final PeselHttpClient client;
+    private final int maxInFlight;
+    private final RequestPolicy policy;
+    private final Semaphore permits;
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<HttpClient.Version, LongAdder> versions = new ConcurrentHashMap<>();
+
+    public PeselAsyncClient(PeselHttpClient client, int maxInFlight) {
+        this(client, maxInFlight, null);
+    }
+
+    /**
+     * @param policy hedging and rate limiting of every request, null for none
+     */
+    public PeselAsyncClient(PeselHttpClient client, int maxInFlight, RequestPolicy policy) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.policy = policy;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * GET /api/Pesel?pesel={pesel}, or without the parameter when {@code pesel} is null.
+     *
+     * @return completes with the decoded response, or exceptionally when the request fails
+     */
+    public CompletableFuture<Call> get(String pesel) {
+        CompletableFuture<Call> result = new CompletableFuture<>();
+        waiting.add(() -> send(pesel, result));
+        drain();
+        return result;
+    }
+
+    private void send(String pesel, CompletableFuture<Call> result) {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        requests.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = policy == null ? client.get(pesel) : policy.send(() -> client.get(pesel));
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((http, failure) -> {
+            inFlight.decrementAndGet();
+            permits.release();
+            drain();
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            versions.computeIfAbsent(http.version(), version -> new LongAdder()).increment();
+            try {
+                PeselResponse decoded = PeselResponse.decode(http.statusCode(), http.body());
+                result.complete(new Call(decoded, RequestTiming.completed(pesel == null ? "" : "pesel=" + pesel,
+                        start, http.statusCode(), http.body().length)));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Starts waiting requests while permits are free; called after every enqueue and every release,
+     * so no request is left waiting with a free permit.
+     */
+    private void drain() {
+        while (!waiting.isEmpty() && permits.tryAcquire()) {
+            Runnable next = waiting.poll();
+            if (next == null) {
+                permits.release();
+            } else {
+                next.run();
+            }
+        }
+    }
+
+    /**
+     * @return e.g. "requests: 96, max in flight: 64, peak in flight: 31, protocols: {HTTP_1_1=96}"
+     */
+    public String stats() {
+        return String.format("requests: %d, max in flight: %d, peak in flight: %d, protocols: %s",
+                requests.get(), maxInFlight, peakInFlight.get(), versions);
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * @return responses received per HTTP version
+     */
+    public long responses(HttpClient.Version version) {
+        LongAdder count = versions.get(version);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Decoded response with its timing; only the total time is known for asynchronous requests.
+     */
+    public static final class Call {
+
+        private final PeselResponse response;
+        private final RequestTiming timing;
+
+        Call(PeselResponse response, RequestTiming timing) {
+            this.response = response;
+            this.timing = timing;
+        }
+
+        public PeselResponse response() {
+            return response;
+        }
+
+        public RequestTiming timing() {
+            return timing;
+        }
+    }
+}
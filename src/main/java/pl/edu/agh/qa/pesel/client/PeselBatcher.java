@@ -0,0 +1,195 @@
+package pl.edu.agh.qa.pesel.client;
+
+import io.restassured.response.Response;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent single-PESEL requests into {@code POST /api/Pesel/batch} calls.
+ *
+ * A batch is sent when it reaches the maximum size (by the thread that filled it) or when its first
+ * request has waited the maximum delay. Every caller gets its own {@link PeselResponse} with status 200
+ * and the body the GET request would have returned, and {@link RequestTiming#takeLast()} returns the
+ * timing of the batch request. Empty PESELs are not batched, the service answers them with 400.
+ *
+ * When the service has no batch endpoint (404, 405), batching is switched off and the requests
+ * are sent one by one.
+ */
+public class PeselBatcher implements Closeable {
+
+    private final PeselApiClient client;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService senders;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedRequests = new AtomicLong();
+    private volatile boolean supported = true;
+
+    // guarded by this
+    private List<Pending> pending = new ArrayList<>();
+
+    /**
+     * @param maxBatchSize   PESELs per batch request
+     * @param maxDelayMillis how long the first request of a batch waits for others
+     */
+    public PeselBatcher(PeselApiClient client, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.client = client;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(VirtualThreads.daemonThreads("pesel-batch-timer"));
+        this.senders = VirtualThreads.newExecutor("pesel-batch");
+    }
+
+    /**
+     * GET /api/Pesel?pesel={pesel}, answered by a batch request when possible.
+     */
+    public PeselResponse get(String pesel) {
+        if (!supported || pesel == null || pesel.isEmpty()) {
+            return PeselResponse.of(client.get(pesel));
+        }
+        Pending request = new Pending(pesel);
+        List<Pending> full = null;
+        synchronized (this) {
+            List<Pending> batch = pending;
+            batch.add(request);
+            if (batch.size() >= maxBatchSize) {
+                full = batch;
+                pending = new ArrayList<>();
+            } else if (batch.size() == 1) {
+                timer.schedule(() -> flushOnTimeout(batch), maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        Result result;
+        try {
+            result = request.result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        if (result == null) {
+            // no batch endpoint
+            return PeselResponse.of(client.get(pesel));
+        }
+        RequestTiming.setLast(result.timing);
+        return result.response;
+    }
+
+    private void flushOnTimeout(List<Pending> batch) {
+        synchronized (this) {
+            if (pending != batch) {
+                return; // already sent full
+            }
+            pending = new ArrayList<>();
+        }
+        senders.execute(() -> send(batch));
+    }
+
+    private void send(List<Pending> batch) {
+        try {
+            List<String> pesels = new ArrayList<>(batch.size());
+            batch.forEach(request -> pesels.add(request.pesel));
+            Response response = client.postBatch(pesels);
+            RequestTiming timing = RequestTiming.takeLast();
+            if (response.statusCode() == 404 || response.statusCode() == 405) {
+                supported = false;
+                batch.forEach(request -> request.result.complete(null));
+                return;
+            }
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Batch request failed with status " + response.statusCode()
+                        + ": " + response.asString());
+            }
+            List<byte[]> bodies = PeselResponseDecoder.split(response.asByteArray());
+            if (bodies.size() != batch.size()) {
+                throw new IllegalStateException("Batch of " + batch.size() + " PESELs answered with "
+                        + bodies.size() + " results");
+            }
+            if (timing != null) {
+                timing.batched(batch.size());
+            }
+            batches.incrementAndGet();
+            batchedRequests.addAndGet(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(new Result(PeselResponse.decode(200, bodies.get(i)), timing));
+            }
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Unexpected batch response", e);
+            batch.forEach(request -> request.result.completeExceptionally(failure));
+        } catch (RuntimeException e) {
+            batch.forEach(request -> request.result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * @return e.g. "batches: 4, batched requests: 96"
+     */
+    public String stats() {
+        return String.format("batches: %d, batched requests: %d%s", batches.get(), batchedRequests.get(),
+                supported ? "" : " (no batch endpoint, requests sent one by one)");
+    }
+
+    public long batchCount() {
+        return batches.get();
+    }
+
+    public long batchedRequestCount() {
+        return batchedRequests.get();
+    }
+
+    /**
+     * Stops batching; requests still waiting for a batch fail.
+     */
+    @Override
+    public void close() {
+        List<Pending> unsent;
+        synchronized (this) {
+            unsent = pending;
+            pending = new ArrayList<>();
+            supported = false;
+        }
+        IllegalStateException closed = new IllegalStateException("Batcher closed");
+        unsent.forEach(request -> request.result.completeExceptionally(closed));
+        timer.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private static final class Pending {
+
+        final String pesel;
+        // null result: batching not supported
+        final CompletableFuture<Result> result = new CompletableFuture<>();
+
+        Pending(String pesel) {
+            this.pesel = pesel;
+        }
+    }
+
+    private static final class Result {
+
+        final PeselResponse response;
+        final RequestTiming timing;
+
+        Result(PeselResponse response, RequestTiming timing) {
+            this.response = response;
+            this.timing = timing;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pl.edu.agh.qa.pesel.client;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking client of GET /api/Pesel built on {@link HttpClient}, for tools
+ * that keep many requests in flight (sweeps, load generation).
+ */
+public class PeselHttpClient {
+
+    private static final String BATCH_SUFFIX = PeselApiClient.BATCH_PATH.substring(PeselApiClient.PATH.length());
+
+    private final HttpClient httpClient;
+    private final String endpoint;
+    private final Duration timeout;
+
+    /**
+     * @param baseUri  e.g. https://peselvalidatorapitest.azurewebsites.net
+     * @param timeout  response timeout of a single request
+     * @param executor runs the completion stages
+     */
+    public PeselHttpClient(String baseUri, Duration timeout, Executor executor) {
+        this(baseUri, timeout, executor, HttpClient.Version.HTTP_2);
+    }
+
+    /**
+     * @param version HTTP_2 multiplexes requests over one connection per host when the service supports it
+     *                (ALPN over TLS, h2c upgrade over plain http) and falls back to HTTP/1.1 otherwise
+     */
+    public PeselHttpClient(String baseUri, Duration timeout, Executor executor, HttpClient.Version version) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+        this.endpoint = (baseUri.endsWith("/") ? baseUri.substring(0, baseUri.length() - 1) : baseUri)
+                + PeselApiClient.PATH;
+        this.timeout = timeout;
+    }
+
+    /**
+     * GET /api/Pesel?pesel={pesel}, or without the parameter when {@code pesel} is null.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> get(String pesel) {
+        return httpClient.sendAsync(request(pesel), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * POST /api/Pesel/batch with a JSON array of PESELs, served by the stand-in only;
+     * see {@link PeselResponseDecoder#split(byte[])}.
+     */
+    public CompletableFuture<HttpResponse<byte[]>> postBatch(List<String> pesels) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint + BATCH_SUFFIX))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(PeselApiClient.batchBody(pesels), StandardCharsets.UTF_8))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    HttpRequest request(String pesel) {
+        String uri = pesel == null ? endpoint : endpoint + "?pesel=" + URLEncoder.encode(pesel, StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(URI.create(uri))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+}
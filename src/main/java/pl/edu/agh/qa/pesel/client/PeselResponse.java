@@ -0,0 +1,169 @@
+package pl.edu.agh.qa.pesel.client;
+
+import io.restassured.response.Response;
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.PeselError;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Response of GET /api/Pesel, decoded once with the streaming parser of {@link PeselResponseDecoder}.
+ *
+ * Only 200 responses are decoded; for other statuses the fields are null and the error list is empty,
+ * the body is still available as text.
+ */
+public final class PeselResponse {
+
+    private final int statusCode;
+    private final byte[] body;
+    private String pesel;
+    private Boolean valid;
+    private Gender gender;
+    private LocalDate dateOfBirth;
+    private List<ApiError> errors = Collections.emptyList();
+
+    private PeselResponse(int statusCode, byte[] body) {
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    /**
+     * @throws UncheckedIOException when a 200 response is not the expected JSON
+     */
+    public static PeselResponse of(Response response) {
+        try {
+            return decode(response.statusCode(), response.asByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unexpected response body: " + response.asString(), e);
+        }
+    }
+
+    /**
+     * @throws IOException when a 200 response is not the expected JSON or contains an unknown error code or gender
+     */
+    public static PeselResponse decode(int statusCode, byte[] body) throws IOException {
+        PeselResponse response = new PeselResponse(statusCode, body);
+        if (statusCode != 200) {
+            return response;
+        }
+        PeselResponseDecoder.Fields fields = PeselResponseDecoder.parse(body, true);
+        response.pesel = fields.pesel;
+        response.valid = fields.valid;
+        response.gender = fields.gender;
+        response.dateOfBirth = fields.dateOfBirth;
+        response.errors = fields.errorList;
+        return response;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return 'pesel' field, as sent in the request
+     */
+    public String pesel() {
+        return pesel;
+    }
+
+    /**
+     * @return 'isValid' field, null when absent
+     */
+    public Boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return 'gender' field, null for invalid PESELs
+     */
+    public Gender gender() {
+        return gender;
+    }
+
+    /**
+     * @return date part of the 'dateOfBirth' field, null for invalid PESELs
+     */
+    public LocalDate dateOfBirth() {
+        return dateOfBirth;
+    }
+
+    /**
+     * @return 'errors' field, in the order reported by the service
+     */
+    public List<ApiError> errors() {
+        return errors;
+    }
+
+    /**
+     * @return 'errors.errorCode'
+     */
+    public List<PeselError> errorCodes() {
+        List<PeselError> codes = new ArrayList<>(errors.size());
+        errors.forEach(error -> codes.add(error.code()));
+        return codes;
+    }
+
+    /**
+     * @return 'errors.errorMessage'
+     */
+    public List<String> errorMessages() {
+        List<String> messages = new ArrayList<>(errors.size());
+        errors.forEach(error -> messages.add(error.message()));
+        return messages;
+    }
+
+    /**
+     * @return copy of the raw body
+     */
+    public byte[] body() {
+        return body.clone();
+    }
+
+    public String bodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return statusCode + " " + bodyAsString();
+    }
+
+    /**
+     * Element of the 'errors' field.
+     */
+    public static final class ApiError {
+
+        private final PeselError code;
+        private final String message;
+
+        ApiError(PeselError code, String message) {
+            this.code = code;
+            this.message = message;
+        }
+
+        /**
+         * @return 'errorCode', null when absent
+         */
+        public PeselError code() {
+            return code;
+        }
+
+        /**
+         * @return 'errorMessage'
+         */
+        public String message() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return code + ": " + message;
+        }
+    }
+}
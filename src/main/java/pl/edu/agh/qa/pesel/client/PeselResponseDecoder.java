@@ -0,0 +1,187 @@
+package pl.edu.agh.qa.pesel.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decodes a 200 response of GET /api/Pesel with a streaming JSON parser, into the packed result of
+ * {@link PeselValidator} here and into the fields of {@link PeselResponse} for the suites.
+ */
+public final class PeselResponseDecoder {
+
+    /**
+     * Bit set by {@link #decodeWithValidity(byte[])} when the body's 'isValid' is true. It lies outside the bits
+     * the {@link PeselValidator} accessors read, which derive validity from the errors alone.
+     */
+    public static final long IS_VALID = 1L << 16;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private PeselResponseDecoder() {
+    }
+
+    /**
+     * @param body response body
+     * @return result packed like {@link PeselValidator#validate(CharSequence)}
+     * @throws IOException when the body is not the expected JSON or contains an unknown error code or gender
+     */
+    public static long decode(byte[] body) throws IOException {
+        return decode(body, false);
+    }
+
+    /**
+     * Like {@link #decode(byte[])}, plus the body's own 'isValid' as the {@link #IS_VALID} bit, for callers that
+     * record the answer as given rather than compare it with the rules.
+     */
+    public static long decodeWithValidity(byte[] body) throws IOException {
+        return decode(body, true);
+    }
+
+    /**
+     * @return the 'isValid' field of a result of {@link #decodeWithValidity(byte[])}, false when it was absent
+     */
+    public static boolean isValidField(long decoded) {
+        return (decoded & IS_VALID) != 0;
+    }
+
+    private static long decode(byte[] body, boolean withValidity) throws IOException {
+        Fields fields = parse(body, false);
+        long result = PeselValidator.result(fields.errors, fields.gender == null ? null : fields.gender == Gender.MALE,
+                fields.dateOfBirth == null ? null : (int) fields.dateOfBirth.toEpochDay());
+        return withValidity && Boolean.TRUE.equals(fields.valid) ? result | IS_VALID : result;
+    }
+
+    /**
+     * Reads the fields of a 200 body; the one reading behind both {@link #decode(byte[])} and {@link PeselResponse},
+     * so the suites and the tools judge a body alike. Null fields stay null.
+     *
+     * @param details also keep the 'pesel' text and the error messages, which the packed result has no room for
+     * @throws IOException when the body is not the expected JSON or contains an unknown error code or gender
+     */
+    static Fields parse(byte[] body, boolean details) throws IOException {
+        Fields fields = new Fields();
+        try (JsonParser parser = JSON.createParser(body)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "pesel":
+                        fields.pesel = details ? parser.getText() : null;
+                        break;
+                    case "isValid":
+                        fields.valid = parser.getBooleanValue();
+                        break;
+                    case "gender":
+                        fields.gender = Gender.fromLabel(parser.getText());
+                        if (fields.gender == null) {
+                            throw new IOException("Unknown gender: " + parser.getText());
+                        }
+                        break;
+                    case "dateOfBirth":
+                        fields.dateOfBirth = parseDate(parser.getText());
+                        break;
+                    case "errors":
+                        decodeErrors(parser, value, fields, details);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Cuts the body of a batch response, a JSON array, into the bodies of its elements.
+     */
+    public static List<byte[]> split(byte[] array) throws IOException {
+        try (JsonParser parser = JSON.createParser(array)) {
+            expect(parser.nextToken(), JsonToken.START_ARRAY, parser);
+            List<byte[]> elements = new ArrayList<>();
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == null) {
+                    throw new IOException("Unterminated array at " + parser.getCurrentLocation());
+                }
+                int start = (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                int end = (int) parser.getCurrentLocation().getByteOffset();
+                elements.add(Arrays.copyOfRange(array, start, end));
+            }
+            return elements;
+        }
+    }
+
+    /**
+     * @param text e.g. "1998-01-31T00:00:00"
+     */
+    static LocalDate parseDate(String text) {
+        int time = text.indexOf('T');
+        return LocalDate.parse(time < 0 ? text : text.substring(0, time));
+    }
+
+    private static void decodeErrors(JsonParser parser, JsonToken value, Fields fields, boolean details)
+            throws IOException {
+        expect(value, JsonToken.START_ARRAY, parser);
+        List<PeselResponse.ApiError> errors = details ? new ArrayList<>(2) : null;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            PeselError code = null;
+            String message = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("errorCode".equals(field)) {
+                    code = PeselError.fromCode(parser.getText());
+                    if (code == null) {
+                        throw new IOException("Unknown error code: " + parser.getText());
+                    }
+                    fields.errors |= code.mask();
+                } else if (details && "errorMessage".equals(field)) {
+                    message = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (details) {
+                errors.add(new PeselResponse.ApiError(code, message));
+            }
+        }
+        if (details) {
+            fields.errorList = Collections.unmodifiableList(errors);
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, JsonParser parser) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but found " + actual + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Fields of a body as read by {@link #parse(byte[], boolean)}.
+     */
+    static final class Fields {
+
+        String pesel;
+        Boolean valid;
+        Gender gender;
+        LocalDate dateOfBirth;
+        int errors;
+        // only kept with details, in the order reported by the service
+        List<PeselResponse.ApiError> errorList = Collections.emptyList();
+    }
+}
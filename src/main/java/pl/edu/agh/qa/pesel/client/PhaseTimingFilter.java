@@ -0,0 +1,39 @@
+package pl.edu.agh.qa.pesel.client;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Measures every request of {@link PeselApiClient}; the result is read with {@link RequestTiming#takeLast()}
+ * on the thread that made the request.
+ */
+public class PhaseTimingFilter implements Filter {
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec,
+                           FilterContext context) {
+        RequestTiming timing = RequestTiming.start("GET".equals(requestSpec.getMethod())
+                ? query(requestSpec.getQueryParams())
+                : requestSpec.getMethod() + " " + requestSpec.getUserDefinedPath());
+        Response response = null;
+        try {
+            response = context.next(requestSpec, responseSpec);
+            return response;
+        } finally {
+            timing.finish(response == null ? 0 : response.statusCode(),
+                    response == null ? 0 : response.asByteArray().length);
+        }
+    }
+
+    private static String query(Map<String, String> parameters) {
+        return parameters.entrySet().stream()
+                .map(parameter -> parameter.getKey() + "=" + parameter.getValue())
+                .collect(Collectors.joining("&"));
+    }
+}
@@ -0,0 +1,282 @@
+package pl.edu.agh.qa.pesel.client;
+
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Tail latency and throttling policy of asynchronous requests to a shared service.
+ *
+ * Hedging: when a request has not been answered within the rolling p95 (by default) of the latest
+ * {@value #WINDOW} latencies, a duplicate is sent; the first good response wins and the other request is
+ * cancelled. Hedges are only sent when the rate limit has a free slot, so they never add load to a
+ * service that is already being backed off from.
+ *
+ * Rate limiting: every request, retries included, waits for a slot of an {@link AdaptiveRateLimiter}, which
+ * backs off on 429, 5xx and timeouts. A request whose every attempt was throttled is retried up to
+ * {@code maxRetries} times; the last throttled response (or timeout) is then returned as is.
+ *
+ * Cancelling aborts the exchange on JDK 16+; on older JDKs the loser runs to completion and is ignored.
+ */
+public class RequestPolicy {
+
+    static final int WINDOW = 256;
+    static final int MIN_SAMPLES = 20;
+
+    private final Settings settings;
+    private final LatencyWindow latencies;
+    private final AdaptiveRateLimiter limiter;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder hedgesSkipped = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+
+    public RequestPolicy(Settings settings) {
+        this.settings = settings;
+        this.latencies = new LatencyWindow(WINDOW, settings.hedgeQuantile, MIN_SAMPLES);
+        this.limiter = new AdaptiveRateLimiter(settings.maxRate, settings.minRate, settings.maxRate,
+                settings.rateIncrease, settings.rateDecrease, settings.backoffCooldown);
+    }
+
+    /**
+     * @param request sends one attempt; called once per attempt, hedges and retries included
+     * @return completes with the first good response, or the last throttled response or failure
+     */
+    public <T> CompletableFuture<HttpResponse<T>> send(Supplier<CompletableFuture<HttpResponse<T>>> request) {
+        requests.increment();
+        Exchange<T> exchange = new Exchange<>(request);
+        exchange.schedule(true);
+        return exchange.result;
+    }
+
+    static boolean isThrottled(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * @return e.g. "requests: 96, hedged: 5 (won: 4, skipped: 0), cancelled: 4, retries: 0, throttled: 0,
+     * timeouts: 0, backoffs: 0, delayed: 0, rate: 500/s, hedge after: 1.2 ms"
+     */
+    public String stats() {
+        long hedgeAfter = latencies.quantileNanos();
+        return String.format("requests: %d, hedged: %d (won: %d, skipped: %d), cancelled: %d, retries: %d, "
+                        + "throttled: %d, timeouts: %d, backoffs: %d, delayed: %d, rate: %.0f/s, hedge after: %s",
+                requests.sum(), hedged.sum(), hedgeWins.sum(), hedgesSkipped.sum(), cancelled.sum(), retries.sum(),
+                throttled.sum(), timeouts.sum(), limiter.backoffs(), delayed.sum(), limiter.rate(),
+                hedgeAfter < 0 ? "-" : String.format("%.1f ms",
+                        Math.max(hedgeAfter, settings.minHedgeDelay.toNanos()) / 1e6));
+    }
+
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    public long hedgeCount() {
+        return hedged.sum();
+    }
+
+    public long hedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    public long retryCount() {
+        return retries.sum();
+    }
+
+    public long throttledCount() {
+        return throttled.sum();
+    }
+
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long backoffCount() {
+        return limiter.backoffs();
+    }
+
+    public double rate() {
+        return limiter.rate();
+    }
+
+    /**
+     * One logical request: its attempts (first, hedge, retries) race to complete {@link #result}.
+     */
+    private final class Exchange<T> {
+
+        final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        private final Supplier<CompletableFuture<HttpResponse<T>>> request;
+        private final List<CompletableFuture<HttpResponse<T>>> attempts = new ArrayList<>(2);
+        private int pending;
+        private int retried;
+
+        Exchange(Supplier<CompletableFuture<HttpResponse<T>>> request) {
+            this.request = request;
+        }
+
+        /**
+         * @param first hedge the attempt, retries are not hedged
+         */
+        void schedule(boolean first) {
+            long delay = limiter.reserve();
+            if (delay > 0) {
+                delayed.increment();
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> start(first));
+            } else {
+                start(first);
+            }
+        }
+
+        private void start(boolean first) {
+            attempt(false);
+            long hedgeAfter = latencies.quantileNanos();
+            if (first && settings.hedging && hedgeAfter >= 0) {
+                CompletableFuture.delayedExecutor(Math.max(hedgeAfter, settings.minHedgeDelay.toNanos()),
+                        TimeUnit.NANOSECONDS).execute(this::hedge);
+            }
+        }
+
+        private void hedge() {
+            if (result.isDone()) {
+                return;
+            }
+            if (!limiter.tryReserve()) {
+                hedgesSkipped.increment();
+                return;
+            }
+            hedged.increment();
+            attempt(true);
+        }
+
+        private void attempt(boolean hedge) {
+            long start = System.nanoTime();
+            CompletableFuture<HttpResponse<T>> response;
+            try {
+                response = request.get();
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            synchronized (this) {
+                pending++;
+                attempts.add(response);
+            }
+            response.whenComplete((http, failure) -> completed(http, unwrap(failure), start, hedge));
+        }
+
+        private void completed(HttpResponse<T> response, Throwable failure, long start, boolean hedge) {
+            if (failure instanceof CancellationException) {
+                return;
+            }
+            boolean good = response != null && !isThrottled(response.statusCode());
+            boolean backOff = !good && (response != null || failure instanceof HttpTimeoutException);
+            if (good) {
+                latencies.record(System.nanoTime() - start);
+                limiter.onSuccess();
+            } else if (backOff) {
+                (response != null ? throttled : timeouts).increment();
+                limiter.onThrottled();
+            }
+            boolean retry = false;
+            synchronized (this) {
+                pending--;
+                if (result.isDone() || !good && pending > 0) {
+                    // lost the race, or another attempt may still answer
+                    return;
+                }
+                if (backOff && retried < settings.maxRetries) {
+                    retried++;
+                    retry = true;
+                }
+            }
+            if (retry) {
+                retries.increment();
+                schedule(false);
+                return;
+            }
+            if (response != null ? result.complete(response) : result.completeExceptionally(failure)) {
+                if (hedge && good) {
+                    hedgeWins.increment();
+                }
+                cancelOthers();
+            }
+        }
+
+        private void cancelOthers() {
+            List<CompletableFuture<HttpResponse<T>>> started;
+            synchronized (this) {
+                started = new ArrayList<>(attempts);
+            }
+            for (CompletableFuture<HttpResponse<T>> attempt : started) {
+                if (attempt.cancel(true)) {
+                    cancelled.increment();
+                }
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Read from system properties: pesel.api.hedge (true), pesel.api.hedge.quantile (0.95),
+     * pesel.api.hedge.minDelay (5 ms), pesel.api.retries (2), pesel.api.rate.max (500 requests per second,
+     * also the initial rate), pesel.api.rate.min (5), pesel.api.rate.increase (50 per second of successes);
+     * the rate is halved on a throttled response, at most once per 100 ms.
+     */
+    public static final class Settings {
+
+        final boolean hedging;
+        final double hedgeQuantile;
+        final Duration minHedgeDelay;
+        final int maxRetries;
+        final double minRate;
+        final double maxRate;
+        final double rateIncrease;
+        final double rateDecrease;
+        final Duration backoffCooldown;
+
+        public Settings(boolean hedging, double hedgeQuantile, Duration minHedgeDelay, int maxRetries,
+                        double minRate, double maxRate, double rateIncrease, double rateDecrease,
+                        Duration backoffCooldown) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative: " + maxRetries);
+            }
+            this.hedging = hedging;
+            this.hedgeQuantile = hedgeQuantile;
+            this.minHedgeDelay = minHedgeDelay;
+            this.maxRetries = maxRetries;
+            this.minRate = minRate;
+            this.maxRate = maxRate;
+            this.rateIncrease = rateIncrease;
+            this.rateDecrease = rateDecrease;
+            this.backoffCooldown = backoffCooldown;
+        }
+
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Boolean.parseBoolean(System.getProperty("pesel.api.hedge", "true")),
+                    Double.parseDouble(System.getProperty("pesel.api.hedge.quantile", "0.95")),
+                    Duration.ofMillis(Long.getLong("pesel.api.hedge.minDelay", 5L)),
+                    Integer.getInteger("pesel.api.retries", 2),
+                    Double.parseDouble(System.getProperty("pesel.api.rate.min", "5")),
+                    Double.parseDouble(System.getProperty("pesel.api.rate.max", "500")),
+                    Double.parseDouble(System.getProperty("pesel.api.rate.increase", "50")),
+                    0.5,
+                    Duration.ofMillis(100));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package pl.edu.agh.qa.pesel.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Phase timings of one blocking request made by {@link PeselApiClient}.
+ *
+ * The connection manager, socket factories and interceptors of the client run on the
+ * calling thread, so they find the timing of their request in a thread local set up by
+ * {@link PhaseTimingFilter}. Phases that did not happen (e.g. connect on a reused
+ * connection) stay 0.
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<RequestTiming> LAST = new ThreadLocal<>();
+
+    private final String query;
+    private final long startNanos;
+    private long dnsNanos;
+    private long connectNanos;
+    private long tlsNanos;
+    private long sentAt;
+    private long headersAt;
+    private long endAt;
+    private int status;
+    private long bytes;
+    private int batchSize = 1;
+
+    private RequestTiming(String query, long startNanos) {
+        this.query = query;
+        this.startNanos = startNanos;
+    }
+
+    static RequestTiming start(String query) {
+        RequestTiming timing = new RequestTiming(query, System.nanoTime());
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Timing of a request whose phases cannot be observed (asynchronous client): only the total is known.
+     */
+    static RequestTiming completed(String query, long startNanos, int status, long bytes) {
+        RequestTiming timing = new RequestTiming(query, startNanos);
+        timing.endAt = System.nanoTime();
+        timing.status = status;
+        timing.bytes = bytes;
+        return timing;
+    }
+
+    void finish(int status, long bytes) {
+        this.endAt = System.nanoTime();
+        this.status = status;
+        this.bytes = bytes;
+        CURRENT.remove();
+        LAST.set(this);
+    }
+
+    /**
+     * Makes the timing the last one of the calling thread, used to hand a batch request's timing
+     * to the threads waiting for its results.
+     */
+    static void setLast(RequestTiming timing) {
+        LAST.set(timing);
+    }
+
+    void batched(int size) {
+        this.batchSize = size;
+    }
+
+    /**
+     * @return timing of the last request finished on this thread, null when there is none; clears it
+     */
+    public static RequestTiming takeLast() {
+        RequestTiming last = LAST.get();
+        LAST.remove();
+        return last;
+    }
+
+    static void addDns(long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.dnsNanos += nanos;
+        }
+    }
+
+    static void addConnect(long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.connectNanos += nanos;
+        }
+    }
+
+    static void addTls(long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.tlsNanos += nanos;
+        }
+    }
+
+    static void markSent() {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.sentAt = System.nanoTime();
+        }
+    }
+
+    static void markHeaders() {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.headersAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * @return query string of the request, e.g. "pesel=98123323122"; method and path for
+     * other than GET requests, e.g. "POST /batch"
+     */
+    public String query() {
+        return query;
+    }
+
+    /**
+     * @return number of PESELs answered by the request, more than 1 for batched requests
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    /**
+     * @return size of the response body
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    public boolean newConnection() {
+        return connectNanos > 0;
+    }
+
+    public long dnsMicros() {
+        return micros(dnsNanos);
+    }
+
+    public long connectMicros() {
+        return micros(connectNanos);
+    }
+
+    public long tlsMicros() {
+        return micros(tlsNanos);
+    }
+
+    /**
+     * @return from the request being written to the response headers being parsed
+     */
+    public long timeToFirstByteMicros() {
+        return sentAt == 0 || headersAt == 0 ? 0 : micros(headersAt - sentAt);
+    }
+
+    /**
+     * @return from the response headers to the buffered body handed to the caller
+     */
+    public long bodyMicros() {
+        return headersAt == 0 ? 0 : micros(endAt - headersAt);
+    }
+
+    public long totalMicros() {
+        return micros(endAt - startNanos);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
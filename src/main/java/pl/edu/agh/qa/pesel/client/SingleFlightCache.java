@@ -0,0 +1,182 @@
+package pl.edu.agh.qa.pesel.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache that loads every key at most once at a time.
+ *
+ * Callers asking for a key whose value is still being loaded wait for that load
+ * instead of starting their own (single-flight). Failed loads are not cached.
+ * Only completed loads are evicted, so while more keys than {@code maxSize} are
+ * loading at once the cache holds all of them and shrinks back as they complete.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class SingleFlightCache<K, V> {
+
+    private final int maxSize;
+    private final Map<K, CompletableFuture<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of cached entries, the least recently used one is evicted first
+     */
+    public SingleFlightCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param key    cache key
+     * @param loader called on a miss, on the calling thread
+     * @return cached, in-flight or freshly loaded value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> future;
+        boolean owner = false;
+        synchronized (entries) {
+            future = entries.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                entries.put(key, future);
+                evict();
+                owner = true;
+            }
+        }
+        if (!owner) {
+            hits.incrementAndGet();
+            return join(future);
+        }
+        misses.incrementAndGet();
+        try {
+            V value = loader.apply(key);
+            future.complete(value);
+            synchronized (entries) {
+                evict();
+            }
+            return value;
+        } catch (RuntimeException | Error e) {
+            synchronized (entries) {
+                entries.remove(key, future);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(Object, Function)}.
+     *
+     * @param loader called on a miss, on the calling thread; starts the load
+     * @return cached, in-flight or newly started load
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        CompletableFuture<V> future;
+        synchronized (entries) {
+            future = entries.get(key);
+            if (future != null) {
+                hits.incrementAndGet();
+                return future;
+            }
+            future = new CompletableFuture<>();
+            entries.put(key, future);
+            evict();
+        }
+        misses.incrementAndGet();
+        CompletableFuture<V> result = future;
+        CompletableFuture<V> load;
+        try {
+            load = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        load.whenComplete((value, failure) -> {
+            if (failure == null) {
+                result.complete(value);
+                synchronized (entries) {
+                    evict();
+                }
+                return;
+            }
+            synchronized (entries) {
+                entries.remove(key, result);
+            }
+            result.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure);
+        });
+        return result;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return e.g. "hits: 40, misses: 70, evictions: 0, size: 70/1024"
+     */
+    public String stats() {
+        return String.format("hits: %d, misses: %d, evictions: %d, size: %d/%d",
+                hits.get(), misses.get(), evictions.get(), size(), maxSize);
+    }
+
+    /**
+     * Removes the least recently used completed entries over {@code maxSize}; loads in flight stay, a caller
+     * of their key must still find them. Called holding the lock of {@code entries}.
+     */
+    private void evict() {
+        Iterator<CompletableFuture<V>> eldest = entries.values().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            if (eldest.next().isDone()) {
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package pl.edu.agh.qa.pesel.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking, I/O bound work.
+ * On a JDK with virtual threads (21+) every task gets its own virtual thread,
+ * on older JDKs we fall back to a cached pool of daemon platform threads.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookupVirtualExecutor();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true when tasks submitted to {@link #newExecutor(String)} run on virtual threads
+     */
+    public static boolean available() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * @param name prefix of the platform thread names used by the fallback pool
+     * @return executor starting a new (virtual, if possible) thread per task
+     */
+    public static ExecutorService newExecutor(String name) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Could not create virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool(daemonThreads(name));
+    }
+
+    /**
+     * @param name prefix of the thread names
+     * @return factory of daemon platform threads named {@code name-1}, {@code name-2}, ...
+     */
+    public static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Method lookupVirtualExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package pl.edu.agh.qa.pesel.fuzz;
+
+import pl.edu.agh.qa.pesel.PeselEncoder;
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+/**
+ * Fuzzing inputs addressed by index: input {@code i} of a seed is always the same string,
+ * whichever thread generates it, so any case can be reproduced from the seed and its index.
+ *
+ * The strategies take turns by index:
+ * <ul>
+ * <li>LENGTH - digit strings of length 0-24, most of them close to 11</li>
+ * <li>UNICODE - 11 characters mixing digits with letters (including Polish 'ł', 'ś'), other
+ * scripts' digits, whitespace, control characters and supplementary characters (surrogate pairs)</li>
+ * <li>URL_ESCAPES - digits with characters that mean something in a URL or are escaped: '%', '+', '&amp;', '=', ...</li>
+ * <li>NEAR_VALID - valid PESELs with one mutation: a changed digit, swapped neighbours, a digit inserted
+ * or removed, a digit replaced with a look-alike character</li>
+ * </ul>
+ * Strings never contain unpaired surrogates, which cannot be sent as UTF-8.
+ */
+public final class FuzzInputs {
+
+    public enum Strategy {
+        LENGTH, UNICODE, URL_ESCAPES, NEAR_VALID
+    }
+
+    private static final Strategy[] STRATEGIES = Strategy.values();
+
+    private static final String[] EXOTIC = {
+            "ł", "ś", "ą", "ę", "ż", "ź", "ć", "ń", "ó", "Ł", "Ś", "a", "Z", "e", "E",
+            "٣", "۷", "५", "０", "９", "¹", "½", "Ⅻ",
+            " ", "\t", "\n", "\u00a0", "\u2007", "\u200b", "\u0000", "\u007f", "\ufeff", "\u0301",
+            "😀", "𝟘", "𝟡", "𐒠", "-", ".", ",", "e"
+    };
+    private static final String[] URL_SPECIAL = {
+            "%", "%2", "%25", "%41", "%00", "%zz", "+", "&", "=", "?", "#", "/", "\\", ";", " ", "&pesel=",
+            "..", "%2B", "%20", "\"", "'", "<", ">", "{", "}", "|", "^", "`", "[", "]"
+    };
+    private static final char[] LOOK_ALIKES = {'O', 'o', 'l', 'I', '|', 'S', 'B', 'Z', 'g', 'q'};
+
+    private final long seed;
+
+    public FuzzInputs(long seed) {
+        this.seed = seed;
+    }
+
+    public Strategy strategy(long index) {
+        return STRATEGIES[(int) Long.remainderUnsigned(index, STRATEGIES.length)];
+    }
+
+    public String input(long index) {
+        Random random = new Random(seed, index);
+        switch (strategy(index)) {
+            case LENGTH:
+                return length(random);
+            case UNICODE:
+                return unicode(random);
+            case URL_ESCAPES:
+                return urlEscapes(random);
+            default:
+                return nearValid(random);
+        }
+    }
+
+    private static String length(Random random) {
+        int roll = random.nextInt(10);
+        int length = roll < 6 ? 9 + random.nextInt(5) : random.nextInt(25);
+        return digits(random, length);
+    }
+
+    private static String unicode(Random random) {
+        StringBuilder input = new StringBuilder(16);
+        int exotic = 1 + random.nextInt(3);
+        char[] digits = digits(random, PeselValidator.LENGTH).toCharArray();
+        for (int i = 0; i < digits.length; i++) {
+            if (random.nextInt(PeselValidator.LENGTH) < exotic) {
+                input.append(EXOTIC[random.nextInt(EXOTIC.length)]);
+            } else {
+                input.append(digits[i]);
+            }
+        }
+        return input.toString();
+    }
+
+    private static String urlEscapes(Random random) {
+        StringBuilder input = new StringBuilder(digits(random, PeselValidator.LENGTH));
+        int count = 1 + random.nextInt(2);
+        for (int i = 0; i < count; i++) {
+            String special = URL_SPECIAL[random.nextInt(URL_SPECIAL.length)];
+            int position = random.nextInt(input.length() + 1);
+            if (random.nextBoolean() && position < input.length()) {
+                input.replace(position, position + 1, special);
+            } else {
+                input.insert(position, special);
+            }
+        }
+        return input.toString();
+    }
+
+    private static String nearValid(Random random) {
+        int year = 1800 + random.nextInt(500);
+        int month = 1 + random.nextInt(12);
+        int day = 1 + random.nextInt(PeselValidator.lengthOfMonth(year, month));
+        StringBuilder pesel = new StringBuilder(PeselEncoder.encode(year, month, day, random.nextInt(10000)));
+        int position = random.nextInt(PeselValidator.LENGTH);
+        switch (random.nextInt(5)) {
+            case 0:
+                // every other digit, never the same one
+                pesel.setCharAt(position, (char) ('0' + (pesel.charAt(position) - '0' + 1 + random.nextInt(9)) % 10));
+                break;
+            case 1:
+                int next = (position + 1) % PeselValidator.LENGTH;
+                char swapped = pesel.charAt(position);
+                pesel.setCharAt(position, pesel.charAt(next));
+                pesel.setCharAt(next, swapped);
+                break;
+            case 2:
+                pesel.insert(random.nextInt(PeselValidator.LENGTH + 1), (char) ('0' + random.nextInt(10)));
+                break;
+            case 3:
+                pesel.deleteCharAt(position);
+                break;
+            default:
+                pesel.setCharAt(position, LOOK_ALIKES[random.nextInt(LOOK_ALIKES.length)]);
+        }
+        return pesel.toString();
+    }
+
+    private static String digits(Random random, int length) {
+        char[] digits = new char[length];
+        for (int i = 0; i < length; i++) {
+            digits[i] = (char) ('0' + random.nextInt(10));
+        }
+        return new String(digits);
+    }
+
+    /**
+     * SplitMix64 stream of one input; cheaper than java.util.Random and free of shared state.
+     */
+    private static final class Random {
+
+        private long state;
+
+        Random(long seed, long index) {
+            this.state = mix(seed ^ mix(index));
+        }
+
+        int nextInt(int bound) {
+            return (int) Long.remainderUnsigned(next(), bound);
+        }
+
+        boolean nextBoolean() {
+            return next() < 0;
+        }
+
+        private long next() {
+            state += 0x9E3779B97F4A7C15L;
+            return mix(state);
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package pl.edu.agh.qa.pesel.fuzz;
+
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.cli.Target;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.client.PeselResponseDecoder;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fuzzes the validator endpoint with {@link FuzzInputs} and checks every answer against the
+ * local rules ({@link PeselValidator}); an empty input must be answered with 400.
+ *
+ * Inputs are generated and classified on the sending thread while the answers are decoded and compared
+ * on the client's executor, so the work spreads over all cores. Against the stand-in, inputs are sent
+ * in batches ({@code POST /api/Pesel/batch}); against the real service one GET per input (--batch=0).
+ * Failing inputs are shrunk with single GET requests to a minimal counterexample and written,
+ * with the seed and index that reproduce them, to the failures file.
+ *
+ * <pre>
+ * PeselFuzzer [--base-uri=https://...] [--seed=random] [--from=0] [--cases=100000] [--batch=256|0]
+ *             [--in-flight=8|64] [--timeout=10000] [--failures=fuzz-failures.csv] [--shrink=20] [--shrink-tries=500]
+ * </pre>
+ */
+public class PeselFuzzer {
+
+    // expected outcome classes: one per error code, valid, 400
+    private static final int VALID = PeselError.values().length;
+    private static final int MISSING = VALID + 1;
+
+    private final FuzzInputs inputs;
+    private final long seed;
+    private final PeselHttpClient client;
+    private final int batchSize;
+    private final int inFlight;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong transportErrors = new AtomicLong();
+    private final AtomicLongArray casesByStrategy = new AtomicLongArray(FuzzInputs.Strategy.values().length);
+    private final AtomicLongArray failuresByStrategy = new AtomicLongArray(FuzzInputs.Strategy.values().length);
+    private final AtomicLongArray expectedOutcomes = new AtomicLongArray(MISSING + 1);
+    private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param batchSize inputs per batch request, 0 sends one GET request per input
+     * @param inFlight  requests (single or batch) in flight at once
+     */
+    public PeselFuzzer(long seed, PeselHttpClient client, int batchSize, int inFlight) {
+        this.inputs = new FuzzInputs(seed);
+        this.seed = seed;
+        this.client = client;
+        this.batchSize = batchSize;
+        this.inFlight = inFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        long seed = arguments.longValue("seed", System.nanoTime());
+        long from = arguments.longValue("from", 0);
+        long cases = arguments.longValue("cases", 100_000);
+        ExecutorService executor = VirtualThreads.newExecutor("fuzz");
+        try (Target target = Target.of(arguments);
+             BufferedWriter out = Files.newBufferedWriter(Paths.get(arguments.string("failures", "fuzz-failures.csv")),
+                     StandardCharsets.UTF_8)) {
+            int batchSize = arguments.integer("batch", target.isLocal() ? 256 : 0);
+            PeselHttpClient client = new PeselHttpClient(target.baseUri(),
+                    Duration.ofMillis(arguments.integer("timeout", 10000)), executor);
+            PeselFuzzer fuzzer = new PeselFuzzer(seed, client, batchSize,
+                    arguments.integer("in-flight", batchSize > 0 ? 8 : 64));
+            System.out.printf("Fuzzing %d cases from #%d with seed %d against %s%n", cases, from, seed, target);
+            long start = System.nanoTime();
+            fuzzer.run(from, cases);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d cases in %.1f s (%.0f cases/min)%n", fuzzer.completed.get(), seconds,
+                    fuzzer.completed.get() / seconds * 60);
+            fuzzer.writeFailures(out, arguments.integer("shrink", 20), arguments.integer("shrink-tries", 500));
+            fuzzer.print(System.out);
+            if (fuzzer.failureCount() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void run(long from, long count) throws InterruptedException {
+        Semaphore permits = new Semaphore(inFlight);
+        long end = from + count;
+        if (batchSize > 0) {
+            for (long index = from; index < end; index += batchSize) {
+                permits.acquire();
+                sendBatch(index, (int) Math.min(batchSize, end - index), permits);
+            }
+        } else {
+            for (long index = from; index < end; index++) {
+                permits.acquire();
+                long caseIndex = index;
+                String input = inputs.input(caseIndex);
+                client.get(input).whenComplete((response, failure) -> {
+                    try {
+                        check(caseIndex, input, response, failure);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        permits.acquire(inFlight);
+    }
+
+    private void sendBatch(long first, int size, Semaphore permits) {
+        List<String> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(inputs.input(first + i));
+        }
+        client.postBatch(batch).whenComplete((response, failure) -> {
+            try {
+                List<byte[]> bodies = null;
+                if (failure == null && response.statusCode() == 200) {
+                    try {
+                        bodies = PeselResponseDecoder.split(response.body());
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                for (int i = 0; i < size; i++) {
+                    String input = batch.get(i);
+                    if (input.isEmpty()) {
+                        // the batch endpoint validates empty inputs, GET answers them with 400
+                        checkSingle(first + i, input);
+                    } else if (bodies != null && i < bodies.size()) {
+                        check(first + i, input, 200, bodies.get(i));
+                    } else {
+                        check(first + i, input, response, failure);
+                    }
+                }
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private void checkSingle(long index, String input) {
+        HttpResponse<byte[]> response = null;
+        Throwable failure = null;
+        try {
+            response = client.get(input).join();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        check(index, input, response, failure);
+    }
+
+    private void check(long index, String input, HttpResponse<byte[]> response, Throwable failure) {
+        if (failure != null) {
+            transportErrors.incrementAndGet();
+            check(index, input, -1, ("error: " + failure).getBytes(StandardCharsets.UTF_8));
+        } else {
+            check(index, input, response.statusCode(), response.body());
+        }
+    }
+
+    private void check(long index, String input, int status, byte[] body) {
+        FuzzInputs.Strategy strategy = inputs.strategy(index);
+        casesByStrategy.incrementAndGet(strategy.ordinal());
+        expectedOutcomes.incrementAndGet(outcome(input));
+        String actual = mismatch(input, status, body);
+        if (actual != null) {
+            failuresByStrategy.incrementAndGet(strategy.ordinal());
+            failures.add(new Failure(index, strategy, input, actual));
+        }
+        completed.incrementAndGet();
+    }
+
+    /**
+     * @return null when the answer is what the local rules expect, otherwise a description of the answer
+     */
+    public static String mismatch(String input, int status, byte[] body) {
+        if (input.isEmpty()) {
+            return status == 400 ? null : actual(status, body);
+        }
+        if (status != 200) {
+            return actual(status, body);
+        }
+        try {
+            long result = PeselResponseDecoder.decode(body);
+            return result == PeselValidator.apiView(PeselValidator.validate(input)) ? null : PeselValidator.describe(result);
+        } catch (IOException | RuntimeException e) {
+            return "undecodable: " + e.getMessage();
+        }
+    }
+
+    static String expected(String input) {
+        return input.isEmpty() ? "HTTP 400" : PeselValidator.describe(PeselValidator.apiView(PeselValidator.validate(input)));
+    }
+
+    private static String actual(int status, byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        return status < 0 ? text : "HTTP " + status + (status == 200 ? " " + text : "");
+    }
+
+    private static int outcome(String input) {
+        if (input.isEmpty()) {
+            return MISSING;
+        }
+        int errors = PeselValidator.errors(PeselValidator.validate(input));
+        return errors == 0 ? VALID : Integer.numberOfTrailingZeros(errors);
+    }
+
+    /**
+     * Shrinks the first {@code shrink} failures and writes all of them.
+     */
+    public void writeFailures(Writer out, int shrink, int shrinkTries) throws IOException {
+        out.write("seed,index,strategy,input,expected,actual,shrunk,shrunk_expected,shrunk_actual\n");
+        int shrunk = 0;
+        for (Failure failure : failures) {
+            String minimal = "";
+            String minimalActual = "";
+            if (shrunk++ < shrink) {
+                minimal = Shrinker.shrink(failure.input, candidate -> mismatch(candidate) != null, shrinkTries);
+                minimalActual = mismatch(minimal);
+                if (minimalActual == null) {
+                    minimal = "";
+                    minimalActual = "not reproducible with GET";
+                }
+            }
+            out.write(seed + "," + failure.index + "," + failure.strategy + "," + csv(escape(failure.input)) + ","
+                    + csv(expected(failure.input)) + "," + csv(failure.actual) + "," + csv(escape(minimal)) + ","
+                    + csv(minimal.isEmpty() && minimalActual.isEmpty() ? "" : expected(minimal)) + ","
+                    + csv(minimalActual) + "\n");
+        }
+        out.flush();
+    }
+
+    private String mismatch(String input) {
+        try {
+            HttpResponse<byte[]> response = client.get(input).join();
+            return mismatch(input, response.statusCode(), response.body());
+        } catch (RuntimeException e) {
+            return "error: " + e;
+        }
+    }
+
+    public long failureCount() {
+        return failures.size();
+    }
+
+    public long completedCount() {
+        return completed.get();
+    }
+
+    public List<String> failingInputs() {
+        List<String> result = new ArrayList<>();
+        failures.forEach(failure -> result.add(failure.input));
+        return result;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-12s %10s %9s%n", "strategy", "cases", "failures");
+        for (FuzzInputs.Strategy strategy : FuzzInputs.Strategy.values()) {
+            out.printf("%-12s %10d %9d%n", strategy, casesByStrategy.get(strategy.ordinal()),
+                    failuresByStrategy.get(strategy.ordinal()));
+        }
+        StringBuilder outcomes = new StringBuilder("expected (first error): ");
+        for (PeselError error : PeselError.values()) {
+            outcomes.append(error.code()).append(' ').append(expectedOutcomes.get(error.ordinal())).append(", ");
+        }
+        outcomes.append("valid ").append(expectedOutcomes.get(VALID)).append(", HTTP 400 ").append(expectedOutcomes.get(MISSING));
+        out.println(outcomes);
+        out.printf("%d failures, %d transport errors%n", failures.size(), transportErrors.get());
+        if (!failures.isEmpty()) {
+            Failure first = failures.peek();
+            out.printf("Reproduce the first one with --seed=%d --from=%d --cases=1%n", seed, first.index);
+        }
+    }
+
+    /**
+     * @return the input with control, invisible and non-ASCII characters as \\uXXXX
+     */
+    public static String escape(String input) {
+        StringBuilder escaped = new StringBuilder(input.length() + 8);
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c < 0x20 || c > 0x7e || c == '\\') {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String csv(String value) {
+        return value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                ? value : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static final class Failure {
+
+        final long index;
+        final FuzzInputs.Strategy strategy;
+        final String input;
+        final String actual;
+
+        Failure(long index, FuzzInputs.Strategy strategy, String input, String actual) {
+            this.index = index;
+            this.strategy = strategy;
+            this.input = input;
+            this.actual = actual;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package pl.edu.agh.qa.pesel.fuzz;
+
+import java.util.function.Predicate;
+
+/**
+ * Shrinks a failing input to a minimal one that still fails.
+ *
+ * Greedy, in the order of what makes a counterexample easiest to read: remove chunks of code points
+ * (halves first, single code points last), then replace code points with '0'. Every accepted step
+ * makes the input shorter or replaces a non-'0' code point, so shrinking always ends.
+ */
+public final class Shrinker {
+
+    private Shrinker() {
+    }
+
+    /**
+     * @param failing  input for which {@code fails} is true
+     * @param fails    checks a candidate, e.g. by sending it to the service
+     * @param maxTries bound on the calls of {@code fails}
+     * @return the smallest failing input found
+     */
+    public static String shrink(String failing, Predicate<String> fails, int maxTries) {
+        String current = failing;
+        int tries = 0;
+        boolean progress = true;
+        while (progress && tries < maxTries) {
+            progress = false;
+            int[] codePoints = current.codePoints().toArray();
+            removal:
+            for (int chunk = Math.max(1, codePoints.length / 2); chunk >= 1; chunk /= 2) {
+                for (int start = 0; start + chunk <= codePoints.length; start += chunk) {
+                    if (tries++ >= maxTries) {
+                        return current;
+                    }
+                    String candidate = without(codePoints, start, chunk);
+                    if (fails.test(candidate)) {
+                        current = candidate;
+                        progress = true;
+                        break removal;
+                    }
+                }
+            }
+            if (progress) {
+                continue;
+            }
+            for (int i = 0; i < codePoints.length && !progress; i++) {
+                if (codePoints[i] == '0') {
+                    continue;
+                }
+                if (tries++ >= maxTries) {
+                    return current;
+                }
+                int original = codePoints[i];
+                codePoints[i] = '0';
+                String candidate = new String(codePoints, 0, codePoints.length);
+                codePoints[i] = original;
+                if (fails.test(candidate)) {
+                    current = candidate;
+                    progress = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static String without(int[] codePoints, int start, int length) {
+        StringBuilder result = new StringBuilder(codePoints.length);
+        for (int i = 0; i < codePoints.length; i++) {
+            if (i < start || i >= start + length) {
+                result.appendCodePoint(codePoints[i]);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,53 @@
+package pl.edu.agh.qa.pesel.load;
+
+/**
+ * Kinds of requests made by the API suites, with the PESELs they use.
+ */
+public enum LoadCase {
+
+    /**
+     * PeselValidatorResponseBodyTests: valid PESELs of every century and month.
+     */
+    VALID(200, "97022153388", "97022137850", "98013116872", "98022889471", "98123159932",
+            "00813000019", "00013020813", "00213073091", "00413000017", "00613000013", "99613000017"),
+    /**
+     * PeselValidatorErrorTests: too short and too long.
+     */
+    INVL(200, "123", "123123123123", "9702215d3388"),
+    /**
+     * PeselValidatorErrorTests: letters and special characters.
+     */
+    NBRQ(200, "jedenaściel", "97o22137850", "1231231231ł", "1231231231#", "1231231231%", "1231231231+"),
+    /**
+     * PeselValidatorErrorTests: invalid month, day and 29 February of a common year.
+     */
+    DATE(200, "98000100011", "98130100017", "98123323122", "17222900014"),
+    /**
+     * PeselValidatorErrorTests: wrong check digit.
+     */
+    INVC(200, "80013131572"),
+    /**
+     * PeselValidatorResponseCodeTests: no 'pesel' parameter.
+     */
+    MISSING(400, (String) null);
+
+    private final int expectedStatus;
+    private final String[] pesels;
+
+    LoadCase(int expectedStatus, String... pesels) {
+        this.expectedStatus = expectedStatus;
+        this.pesels = pesels;
+    }
+
+    public int expectedStatus() {
+        return expectedStatus;
+    }
+
+    /**
+     * @param sequence any number, picks one of the PESELs of this case
+     * @return PESEL to request, null for {@link #MISSING}
+     */
+    public String pesel(long sequence) {
+        return pesels[(int) Math.floorMod(sequence, (long) pesels.length)];
+    }
+}
@@ -0,0 +1,151 @@
+package pl.edu.agh.qa.pesel.load;
+
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.cli.Target;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the request mix of the API suites against the validator.
+ *
+ * Open model: requests are sent at a fixed arrival rate regardless of how fast the service answers.
+ * Latency is measured from the moment a request was scheduled to be sent, so a stalled service
+ * shows up in the percentiles instead of silently lowering the rate (no coordinated omission).
+ * Closed model: N users send their next request as soon as the previous one is answered.
+ *
+ * <pre>
+ * LoadGenerator [--base-uri=https://...] [--model=open|closed] [--rate=200] [--max-in-flight=10000]
+ *               [--users=16] [--duration=30] [--warmup=5] [--timeout=10000] [--mix=VALID:1,INVL:1,...]
+ * </pre>
+ * Without --base-uri the load is sent to an embedded stand-in.
+ */
+public class LoadGenerator {
+
+    private final PeselHttpClient client;
+    private final RequestMix mix;
+
+    public LoadGenerator(PeselHttpClient client, RequestMix mix) {
+        this.client = client;
+        this.mix = mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        RequestMix mix = RequestMix.parse(arguments.string("mix", RequestMix.ALL_EQUAL));
+        String model = arguments.string("model", "open");
+        Duration warmup = Duration.ofSeconds(arguments.integer("warmup", 5));
+        Duration duration = Duration.ofSeconds(arguments.integer("duration", 30));
+
+        ExecutorService executor = VirtualThreads.newExecutor("load");
+        try (Target target = Target.of(arguments)) {
+            PeselHttpClient client = new PeselHttpClient(target.baseUri(),
+                    Duration.ofMillis(arguments.integer("timeout", 10000)), executor);
+            LoadGenerator generator = new LoadGenerator(client, mix);
+            LoadStats stats;
+            if ("open".equals(model)) {
+                double rate = arguments.decimal("rate", 200);
+                int maxInFlight = arguments.integer("max-in-flight", 10000);
+                System.out.printf("Open model, %.1f req/s for %ds (+%ds warm-up) against %s%n",
+                        rate, duration.getSeconds(), warmup.getSeconds(), target);
+                generator.runOpen(rate, maxInFlight, warmup);
+                stats = generator.runOpen(rate, maxInFlight, duration);
+            } else if ("closed".equals(model)) {
+                int users = arguments.integer("users", 16);
+                System.out.printf("Closed model, %d users for %ds (+%ds warm-up) against %s%n",
+                        users, duration.getSeconds(), warmup.getSeconds(), target);
+                generator.runClosed(users, warmup);
+                stats = generator.runClosed(users, duration);
+            } else {
+                throw new IllegalArgumentException("Unknown model: " + model + ", use open or closed");
+            }
+            stats.print(System.out);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param rate        requests per second
+     * @param maxInFlight bound on outstanding requests; when reached, sending waits, but the waiting
+     *                    time still counts into the latency of the delayed requests
+     */
+    public LoadStats runOpen(double rate, int maxInFlight, Duration duration) throws InterruptedException {
+        LoadStats stats = new LoadStats();
+        Semaphore permits = new Semaphore(maxInFlight);
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long sequence = 0; ; sequence++) {
+            long intended = start + (long) (sequence * intervalNanos);
+            if (intended - end >= 0) {
+                break;
+            }
+            for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            permits.acquire();
+            LoadCase loadCase = mix.pick(sequence);
+            client.get(mix.pesel(loadCase, sequence)).whenComplete((response, failure) -> {
+                stats.record(loadCase, System.nanoTime() - intended, succeeded(loadCase, response, failure));
+                permits.release();
+            });
+        }
+        permits.acquire(maxInFlight);
+        stats.finish(System.nanoTime() - start);
+        return stats;
+    }
+
+    /**
+     * @param users concurrent users, each waiting for its response before sending the next request
+     */
+    public LoadStats runClosed(int users, Duration duration) throws InterruptedException {
+        LoadStats stats = new LoadStats();
+        AtomicLong sequences = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        ExecutorService userThreads = VirtualThreads.newExecutor("load-user");
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int user = 0; user < users; user++) {
+                running.add(userThreads.submit(() -> {
+                    for (long sent = System.nanoTime(); sent - end < 0; sent = System.nanoTime()) {
+                        long sequence = sequences.getAndIncrement();
+                        LoadCase loadCase = mix.pick(sequence);
+                        HttpResponse<byte[]> response = null;
+                        Throwable failure = null;
+                        try {
+                            response = client.get(mix.pesel(loadCase, sequence)).join();
+                        } catch (RuntimeException e) {
+                            failure = e;
+                        }
+                        stats.record(loadCase, System.nanoTime() - sent, succeeded(loadCase, response, failure));
+                    }
+                }));
+            }
+            for (Future<?> user : running) {
+                user.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load user failed", e.getCause());
+        } finally {
+            userThreads.shutdownNow();
+        }
+        stats.finish(System.nanoTime() - start);
+        return stats;
+    }
+
+    private static boolean succeeded(LoadCase loadCase, HttpResponse<byte[]> response, Throwable failure) {
+        return failure == null && response.statusCode() == loadCase.expectedStatus();
+    }
+}
@@ -0,0 +1,89 @@
+package pl.edu.agh.qa.pesel.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies (microsecond resolution, 3 significant digits) and error counts per {@link LoadCase}.
+ */
+public final class LoadStats {
+
+    private final Map<LoadCase, ConcurrentHistogram> latencies = new EnumMap<>(LoadCase.class);
+    private final Map<LoadCase, LongAdder> errors = new EnumMap<>(LoadCase.class);
+    private volatile long elapsedNanos;
+
+    public LoadStats() {
+        for (LoadCase loadCase : LoadCase.values()) {
+            ConcurrentHistogram histogram = new ConcurrentHistogram(3);
+            histogram.setAutoResize(true);
+            latencies.put(loadCase, histogram);
+            errors.put(loadCase, new LongAdder());
+        }
+    }
+
+    /**
+     * @param latencyNanos time from the intended send to the end of the response
+     * @param success      expected status code received
+     */
+    public void record(LoadCase loadCase, long latencyNanos, boolean success) {
+        latencies.get(loadCase).recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (!success) {
+            errors.get(loadCase).increment();
+        }
+    }
+
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long count(LoadCase loadCase) {
+        return latencies.get(loadCase).getTotalCount();
+    }
+
+    public long errors(LoadCase loadCase) {
+        return errors.get(loadCase).sum();
+    }
+
+    /**
+     * @return copy of the latencies of all cases together, in microseconds
+     */
+    public Histogram total() {
+        Histogram total = new Histogram(3);
+        total.setAutoResize(true);
+        latencies.values().forEach(total::add);
+        return total;
+    }
+
+    public void print(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("%-8s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "case", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        long totalErrors = 0;
+        for (LoadCase loadCase : LoadCase.values()) {
+            Histogram histogram = latencies.get(loadCase);
+            if (histogram.getTotalCount() > 0) {
+                print(out, loadCase.name(), histogram, errors(loadCase), seconds);
+            }
+            totalErrors += errors(loadCase);
+        }
+        print(out, "total", total(), totalErrors, seconds);
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram, long errors, double seconds) {
+        long count = histogram.getTotalCount();
+        out.printf("%-8s %9d %9.1f %6.2f%% %9.3f %9.3f %9.3f %9.3f %9.3f%n", name, count, count / seconds,
+                count == 0 ? 0.0 : 100.0 * errors / count,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
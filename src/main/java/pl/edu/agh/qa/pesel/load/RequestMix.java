@@ -0,0 +1,58 @@
+package pl.edu.agh.qa.pesel.load;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted mix of {@link LoadCase}s, e.g. "VALID:5,INVL:1,MISSING:1".
+ * Picking is deterministic: request number n gets the same case in every run.
+ */
+public final class RequestMix {
+
+    public static final String ALL_EQUAL = "VALID:1,INVL:1,NBRQ:1,DATE:1,INVC:1,MISSING:1";
+
+    private final LoadCase[] slots;
+
+    private RequestMix(LoadCase[] slots) {
+        this.slots = slots;
+    }
+
+    public static RequestMix parse(String mix) {
+        Map<LoadCase, Integer> weights = new EnumMap<>(LoadCase.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in request mix: " + entry);
+            }
+            weights.merge(LoadCase.valueOf(parts[0].trim()), weight, Integer::sum);
+        }
+        List<LoadCase> slots = new ArrayList<>();
+        // interleave the cases instead of sending them in blocks
+        for (int round = 0; !weights.isEmpty(); round++) {
+            int current = round;
+            weights.entrySet().removeIf(weight -> weight.getValue() <= current);
+            weights.keySet().forEach(slots::add);
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("Request mix has no positive weight: " + mix);
+        }
+        return new RequestMix(slots.toArray(new LoadCase[0]));
+    }
+
+    /**
+     * @return case of request number {@code sequence}
+     */
+    public LoadCase pick(long sequence) {
+        return slots[(int) (sequence % slots.length)];
+    }
+
+    /**
+     * @return PESEL of request number {@code sequence}
+     */
+    public String pesel(LoadCase loadCase, long sequence) {
+        return loadCase.pesel(sequence / slots.length);
+    }
+}
@@ -0,0 +1,129 @@
+package pl.edu.agh.qa.pesel.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.cli.Target;
+import pl.edu.agh.qa.pesel.client.PeselApiClient;
+import pl.edu.agh.qa.pesel.client.PeselAsyncClient;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the transports of the suites on the same fan-out: {@code --requests} lookups with
+ * {@code --concurrency} outstanding at a time.
+ * <ul>
+ * <li>blocking - {@link PeselApiClient} (rest-assured, HTTP/1.1 connection pool), one platform thread per outstanding request</li>
+ * <li>async - {@link PeselAsyncClient} over HTTP/2 (HTTP/1.1 fallback), all requests started from one thread</li>
+ * <li>async-http1 - {@link PeselAsyncClient} forced to HTTP/1.1</li>
+ * </ul>
+ * Prints throughput, latency percentiles (from sending a request to its decoded response), the live platform
+ * threads at the end of the run (including those of an embedded stand-in) and the protocol used.
+ *
+ * <pre>
+ * TransportBenchmark [--base-uri=https://...] [--requests=5000] [--concurrency=64] [--rounds=3] [--timeout=10000]
+ * </pre>
+ */
+public class TransportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        int requests = arguments.integer("requests", 5000);
+        int concurrency = arguments.integer("concurrency", 64);
+        int rounds = arguments.integer("rounds", 3);
+        Duration timeout = Duration.ofMillis(arguments.integer("timeout", 10000));
+        RequestMix mix = RequestMix.parse(RequestMix.ALL_EQUAL);
+        try (Target target = Target.of(arguments)) {
+            System.out.printf("%d requests, %d in flight, against %s%n", requests, concurrency, target);
+            System.out.printf("%-12s %5s %9s %9s %9s %9s %8s  %s%n",
+                    "transport", "round", "req/s", "p50 ms", "p99 ms", "max ms", "threads", "details");
+            for (int round = 1; round <= rounds; round++) {
+                blocking(target.baseUri(), mix, requests, concurrency, round);
+                async(target.baseUri(), mix, requests, concurrency, timeout, HttpClient.Version.HTTP_2, "async", round);
+                async(target.baseUri(), mix, requests, concurrency, timeout, HttpClient.Version.HTTP_1_1, "async-http1", round);
+            }
+        }
+    }
+
+    private static void blocking(String baseUri, RequestMix mix, int requests, int concurrency, int round)
+            throws Exception {
+        PeselApiClient.Settings defaults = PeselApiClient.Settings.fromSystemProperties();
+        PeselApiClient client = new PeselApiClient(baseUri, new PeselApiClient.Settings(concurrency, 5000,
+                defaults.readTimeoutMillis(), 30000, false));
+        ExecutorService threads = Executors.newFixedThreadPool(concurrency);
+        Histogram latencies = histogram();
+        AtomicLong sequence = new AtomicLong();
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(threads.submit(() -> {
+                    for (long seq = sequence.getAndIncrement(); seq < requests; seq = sequence.getAndIncrement()) {
+                        long sent = System.nanoTime();
+                        client.get(mix.pesel(mix.pick(seq), seq));
+                        latencies.recordValue(micros(sent));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            print("blocking", round, requests, start, latencies, "connections opened: " + client.connectionCount());
+        } finally {
+            threads.shutdownNow();
+            client.close();
+        }
+    }
+
+    private static void async(String baseUri, RequestMix mix, int requests, int concurrency, Duration timeout,
+                              HttpClient.Version version, String name, int round) {
+        ExecutorService executor = VirtualThreads.newExecutor("benchmark-async");
+        try {
+            PeselAsyncClient client = new PeselAsyncClient(new PeselHttpClient(baseUri, timeout, executor, version),
+                    concurrency);
+            Histogram latencies = histogram();
+            CompletableFuture<?>[] calls = new CompletableFuture<?>[requests];
+            long start = System.nanoTime();
+            for (int seq = 0; seq < requests; seq++) {
+                // from the request leaving the queue, like the blocking path which only measures sent requests
+                calls[seq] = client.get(mix.pesel(mix.pick(seq), seq))
+                        .thenAccept(call -> latencies.recordValue(Math.max(1, call.timing().totalMicros())));
+            }
+            CompletableFuture.allOf(calls).join();
+            print(name, round, requests, start, latencies, client.stats());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Histogram histogram() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(3);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+
+    private static long micros(long sentNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentNanos));
+    }
+
+    private static void print(String name, int round, int requests, long startNanos, Histogram latencies, String details) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.out.printf("%-12s %5d %9.0f %9.3f %9.3f %9.3f %8d  %s%n", name, round, requests / seconds,
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getMaxValue() / 1000.0, threads.getThreadCount(), details);
+    }
+}
@@ -0,0 +1,98 @@
+package pl.edu.agh.qa.pesel.perf;
+
+import pl.edu.agh.qa.pesel.cli.TabSeparated;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Latency samples per test, in microseconds, as a text file meant to be kept under version control:
+ * comment lines starting with '#', then one line per test, sorted by key:
+ * <pre>
+ * # recorded 2024-05-01T10:00:00Z against https://peselvalidatorapitest.azurewebsites.net
+ * PeselValidatorErrorTests.shouldReturnINVL1 GET /api/Pesel?pesel=123	812 790 1033 ...
+ * </pre>
+ * Tabs, line breaks and backslashes in keys are escaped as \t, \n, \r and \\.
+ */
+public final class LatencyBaseline {
+
+    private final Map<String, long[]> samples;
+
+    public LatencyBaseline(Map<String, long[]> samples) {
+        this.samples = Collections.unmodifiableMap(new TreeMap<>(samples));
+    }
+
+    public static LatencyBaseline read(Path file) throws IOException {
+        Map<String, long[]> samples = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.lastIndexOf('\t');
+                if (tab < 0) {
+                    throw new IOException(file + ":" + lineNumber + ": expected key<TAB>samples");
+                }
+                String[] values = line.substring(tab + 1).trim().split(" +");
+                long[] micros = new long[values.length];
+                try {
+                    for (int i = 0; i < values.length; i++) {
+                        micros[i] = Long.parseLong(values[i]);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNumber + ": not a latency: " + e.getMessage());
+                }
+                samples.put(TabSeparated.unescape(line.substring(0, tab)), micros);
+            }
+        }
+        return new LatencyBaseline(samples);
+    }
+
+    /**
+     * @param comment written as the first line, e.g. when and against what the samples were taken
+     */
+    public void write(Path file, String comment) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# " + comment.replace('\n', ' '));
+            out.newLine();
+            out.write("# test and request<TAB>latencies in microseconds");
+            out.newLine();
+            for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+                out.write(TabSeparated.escape(entry.getKey()));
+                out.write('\t');
+                long[] micros = entry.getValue();
+                for (int i = 0; i < micros.length; i++) {
+                    if (i > 0) {
+                        out.write(' ');
+                    }
+                    out.write(Long.toString(micros[i]));
+                }
+                out.newLine();
+            }
+        }
+    }
+
+    public Set<String> keys() {
+        return samples.keySet();
+    }
+
+    /**
+     * @return samples in microseconds, null when the key is not in the baseline
+     */
+    public long[] samples(String key) {
+        return samples.get(key);
+    }
+}
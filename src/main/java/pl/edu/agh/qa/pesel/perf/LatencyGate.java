@@ -0,0 +1,247 @@
+package pl.edu.agh.qa.pesel.perf;
+
+import pl.edu.agh.qa.pesel.cli.TabSeparated;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects latency samples per test and compares the p95 and p99 of each with its {@link LatencyBaseline}
+ * ({@link QuantileComparison}); a test regressed when either quantile did.
+ *
+ * Without a baseline it only records, see {@link #recorded()}.
+ */
+public class LatencyGate {
+
+    static final double[] QUANTILES = {0.95, 0.99};
+    static final String ALL = "(all tests)";
+
+    private final LatencyBaseline baseline;
+    private final double threshold;
+    private final long minIncrease;
+    private final double confidence;
+    private final Map<String, long[]> current = new TreeMap<>();
+
+    /**
+     * @param baseline   null to only record
+     * @param threshold   allowed slowdown of a quantile, e.g. 0.25 for 25%
+     * @param minIncrease allowed slowdown of a quantile in microseconds, the larger of the two counts
+     * @param confidence  of the lower bound of the slowdown, e.g. 0.9
+     */
+    public LatencyGate(LatencyBaseline baseline, double threshold, long minIncrease, double confidence) {
+        this.baseline = baseline;
+        this.threshold = threshold;
+        this.minIncrease = minIncrease;
+        this.confidence = confidence;
+    }
+
+    /**
+     * Adds samples of a test; samples added again for the same key are compared together.
+     *
+     * @param micros latencies in microseconds
+     * @return the quantiles that regressed against the baseline, empty when none did or the key has no baseline
+     */
+    public List<QuantileComparison> add(String key, long[] micros) {
+        long[] samples;
+        synchronized (current) {
+            long[] previous = current.get(key);
+            if (previous == null) {
+                samples = micros.clone();
+            } else {
+                samples = Arrays.copyOf(previous, previous.length + micros.length);
+                System.arraycopy(micros, 0, samples, previous.length, micros.length);
+            }
+            current.put(key, samples);
+        }
+        return check(key, samples);
+    }
+
+    /**
+     * Compares samples with the baseline without adding them.
+     *
+     * @return the quantiles that regressed, empty when none did or the key has no baseline
+     */
+    public List<QuantileComparison> check(String key, long[] micros) {
+        List<QuantileComparison> regressions = new ArrayList<>();
+        for (QuantileComparison comparison : compare(key, micros)) {
+            if (comparison.regressed()) {
+                regressions.add(comparison);
+            }
+        }
+        return regressions;
+    }
+
+    private List<QuantileComparison> compare(String key, long[] samples) {
+        long[] base = baseline == null ? null : baseline.samples(key);
+        if (base == null) {
+            return Collections.emptyList();
+        }
+        List<QuantileComparison> comparisons = new ArrayList<>(QUANTILES.length);
+        for (double quantile : QUANTILES) {
+            comparisons.add(QuantileComparison.compare(base, samples, quantile, threshold, minIncrease, confidence,
+                    key.hashCode()));
+        }
+        return comparisons;
+    }
+
+    /**
+     * @return e.g. "p95 3.4 ms, baseline 1.2 ms (+183%, at least +120%)"
+     */
+    public static String describe(List<QuantileComparison> comparisons) {
+        List<String> parts = new ArrayList<>();
+        for (QuantileComparison comparison : comparisons) {
+            parts.add(String.format("p%.0f %s, baseline %s (%s, at least %s)", comparison.quantile() * 100,
+                    millis(comparison.current()), millis(comparison.baseline()), percent(comparison.change()),
+                    percent(comparison.lowerChange())));
+        }
+        return String.join("; ", parts);
+    }
+
+    /**
+     * @return the samples added so far, to be written as the next baseline
+     */
+    public LatencyBaseline recorded() {
+        synchronized (current) {
+            return new LatencyBaseline(current);
+        }
+    }
+
+    /**
+     * @return number of tests whose p95 or p99 regressed
+     */
+    public int regressions() {
+        Map<String, long[]> samples;
+        synchronized (current) {
+            samples = new TreeMap<>(current);
+        }
+        int regressions = 0;
+        for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+            if (compare(entry.getKey(), entry.getValue()).stream().anyMatch(QuantileComparison::regressed)) {
+                regressions++;
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Table of every test against its baseline, regressions first, then by p95 change; tests without a
+     * baseline are "new", baseline tests that did not run "missing". The last line compares all samples
+     * of the tests present in both.
+     */
+    public String report() {
+        Map<String, long[]> samples;
+        synchronized (current) {
+            samples = new TreeMap<>(current);
+        }
+        List<Row> rows = new ArrayList<>();
+        List<Long> allBaseline = new ArrayList<>();
+        List<Long> allCurrent = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+            List<QuantileComparison> comparisons = compare(entry.getKey(), entry.getValue());
+            rows.add(new Row(entry.getKey(), entry.getValue(), comparisons, null));
+            if (!comparisons.isEmpty()) {
+                for (long micros : baseline.samples(entry.getKey())) {
+                    allBaseline.add(micros);
+                }
+                for (long micros : entry.getValue()) {
+                    allCurrent.add(micros);
+                }
+            }
+        }
+        if (baseline != null) {
+            for (String key : baseline.keys()) {
+                if (!samples.containsKey(key)) {
+                    rows.add(new Row(key, null, Collections.emptyList(), baseline.samples(key)));
+                }
+            }
+        }
+        rows.sort(Comparator.comparingInt(Row::rank).thenComparing(Comparator.comparingDouble(Row::change).reversed())
+                .thenComparing(row -> row.key));
+
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf("%-9s %10s %10s %8s %10s %10s %8s  %s%n",
+                "", "p95 base", "p95 now", "change", "p99 base", "p99 now", "change", "test");
+        for (Row row : rows) {
+            out.println(row.format());
+        }
+        if (!allCurrent.isEmpty()) {
+            long[] base = allBaseline.stream().mapToLong(Long::longValue).toArray();
+            long[] now = allCurrent.stream().mapToLong(Long::longValue).toArray();
+            List<QuantileComparison> comparisons = new ArrayList<>();
+            for (double quantile : QUANTILES) {
+                comparisons.add(QuantileComparison.compare(base, now, quantile, threshold, minIncrease, confidence,
+                        ALL.hashCode()));
+            }
+            out.println(new Row(ALL, now, comparisons, null).format());
+        }
+        out.flush();
+        return text.toString();
+    }
+
+    private static long quantile(long[] samples, double quantile) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return QuantileComparison.quantile(sorted, quantile);
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f ms", micros / 1000.0);
+    }
+
+    private static String percent(double change) {
+        return String.format("%+.0f%%", change * 100);
+    }
+
+    private static final class Row {
+
+        final String key;
+        final long[] samples;
+        final List<QuantileComparison> comparisons;
+        // baseline samples of a test that did not run
+        final long[] missing;
+
+        Row(String key, long[] samples, List<QuantileComparison> comparisons, long[] missing) {
+            this.key = key;
+            this.samples = samples;
+            this.comparisons = comparisons;
+            this.missing = missing;
+        }
+
+        boolean regressed() {
+            return comparisons.stream().anyMatch(QuantileComparison::regressed);
+        }
+
+        int rank() {
+            return regressed() ? 0 : comparisons.isEmpty() ? 2 : 1;
+        }
+
+        double change() {
+            return comparisons.isEmpty() ? 0 : comparisons.get(0).change();
+        }
+
+        String format() {
+            String status = samples == null ? "missing" : comparisons.isEmpty() ? "new" : regressed() ? "REGRESSED" : "ok";
+            StringBuilder line = new StringBuilder(String.format("%-9s", status));
+            for (int i = 0; i < QUANTILES.length; i++) {
+                if (!comparisons.isEmpty()) {
+                    QuantileComparison comparison = comparisons.get(i);
+                    line.append(String.format(" %10s %10s %8s", millis(comparison.baseline()),
+                            millis(comparison.current()), percent(comparison.change())));
+                } else if (samples != null) {
+                    line.append(String.format(" %10s %10s %8s", "-", millis(quantile(samples, QUANTILES[i])), "-"));
+                } else {
+                    line.append(String.format(" %10s %10s %8s", millis(quantile(missing, QUANTILES[i])), "-", "-"));
+                }
+            }
+            return line.append("  ").append(TabSeparated.escape(key)).toString();
+        }
+    }
+}
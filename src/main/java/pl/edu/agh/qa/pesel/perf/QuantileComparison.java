@@ -0,0 +1,138 @@
+package pl.edu.agh.qa.pesel.perf;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Compares one quantile (e.g. p95) of two latency samples with a bootstrap: both samples are resampled with
+ * replacement {@value #RESAMPLES} times and the ratio and difference of their quantiles collected. The current
+ * sample regressed when even the lower confidence bounds of both are above {@code 1 + threshold} and
+ * {@code minIncrease}, so a single slow outlier in a small sample does not fail a run, while a consistent slowdown
+ * does. The absolute floor keeps a fast service from failing on a few milliseconds of scheduling noise: samples
+ * taken back to back share the load of that moment, which the resampling cannot see.
+ */
+public final class QuantileComparison {
+
+    static final int RESAMPLES = 1000;
+
+    private final double quantile;
+    private final long baseline;
+    private final long current;
+    private final double lowerRatio;
+    private final long lowerIncrease;
+    private final boolean regressed;
+
+    private QuantileComparison(double quantile, long baseline, long current, double lowerRatio, long lowerIncrease,
+                               boolean regressed) {
+        this.quantile = quantile;
+        this.baseline = baseline;
+        this.current = current;
+        this.lowerRatio = lowerRatio;
+        this.lowerIncrease = lowerIncrease;
+        this.regressed = regressed;
+    }
+
+    /**
+     * @param baseline   latencies of the baseline run, any unit
+     * @param current    latencies of this run, same unit
+     * @param quantile   e.g. 0.95
+     * @param threshold   allowed slowdown, e.g. 0.25 for 25%
+     * @param minIncrease allowed slowdown in the unit of the latencies, whichever of the two is larger counts
+     * @param confidence  one-sided confidence of the lower bounds, e.g. 0.9
+     * @param seed        of the resampling, the same inputs and seed give the same result
+     */
+    public static QuantileComparison compare(long[] baseline, long[] current, double quantile, double threshold,
+                                             long minIncrease, double confidence, long seed) {
+        if (baseline.length == 0 || current.length == 0) {
+            throw new IllegalArgumentException("Empty sample: " + baseline.length + " baseline, "
+                    + current.length + " current latencies");
+        }
+        long[] sortedBaseline = sorted(baseline);
+        long[] sortedCurrent = sorted(current);
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] ratios = new double[RESAMPLES];
+        long[] increases = new long[RESAMPLES];
+        long[] baselineResample = new long[baseline.length];
+        long[] currentResample = new long[current.length];
+        for (int i = 0; i < RESAMPLES; i++) {
+            long baselineQuantile = quantile(resample(sortedBaseline, baselineResample, random), quantile);
+            long currentQuantile = quantile(resample(sortedCurrent, currentResample, random), quantile);
+            ratios[i] = ratio(baselineQuantile, currentQuantile);
+            increases[i] = currentQuantile - baselineQuantile;
+        }
+        Arrays.sort(ratios);
+        Arrays.sort(increases);
+        int lower = (int) Math.floor((1 - confidence) * (RESAMPLES - 1));
+        return new QuantileComparison(quantile, quantile(sortedBaseline, quantile), quantile(sortedCurrent, quantile),
+                ratios[lower], increases[lower], ratios[lower] > 1 + threshold && increases[lower] > minIncrease);
+    }
+
+    private static long[] sorted(long[] values) {
+        long[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private static long[] resample(long[] from, long[] into, SplittableRandom random) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] = from[random.nextInt(from.length)];
+        }
+        Arrays.sort(into);
+        return into;
+    }
+
+    /**
+     * @param sorted ascending
+     * @return nearest-rank quantile
+     */
+    static long quantile(long[] sorted, double quantile) {
+        return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double ratio(long baseline, long current) {
+        return current / (double) Math.max(1, baseline);
+    }
+
+    public double quantile() {
+        return quantile;
+    }
+
+    /**
+     * @return quantile of the baseline sample
+     */
+    public long baseline() {
+        return baseline;
+    }
+
+    /**
+     * @return quantile of the current sample
+     */
+    public long current() {
+        return current;
+    }
+
+    /**
+     * @return current / baseline - 1, e.g. 0.4 for 40% slower
+     */
+    public double change() {
+        return ratio(baseline, current) - 1;
+    }
+
+    /**
+     * @return lower confidence bound of {@link #change()}
+     */
+    public double lowerChange() {
+        return lowerRatio - 1;
+    }
+
+    /**
+     * @return lower confidence bound of current - baseline
+     */
+    public long lowerIncrease() {
+        return lowerIncrease;
+    }
+
+    public boolean regressed() {
+        return regressed;
+    }
+}
@@ -0,0 +1,83 @@
+package pl.edu.agh.qa.pesel.shard;
+
+/**
+ * One of {@code count} disjoint parts of a test run, so that several JVMs, on one machine or several, each run a
+ * part of the same test classes. Set by the system properties {@value #INDEX_PROPERTY} (0 to count - 1) and
+ * {@value #COUNT_PROPERTY} (1, the default, runs everything).
+ *
+ * Rows of a corpus are dealt out by position, row {@code i} to shard {@code i % count}, so every shard gets an even
+ * share of a table whatever its order; single tests go by a hash of their name. Both only depend on the corpus and
+ * the test names, so every JVM computes the same partition without talking to the others.
+ */
+public final class Shard {
+
+    public static final String INDEX_PROPERTY = "pesel.shard.index";
+    public static final String COUNT_PROPERTY = "pesel.shard.count";
+    public static final String DIR_PROPERTY = "pesel.shard.dir";
+
+    public static final Shard ALL = new Shard(0, 1);
+
+    private final int index;
+    private final int count;
+
+    public Shard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard index must be 0-" + (count - 1) + ", count positive: "
+                    + index + " of " + count);
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    public static Shard fromSystemProperties() {
+        return new Shard(Integer.getInteger(INDEX_PROPERTY, 0), Integer.getInteger(COUNT_PROPERTY, 1));
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isPartial() {
+        return count > 1;
+    }
+
+    /**
+     * @param position position of a row in its corpus, from 0
+     */
+    public boolean owns(long position) {
+        return position % count == index;
+    }
+
+    /**
+     * @param name e.g. the class and method name of a test; String hash codes are the same in every JVM
+     */
+    public boolean owns(String name) {
+        return Math.floorMod(name.hashCode(), count) == index;
+    }
+
+    /**
+     * @return e.g. "shard-2-of-4", the name of its result file
+     */
+    public String name() {
+        return "shard-" + index + "-of-" + count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Shard && ((Shard) o).index == index && ((Shard) o).count == count;
+    }
+
+    @Override
+    public int hashCode() {
+        return index * 31 + count;
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + index + " of " + count;
+    }
+}
@@ -0,0 +1,124 @@
+package pl.edu.agh.qa.pesel.shard;
+
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.cli.Target;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Runs the suites as {@code --shards} TestNG JVMs on this machine, each its own {@link Shard} of the test classes,
+ * all against one validator: {@code --base-uri=...} or a stand-in started here and shared by them. The shards write
+ * their results to {@code --out}, which are then merged by {@link ShardMerge}; every JVM's output goes to
+ * {@code --out/shard-I-of-N.log}. {@code pesel.*} system properties of the launcher (e.g. {@code -Dpesel.cases=...})
+ * are passed on to the shards.
+ *
+ * Needs the test classpath, which the shards inherit:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/classpath.txt) pl.edu.agh.qa.pesel.shard.ShardLauncher
+ *      [--shards=4] [--base-uri=https://...] [--classes=PeselValidatorCaseTests,...] [--out=target/shards]
+ *      [--threads=16]
+ * </pre>
+ */
+public class ShardLauncher {
+
+    private static final String SUITES = "PeselValidatorCaseTests,PeselValidatorErrorTests,PeselValidatorResponseBodyTests,"
+            + "PeselValidatorResponseCodeTests";
+    private static final String BASE_URI_PROPERTY = "pesel.api.baseUri";
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        int shards = arguments.integer("shards", 4);
+        Path out = Paths.get(arguments.string("out", "target/shards"));
+        String classes = arguments.string("classes", SUITES);
+        try {
+            Class.forName("org.testng.TestNG");
+        } catch (ClassNotFoundException e) {
+            System.err.println("TestNG is not on the classpath, run ShardLauncher with the test classpath");
+            System.exit(2);
+        }
+        clean(out);
+        ShardMerge merge;
+        try (Target target = Target.of(arguments)) {
+            System.out.printf("Running %s in %d shards against %s%n", classes, shards, target);
+            List<Process> processes = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int index = 0; index < shards; index++) {
+                Shard shard = new Shard(index, shards);
+                ProcessBuilder builder = new ProcessBuilder(command(shard, target, out, classes,
+                        arguments.integer("threads", 16)));
+                builder.redirectErrorStream(true);
+                builder.redirectOutput(out.resolve(shard.name() + ".log").toFile());
+                processes.add(builder.start());
+            }
+            for (int index = 0; index < shards; index++) {
+                int exit = processes.get(index).waitFor();
+                System.out.printf("%s finished with exit code %d after %.1f s%n", new Shard(index, shards).name(),
+                        exit, (System.nanoTime() - start) / 1e9);
+            }
+        }
+        try {
+            merge = ShardMerge.read(out);
+        } catch (IOException e) {
+            System.err.println("No results to merge: " + e.getMessage() + ", see the logs in " + out);
+            System.exit(1);
+            return;
+        }
+        Path results = out.resolve("testng-results.xml");
+        merge.writeTestNgResults(results);
+        merge.print(System.out);
+        System.out.println("TestNG results: " + results);
+        System.exit(merge.succeeded() ? 0 : 1);
+    }
+
+    static List<String> command(Shard shard, Target target, Path out, String classes, int threads) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            String name = property.getKey().toString();
+            if (name.startsWith("pesel.") && !name.startsWith("pesel.shard.") && !name.equals(BASE_URI_PROPERTY)) {
+                command.add("-D" + name + "=" + property.getValue());
+            }
+        }
+        command.add("-D" + Shard.INDEX_PROPERTY + "=" + shard.index());
+        command.add("-D" + Shard.COUNT_PROPERTY + "=" + shard.count());
+        command.add("-D" + Shard.DIR_PROPERTY + "=" + out);
+        command.add("-D" + BASE_URI_PROPERTY + "=" + target.baseUri());
+        if (target.isLocal() && System.getProperty("pesel.api.batch.size") == null) {
+            // the suites only batch against a stand-in of their own; the shared one has the batch endpoint too
+            command.add("-Dpesel.api.batch.size=32");
+        }
+        command.add("org.testng.TestNG");
+        command.add("-d");
+        command.add(out.resolve(shard.name()).toString());
+        command.add("-dataproviderthreadcount");
+        command.add(Integer.toString(threads));
+        command.add("-testclass");
+        command.add(classes);
+        return command;
+    }
+
+    /**
+     * Removes the results of an earlier run, which would otherwise be merged with the new ones.
+     */
+    private static void clean(Path out) throws IOException {
+        Files.createDirectories(out);
+        try (Stream<Path> entries = Files.list(out)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith("shard-") && (name.endsWith(".tsv") || name.endsWith(".log"))) {
+                    Files.delete(entry);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package pl.edu.agh.qa.pesel.shard;
+
+import org.HdrHistogram.Histogram;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Combines the {@link ShardResults} of a sharded run into one report: a TestNG {@code testng-results.xml} with one
+ * {@code <test>} per shard, and a summary of the run printed to stdout - tests per status, every shard's share and
+ * time, and the throughput and latency of the whole run, from the first shard's start to the last one's finish.
+ * Shards missing from the directory are listed; the exit code is 1 when any is missing or any test failed.
+ *
+ * <pre>
+ * ShardMerge DIR [--out=DIR/testng-results.xml]
+ * </pre>
+ */
+public class ShardMerge {
+
+    private static final DateTimeFormatter TESTNG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss 'UTC'")
+            .withZone(ZoneOffset.UTC);
+
+    private final List<ShardResults> shards;
+    private final int count;
+
+    /**
+     * @throws IllegalArgumentException when the shards come from runs of different shard counts or one is repeated
+     */
+    public ShardMerge(List<ShardResults> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("No shard results");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.shards.sort(Comparator.comparingInt(results -> results.shard().index()));
+        this.count = this.shards.get(0).shard().count();
+        for (int i = 0; i < this.shards.size(); i++) {
+            Shard shard = this.shards.get(i).shard();
+            if (shard.count() != count) {
+                throw new IllegalArgumentException("Shards of different runs: " + this.shards.get(0).shard()
+                        + " and " + shard);
+            }
+            if (i > 0 && this.shards.get(i - 1).shard().equals(shard)) {
+                throw new IllegalArgumentException("Two results of " + shard);
+            }
+        }
+    }
+
+    /**
+     * Reads every {@code shard-*.tsv} of {@code directory}.
+     */
+    public static ShardMerge read(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> entries = Files.list(directory)) {
+            files = entries.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith("shard-") && name.endsWith(".tsv");
+            }).sorted().collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            throw new IOException("No shard-*.tsv results in " + directory);
+        }
+        List<ShardResults> shards = new ArrayList<>();
+        for (Path file : files) {
+            shards.add(ShardResults.read(file));
+        }
+        return new ShardMerge(shards);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        if (arguments.positional().size() != 1) {
+            System.err.println("Usage: ShardMerge DIR [--out=DIR/testng-results.xml]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(arguments.positional().get(0));
+        ShardMerge merge = read(directory);
+        Path out = Paths.get(arguments.string("out", directory.resolve("testng-results.xml").toString()));
+        merge.writeTestNgResults(out);
+        merge.print(System.out);
+        System.out.println("TestNG results: " + out);
+        System.exit(merge.succeeded() ? 0 : 1);
+    }
+
+    public List<ShardResults> shards() {
+        return shards;
+    }
+
+    /**
+     * @return indexes of the shards of the run without results
+     */
+    public List<Integer> missing() {
+        List<Integer> missing = new ArrayList<>();
+        for (int index = 0, next = 0; index < count; index++) {
+            if (next < shards.size() && shards.get(next).shard().index() == index) {
+                next++;
+            } else {
+                missing.add(index);
+            }
+        }
+        return missing;
+    }
+
+    public long count(String status) {
+        return tests().filter(test -> test.status().equals(status)).count();
+    }
+
+    public long total() {
+        return tests().count();
+    }
+
+    /**
+     * @return true when all shards reported and no test failed
+     */
+    public boolean succeeded() {
+        return missing().isEmpty() && count(ShardResults.FAIL) == 0;
+    }
+
+    private Stream<ShardResults.Test> tests() {
+        return shards.stream().flatMap(shard -> shard.tests().stream());
+    }
+
+    private long startMillis() {
+        return shards.stream().mapToLong(ShardResults::startMillis).min().orElse(0);
+    }
+
+    private long finishMillis() {
+        return shards.stream().mapToLong(ShardResults::finishMillis).max().orElse(0);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%d of %d shards, %d tests: %d passed, %d failed, %d skipped%n", shards.size(), count, total(),
+                count(ShardResults.PASS), count(ShardResults.FAIL), count(ShardResults.SKIP));
+        if (!missing().isEmpty()) {
+            out.println("Missing shards: " + missing());
+        }
+        Histogram durations = histogram();
+        Histogram requests = histogram();
+        out.printf("%-14s %-20s %8s %8s %9s %9s%n", "shard", "host", "tests", "failed", "seconds", "tests/s");
+        for (ShardResults shard : shards) {
+            long failed = shard.tests().stream().filter(test -> test.status().equals(ShardResults.FAIL)).count();
+            double seconds = Math.max(1, shard.finishMillis() - shard.startMillis()) / 1000.0;
+            out.printf("%-14s %-20s %8d %8d %9.1f %9.1f%n", shard.shard().name(), shard.host(), shard.tests().size(),
+                    failed, seconds, shard.tests().size() / seconds);
+            for (ShardResults.Test test : shard.tests()) {
+                durations.recordValue(Math.max(0, test.durationMillis()));
+                for (long micros : test.requestMicros()) {
+                    requests.recordValue(Math.max(1, micros));
+                }
+            }
+        }
+        double seconds = Math.max(1, finishMillis() - startMillis()) / 1000.0;
+        out.printf("Run: %.1f s from the first start to the last finish, %.1f tests/s, %d requests, %.1f requests/s%n",
+                seconds, total() / seconds, requests.getTotalCount(), requests.getTotalCount() / seconds);
+        out.printf("Test duration ms   p50 %8d  p90 %8d  p99 %8d  max %8d%n", durations.getValueAtPercentile(50),
+                durations.getValueAtPercentile(90), durations.getValueAtPercentile(99), durations.getMaxValue());
+        if (requests.getTotalCount() > 0) {
+            out.printf("Request latency ms p50 %8.3f  p90 %8.3f  p99 %8.3f  max %8.3f%n",
+                    requests.getValueAtPercentile(50) / 1000.0, requests.getValueAtPercentile(90) / 1000.0,
+                    requests.getValueAtPercentile(99) / 1000.0, requests.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * Writes the results in the format of TestNG's own {@code testng-results.xml}, one {@code <test>} per shard.
+     */
+    public void writeTestNgResults(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("testng-results");
+            xml.writeAttribute("ignored", "0");
+            xml.writeAttribute("total", Long.toString(total()));
+            xml.writeAttribute("passed", Long.toString(count(ShardResults.PASS)));
+            xml.writeAttribute("failed", Long.toString(count(ShardResults.FAIL)));
+            xml.writeAttribute("skipped", Long.toString(count(ShardResults.SKIP)));
+            xml.writeEmptyElement("reporter-output");
+            xml.writeStartElement("suite");
+            xml.writeAttribute("name", "PESEL validator, " + count + " shards");
+            writeTimes(xml, startMillis(), finishMillis());
+            xml.writeEmptyElement("groups");
+            for (ShardResults shard : shards) {
+                xml.writeStartElement("test");
+                xml.writeAttribute("name", shard.shard().name() + " on " + shard.host());
+                writeTimes(xml, shard.startMillis(), shard.finishMillis());
+                Map<String, List<ShardResults.Test>> byClass = new LinkedHashMap<>();
+                for (ShardResults.Test test : shard.tests()) {
+                    byClass.computeIfAbsent(test.className(), key -> new ArrayList<>()).add(test);
+                }
+                for (Map.Entry<String, List<ShardResults.Test>> entry : byClass.entrySet()) {
+                    xml.writeStartElement("class");
+                    xml.writeAttribute("name", entry.getKey());
+                    for (ShardResults.Test test : entry.getValue()) {
+                        writeTest(xml, test);
+                    }
+                    xml.writeEndElement();
+                }
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot write " + file, e);
+        }
+    }
+
+    private static void writeTest(XMLStreamWriter xml, ShardResults.Test test) throws XMLStreamException {
+        xml.writeStartElement("test-method");
+        xml.writeAttribute("status", test.status());
+        xml.writeAttribute("signature", test.method() + "()");
+        xml.writeAttribute("name", test.method());
+        writeTimes(xml, test.startMillis(), test.startMillis() + test.durationMillis());
+        if (!test.parameters().isEmpty()) {
+            xml.writeStartElement("params");
+            for (int i = 0; i < test.parameters().size(); i++) {
+                xml.writeStartElement("param");
+                xml.writeAttribute("index", Integer.toString(i));
+                String value = test.parameters().get(i);
+                if (value == null) {
+                    xml.writeEmptyElement("value");
+                    xml.writeAttribute("is-null", "true");
+                } else {
+                    xml.writeStartElement("value");
+                    xml.writeCharacters(value);
+                    xml.writeEndElement();
+                }
+                xml.writeEndElement();
+            }
+            xml.writeEndElement();
+        }
+        if (test.failure() != null) {
+            // as Throwable.toString(): "class: message"
+            int colon = test.failure().indexOf(": ");
+            xml.writeStartElement("exception");
+            xml.writeAttribute("class", colon < 0 ? test.failure() : test.failure().substring(0, colon));
+            xml.writeStartElement("message");
+            xml.writeCharacters(colon < 0 ? "" : test.failure().substring(colon + 2));
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+        xml.writeEndElement();
+    }
+
+    private static void writeTimes(XMLStreamWriter xml, long startMillis, long finishMillis) throws XMLStreamException {
+        xml.writeAttribute("started-at", TESTNG_TIME.format(Instant.ofEpochMilli(startMillis)));
+        xml.writeAttribute("finished-at", TESTNG_TIME.format(Instant.ofEpochMilli(finishMillis)));
+        xml.writeAttribute("duration-ms", Long.toString(finishMillis - startMillis));
+    }
+
+    private static Histogram histogram() {
+        Histogram histogram = new Histogram(3);
+        histogram.setAutoResize(true);
+        return histogram;
+    }
+}
@@ -0,0 +1,230 @@
+package pl.edu.agh.qa.pesel.shard;
+
+import pl.edu.agh.qa.pesel.cli.TabSeparated;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of the tests one {@link Shard} ran, with the latency of every request they made; written by each JVM
+ * to {@code shard-I-of-N.tsv} and combined by {@link ShardMerge}.
+ *
+ * The file is tab separated: a line "#shard index count host started finished" (epoch milliseconds), a header, and
+ * one line per test method or DataProvider row: class, method, PASS/FAIL/SKIP, start (epoch ms), duration (ms), the
+ * total microseconds of each request it made (comma separated, cached reads excluded), the failure and the
+ * parameters. Values are escaped as {@link TabSeparated}, a null parameter is written as {@code \0}.
+ */
+public final class ShardResults {
+
+    public static final String PASS = "PASS";
+    public static final String FAIL = "FAIL";
+    public static final String SKIP = "SKIP";
+
+    private static final String SHARD_LINE = "#shard";
+    private static final String NULL = "\\0";
+    private static final String HEADER = "#class\tmethod\tstatus\tstart_ms\tduration_ms\trequest_us\tfailure\tparameters";
+
+    private final Shard shard;
+    private final String host;
+    private final long startMillis;
+    private final long finishMillis;
+    private final List<Test> tests;
+
+    public ShardResults(Shard shard, String host, long startMillis, long finishMillis, List<Test> tests) {
+        this.shard = shard;
+        this.host = host;
+        this.startMillis = startMillis;
+        this.finishMillis = finishMillis;
+        this.tests = Collections.unmodifiableList(new ArrayList<>(tests));
+    }
+
+    public Shard shard() {
+        return shard;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public long startMillis() {
+        return startMillis;
+    }
+
+    public long finishMillis() {
+        return finishMillis;
+    }
+
+    public List<Test> tests() {
+        return tests;
+    }
+
+    /**
+     * @return the file written to {@code directory}
+     */
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(shard.name() + ".tsv");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(String.join("\t", SHARD_LINE, Integer.toString(shard.index()), Integer.toString(shard.count()),
+                    escape(host), Long.toString(startMillis), Long.toString(finishMillis)));
+            out.write('\n');
+            out.write(HEADER);
+            out.write('\n');
+            for (Test test : tests) {
+                out.write(test.line());
+                out.write('\n');
+            }
+        }
+        return file;
+    }
+
+    /**
+     * @throws IOException when the file is not a complete shard result
+     */
+    public static ShardResults read(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String first = in.readLine();
+            String[] fields = first == null ? new String[0] : first.split("\t", -1);
+            if (fields.length != 6 || !fields[0].equals(SHARD_LINE)) {
+                throw new IOException(file + " is not a shard result, it starts with: " + first);
+            }
+            try {
+                Shard shard = new Shard(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                List<Test> tests = new ArrayList<>();
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    if (!line.startsWith("#") && !line.isEmpty()) {
+                        tests.add(Test.parse(line));
+                    }
+                }
+                return new ShardResults(shard, unescape(fields[3]), Long.parseLong(fields[4]),
+                        Long.parseLong(fields[5]), tests);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed shard result " + file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return shard + " on " + host + ", " + tests.size() + " tests";
+    }
+
+    /**
+     * {@link TabSeparated#escape(String)}, with {@code \0} for null.
+     */
+    static String escape(String value) {
+        return value == null ? NULL : TabSeparated.escape(value);
+    }
+
+    static String unescape(String value) {
+        return value.equals(NULL) ? null : TabSeparated.unescape(value);
+    }
+
+    /**
+     * One test method, or one DataProvider row of it.
+     */
+    public static final class Test {
+
+        private final String className;
+        private final String method;
+        private final String status;
+        private final long startMillis;
+        private final long durationMillis;
+        private final long[] requestMicros;
+        private final String failure;
+        private final List<String> parameters;
+
+        /**
+         * @param failure    the exception of a failed test, null otherwise
+         * @param parameters the DataProvider row as text, empty for a single test
+         */
+        public Test(String className, String method, String status, long startMillis, long durationMillis,
+                    long[] requestMicros, String failure, List<String> parameters) {
+            if (!status.equals(PASS) && !status.equals(FAIL) && !status.equals(SKIP)) {
+                throw new IllegalArgumentException("Unknown status " + status + " of " + className + "." + method);
+            }
+            this.className = className;
+            this.method = method;
+            this.status = status;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.requestMicros = requestMicros.clone();
+            this.failure = failure;
+            this.parameters = Collections.unmodifiableList(new ArrayList<>(parameters));
+        }
+
+        public String className() {
+            return className;
+        }
+
+        public String method() {
+            return method;
+        }
+
+        public String status() {
+            return status;
+        }
+
+        public long startMillis() {
+            return startMillis;
+        }
+
+        public long durationMillis() {
+            return durationMillis;
+        }
+
+        public long[] requestMicros() {
+            return requestMicros.clone();
+        }
+
+        public String failure() {
+            return failure;
+        }
+
+        public List<String> parameters() {
+            return parameters;
+        }
+
+        String line() {
+            StringBuilder line = new StringBuilder(128).append(escape(className)).append('\t').append(escape(method))
+                    .append('\t').append(status).append('\t').append(startMillis).append('\t').append(durationMillis)
+                    .append('\t');
+            for (int i = 0; i < requestMicros.length; i++) {
+                line.append(i > 0 ? "," : "").append(requestMicros[i]);
+            }
+            line.append('\t').append(failure == null ? "" : escape(failure));
+            for (String parameter : parameters) {
+                line.append('\t').append(escape(parameter));
+            }
+            return line.toString();
+        }
+
+        static Test parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length < 7) {
+                throw new IllegalArgumentException("expected at least 7 fields: " + line);
+            }
+            long[] micros = fields[5].isEmpty() ? new long[0]
+                    : Arrays.stream(fields[5].split(",")).mapToLong(Long::parseLong).toArray();
+            List<String> parameters = new ArrayList<>();
+            for (int i = 7; i < fields.length; i++) {
+                parameters.add(unescape(fields[i]));
+            }
+            return new Test(unescape(fields[0]), unescape(fields[1]), fields[2], Long.parseLong(fields[3]),
+                    Long.parseLong(fields[4]), micros, fields[6].isEmpty() ? null : unescape(fields[6]), parameters);
+        }
+
+        @Override
+        public String toString() {
+            return className + "." + method + (parameters.isEmpty() ? "" : parameters.toString()) + " " + status;
+        }
+    }
+}
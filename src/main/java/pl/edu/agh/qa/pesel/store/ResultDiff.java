@@ -0,0 +1,374 @@
+package pl.edu.agh.qa.pesel.store;
+
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Compares two {@link ResultStore}s of the same corpus, e.g. recorded before and after a deployment, in one linear
+ * pass: rows are compared in chunks of {@code --chunk-rows} on a {@link ForkJoinPool} of {@code --threads} workers,
+ * straight from the mapped columns, and the chunks are collected in row order, at most two per worker ahead.
+ *
+ * Changed rows are grouped by kind of change, e.g. "valid -> INVC", "isValid true -> false" or "HTTP 200 -> HTTP 503"
+ * (the date of birth only counts as moved, appeared or gone), and the groups printed by size with their first {@code --examples}
+ * inputs. {@code --changes=FILE} writes every changed row as CSV. The exit code is 1 when any row changed.
+ *
+ * <pre>
+ * ResultDiff BEFORE AFTER [--threads=cores] [--chunk-rows=4194304] [--examples=5] [--changes=changes.csv]
+ * </pre>
+ */
+public class ResultDiff {
+
+    private final ResultStore before;
+    private final ResultStore after;
+    private final ForkJoinPool pool;
+    private final int chunkRows;
+    private final int examples;
+
+    /**
+     * @throws IllegalArgumentException when the stores hold different numbers of rows
+     */
+    public ResultDiff(ResultStore before, ResultStore after, ForkJoinPool pool, int chunkRows, int examples) {
+        if (before.size() != after.size()) {
+            throw new IllegalArgumentException("Stores of different corpora: " + before + ", " + after);
+        }
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException("chunkRows must be positive: " + chunkRows);
+        }
+        this.before = before;
+        this.after = after;
+        this.pool = pool;
+        this.chunkRows = chunkRows;
+        this.examples = examples;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        if (arguments.positional().size() != 2) {
+            System.err.println("Usage: ResultDiff BEFORE AFTER [--threads=N] [--chunk-rows=4194304] [--examples=5]"
+                    + " [--changes=FILE]");
+            System.exit(2);
+        }
+        int threads = arguments.integer("threads", Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<ChangeGroup> groups;
+        long start = System.nanoTime();
+        try (ResultStore before = ResultStore.open(Paths.get(arguments.positional().get(0)));
+             ResultStore after = ResultStore.open(Paths.get(arguments.positional().get(1)))) {
+            ResultDiff diff = new ResultDiff(before, after, pool, arguments.integer("chunk-rows", 1 << 22),
+                    arguments.integer("examples", 5));
+            if (arguments.has("changes")) {
+                try (BufferedWriter changes = Files.newBufferedWriter(Paths.get(arguments.string("changes", "")),
+                        StandardCharsets.UTF_8)) {
+                    groups = diff.run(changes);
+                }
+            } else {
+                groups = diff.run(null);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("Compared %d rows of%n  %s%n  %s%nin %.2f s on %d threads (%.0f M rows/s)%n",
+                    before.size(), before, after, seconds, threads, before.size() / 1e6 / seconds);
+        } finally {
+            pool.shutdown();
+        }
+        print(groups, System.out);
+        if (!groups.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares all rows.
+     *
+     * @param changes receives "row,pesel,before,after" per changed row, in row order; null to skip
+     * @return groups of changed rows, largest first
+     * @throws IllegalStateException when a row holds different inputs in the two stores
+     */
+    public List<ChangeGroup> run(Writer changes) throws IOException {
+        Map<Long, ChangeGroup> groups = new LinkedHashMap<>();
+        if (changes != null) {
+            changes.write("row,pesel,before,after\n");
+        }
+        int window = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>(window);
+        for (long first = 0; first < before.size(); first += chunkRows) {
+            if (pending.size() == window) {
+                collect(pending.poll(), groups, changes);
+            }
+            long chunkFirst = first;
+            int count = (int) Math.min(chunkRows, before.size() - first);
+            pending.add(pool.submit(() -> compare(chunkFirst, count, changes != null)));
+        }
+        while (!pending.isEmpty()) {
+            collect(pending.poll(), groups, changes);
+        }
+        List<ChangeGroup> sorted = new ArrayList<>(groups.values());
+        sorted.sort(Comparator.comparingLong(ChangeGroup::count).reversed());
+        return sorted;
+    }
+
+    private Chunk compare(long first, int count, boolean keepChanges) {
+        ResultStore.Rows a;
+        ResultStore.Rows b;
+        try {
+            a = before.rows(first, count);
+            b = after.rows(first, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Chunk chunk = new Chunk(keepChanges);
+        for (int row = 0; row < count; row++) {
+            long input = a.input.getLong(row * 8);
+            if (input != b.input.getLong(row * 8)) {
+                throw new IllegalStateException("Row " + (first + row) + " holds " + ResultStore.format(input) + " in "
+                        + before + " but " + ResultStore.format(b.input.getLong(row * 8)) + " in " + after
+                        + ", compare stores of the same corpus");
+            }
+            int statusA = a.status.getShort(row * 2);
+            int statusB = b.status.getShort(row * 2);
+            int errorsA = a.errors.get(row);
+            int errorsB = b.errors.get(row);
+            int flagsA = a.flags.get(row);
+            int flagsB = b.flags.get(row);
+            int birthA = a.birth.getInt(row * 4);
+            int birthB = b.birth.getInt(row * 4);
+            if (statusA == statusB && errorsA == errorsB && flagsA == flagsB && birthA == birthB) {
+                continue;
+            }
+            long kind = kind(statusA, errorsA, flagsA, birthA, statusB, errorsB, flagsB, birthB);
+            chunk.add(kind, first + row, input, statusA, a.result(row), a.isValid(row), statusB, b.result(row),
+                    b.isValid(row), examples);
+        }
+        return chunk;
+    }
+
+    /**
+     * Packs what changed, not the values themselves apart from status and errors:
+     * bits 0-15 and 16-31 the statuses, 32-37 and 38-43 the errors, 44-45 and 46-47 the genders
+     * (0 unknown, 1 male, 2 female), 48-49 the date of birth (0 same, 1 appeared, 2 gone, 3 moved), 50 and 51
+     * the isValid fields. Gender and date only count between answers with the same errors, a change of the errors
+     * already names the change of a row.
+     */
+    static long kind(int statusA, int errorsA, int flagsA, int birthA, int statusB, int errorsB, int flagsB, int birthB) {
+        long kind = (statusA & 0xFFFFL) | (statusB & 0xFFFFL) << 16;
+        if (statusA != statusB) {
+            return kind;
+        }
+        kind |= (long) (errorsA & 0x3F) << 32 | (long) (errorsB & 0x3F) << 38
+                | (long) (flagsA & ResultStore.VALID) << 50 | (long) (flagsB & ResultStore.VALID) << 51;
+        if (errorsA != errorsB) {
+            return kind;
+        }
+        int date = 0;
+        boolean hasDateA = (flagsA & ResultStore.HAS_DATE) != 0;
+        boolean hasDateB = (flagsB & ResultStore.HAS_DATE) != 0;
+        if (hasDateA != hasDateB) {
+            date = hasDateB ? 1 : 2;
+        } else if (hasDateA && birthA != birthB) {
+            date = 3;
+        }
+        return kind | (long) gender(flagsA) << 44 | (long) gender(flagsB) << 46 | (long) date << 48;
+    }
+
+    private static int gender(int flags) {
+        return (flags & ResultStore.HAS_GENDER) == 0 ? 0 : (flags & ResultStore.MALE) != 0 ? 1 : 2;
+    }
+
+    /**
+     * @return e.g. "valid -> INVC", "gender Female -> Male; dateOfBirth moved" or, for answers with errors,
+     * "gender none -> Male with INVC"
+     */
+    static String describeKind(long kind) {
+        int statusA = (short) kind;
+        int statusB = (short) (kind >>> 16);
+        if (statusA != statusB) {
+            return status(statusA) + " -> " + status(statusB);
+        }
+        List<String> parts = new ArrayList<>();
+        int errorsA = (int) (kind >>> 32) & 0x3F;
+        int errorsB = (int) (kind >>> 38) & 0x3F;
+        if (errorsA != errorsB) {
+            parts.add(errors(errorsA) + " -> " + errors(errorsB));
+        }
+        // isValid only counts where it disagrees with the errors, otherwise the errors already tell the change
+        boolean validA = (kind >>> 50 & 1) != 0;
+        boolean validB = (kind >>> 51 & 1) != 0;
+        boolean validChanged = statusA == 200 && (validA != (errorsA == 0) || validB != (errorsB == 0));
+        if (validChanged) {
+            parts.add(validA != validB ? "isValid " + validA + " -> " + validB : "isValid stays " + validA);
+        }
+        int genderA = (int) (kind >>> 44) & 3;
+        int genderB = (int) (kind >>> 46) & 3;
+        if (genderA != genderB) {
+            parts.add("gender " + genderLabel(genderA) + " -> " + genderLabel(genderB));
+        }
+        int date = (int) (kind >>> 48) & 3;
+        if (date != 0) {
+            parts.add("dateOfBirth " + (date == 1 ? "appeared" : date == 2 ? "gone" : "moved"));
+        }
+        // the unchanged errors, where the change would not be understood without them
+        if (errorsA == errorsB && (errorsA != 0 || validChanged)) {
+            return String.join("; ", parts) + " with " + (errorsA == 0 ? "no errors" : errors(errorsA));
+        }
+        return String.join("; ", parts);
+    }
+
+    /**
+     * @return e.g. "valid, Male, 1998-01-31", "INVC", "INVC, isValid true" when isValid disagrees with the errors,
+     * or "HTTP 503"
+     */
+    static String describe(int status, long result, boolean isValid) {
+        if (status != 200) {
+            return status(status);
+        }
+        String description = PeselValidator.describe(result);
+        return isValid == PeselValidator.isValid(result) ? description : description + ", isValid " + isValid;
+    }
+
+    private static String status(int status) {
+        return status == ResultStore.NO_RESPONSE ? "no response"
+                : status == ResultStore.UNDECODABLE ? "undecodable 200" : "HTTP " + status;
+    }
+
+    private static String errors(int errors) {
+        if (errors == 0) {
+            return "valid";
+        }
+        StringBuilder codes = new StringBuilder();
+        for (PeselError error : PeselError.values()) {
+            if (error.isSet(errors)) {
+                codes.append(codes.length() > 0 ? " " : "").append(error.code());
+            }
+        }
+        return codes.toString();
+    }
+
+    private static String genderLabel(int gender) {
+        return gender == 0 ? "none" : gender == 1 ? "Male" : "Female";
+    }
+
+    private void collect(ForkJoinTask<Chunk> task, Map<Long, ChangeGroup> groups, Writer changes) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalStateException e) {
+            // the pool rethrows a copy of the exception of its worker, which names it in its message
+            throw e.getCause() instanceof IllegalStateException ? (IllegalStateException) e.getCause() : e;
+        }
+        for (Map.Entry<Long, ChangeGroup> entry : chunk.groups.entrySet()) {
+            groups.computeIfAbsent(entry.getKey(), kind -> new ChangeGroup(describeKind(kind)))
+                    .merge(entry.getValue(), examples);
+        }
+        if (changes != null) {
+            for (String line : chunk.changes) {
+                changes.write(line);
+            }
+        }
+    }
+
+    public static void print(List<ChangeGroup> groups, PrintStream out) {
+        long changed = groups.stream().mapToLong(ChangeGroup::count).sum();
+        out.printf("%d changed rows in %d kinds of change%n", changed, groups.size());
+        for (ChangeGroup group : groups) {
+            out.printf("%12d  %s%n", group.count(), group.kind());
+            for (String example : group.examples()) {
+                out.printf("%12s    %s%n", "", example);
+            }
+        }
+    }
+
+    /**
+     * Changed rows of one kind.
+     */
+    public static final class ChangeGroup {
+
+        private final String kind;
+        private final List<String> examples = new ArrayList<>();
+        private long count;
+
+        ChangeGroup(String kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * @return e.g. "valid -> INVC"
+         */
+        public String kind() {
+            return kind;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return the first changed rows, e.g. "row 12: 44051401458 valid, Male, 1944-05-14 -> INVC, Male"
+         */
+        public List<String> examples() {
+            return Collections.unmodifiableList(examples);
+        }
+
+        void merge(ChangeGroup later, int limit) {
+            count += later.count;
+            for (int i = 0; i < later.examples.size() && examples.size() < limit; i++) {
+                examples.add(later.examples.get(i));
+            }
+        }
+    }
+
+    private static final class Chunk {
+
+        final Map<Long, ChangeGroup> groups = new HashMap<>();
+        final List<String> changes = new ArrayList<>();
+        final boolean keepChanges;
+
+        Chunk(boolean keepChanges) {
+            this.keepChanges = keepChanges;
+        }
+
+        void add(long kind, long row, long input, int statusA, long resultA, boolean validA, int statusB, long resultB,
+                 boolean validB, int examples) {
+            ChangeGroup group = groups.computeIfAbsent(kind, k -> new ChangeGroup(null));
+            group.count++;
+            boolean keepExample = group.examples.size() < examples;
+            if (!keepExample && !keepChanges) {
+                return;
+            }
+            String pesel = ResultStore.format(input);
+            String before = describe(statusA, resultA, validA);
+            String after = describe(statusB, resultB, validB);
+            if (keepExample) {
+                group.examples.add("row " + row + ": " + pesel + " " + before + " -> " + after);
+            }
+            if (keepChanges) {
+                changes.add(row + "," + pesel + "," + csv(before) + "," + csv(after) + "\n");
+            }
+        }
+
+        private static String csv(String value) {
+            return value.indexOf(',') < 0 ? value : '"' + value + '"';
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package pl.edu.agh.qa.pesel.store;
+
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.cli.Target;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.client.PeselResponseDecoder;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.sweep.CompletionWatermark;
+import pl.edu.agh.qa.pesel.sweep.SweepCases;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the answers of the validator for a corpus into a {@link ResultStore}, to be compared with a
+ * {@link ResultDiff} against a store recorded from another version of the service.
+ *
+ * The corpus is a file of PESELs, one per line ({@code --corpus=FILE}; lines that are not 11 digits are skipped),
+ * or the case space of the differential sweep ({@link SweepCases}, same options). Requests are streamed through
+ * a bounded window of {@code --in-flight} calls and the answers written in corpus order. {@code --local} records
+ * the reference rules ({@link PeselValidator}) instead of a service.
+ *
+ * <pre>
+ * ResultSnapshot --out=DIR [--corpus=FILE | --from=1800-01-01 --to=2299-12-31 --samples=1 --seed=0 --invalid=true]
+ *                [--local | --base-uri=https://...] [--in-flight=64] [--timeout=10000] [--report-every=5]
+ * </pre>
+ * Without --base-uri or --local an embedded stand-in answers.
+ */
+public class ResultSnapshot {
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        if (!arguments.has("out")) {
+            System.err.println("Usage: ResultSnapshot --out=DIR [--corpus=FILE | --from=... --to=... --samples=1 --seed=0"
+                    + " --invalid=true] [--local | --base-uri=https://...] [--in-flight=64] [--timeout=10000]");
+            System.exit(2);
+        }
+        Path out = Paths.get(arguments.string("out", ""));
+        ResultSnapshot snapshot = new ResultSnapshot();
+        String corpus;
+        PrimitiveIterator.OfLong inputs;
+        BufferedReader reader = null;
+        if (arguments.has("corpus")) {
+            Path file = Paths.get(arguments.string("corpus", ""));
+            corpus = file.toString();
+            reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            inputs = snapshot.inputs(reader);
+        } else {
+            SweepCases cases = new SweepCases(
+                    LocalDate.parse(arguments.string("from", "1800-01-01")),
+                    LocalDate.parse(arguments.string("to", "2299-12-31")),
+                    arguments.integer("samples", 1),
+                    arguments.longValue("seed", 0),
+                    Boolean.parseBoolean(arguments.string("invalid", "true")));
+            corpus = "sweep " + cases.fingerprint();
+            inputs = inputs(cases);
+        }
+
+        long start = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                VirtualThreads.daemonThreads("snapshot-report"));
+        int reportEvery = arguments.integer("report-every", 5);
+        reporter.scheduleAtFixedRate(() -> System.out.printf("%d rows written%n", snapshot.written.get()),
+                reportEvery, reportEvery, TimeUnit.SECONDS);
+        try {
+            if (arguments.flag("local")) {
+                try (ResultStoreWriter writer = new ResultStoreWriter(out, "reference rules", corpus)) {
+                    snapshot.recordLocal(inputs, writer);
+                }
+            } else {
+                ExecutorService executor = VirtualThreads.newExecutor("snapshot");
+                try (Target target = Target.of(arguments);
+                     ResultStoreWriter writer = new ResultStoreWriter(out, target.baseUri(), corpus)) {
+                    System.out.printf("Recording %s from %s%n", corpus, target);
+                    PeselHttpClient client = new PeselHttpClient(target.baseUri(),
+                            Duration.ofMillis(arguments.integer("timeout", 10000)), executor);
+                    snapshot.record(inputs, client, arguments.integer("in-flight", 64), writer);
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            reporter.shutdownNow();
+            if (reader != null) {
+                reader.close();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d rows in %.1f s (%.0f rows/s), %d lines skipped%n", out, snapshot.written.get(),
+                seconds, snapshot.written.get() / seconds, snapshot.skipped.get());
+    }
+
+    /**
+     * Writes the results of the reference rules for every input.
+     */
+    public void recordLocal(PrimitiveIterator.OfLong inputs, ResultStoreWriter writer) throws IOException {
+        byte[] digits = new byte[PeselValidator.LENGTH];
+        while (inputs.hasNext()) {
+            long input = inputs.nextLong();
+            long rest = input;
+            for (int i = digits.length - 1; i >= 0; i--) {
+                digits[i] = (byte) ('0' + rest % 10);
+                rest /= 10;
+            }
+            writer.append(input, 200, PeselValidator.apiView(PeselValidator.validate(digits)));
+            written.incrementAndGet();
+        }
+    }
+
+    /**
+     * Asks the endpoint for every input, at most {@code inFlight} at a time, and writes the answers in input order.
+     */
+    public void record(PrimitiveIterator.OfLong inputs, PeselHttpClient client, int inFlight, ResultStoreWriter writer)
+            throws IOException, InterruptedException {
+        int capacity = Math.max(1024, (inFlight + 63) / 64 * 64 * 16);
+        // answers wait here, by index modulo capacity, until all answers before them are in
+        long[] ringInputs = new long[capacity];
+        int[] ringStatuses = new int[capacity];
+        long[] ringResults = new long[capacity];
+        CompletionWatermark watermark = new CompletionWatermark(0, capacity);
+        Semaphore permits = new Semaphore(inFlight);
+        long index = 0;
+        while (inputs.hasNext()) {
+            long input = inputs.nextLong();
+            watermark.awaitSlot(index);
+            write(watermark.low(), ringInputs, ringStatuses, ringResults, writer);
+            permits.acquire();
+            int slot = (int) (index % capacity);
+            ringInputs[slot] = input;
+            long caseIndex = index++;
+            client.get(ResultStore.format(input)).whenComplete((response, failure) -> {
+                try {
+                    answer(response, failure, ringStatuses, ringResults, slot);
+                } finally {
+                    watermark.complete(caseIndex);
+                    permits.release();
+                }
+            });
+        }
+        permits.acquire(inFlight);
+        write(index, ringInputs, ringStatuses, ringResults, writer);
+    }
+
+    private void write(long until, long[] inputs, int[] statuses, long[] results, ResultStoreWriter writer)
+            throws IOException {
+        for (long index = writer.rows(); index < until; index++) {
+            int slot = (int) (index % inputs.length);
+            writer.append(inputs[slot], statuses[slot], results[slot],
+                    PeselResponseDecoder.isValidField(results[slot]));
+            written.incrementAndGet();
+        }
+    }
+
+    private static void answer(HttpResponse<byte[]> response, Throwable failure, int[] statuses, long[] results,
+                               int slot) {
+        results[slot] = 0;
+        if (failure != null) {
+            statuses[slot] = ResultStore.NO_RESPONSE;
+        } else if (response.statusCode() != 200) {
+            statuses[slot] = response.statusCode();
+        } else {
+            try {
+                results[slot] = PeselResponseDecoder.decodeWithValidity(response.body());
+                statuses[slot] = 200;
+            } catch (IOException | RuntimeException e) {
+                statuses[slot] = ResultStore.UNDECODABLE;
+            }
+        }
+    }
+
+    /**
+     * @return the 11 digit lines of {@code reader}, counting the others as skipped
+     */
+    PrimitiveIterator.OfLong inputs(BufferedReader reader) {
+        return new PrimitiveIterator.OfLong() {
+            private long next = -1;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    for (String line = next < 0 ? reader.readLine() : null; line != null; line = reader.readLine()) {
+                        next = ResultStore.input(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+                        if (next >= 0) {
+                            return true;
+                        }
+                        skipped.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return next >= 0;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                long input = next;
+                next = -1;
+                return input;
+            }
+        };
+    }
+
+    static PrimitiveIterator.OfLong inputs(SweepCases cases) {
+        return new PrimitiveIterator.OfLong() {
+            private final byte[] digits = new byte[PeselValidator.LENGTH];
+            private long index;
+
+            @Override
+            public boolean hasNext() {
+                return index < cases.size();
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                cases.write(index++, digits);
+                long input = 0;
+                for (byte digit : digits) {
+                    input = input * 10 + digit - '0';
+                }
+                return input;
+            }
+        };
+    }
+}
@@ -0,0 +1,260 @@
+package pl.edu.agh.qa.pesel.store;
+
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Results of the validator for a corpus of PESELs, one row per input, stored column by column: a directory with
+ * one file of fixed-width little-endian values per field and a {@value #META} file written last.
+ * <pre>
+ * input.i64   PESEL digits as a number (leading zeros are not stored, see {@link #format(long)})
+ * status.i16  HTTP status, {@value #NO_RESPONSE} for no response, {@value #UNDECODABLE} for a 200 with a body that is not a result
+ * errors.u8   {@link pl.edu.agh.qa.pesel.PeselError} mask
+ * flags.u8    {@value #VALID} isValid as answered, {@value #HAS_GENDER} gender known, {@value #MALE} male, {@value #HAS_DATE} dateOfBirth known
+ * birth.i32   dateOfBirth as epoch day, 0 when unknown
+ * </pre>
+ * 16 bytes a row, 1.6 GB for 100 million inputs. Only inputs of 11 digits are stored. Columns are read through
+ * memory mappings of a range of rows at a time, see {@link #rows(long, int)}, so stores may exceed 2 GB per column.
+ */
+public final class ResultStore implements Closeable {
+
+    static final String META = "meta.properties";
+    static final int VERSION = 1;
+
+    public static final int NO_RESPONSE = 0;
+    public static final int UNDECODABLE = 1;
+
+    static final int VALID = 1;
+    static final int HAS_GENDER = 2;
+    static final int MALE = 4;
+    static final int HAS_DATE = 8;
+
+    enum Column {
+        INPUT("input.i64", 8),
+        STATUS("status.i16", 2),
+        ERRORS("errors.u8", 1),
+        FLAGS("flags.u8", 1),
+        BIRTH("birth.i32", 4);
+
+        final String file;
+        final int width;
+
+        Column(String file, int width) {
+            this.file = file;
+            this.width = width;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+
+    private final Path directory;
+    private final long size;
+    private final String source;
+    private final String corpus;
+    private final FileChannel[] channels = new FileChannel[COLUMNS.length];
+
+    private ResultStore(Path directory, Properties meta) throws IOException {
+        this.directory = directory;
+        if (!Integer.toString(VERSION).equals(meta.getProperty("version"))) {
+            throw new IOException(directory + " is a result store of version " + meta.getProperty("version")
+                    + ", expected " + VERSION);
+        }
+        this.size = Long.parseLong(meta.getProperty("rows"));
+        this.source = meta.getProperty("source", "");
+        this.corpus = meta.getProperty("corpus", "");
+        try {
+            for (Column column : COLUMNS) {
+                FileChannel channel = FileChannel.open(directory.resolve(column.file), StandardOpenOption.READ);
+                channels[column.ordinal()] = channel;
+                if (channel.size() != size * column.width) {
+                    throw new IOException(directory.resolve(column.file) + " holds " + channel.size() + " bytes, expected "
+                            + size * column.width + " for " + size + " rows");
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @throws IOException when the store is incomplete, e.g. its writer did not finish, or of another version
+     */
+    public static ResultStore open(Path directory) throws IOException {
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(META))) {
+            meta.load(in);
+        } catch (NoSuchFileException e) {
+            throw new IOException(directory + " is not a complete result store, " + META + " is missing", e);
+        }
+        return new ResultStore(directory, meta);
+    }
+
+    /**
+     * @return number of rows
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return what answered, e.g. the base URI of the service
+     */
+    public String source() {
+        return source;
+    }
+
+    /**
+     * @return what was asked, e.g. the file of the inputs; stores of the same corpus hold the same inputs
+     */
+    public String corpus() {
+        return corpus;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Maps {@code count} rows starting at {@code first}.
+     */
+    public Rows rows(long first, int count) throws IOException {
+        if (first < 0 || count < 0 || first + count > size) {
+            throw new IndexOutOfBoundsException("Rows " + first + "-" + (first + count) + " of " + size);
+        }
+        MappedByteBuffer[] buffers = new MappedByteBuffer[COLUMNS.length];
+        for (Column column : COLUMNS) {
+            buffers[column.ordinal()] = channels[column.ordinal()].map(FileChannel.MapMode.READ_ONLY,
+                    first * column.width, (long) count * column.width);
+            buffers[column.ordinal()].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new Rows(first, count, buffers);
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return directory + " (" + size + " rows of " + corpus + " from " + source + ")";
+    }
+
+    /**
+     * @return the 11 digits as a number, -1 when {@code pesel} is not 11 digits
+     */
+    public static long input(CharSequence pesel) {
+        if (pesel.length() != PeselValidator.LENGTH) {
+            return -1;
+        }
+        long input = 0;
+        for (int i = 0; i < PeselValidator.LENGTH; i++) {
+            int digit = pesel.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            input = input * 10 + digit;
+        }
+        return input;
+    }
+
+    /**
+     * @return the 11 digits of a stored input
+     */
+    public static String format(long input) {
+        char[] digits = new char[PeselValidator.LENGTH];
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + input % 10);
+            input /= 10;
+        }
+        return new String(digits);
+    }
+
+    static int flags(int status, long result, boolean isValid) {
+        if (status != 200) {
+            return 0;
+        }
+        return (isValid ? VALID : 0)
+                | (PeselValidator.hasGender(result) ? HAS_GENDER : 0)
+                | (PeselValidator.isMale(result) ? MALE : 0)
+                | (PeselValidator.hasDateOfBirth(result) ? HAS_DATE : 0);
+    }
+
+    /**
+     * A mapped range of rows; indexes are relative to its first row.
+     */
+    public static final class Rows {
+
+        private final long first;
+        private final int count;
+        final MappedByteBuffer input;
+        final MappedByteBuffer status;
+        final MappedByteBuffer errors;
+        final MappedByteBuffer flags;
+        final MappedByteBuffer birth;
+
+        Rows(long first, int count, MappedByteBuffer[] buffers) {
+            this.first = first;
+            this.count = count;
+            this.input = buffers[Column.INPUT.ordinal()];
+            this.status = buffers[Column.STATUS.ordinal()];
+            this.errors = buffers[Column.ERRORS.ordinal()];
+            this.flags = buffers[Column.FLAGS.ordinal()];
+            this.birth = buffers[Column.BIRTH.ordinal()];
+        }
+
+        public long first() {
+            return first;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public long input(int row) {
+            return input.getLong(row * 8);
+        }
+
+        public int status(int row) {
+            return status.getShort(row * 2);
+        }
+
+        /**
+         * @return the result packed like {@link PeselValidator#validate(CharSequence)}, meaningful for status 200
+         */
+        public long result(int row) {
+            int flags = this.flags.get(row) & 0xFF;
+            return PeselValidator.result(errors.get(row) & 0xFF,
+                    (flags & HAS_GENDER) != 0 ? (Boolean) ((flags & MALE) != 0) : null,
+                    (flags & HAS_DATE) != 0 ? (Integer) birth.getInt(row * 4) : null);
+        }
+
+        public boolean isValid(int row) {
+            return (flags.get(row) & VALID) != 0;
+        }
+    }
+}
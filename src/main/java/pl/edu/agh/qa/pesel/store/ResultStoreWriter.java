@@ -0,0 +1,144 @@
+package pl.edu.agh.qa.pesel.store;
+
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Properties;
+
+/**
+ * Appends rows to a new {@link ResultStore}: every column is buffered and written sequentially to its own file.
+ * The store can be opened once {@link #close()} has written its {@value ResultStore#META}.
+ */
+public final class ResultStoreWriter implements Closeable {
+
+    private static final int BUFFERED_ROWS = 64 * 1024;
+    private static final ResultStore.Column[] COLUMNS = ResultStore.Column.values();
+
+    private final Path directory;
+    private final String source;
+    private final String corpus;
+    private final FileChannel[] channels = new FileChannel[COLUMNS.length];
+    private final ByteBuffer[] buffers = new ByteBuffer[COLUMNS.length];
+    private final ByteBuffer input;
+    private final ByteBuffer status;
+    private final ByteBuffer errors;
+    private final ByteBuffer flags;
+    private final ByteBuffer birth;
+    private long rows;
+    private boolean closed;
+
+    /**
+     * Creates the store, replacing the columns of an existing one in {@code directory}.
+     *
+     * @param source what answered, e.g. the base URI of the service
+     * @param corpus what was asked, e.g. the file of the inputs
+     */
+    public ResultStoreWriter(Path directory, String source, String corpus) throws IOException {
+        this.directory = directory;
+        this.source = source;
+        this.corpus = corpus;
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(ResultStore.META));
+        try {
+            for (ResultStore.Column column : COLUMNS) {
+                channels[column.ordinal()] = FileChannel.open(directory.resolve(column.file), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                buffers[column.ordinal()] = ByteBuffer.allocateDirect(BUFFERED_ROWS * column.width)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+        input = buffers[ResultStore.Column.INPUT.ordinal()];
+        status = buffers[ResultStore.Column.STATUS.ordinal()];
+        errors = buffers[ResultStore.Column.ERRORS.ordinal()];
+        flags = buffers[ResultStore.Column.FLAGS.ordinal()];
+        birth = buffers[ResultStore.Column.BIRTH.ordinal()];
+    }
+
+    /**
+     * @param input  see {@link ResultStore#input(CharSequence)}
+     * @param status HTTP status, {@link ResultStore#NO_RESPONSE} or {@link ResultStore#UNDECODABLE}
+     * @param result packed like {@link PeselValidator#validate(CharSequence)}, only read for status 200
+     */
+    public void append(long input, int status, long result) throws IOException {
+        append(input, status, result, PeselValidator.isValid(result));
+    }
+
+    /**
+     * @param isValid the answer's 'isValid', stored as given even when it disagrees with the errors
+     */
+    public void append(long input, int status, long result, boolean isValid) throws IOException {
+        if (input < 0 || input > 99_999_999_999L) {
+            throw new IllegalArgumentException("Not the 11 digits of a PESEL: " + input);
+        }
+        if (!this.input.hasRemaining()) {
+            flush();
+        }
+        boolean answered = status == 200;
+        this.input.putLong(input);
+        this.status.putShort((short) status);
+        errors.put((byte) (answered ? PeselValidator.errors(result) : 0));
+        flags.put((byte) ResultStore.flags(status, result, isValid));
+        birth.putInt(answered && PeselValidator.hasDateOfBirth(result) ? PeselValidator.epochDay(result) : 0);
+        rows++;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    private void flush() throws IOException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            ByteBuffer buffer = buffers[i];
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channels[i].write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Writes the remaining rows and the {@value ResultStore#META} that completes the store.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            closeChannels();
+        }
+        Properties meta = new Properties();
+        meta.setProperty("version", Integer.toString(ResultStore.VERSION));
+        meta.setProperty("rows", Long.toString(rows));
+        meta.setProperty("source", source);
+        meta.setProperty("corpus", corpus);
+        meta.setProperty("created", Instant.now().toString());
+        try (OutputStream out = Files.newOutputStream(directory.resolve(ResultStore.META))) {
+            meta.store(out, "PESEL validator result store");
+        }
+    }
+
+    private void closeChannels() throws IOException {
+        for (FileChannel channel : channels) {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
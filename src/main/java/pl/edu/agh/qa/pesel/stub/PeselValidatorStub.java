@@ -0,0 +1,350 @@
+package pl.edu.agh.qa.pesel.stub;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the PeselValidator REST API
+ * (https://peselvalidatorapitest.azurewebsites.net/swagger/index.html).
+ *
+ * Serves {@code GET /api/Pesel?pesel=...} with the same JSON shape as the real service:
+ * <pre>
+ * {"pesel":"...","isValid":true,"gender":"Male","dateOfBirth":"1998-01-31T00:00:00","errors":[]}
+ * </pre>
+ * and answers 400 when the 'pesel' parameter is missing.
+ *
+ * On top of the real API it serves {@code POST /api/Pesel/batch}: the body is a JSON array of
+ * PESELs (at most {@value #MAX_BATCH_SIZE}) and the response an array of the GET response bodies, in the same order.
+ *
+ * {@link Faults} make it behave like a loaded shared instance: every n-th request is delayed, or answered
+ * with an error status (e.g. 429 or 503) instead.
+ */
+public class PeselValidatorStub {
+
+    public static final String PATH = "/api/Pesel";
+    public static final String BATCH_PATH = PATH + "/batch";
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    static {
+        // headers and body are written separately, without TCP_NODELAY every keep-alive
+        // request waits for the client's delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Faults faults;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedDelays = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private PeselValidatorStub(HttpServer server, ExecutorService executor, Faults faults) {
+        this.server = server;
+        this.executor = executor;
+        this.faults = faults;
+    }
+
+    /**
+     * Starts the stand-in on the loopback interface.
+     *
+     * @param port port to listen on, 0 picks a free one
+     * @return running stand-in
+     */
+    public static PeselValidatorStub start(int port) throws IOException {
+        return start(port, Faults.NONE);
+    }
+
+    /**
+     * Starts the stand-in on the loopback interface, injecting {@code faults}.
+     *
+     * @param port port to listen on, 0 picks a free one
+     * @return running stand-in
+     */
+    public static PeselValidatorStub start(int port, Faults faults) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = VirtualThreads.newExecutor("pesel-stub");
+        PeselValidatorStub stub = new PeselValidatorStub(server, executor, faults);
+        server.createContext(PATH, stub::handle);
+        server.setExecutor(executor);
+        server.start();
+        return stub;
+    }
+
+    /**
+     * @return e.g. http://127.0.0.1:54321
+     */
+    public String baseUri() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public long injectedDelays() {
+        return injectedDelays.get();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            boolean batch = BATCH_PATH.equalsIgnoreCase(path);
+            if (!batch && !PATH.equalsIgnoreCase(path)) {
+                send(exchange, 404, "{\"status\":404,\"title\":\"Not Found\"}");
+                return;
+            }
+            if (!(batch ? "POST" : "GET").equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"status\":405,\"title\":\"Method Not Allowed\"}");
+                return;
+            }
+            if (injectFault(exchange)) {
+                return;
+            }
+            if (batch) {
+                handleBatch(exchange);
+                return;
+            }
+            String pesel = queryParameter(exchange.getRequestURI().getRawQuery(), "pesel");
+            if (pesel == null || pesel.isEmpty()) {
+                send(exchange, 400, "{\"title\":\"One or more validation errors occurred.\",\"status\":400,"
+                        + "\"errors\":{\"pesel\":[\"The pesel field is required.\"]}}");
+                return;
+            }
+            send(exchange, 200, validate(pesel));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return true when the request was answered with an injected error
+     */
+    private boolean injectFault(HttpExchange exchange) throws IOException {
+        long count = requests.incrementAndGet();
+        if (faults.errorEvery > 0 && count % faults.errorEvery == 0) {
+            injectedErrors.incrementAndGet();
+            if (faults.errorStatus == 429) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            }
+            send(exchange, faults.errorStatus, "{\"status\":" + faults.errorStatus + ",\"title\":\"Injected fault\"}");
+            return true;
+        }
+        if (faults.delayEvery > 0 && count % faults.delayEvery == 0) {
+            injectedDelays.incrementAndGet();
+            try {
+                Thread.sleep(faults.delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return false;
+    }
+
+    private static void handleBatch(HttpExchange exchange) throws IOException {
+        List<String> pesels;
+        try (InputStream body = exchange.getRequestBody()) {
+            pesels = readBatch(body);
+        }
+        if (pesels == null) {
+            send(exchange, 400, "{\"title\":\"One or more validation errors occurred.\",\"status\":400,"
+                    + "\"errors\":{\"$\":[\"Expected a JSON array of at most " + MAX_BATCH_SIZE + " PESELs.\"]}}");
+            return;
+        }
+        StringBuilder json = new StringBuilder(pesels.size() * 160).append('[');
+        for (int i = 0; i < pesels.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(validate(pesels.get(i)));
+        }
+        send(exchange, 200, json.append(']').toString());
+    }
+
+    /**
+     * @return the PESELs, null when the body is not an array of at most {@value #MAX_BATCH_SIZE} strings
+     */
+    private static List<String> readBatch(InputStream body) {
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return null;
+            }
+            List<String> pesels = new ArrayList<>();
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token != JsonToken.VALUE_STRING || pesels.size() == MAX_BATCH_SIZE) {
+                    return null;
+                }
+                pesels.add(parser.getText());
+            }
+            return parser.nextToken() == null ? pesels : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Validates with {@link PeselValidator}, which reports errors in the same order as the real service:
+     * length, characters, year, month, day, check sum.
+     *
+     * @return JSON response body
+     */
+    static String validate(String pesel) {
+        long result = PeselValidator.validate(pesel);
+        boolean valid = PeselValidator.isValid(result);
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"pesel\":");
+        appendString(json, pesel);
+        json.append(",\"isValid\":").append(valid);
+        json.append(",\"gender\":");
+        if (valid) {
+            json.append(PeselValidator.isMale(result) ? "\"Male\"" : "\"Female\"");
+        } else {
+            json.append("null");
+        }
+        json.append(",\"dateOfBirth\":");
+        if (valid) {
+            json.append('"').append(PeselValidator.dateOfBirth(result)).append("T00:00:00\"");
+        } else {
+            json.append("null");
+        }
+        json.append(",\"errors\":[");
+        int errors = PeselValidator.errors(result);
+        boolean first = true;
+        for (PeselError error : PeselError.values()) {
+            if (error.isSet(errors)) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append("{\"errorCode\":\"").append(error.code())
+                        .append("\",\"errorMessage\":\"").append(error.message()).append("\"}");
+            }
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String queryParameter(String rawQuery, String name) {
+        if (rawQuery == null) {
+            return null;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (name.equalsIgnoreCase(URLDecoder.decode(key, StandardCharsets.UTF_8))) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Runs the stand-in from the command line:
+     * {@code PeselValidatorStub [port] [--delay-every=N --delay-ms=500] [--error-every=N --error-status=503]}.
+     */
+    public static void main(String[] args) throws IOException {
+        Arguments arguments = Arguments.parse(args);
+        List<String> positional = arguments.positional();
+        Faults faults = new Faults(arguments.integer("delay-every", 0), arguments.longValue("delay-ms", 500),
+                arguments.integer("error-every", 0), arguments.integer("error-status", 503));
+        PeselValidatorStub stub = start(positional.isEmpty() ? 8080 : Integer.parseInt(positional.get(0)), faults);
+        System.out.println("PESEL validator stand-in listening on " + stub.baseUri() + PATH);
+    }
+
+    /**
+     * Faults injected into GET and batch requests, counted in the order they arrive; 0 turns a fault off.
+     * Read from system properties by {@link #fromSystemProperties()}: pesel.stub.delayEvery, pesel.stub.delayMs (500),
+     * pesel.stub.errorEvery, pesel.stub.errorStatus (503).
+     */
+    public static final class Faults {
+
+        public static final Faults NONE = new Faults(0, 0, 0, 503);
+
+        final int delayEvery;
+        final long delayMillis;
+        final int errorEvery;
+        final int errorStatus;
+
+        /**
+         * @param delayEvery  every n-th request is answered {@code delayMillis} late
+         * @param errorEvery  every n-th request is answered with {@code errorStatus} instead, 429 with Retry-After
+         */
+        public Faults(int delayEvery, long delayMillis, int errorEvery, int errorStatus) {
+            if (delayEvery < 0 || errorEvery < 0 || delayMillis < 0) {
+                throw new IllegalArgumentException("Faults must not be negative: "
+                        + delayEvery + ", " + delayMillis + ", " + errorEvery);
+            }
+            this.delayEvery = delayEvery;
+            this.delayMillis = delayMillis;
+            this.errorEvery = errorEvery;
+            this.errorStatus = errorStatus;
+        }
+
+        public boolean any() {
+            return delayEvery > 0 || errorEvery > 0;
+        }
+
+        public static Faults fromSystemProperties() {
+            return new Faults(
+                    Integer.getInteger("pesel.stub.delayEvery", 0),
+                    Long.getLong("pesel.stub.delayMs", 500L),
+                    Integer.getInteger("pesel.stub.errorEvery", 0),
+                    Integer.getInteger("pesel.stub.errorStatus", 503));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package pl.edu.agh.qa.pesel.sweep;
+
+/**
+ * Tracks out-of-order completion of sequentially issued indexes and keeps the low watermark:
+ * the first index that has not completed yet, so every index below it is done.
+ *
+ * Completions are kept in a fixed ring of bits, so callers must not run more than
+ * {@code capacity} indexes ahead of the watermark; {@link #awaitSlot(long)} blocks until they may.
+ */
+public final class CompletionWatermark {
+
+    private final long[] ring;
+    private final int capacity;
+    private long low;
+    private boolean stopped;
+
+    /**
+     * @param start    first index to be issued
+     * @param capacity maximum distance between the watermark and an issued index, a multiple of 64
+     */
+    public CompletionWatermark(long start, int capacity) {
+        if (capacity < 64 || capacity % 64 != 0) {
+            throw new IllegalArgumentException("capacity must be a positive multiple of 64: " + capacity);
+        }
+        this.ring = new long[capacity / 64];
+        this.capacity = capacity;
+        this.low = start;
+    }
+
+    /**
+     * Blocks until {@code index} fits into the ring, or the watermark is stopped.
+     */
+    public synchronized void awaitSlot(long index) throws InterruptedException {
+        while (!stopped && index - low >= capacity) {
+            wait();
+        }
+    }
+
+    public synchronized void complete(long index) {
+        if (stopped || index < low) {
+            return;
+        }
+        int slot = (int) (index % capacity);
+        ring[slot >>> 6] |= 1L << slot;
+        boolean advanced = false;
+        while (true) {
+            int lowSlot = (int) (low % capacity);
+            long bit = 1L << lowSlot;
+            if ((ring[lowSlot >>> 6] & bit) == 0) {
+                break;
+            }
+            ring[lowSlot >>> 6] &= ~bit;
+            low++;
+            advanced = true;
+        }
+        if (advanced) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Freezes the watermark where it is: later completions are ignored and {@link #awaitSlot(long)} no longer
+     * blocks, so a caller that could not finish an index drains the ones in flight without moving past it.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    public synchronized long low() {
+        return low;
+    }
+}
@@ -0,0 +1,231 @@
+package pl.edu.agh.qa.pesel.sweep;
+
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.cli.Arguments;
+import pl.edu.agh.qa.pesel.cli.Target;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.client.PeselResponseDecoder;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Differential test of the validator endpoint against {@link PeselValidator}.
+ *
+ * Enumerates the {@link SweepCases}, computes the expected result of every case locally,
+ * streams the requests through a bounded window of in-flight calls and writes only the
+ * mismatches. The low watermark of completed cases is saved periodically, a rerun with the
+ * same options resumes from it (cases completed after the last checkpoint may be reported twice).
+ * A mismatch that cannot be written stops the sweep with that error, the checkpoint staying before it.
+ *
+ * <pre>
+ * DifferentialSweep [--base-uri=https://...] [--from=1800-01-01] [--to=2299-12-31] [--samples=1]
+ *                   [--seed=0] [--invalid=true] [--in-flight=64] [--timeout=10000]
+ *                   [--checkpoint=sweep.checkpoint] [--mismatches=sweep-mismatches.csv] [--report-every=5]
+ * </pre>
+ * Without --base-uri an embedded stand-in is swept, which exercises the pipeline itself.
+ */
+public class DifferentialSweep {
+
+    private final SweepCases cases;
+    private final PeselHttpClient client;
+    private final int inFlight;
+    private final Path checkpoint;
+    private final Writer mismatches;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong mismatchCount = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    // the first mismatch that could not be written; the watermark stops below it, so a resumed sweep repeats it
+    private volatile IOException writeFailure;
+
+    DifferentialSweep(SweepCases cases, PeselHttpClient client, int inFlight, Path checkpoint, Writer mismatches) {
+        this.cases = cases;
+        this.client = client;
+        this.inFlight = inFlight;
+        this.checkpoint = checkpoint;
+        this.mismatches = mismatches;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = Arguments.parse(args);
+        SweepCases cases = new SweepCases(
+                LocalDate.parse(arguments.string("from", "1800-01-01")),
+                LocalDate.parse(arguments.string("to", "2299-12-31")),
+                arguments.integer("samples", 1),
+                arguments.longValue("seed", 0),
+                Boolean.parseBoolean(arguments.string("invalid", "true")));
+        Path checkpoint = Paths.get(arguments.string("checkpoint", "sweep.checkpoint"));
+        Path mismatchFile = Paths.get(arguments.string("mismatches", "sweep-mismatches.csv"));
+        long start = readCheckpoint(checkpoint, cases.fingerprint());
+
+        ExecutorService executor = VirtualThreads.newExecutor("sweep");
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(VirtualThreads.daemonThreads("sweep-report"));
+        try (Target target = Target.of(arguments);
+             BufferedWriter mismatches = Files.newBufferedWriter(mismatchFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, start == 0 ? StandardOpenOption.TRUNCATE_EXISTING : StandardOpenOption.APPEND)) {
+            if (start == 0) {
+                mismatches.write("index,pesel,expected,actual\n");
+            }
+            PeselHttpClient client = new PeselHttpClient(target.baseUri(),
+                    Duration.ofMillis(arguments.integer("timeout", 10000)), executor);
+            DifferentialSweep sweep = new DifferentialSweep(cases, client, arguments.integer("in-flight", 64),
+                    checkpoint, mismatches);
+            System.out.printf("Sweeping %d cases from #%d against %s%n", cases.size(), start, target);
+            sweep.run(start, reporter, arguments.integer("report-every", 5));
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    void run(long start, ScheduledExecutorService reporter, int reportEverySeconds) throws InterruptedException, IOException {
+        Semaphore permits = new Semaphore(inFlight);
+        CompletionWatermark watermark = new CompletionWatermark(start, Math.max(1024, (inFlight + 63) / 64 * 64 * 16));
+        long startNanos = System.nanoTime();
+        reporter.scheduleAtFixedRate(() -> report(watermark, startNanos), reportEverySeconds,
+                reportEverySeconds, TimeUnit.SECONDS);
+
+        byte[] digits = new byte[PeselValidator.LENGTH];
+        for (long index = start; index < cases.size() && writeFailure == null; index++) {
+            watermark.awaitSlot(index);
+            permits.acquire();
+            cases.write(index, digits);
+            String pesel = new String(digits, StandardCharsets.US_ASCII);
+            long expected = PeselValidator.apiView(PeselValidator.validate(digits));
+            long caseIndex = index;
+            CompletableFuture<HttpResponse<byte[]>> call;
+            try {
+                call = client.get(pesel);
+            } catch (RuntimeException e) {
+                // e.g. a base URI the request cannot be built from: a failed case, not a lost permit
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((response, failure) -> {
+                boolean recorded = false;
+                try {
+                    recorded = check(caseIndex, pesel, expected, response, failure);
+                } finally {
+                    completed.incrementAndGet();
+                    if (recorded) {
+                        watermark.complete(caseIndex);
+                    } else {
+                        watermark.stop();
+                    }
+                    permits.release();
+                }
+            });
+        }
+        permits.acquire(inFlight);
+        report(watermark, startNanos);
+        if (writeFailure != null) {
+            throw writeFailure;
+        }
+        synchronized (mismatches) {
+            mismatches.flush();
+        }
+    }
+
+    /**
+     * @return false when the case is a mismatch that could not be written, see {@link #writeFailure}
+     */
+    private boolean check(long index, String pesel, long expected, HttpResponse<byte[]> response, Throwable failure) {
+        String actual;
+        if (failure != null) {
+            failures.incrementAndGet();
+            actual = "error: " + failure;
+        } else if (response.statusCode() != 200) {
+            actual = "HTTP " + response.statusCode();
+        } else {
+            try {
+                long result = PeselResponseDecoder.decode(response.body());
+                if (result == expected) {
+                    return true;
+                }
+                actual = PeselValidator.describe(result);
+            } catch (IOException | RuntimeException e) {
+                actual = "undecodable: " + e.getMessage();
+            }
+        }
+        mismatchCount.incrementAndGet();
+        String line = index + "," + pesel + "," + csv(PeselValidator.describe(expected)) + "," + csv(actual) + "\n";
+        synchronized (mismatches) {
+            try {
+                mismatches.write(line);
+                return true;
+            } catch (IOException e) {
+                if (writeFailure == null) {
+                    writeFailure = new IOException("Could not record mismatch " + line.trim(), e);
+                }
+                return false;
+            }
+        }
+    }
+
+    private synchronized void report(CompletionWatermark watermark, long startNanos) {
+        long done = completed.get();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long low = watermark.low();
+        System.out.printf("%d/%d cases (%.1f%%), %.0f req/s, %d mismatches, %d failures%n",
+                low, cases.size(), 100.0 * low / cases.size(), done / seconds, mismatchCount.get(), failures.get());
+        try {
+            synchronized (mismatches) {
+                mismatches.flush();
+            }
+            writeCheckpoint(checkpoint, cases.fingerprint(), low);
+        } catch (IOException e) {
+            System.err.println("Could not write checkpoint " + checkpoint + ": " + e);
+        }
+    }
+
+    static long readCheckpoint(Path checkpoint, String fingerprint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            properties.load(in);
+        }
+        if (!fingerprint.equals(properties.getProperty("cases"))) {
+            throw new IllegalStateException("Checkpoint " + checkpoint + " belongs to a different sweep ("
+                    + properties.getProperty("cases") + "), remove it or run with the same options");
+        }
+        return Long.parseLong(properties.getProperty("next"));
+    }
+
+    static void writeCheckpoint(Path checkpoint, String fingerprint, long next) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("cases", fingerprint);
+        properties.setProperty("next", Long.toString(next));
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            properties.store(out, "DifferentialSweep checkpoint");
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String csv(String value) {
+        return value.indexOf(',') < 0 && value.indexOf('"') < 0 ? value : '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
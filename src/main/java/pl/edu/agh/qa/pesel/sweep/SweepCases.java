@@ -0,0 +1,101 @@
+package pl.edu.agh.qa.pesel.sweep;
+
+import pl.edu.agh.qa.pesel.PeselEncoder;
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+import java.time.LocalDate;
+
+/**
+ * Case space of the differential sweep, addressed by index so that it needs no memory
+ * and a run can resume from any index.
+ *
+ * Indexes {@code [0, days * samples)} are valid PESELs: every day of the date range with
+ * {@code samples} serial numbers each, drawn from the seed. The remaining
+ * {@value #INVALID_CASES} indexes, when enabled, cover every year and month field 00-99 with an
+ * out-of-range day: 00 and the day after the last one of the month (01 for invalid month fields).
+ */
+public final class SweepCases {
+
+    static final int INVALID_CASES = 100 * 100 * 2;
+
+    private final long firstEpochDay;
+    private final long days;
+    private final int samples;
+    private final long seed;
+    private final boolean invalid;
+
+    public SweepCases(LocalDate from, LocalDate to, int samples, long seed, boolean invalid) {
+        if (from.getYear() < 1800 || to.getYear() > 2299 || to.isBefore(from)) {
+            throw new IllegalArgumentException("Date range must lie within 1800-01-01 - 2299-12-31: " + from + " - " + to);
+        }
+        if (samples < 1 || samples > 10000) {
+            throw new IllegalArgumentException("samples must be 1-10000: " + samples);
+        }
+        this.firstEpochDay = from.toEpochDay();
+        this.days = to.toEpochDay() - firstEpochDay + 1;
+        this.samples = samples;
+        this.seed = seed;
+        this.invalid = invalid;
+    }
+
+    public long size() {
+        return days * samples + (invalid ? INVALID_CASES : 0);
+    }
+
+    /**
+     * Writes the 11 digits of case {@code index} to {@code out}.
+     */
+    public void write(long index, byte[] out) {
+        int serial = serial(index);
+        long valid = days * samples;
+        if (index < valid) {
+            LocalDate date = LocalDate.ofEpochDay(firstEpochDay + index / samples);
+            PeselEncoder.encode(date.getYear(), PeselEncoder.monthCode(date.getYear(), date.getMonthValue()),
+                    date.getDayOfMonth(), serial, out, 0);
+            return;
+        }
+        int invalidIndex = (int) (index - valid);
+        int year = invalidIndex / 2 / 100;
+        int monthCode = invalidIndex / 2 % 100;
+        int day = 0;
+        if (invalidIndex % 2 == 1) {
+            int month = monthCode % 20;
+            day = month >= 1 && month <= 12
+                    ? PeselValidator.lengthOfMonth(century(monthCode) + year, month) + 1
+                    : 1;
+        }
+        PeselEncoder.encode(year, monthCode, day, serial, out, 0);
+    }
+
+    /**
+     * @return identifies the case space, a checkpoint is only valid for the same one
+     */
+    public String fingerprint() {
+        return LocalDate.ofEpochDay(firstEpochDay) + "/" + LocalDate.ofEpochDay(firstEpochDay + days - 1)
+                + "/" + samples + "/" + seed + "/" + invalid;
+    }
+
+    private int serial(long index) {
+        // SplitMix64 finalizer: the same index always gets the same serial number
+        long z = seed + index * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) Long.remainderUnsigned(z, 10000);
+    }
+
+    private static int century(int monthCode) {
+        switch (monthCode / 20) {
+            case 0:
+                return 1900;
+            case 1:
+                return 2000;
+            case 2:
+                return 2100;
+            case 3:
+                return 2200;
+            default:
+                return 1800;
+        }
+    }
+}
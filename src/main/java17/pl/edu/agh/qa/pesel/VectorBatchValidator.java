@@ -0,0 +1,67 @@
+package pl.edu.agh.qa.pesel;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The rules of {@link PeselValidator} over as many lanes of a {@link PeselBatch} as the widest int vector
+ * of the CPU holds, at most 8: digit range, weighted check sum, and the date rules
+ * gathered from {@link PeselDates}. The lanes after the last full vector go through {@link ScalarBatchValidator}.
+ *
+ * Needs JDK 17+ with {@code --add-modules jdk.incubator.vector}; compiled by the 'vector' build profile
+ * and only loaded by {@link PeselBatchValidator#create()}.
+ */
+final class VectorBatchValidator implements PeselBatchValidator {
+
+    // at most 256 bits: C2 of JDK 17 crashes (SIGSEGV) on the 512 bit int gather on AVX-512 CPUs
+    private static final VectorSpecies<Integer> SPECIES =
+            IntVector.SPECIES_PREFERRED.vectorBitSize() > 256 ? IntVector.SPECIES_256 : IntVector.SPECIES_PREFERRED;
+    private static final int[] WEIGHTS = {1, 3, 7, 9, 1, 3, 7, 9, 1, 3, 1};
+    // sum / 10 == sum * 52429 >>> 19 for every sum up to 43689; the largest check sum is 9 * 45
+    private static final int DIV_10_MULTIPLIER = 52429;
+    private static final int DIV_10_SHIFT = 19;
+
+    @Override
+    public void validate(PeselBatch batch) {
+        int size = batch.size();
+        int bound = SPECIES.loopBound(size);
+        int[][] digits = batch.digits;
+        int[] dates = PeselDates.table();
+        IntVector zero = IntVector.zero(SPECIES);
+        for (int lane = 0; lane < bound; lane += SPECIES.length()) {
+            IntVector sum = zero;
+            IntVector prefix = zero;
+            VectorMask<Integer> notDigits = SPECIES.maskAll(false);
+            for (int i = 0; i < PeselValidator.LENGTH; i++) {
+                IntVector digit = IntVector.fromArray(SPECIES, digits[i], lane);
+                notDigits = notDigits.or(digit.compare(VectorOperators.UNSIGNED_GT, 9));
+                sum = sum.add(digit.mul(WEIGHTS[i]));
+                if (i < 6) {
+                    prefix = prefix.mul(10).add(digit);
+                }
+            }
+            // lanes that are not digits gather the entry of 000000 and are marked below
+            prefix.blend(0, notDigits).intoArray(batch.prefixes, lane);
+            IntVector packed = IntVector.fromArray(SPECIES, dates, 0, batch.prefixes, lane);
+            IntVector tens = sum.mul(DIV_10_MULTIPLIER).lanewise(VectorOperators.LSHR, DIV_10_SHIFT);
+            VectorMask<Integer> badCheckSum = sum.sub(tens.mul(10)).compare(VectorOperators.NE, 0);
+            IntVector male = IntVector.fromArray(SPECIES, digits[9], lane).and(1).mul(PeselValidator.MALE);
+            packed.and(PeselDates.FLAGS)
+                    .or(PeselValidator.HAS_GENDER)
+                    .or(male)
+                    .or(zero.blend(PeselError.INVC.mask(), badCheckSum))
+                    .blend(PeselBatch.NOT_DIGITS, notDigits)
+                    .intoArray(batch.flags, lane);
+            packed.lanewise(VectorOperators.ASHR, PeselDates.EPOCH_DAY_SHIFT).intoArray(batch.epochDays, lane);
+        }
+        ScalarBatchValidator.validate(batch, bound, size);
+        batch.complete();
+    }
+
+    @Override
+    public String name() {
+        return "vector (" + SPECIES.length() + " x 32 bit lanes)";
+    }
+}
@@ -0,0 +1,109 @@
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.internal.TestResult;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Reports DataProvider rows in DataProvider order, whatever order the (parallel) rows finished in.
+ *
+ * Prints one summary line per data-driven test method and writes every row to
+ * 'data-provider-rows.txt' in the TestNG output directory.
+ */
+public class DataProviderRowReporter implements ITestListener {
+
+    // filled from the parallel DataProvider threads
+    private final Queue<ITestResult> results = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        Map<String, List<ITestResult>> byMethod = new TreeMap<>();
+        for (Iterator<ITestResult> it = results.iterator(); it.hasNext(); ) {
+            ITestResult result = it.next();
+            if (result.getTestContext() == context) {
+                it.remove();
+                if (result.getParameters().length > 0) {
+                    byMethod.computeIfAbsent(name(result.getMethod()), key -> new ArrayList<>()).add(result);
+                }
+            }
+        }
+        if (byMethod.isEmpty()) {
+            return;
+        }
+        Path report = Paths.get(context.getOutputDirectory(), "data-provider-rows.txt");
+        try {
+            Files.createDirectories(report.getParent());
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, List<ITestResult>> method : byMethod.entrySet()) {
+                    List<ITestResult> rows = method.getValue();
+                    rows.sort(Comparator.comparingInt(DataProviderRowReporter::rowIndex)
+                            .thenComparingLong(ITestResult::getStartMillis));
+                    long failed = rows.stream().filter(row -> row.getStatus() != ITestResult.SUCCESS).count();
+                    long wallClock = rows.stream().mapToLong(ITestResult::getEndMillis).max().orElse(0)
+                            - rows.stream().mapToLong(ITestResult::getStartMillis).min().orElse(0);
+                    System.out.printf("%s: %d rows, %d failed, %d ms%n", method.getKey(), rows.size(), failed, wallClock);
+
+                    out.printf("%s%n", method.getKey());
+                    for (ITestResult row : rows) {
+                        out.printf("  [%d] %-4s %s (%d ms)%n", rowIndex(row), status(row),
+                                Arrays.stream(row.getParameters()).map(String::valueOf).collect(Collectors.joining(", ")),
+                                row.getEndMillis() - row.getStartMillis());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write " + report + ": " + e);
+        }
+    }
+
+    private static String name(ITestNGMethod method) {
+        return method.getRealClass().getSimpleName() + "." + method.getMethodName();
+    }
+
+    private static int rowIndex(ITestResult result) {
+        return result instanceof TestResult ? ((TestResult) result).getParameterIndex() : -1;
+    }
+
+    private static String status(ITestResult result) {
+        switch (result.getStatus()) {
+            case ITestResult.SUCCESS:
+                return "PASS";
+            case ITestResult.FAILURE:
+                return "FAIL";
+            default:
+                return "SKIP";
+        }
+    }
+}
@@ -0,0 +1,637 @@
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.Listeners;
+import pl.edu.agh.qa.pesel.cassette.Cassette;
+import pl.edu.agh.qa.pesel.cassette.CassetteRecorder;
+import pl.edu.agh.qa.pesel.client.PeselApiClient;
+import pl.edu.agh.qa.pesel.client.PeselAsyncClient;
+import pl.edu.agh.qa.pesel.client.PeselBatcher;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.client.PeselResponse;
+import pl.edu.agh.qa.pesel.client.RequestPolicy;
+import pl.edu.agh.qa.pesel.client.RequestTiming;
+import pl.edu.agh.qa.pesel.client.SingleFlightCache;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.perf.LatencyBaseline;
+import pl.edu.agh.qa.pesel.perf.LatencyGate;
+import pl.edu.agh.qa.pesel.perf.QuantileComparison;
+import pl.edu.agh.qa.pesel.shard.Shard;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Common setup of the PeselValidator test suites.
+ *
+ * The suites target the service given by the 'pesel.api.baseUri' system property
+ * (e.g. https://peselvalidatorapitest.azurewebsites.net). When it is not set,
+ * an embedded {@link PeselValidatorStub} is started once per suite and used instead.
+ * All requests go through one shared, connection-pooled {@link PeselApiClient}; responses are
+ * decoded once into {@link PeselResponse}.
+ *
+ * Responses are cached for the whole run, keyed by path and 'pesel' value, so tests
+ * asking for the same PESEL (also concurrently) share one request. The cache size is
+ * set with 'pesel.api.cache.size' (0 disables it); single tests opt out with {@link NoResponseCache}.
+ *
+ * DataProviders may {@link #prefetch(Object[][], Function) prefetch} the requests of all their rows at once
+ * on virtual threads, at most 'pesel.api.concurrency' at a time; the rows then read the cached responses.
+ * Against the stand-in, concurrent requests are coalesced into batch requests by a {@link PeselBatcher}
+ * of at most 'pesel.api.batch.size' PESELs (0 disables it) waiting at most 'pesel.api.batch.delay' ms.
+ *
+ * With 'pesel.api.transport=async' requests go through the non-blocking {@link PeselAsyncClient} instead
+ * (HTTP/2 where available, at most 'pesel.api.concurrency' in flight); prefetching then needs no threads
+ * and batching is off.
+ *
+ * With 'pesel.api.policy=adaptive' (implies the async transport) a {@link RequestPolicy} sends a hedged duplicate
+ * of requests slower than the rolling p95, retries throttled ones and paces all of them by an AIMD rate limit that
+ * backs off on 429, 5xx and timeouts; see {@link RequestPolicy.Settings} for its properties. The embedded
+ * stand-in injects delays and errors set by the 'pesel.stub.*' properties of {@link PeselValidatorStub.Faults}.
+ *
+ * With 'pesel.api.cassette.mode=record' every request and its response are appended to the cassette file
+ * 'pesel.api.cassette' (default target/pesel-api.cassette); with 'pesel.api.cassette.mode=replay' no service
+ * is contacted and the responses come from that file instead (see {@link Cassette}). A request missing from
+ * the cassette, or recorded more than 'pesel.api.cassette.maxAge' days ago (0, the default, for no limit),
+ * fails its test with a {@link pl.edu.agh.qa.pesel.cassette.CassetteMissException}.
+ *
+ * With 'pesel.perf.mode=record' every test that reads a response also times 'pesel.perf.samples' (20) more requests
+ * of it, uncached, and the latencies are written per test and request to the baseline file 'pesel.perf.baseline'
+ * (default target/latency-baseline.tsv) after the suite. With 'pesel.perf.mode=check' the same samples are compared
+ * with that baseline ({@link LatencyGate}): a test whose p95 or p99 is slower by more than both 'pesel.perf.threshold'
+ * (0.25) and 'pesel.perf.minIncrease' milliseconds (10) with 'pesel.perf.confidence' (0.9) fails, or only warns with
+ * 'pesel.perf.onRegression=warn'; the comparison of all tests is written to 'pesel.perf.report' (default
+ * target/latency-report.txt). Tests take their samples one at a time, not while another test does, and a regression
+ * is only reported when a second set of samples confirms it.
+ *
+ * The phase timings of every request are attributed to the test (row) that first reads its response,
+ * see {@link PhaseTimingReporter}.
+ *
+ * With 'pesel.shard.index' and 'pesel.shard.count' the JVM runs one {@link Shard} of the suites: the DataProvider
+ * rows at that index modulo the count and the single tests hashed to it ({@link ShardInterceptor}), and writes their
+ * results to 'pesel.shard.dir' (default target/shards) for {@link pl.edu.agh.qa.pesel.shard.ShardMerge}.
+ */
+@Listeners({DataProviderRowReporter.class, PhaseTimingReporter.class, ShardInterceptor.class, ShardReporter.class})
+public abstract class PeselApiTestBase {
+
+    public static final String BASE_URI_PROPERTY = "pesel.api.baseUri";
+    public static final String CACHE_SIZE_PROPERTY = "pesel.api.cache.size";
+    public static final String CONCURRENCY_PROPERTY = "pesel.api.concurrency";
+    public static final String BATCH_SIZE_PROPERTY = "pesel.api.batch.size";
+    public static final String BATCH_DELAY_PROPERTY = "pesel.api.batch.delay";
+    public static final String TRANSPORT_PROPERTY = "pesel.api.transport";
+    public static final String POLICY_PROPERTY = "pesel.api.policy";
+    public static final String PERF_MODE_PROPERTY = "pesel.perf.mode";
+    public static final String PERF_BASELINE_PROPERTY = "pesel.perf.baseline";
+    public static final String PERF_REPORT_PROPERTY = "pesel.perf.report";
+    public static final String PERF_SAMPLES_PROPERTY = "pesel.perf.samples";
+    public static final String PERF_THRESHOLD_PROPERTY = "pesel.perf.threshold";
+    public static final String PERF_MIN_INCREASE_PROPERTY = "pesel.perf.minIncrease";
+    public static final String PERF_CONFIDENCE_PROPERTY = "pesel.perf.confidence";
+    public static final String PERF_ON_REGRESSION_PROPERTY = "pesel.perf.onRegression";
+    public static final String CASSETTE_PROPERTY = "pesel.api.cassette";
+    public static final String CASSETTE_MODE_PROPERTY = "pesel.api.cassette.mode";
+    public static final String CASSETTE_MAX_AGE_PROPERTY = "pesel.api.cassette.maxAge";
+
+    private static boolean started;
+
+    private static PeselValidatorStub stub;
+    private static volatile PeselApiClient client;
+    private static volatile SingleFlightCache<String, ApiCall> cache;
+    private static volatile PeselBatcher batcher;
+    private static volatile PeselAsyncClient asyncClient;
+    private static RequestPolicy policy;
+    private static ExecutorService asyncExecutor;
+    private static ExecutorService prefetchExecutor;
+    private static Semaphore prefetchPermits;
+    private static volatile Cassette replay;
+    private static volatile Duration replayMaxAge;
+    private static volatile CassetteRecorder recorder;
+    private static volatile LatencyGate latencyGate;
+    private static String latencyTarget;
+    private static Shard shard = Shard.ALL;
+    // one test samples at a time, parallel rows would otherwise measure each other
+    private static final Object LATENCY_SAMPLING = new Object();
+
+    @BeforeSuite(alwaysRun = true)
+    public static synchronized void startApi() throws IOException {
+        if (started) {
+            return;
+        }
+        String baseUri = System.getProperty(BASE_URI_PROPERTY, "").trim();
+        int cacheSize = Integer.getInteger(CACHE_SIZE_PROPERTY, 1024);
+        cache = cacheSize > 0 ? new SingleFlightCache<>(cacheSize) : null;
+        String cassetteMode = System.getProperty(CASSETTE_MODE_PROPERTY, "off");
+        Path cassette = Paths.get(System.getProperty(CASSETTE_PROPERTY, "target/pesel-api.cassette"));
+        String perfMode = System.getProperty(PERF_MODE_PROPERTY, "off");
+        if ("replay".equals(cassetteMode) && !"off".equals(perfMode)) {
+            throw new IllegalArgumentException(PERF_MODE_PROPERTY + "=" + perfMode + " needs a service to time, not "
+                    + CASSETTE_MODE_PROPERTY + "=replay");
+        }
+        startLatencyGate(perfMode, baseUri);
+        if ("replay".equals(cassetteMode)) {
+            startReplay(cassette, baseUri);
+            return;
+        } else if ("record".equals(cassetteMode)) {
+            recorder = CassetteRecorder.open(cassette, baseUri);
+        } else if (!"off".equals(cassetteMode)) {
+            throw new IllegalArgumentException("Unknown " + CASSETTE_MODE_PROPERTY + ": " + cassetteMode
+                    + ", use off, record or replay");
+        }
+        String policyName = System.getProperty(POLICY_PROPERTY, "off");
+        if (!"off".equals(policyName) && !"adaptive".equals(policyName)) {
+            throw new IllegalArgumentException("Unknown " + POLICY_PROPERTY + ": " + policyName + ", use off or adaptive");
+        }
+        boolean adaptive = "adaptive".equals(policyName);
+        if (baseUri.isEmpty()) {
+            stub = PeselValidatorStub.start(0, PeselValidatorStub.Faults.fromSystemProperties());
+            baseUri = stub.baseUri();
+        }
+        PeselApiClient.Settings settings = PeselApiClient.Settings.fromSystemProperties();
+        client = new PeselApiClient(baseUri, settings);
+        int concurrency = Integer.getInteger(CONCURRENCY_PROPERTY, 32);
+        String transport = System.getProperty(TRANSPORT_PROPERTY, adaptive ? "async" : "blocking");
+        if ("async".equals(transport)) {
+            policy = adaptive ? new RequestPolicy(RequestPolicy.Settings.fromSystemProperties()) : null;
+            asyncExecutor = VirtualThreads.newExecutor("pesel-async");
+            asyncClient = new PeselAsyncClient(new PeselHttpClient(baseUri,
+                    Duration.ofMillis(settings.readTimeoutMillis()), asyncExecutor), concurrency, policy);
+        } else if (!"blocking".equals(transport)) {
+            throw new IllegalArgumentException("Unknown " + TRANSPORT_PROPERTY + ": " + transport + ", use blocking or async");
+        } else if (adaptive) {
+            throw new IllegalArgumentException(POLICY_PROPERTY + "=adaptive needs " + TRANSPORT_PROPERTY + "=async");
+        } else {
+            // the real service has no batch endpoint
+            int batchSize = Integer.getInteger(BATCH_SIZE_PROPERTY, stub != null ? 32 : 0);
+            batcher = batchSize > 0
+                    ? new PeselBatcher(client, batchSize, Integer.getInteger(BATCH_DELAY_PROPERTY, 5))
+                    : null;
+        }
+        shard = Shard.fromSystemProperties();
+        prefetchExecutor = VirtualThreads.newExecutor("pesel-prefetch");
+        prefetchPermits = new Semaphore(concurrency);
+        started = true;
+    }
+
+    private static void startLatencyGate(String mode, String baseUri) throws IOException {
+        latencyTarget = baseUri.isEmpty() ? "the embedded stand-in" : baseUri;
+        double threshold = Double.parseDouble(System.getProperty(PERF_THRESHOLD_PROPERTY, "0.25"));
+        long minIncrease = Math.round(Double.parseDouble(System.getProperty(PERF_MIN_INCREASE_PROPERTY, "10")) * 1000);
+        double confidence = Double.parseDouble(System.getProperty(PERF_CONFIDENCE_PROPERTY, "0.9"));
+        if ("record".equals(mode)) {
+            latencyGate = new LatencyGate(null, threshold, minIncrease, confidence);
+        } else if ("check".equals(mode)) {
+            latencyGate = new LatencyGate(LatencyBaseline.read(latencyBaseline()), threshold, minIncrease, confidence);
+        } else if (!"off".equals(mode)) {
+            throw new IllegalArgumentException("Unknown " + PERF_MODE_PROPERTY + ": " + mode + ", use off, record or check");
+        }
+    }
+
+    private static Path latencyBaseline() {
+        return Paths.get(System.getProperty(PERF_BASELINE_PROPERTY, "target/latency-baseline.tsv"));
+    }
+
+    /**
+     * @param baseUri when set, the cassette must have been recorded against it
+     */
+    private static void startReplay(Path path, String baseUri) throws IOException {
+        Cassette cassette = Cassette.open(path);
+        if (!baseUri.isEmpty() && !baseUri.equals(cassette.baseUri())) {
+            cassette.close();
+            throw new IOException("Cassette " + path + " was recorded against "
+                    + (cassette.baseUri().isEmpty() ? "the embedded stand-in" : cassette.baseUri())
+                    + ", not " + baseUri + "; record it again");
+        }
+        int maxAgeDays = Integer.getInteger(CASSETTE_MAX_AGE_PROPERTY, 0);
+        replayMaxAge = maxAgeDays > 0 ? Duration.ofDays(maxAgeDays) : null;
+        replay = cassette;
+        shard = Shard.fromSystemProperties();
+        started = true;
+    }
+
+    @AfterSuite(alwaysRun = true)
+    public static synchronized void stopApi() throws IOException {
+        started = false;
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+            prefetchExecutor = null;
+        }
+        if (client != null) {
+            System.out.println("PESEL API client " + client.stats());
+            if (asyncClient != null) {
+                System.out.println("PESEL API async client " + asyncClient.stats());
+                asyncClient = null;
+                asyncExecutor.shutdownNow();
+                asyncExecutor = null;
+            }
+            if (policy != null) {
+                System.out.println("PESEL API request policy " + policy.stats());
+                policy = null;
+            }
+            if (batcher != null) {
+                System.out.println("PESEL API batcher " + batcher.stats());
+                batcher.close();
+                batcher = null;
+            }
+            if (cache != null) {
+                System.out.println("PESEL API response cache " + cache.stats());
+                cache = null;
+            }
+            client.close();
+            client = null;
+        }
+        if (stub != null) {
+            if (stub.injectedDelays() + stub.injectedErrors() > 0) {
+                System.out.println("PESEL API stand-in injected delays: " + stub.injectedDelays()
+                        + ", errors: " + stub.injectedErrors());
+            }
+            stub.stop();
+            stub = null;
+        }
+        if (replay != null) {
+            System.out.println("PESEL API cassette " + replay.path() + " " + replay.stats());
+            if (cache != null) {
+                System.out.println("PESEL API response cache " + cache.stats());
+                cache = null;
+            }
+            replay.close();
+            replay = null;
+        }
+        if (recorder != null) {
+            System.out.println("PESEL API cassette " + recorder.path() + " recorded: " + recorder.recordCount());
+            recorder.close();
+            recorder = null;
+        }
+        if (latencyGate != null) {
+            stopLatencyGate();
+        }
+    }
+
+    private static void stopLatencyGate() throws IOException {
+        LatencyGate gate = latencyGate;
+        latencyGate = null;
+        int samples = Integer.getInteger(PERF_SAMPLES_PROPERTY, 20);
+        if (System.getProperty(PERF_MODE_PROPERTY, "off").equals("record")) {
+            LatencyBaseline recorded = gate.recorded();
+            recorded.write(latencyBaseline(), "recorded " + Instant.now() + " against " + latencyTarget + ", "
+                    + samples + " samples per test and request");
+            System.out.println("PESEL API latency baseline " + latencyBaseline() + " recorded: "
+                    + recorded.keys().size() + " tests");
+            return;
+        }
+        Path report = Paths.get(System.getProperty(PERF_REPORT_PROPERTY, "target/latency-report.txt"));
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        Files.write(report, ("Latency of " + latencyTarget + " against baseline " + latencyBaseline() + ", "
+                + samples + " samples per test and request\n" + gate.report()).getBytes(StandardCharsets.UTF_8));
+        System.out.println("PESEL API latency regressions: " + gate.regressions() + ", report " + report);
+    }
+
+    /**
+     * GET /api/Pesel?pesel={pesel}
+     */
+    protected static PeselResponse getPesel(String pesel) {
+        return read(pesel, cacheKey(pesel), () -> call(pesel));
+    }
+
+    /**
+     * GET /api/Pesel with no 'pesel' parameter
+     */
+    protected static PeselResponse getWithoutPesel() {
+        return read(null, PeselApiClient.PATH, () -> call(null));
+    }
+
+    private static PeselResponse read(String pesel, String cacheKey, Supplier<ApiCall> request) {
+        SingleFlightCache<String, ApiCall> calls = cache;
+        ApiCall call = calls == null || !cacheEnabledForCurrentTest()
+                ? request.get()
+                : calls.get(cacheKey, key -> request.get());
+        PhaseTimingReporter.record(call.timing, !call.firstRead.compareAndSet(false, true));
+        LatencyGate gate = latencyGate;
+        if (gate != null) {
+            checkLatency(gate, pesel);
+        }
+        return call.response;
+    }
+
+    /**
+     * Times 'pesel.perf.samples' requests of the current test on the blocking client, bypassing the cache,
+     * batching and request policy, and compares them with the baseline.
+     *
+     * @throws AssertionError when the latency regressed and 'pesel.perf.onRegression' is fail
+     */
+    private static void checkLatency(LatencyGate gate, String pesel) {
+        ITestResult test = Reporter.getCurrentTestResult();
+        if (test == null) {
+            return;
+        }
+        String key = testKey(test) + " " + requestKey(pesel);
+        long[] micros = sampleLatency(pesel);
+        if (!gate.check(key, micros).isEmpty()) {
+            // a burst of slow samples is more often a pause of this machine than of the service: confirm with new ones
+            micros = sampleLatency(pesel);
+        }
+        List<QuantileComparison> regressions = gate.add(key, micros);
+        if (regressions.isEmpty()) {
+            return;
+        }
+        String message = "Latency regression of " + requestKey(pesel) + ": " + LatencyGate.describe(regressions);
+        if ("warn".equals(System.getProperty(PERF_ON_REGRESSION_PROPERTY, "fail"))) {
+            System.out.println("WARNING " + testKey(test) + " " + message);
+            Reporter.log(message);
+        } else {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static long[] sampleLatency(String pesel) {
+        long[] micros = new long[Integer.getInteger(PERF_SAMPLES_PROPERTY, 20)];
+        synchronized (LATENCY_SAMPLING) {
+            for (int i = 0; i < micros.length; i++) {
+                long start = System.nanoTime();
+                if (pesel == null) {
+                    client().getWithoutPesel();
+                } else {
+                    client().get(pesel);
+                }
+                micros[i] = (System.nanoTime() - start) / 1000;
+            }
+        }
+        return micros;
+    }
+
+    /**
+     * @return e.g. "PeselValidatorResponseBodyTests.shouldRecognizeGender(97022137812, Male)"
+     */
+    private static String testKey(ITestResult test) {
+        StringBuilder key = new StringBuilder(test.getMethod().getRealClass().getSimpleName())
+                .append('.').append(test.getMethod().getMethodName());
+        Object[] parameters = test.getParameters();
+        if (parameters.length > 0) {
+            key.append('(');
+            for (int i = 0; i < parameters.length; i++) {
+                key.append(i > 0 ? ", " : "").append(parameters[i]);
+            }
+            key.append(')');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Starts the requests of all DataProvider rows in the background, so the rows,
+     * whether run sequentially or in parallel, find their responses cached or in flight.
+     * Does nothing when the response cache is disabled.
+     *
+     * @param rows  DataProvider rows
+     * @param pesel extracts the requested PESEL from a row
+     * @return the same rows, only those of the current shard in a sharded run
+     */
+    protected static synchronized Object[][] prefetch(Object[][] rows, Function<Object[], String> pesel) {
+        checkStarted();
+        if (shard.isPartial()) {
+            rows = Arrays.stream(rows).filter(new ShardFilter()).toArray(Object[][]::new);
+        }
+        SingleFlightCache<String, ApiCall> responses = cache;
+        if (responses == null || replay != null) {
+            return rows;
+        }
+        for (Object[] row : rows) {
+            prefetch(responses, pesel.apply(row));
+        }
+        return rows;
+    }
+
+    /**
+     * Streaming variant for lazy DataProviders: the requests of the next 'pesel.api.concurrency' rows are
+     * started ahead of the row TestNG is running, so at most that many rows are held in memory and the first
+     * row runs as soon as it is read. Meant for sequential DataProviders, TestNG pulls their rows from one thread.
+     *
+     * @param allRows DataProvider rows, read lazily
+     * @param pesel   extracts the requested PESEL from a row, null for a request without the parameter
+     * @return the rows, only those of the current shard in a sharded run
+     */
+    protected static Iterator<Object[]> prefetch(Iterator<Object[]> allRows, Function<Object[], String> pesel) {
+        checkStarted();
+        Iterator<Object[]> rows = shard.isPartial() ? new ShardRows(allRows) : allRows;
+        SingleFlightCache<String, ApiCall> responses = cache;
+        if (responses == null || replay != null) {
+            return rows;
+        }
+        int window = Integer.getInteger(CONCURRENCY_PROPERTY, 32);
+        return new Iterator<>() {
+            private final Deque<Object[]> ahead = new ArrayDeque<>(window);
+
+            @Override
+            public boolean hasNext() {
+                while (ahead.size() < window && rows.hasNext()) {
+                    Object[] row = rows.next();
+                    String value = pesel.apply(row);
+                    if (value != null) {
+                        prefetch(responses, value);
+                    }
+                    ahead.add(row);
+                }
+                return !ahead.isEmpty();
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return ahead.poll();
+            }
+        };
+    }
+
+    private static void prefetch(SingleFlightCache<String, ApiCall> responses, String pesel) {
+        PeselAsyncClient async = asyncClient;
+        if (async != null) {
+            responses.getAsync(cacheKey(pesel),
+                    key -> async.get(pesel).thenApply(call -> record(pesel, new ApiCall(call))));
+            return;
+        }
+        prefetchExecutor.execute(() -> {
+            try {
+                prefetchPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                responses.get(cacheKey(pesel), key -> call(pesel));
+            } catch (RuntimeException e) {
+                // not cached, the row repeats the request and reports the failure itself
+            } finally {
+                prefetchPermits.release();
+            }
+        });
+    }
+
+    /**
+     * @param pesel null for a request without the 'pesel' parameter
+     */
+    private static ApiCall call(String pesel) {
+        checkStarted();
+        Cassette cassette = replay;
+        if (cassette != null) {
+            Cassette.Entry entry = cassette.replay(requestKey(pesel), replayMaxAge);
+            try {
+                return new ApiCall(PeselResponse.decode(entry.status(), entry.body()), null);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unexpected recorded response of " + requestKey(pesel), e);
+            }
+        }
+        PeselAsyncClient async = asyncClient;
+        if (async != null) {
+            return record(pesel, new ApiCall(join(async.get(pesel))));
+        }
+        PeselBatcher current = batcher;
+        PeselResponse response;
+        if (pesel == null) {
+            response = PeselResponse.of(client().getWithoutPesel());
+        } else if (current != null) {
+            response = current.get(pesel);
+        } else {
+            response = PeselResponse.of(client().get(pesel));
+        }
+        return record(pesel, new ApiCall(response, RequestTiming.takeLast()));
+    }
+
+    private static ApiCall record(String pesel, ApiCall call) {
+        CassetteRecorder current = recorder;
+        if (current != null) {
+            try {
+                current.record(requestKey(pesel), call.response.statusCode(), call.response.body());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot record " + requestKey(pesel) + " to " + current.path(), e);
+            }
+        }
+        return call;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private static String cacheKey(String pesel) {
+        return PeselApiClient.PATH + "?pesel=" + pesel;
+    }
+
+    /**
+     * @param pesel null for a request without the 'pesel' parameter
+     * @return e.g. "GET /api/Pesel?pesel=44051401458"
+     */
+    private static String requestKey(String pesel) {
+        return "GET " + (pesel == null ? PeselApiClient.PATH : cacheKey(pesel));
+    }
+
+    private static boolean cacheEnabledForCurrentTest() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        return result == null || !result.getMethod().getConstructorOrMethod().getMethod()
+                .isAnnotationPresent(NoResponseCache.class);
+    }
+
+    private static void checkStarted() {
+        if (client == null && replay == null) {
+            throw new IllegalStateException("PESEL API is not started, run the tests through TestNG");
+        }
+    }
+
+    private static PeselApiClient client() {
+        checkStarted();
+        return client;
+    }
+
+    /**
+     * Keeps the rows of the current shard, counting positions from the first row it is given.
+     */
+    private static final class ShardFilter implements Predicate<Object[]> {
+
+        private long position;
+
+        @Override
+        public boolean test(Object[] row) {
+            return shard.owns(position++);
+        }
+    }
+
+    /**
+     * Rows of the current shard, read lazily from all rows.
+     */
+    private static final class ShardRows implements Iterator<Object[]> {
+
+        private final Iterator<Object[]> rows;
+        private final ShardFilter filter = new ShardFilter();
+        private Object[] next;
+
+        ShardRows(Iterator<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && rows.hasNext()) {
+                Object[] row = rows.next();
+                next = filter.test(row) ? row : null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    /**
+     * Response with the timing of the request that produced it.
+     */
+    private static final class ApiCall {
+
+        final PeselResponse response;
+        final RequestTiming timing;
+        // false until a test reads the response; later readers got it from the cache
+        final AtomicBoolean firstRead = new AtomicBoolean();
+
+        private ApiCall(PeselResponse response, RequestTiming timing) {
+            this.response = response;
+            this.timing = timing;
+        }
+
+        ApiCall(PeselAsyncClient.Call call) {
+            this(call.response(), call.timing());
+        }
+    }
+}
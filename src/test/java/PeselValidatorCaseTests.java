@@ -0,0 +1,108 @@
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.testng.asserts.SoftAssert;
+import pl.edu.agh.qa.pesel.cases.PeselCase;
+import pl.edu.agh.qa.pesel.cases.PeselCaseReader;
+import pl.edu.agh.qa.pesel.client.PeselResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs the case tables given by 'pesel.cases' (files or directories, comma separated), by default the .csv and
+ * .jsonl files of the 'cases' directory of the test resources; see {@link PeselCaseReader} for their format.
+ *
+ * Cases are read lazily, a line at a time, while the rows run; requests of the next rows are prefetched.
+ */
+public class PeselValidatorCaseTests extends PeselApiTestBase {
+
+    public static final String CASES_PROPERTY = "pesel.cases";
+
+    @DataProvider
+    public static Iterator<Object[]> cases() {
+        Iterator<PeselCase> cases = PeselCaseReader.readAll(caseFiles());
+        Iterator<Object[]> rows = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cases.hasNext();
+            }
+
+            @Override
+            public Object[] next() {
+                return new Object[]{cases.next()};
+            }
+        };
+        return prefetch(rows, row -> ((PeselCase) row[0]).pesel());
+    }
+
+    /**
+     * One request per case; every field of the response is checked and all mismatches reported together.
+     */
+    @Test(dataProvider = "cases")
+    public static void shouldAnswerAsTheCaseExpects(PeselCase expected) {
+        PeselResponse response = expected.pesel() == null ? getWithoutPesel() : getPesel(expected.pesel());
+        SoftAssert softly = new SoftAssert();
+        softly.assertEquals(response.statusCode(), expected.status(), "status of " + expected);
+        if (response.statusCode() == 200) {
+            softly.assertEquals(response.pesel(), expected.pesel(), "pesel of " + expected);
+            softly.assertEquals(response.isValid(), Boolean.valueOf(expected.isValid()), "isValid of " + expected);
+            softly.assertEquals(response.errorCodes(), expected.errors(), "errors of " + expected);
+            softly.assertEquals(response.errorMessages(), expected.messages(), "messages of " + expected);
+            softly.assertEquals(response.gender(), expected.gender(), "gender of " + expected);
+            softly.assertEquals(response.dateOfBirth(), expected.dateOfBirth(), "dateOfBirth of " + expected);
+        }
+        softly.assertAll();
+    }
+
+    private static List<Path> caseFiles() {
+        String property = System.getProperty(CASES_PROPERTY, "").trim();
+        List<Path> locations = new ArrayList<>();
+        if (property.isEmpty()) {
+            URL resource = PeselValidatorCaseTests.class.getClassLoader().getResource("cases");
+            if (resource == null) {
+                throw new IllegalStateException("No 'cases' directory in the test resources, set " + CASES_PROPERTY);
+            }
+            try {
+                locations.add(Paths.get(resource.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            for (String location : property.split(",")) {
+                locations.add(Paths.get(location.trim()));
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        for (Path location : locations) {
+            if (!Files.isDirectory(location)) {
+                files.add(location);
+                continue;
+            }
+            try (Stream<Path> entries = Files.list(location)) {
+                files.addAll(entries.filter(PeselValidatorCaseTests::isCaseTable).sorted().collect(Collectors.toList()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return files;
+    }
+
+    private static boolean isCaseTable(Path file) {
+        try {
+            PeselCaseReader.Format.of(file);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,13 +1,13 @@
-import io.restassured.response.Response;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.client.PeselResponse;
 
-import java.util.ArrayList;
+import java.util.List;
 
-import static io.restassured.RestAssured.get;
 
-public class PeselValidatorErrorTests {
+public class PeselValidatorErrorTests extends PeselApiTestBase {
 
     /**
      * Too short pesel.
@@ -16,9 +16,9 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnINVL1() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=123");
-        ArrayList<String> error = response.path("errors.errorCode");
-        Assert.assertEquals(error.get(0), "INVL", "The error code does not match ");
+        PeselResponse response = getPesel("123");
+        List<PeselError> error = response.errorCodes();
+        Assert.assertEquals(error.get(0), PeselError.INVL, "The error code does not match ");
         Assert.assertEquals(error.size(),1,"There is more than one error");
     }
 
@@ -30,8 +30,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnINVLmsg1() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=123");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("123");
+        List<String> errorMessage = response.errorMessages();
         Assert.assertEquals(errorMessage.get(0), "Invalid length. Pesel should have exactly 11 digits.", "The error messages does not match ");
     }
 
@@ -42,9 +42,9 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnINVL2() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=123123123123");
-        ArrayList<String> error = response.path("errors.errorCode");
-        Assert.assertEquals(error.get(0), "INVL", "The error code does not match ");
+        PeselResponse response = getPesel("123123123123");
+        List<PeselError> error = response.errorCodes();
+        Assert.assertEquals(error.get(0), PeselError.INVL, "The error code does not match ");
         Assert.assertEquals(error.size(),1,"There is more than one error");
     }
 
@@ -56,8 +56,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnINVLmsg2() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=123123123123");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("123123123123");
+        List<String> errorMessage = response.errorMessages();
         Assert.assertEquals(errorMessage.get(0), "Invalid length. Pesel should have exactly 11 digits.", "The error messages does not match ");
         Assert.assertEquals(errorMessage.size(),1,"There is more than one error");
     }
@@ -69,9 +69,9 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnNBRQ() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=jedenaściel");
-        ArrayList<String> error = response.path("errors.errorCode");
-        Assert.assertEquals(error.get(0), "NBRQ", "The error codes does not match ");
+        PeselResponse response = getPesel("jedenaściel");
+        List<PeselError> error = response.errorCodes();
+        Assert.assertEquals(error.get(0), PeselError.NBRQ, "The error codes does not match ");
     }
 
     /**
@@ -81,8 +81,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnNBRQmsg() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=jedenaściel");
-        ArrayList<String> error = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("jedenaściel");
+        List<String> error = response.errorMessages();
         Assert.assertEquals(error.get(0), "Invalid characters. Pesel should be a number.", "The error codes does not match ");
     }
 
@@ -92,9 +92,9 @@ public class PeselValidatorErrorTests {
      * 'NBRQ' error code
      * 'Invalid characters. Pesel should be a number.' error message
      */
-    @DataProvider
+    @DataProvider(parallel = true)
     public static Object[][] specialCharacters() {
-        return new Object[][]{
+        return prefetch(new Object[][]{
                 {"!"}, {"@"},
                 {"#"}, {"$"},
                 {"^"}, {"%"},
@@ -111,25 +111,23 @@ public class PeselValidatorErrorTests {
                 {">"}, {"/"},
                 {"`"}, {"~"},
                 {"~"}
-        };
+        }, row -> "1231231231" + row[0]);
     }
 
     @Test(dataProvider = "specialCharacters")
     public static void shouldReturnNBRQAndMsg1(String specialChar) {
-        String url = "https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=1231231231";
-
-        Response response = get(url.concat(specialChar));
-        ArrayList<String> errorCode = response.path("errors.errorCode");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
-        Assert.assertEquals(errorCode.get(0), "NBRQ", "error code does not equal NBRQ for " + specialChar);
+        PeselResponse response = getPesel("1231231231" + specialChar);
+        List<PeselError> errorCode = response.errorCodes();
+        List<String> errorMessage = response.errorMessages();
+        Assert.assertEquals(errorCode.get(0), PeselError.NBRQ, "error code does not equal NBRQ for " + specialChar);
         Assert.assertEquals(errorMessage.get(0), "Invalid characters. Pesel should be a number.", "The error message does not match for: " + specialChar);
         Assert.assertEquals(errorCode.size(),1,"There is more than 1 error code returned");
         Assert.assertEquals(errorMessage.size(),1,"There is more than 1 error message displayed");
     }
 
-    @DataProvider
+    @DataProvider(parallel = true)
     public static Object[][] letters() {
-        return new Object[][]{
+        return prefetch(new Object[][]{
                 {"a"}, {"n"},
                 {"b"}, {"o"},
                 {"c"}, {"p"},
@@ -144,7 +142,7 @@ public class PeselValidatorErrorTests {
                 {"l"}, {"y"},
                 {"ł"}, {"z"},
                 {"m"},
-        };
+        }, row -> "1231231231" + row[0]);
     }
 
     /**
@@ -154,12 +152,10 @@ public class PeselValidatorErrorTests {
      */
     @Test(dataProvider = "letters")
     public static void shouldReturnNBRQAndMsg2(String letter) {
-        String url = "https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=1231231231";
-
-        Response response = get(url.concat(letter));
-        ArrayList<String> errorCode = response.path("errors.errorCode");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
-        Assert.assertEquals(errorCode.get(0), "NBRQ", "The error code does not match for: " + letter);
+        PeselResponse response = getPesel("1231231231" + letter);
+        List<PeselError> errorCode = response.errorCodes();
+        List<String> errorMessage = response.errorMessages();
+        Assert.assertEquals(errorCode.get(0), PeselError.NBRQ, "The error code does not match for: " + letter);
         Assert.assertEquals(errorMessage.get(0), "Invalid characters. Pesel should be a number.", "The error message does not match for: " + letter);
         Assert.assertEquals(errorCode.size(),1,"There is more than 1 error code returned");
         Assert.assertEquals(errorMessage.size(),1,"There is more than 1 error message displayed");
@@ -175,10 +171,10 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailMonth0() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98000100011");
-        ArrayList<String> errorCode = response.path("errors.errorCode");
-        Assert.assertEquals(errorCode.get(0), "INVY", "The error code does not match");
-        Assert.assertEquals(errorCode.get(1), "INVM", "The error code does not match");
+        PeselResponse response = getPesel("98000100011");
+        List<PeselError> errorCode = response.errorCodes();
+        Assert.assertEquals(errorCode.get(0), PeselError.INVY, "The error code does not match");
+        Assert.assertEquals(errorCode.get(1), PeselError.INVM, "The error code does not match");
     }
 
     /**
@@ -191,8 +187,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailMonth0Msg() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98000100011");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("98000100011");
+        List<String> errorMessage = response.errorMessages();
         Assert.assertEquals(errorMessage.get(0), "Invalid year.", "The error message does not match");
         Assert.assertEquals(errorMessage.get(1), "Invalid month.", "The error message does not match");
     }
@@ -207,10 +203,10 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailMonth13() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98130100017");
-        ArrayList<String> errorCode = response.path("errors.errorCode");
-        Assert.assertEquals(errorCode.get(0), "INVY", "The error code does not match");
-        Assert.assertEquals(errorCode.get(1), "INVM", "The error code does not match");
+        PeselResponse response = getPesel("98130100017");
+        List<PeselError> errorCode = response.errorCodes();
+        Assert.assertEquals(errorCode.get(0), PeselError.INVY, "The error code does not match");
+        Assert.assertEquals(errorCode.get(1), PeselError.INVM, "The error code does not match");
     }
 
     /**
@@ -223,8 +219,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailMonth13Msg() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98130100017");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("98130100017");
+        List<String> errorMessage = response.errorMessages();
         Assert.assertEquals(errorMessage.get(0), "Invalid year.", "The error message does not match");
         Assert.assertEquals(errorMessage.get(1), "Invalid month.", "The error message does not match");
     }
@@ -237,9 +233,9 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailDay0(){
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98123323122");
-        ArrayList<String> errorCode = response.path("errors.errorCode");
-        Assert.assertEquals(errorCode.get(0), "INVD", "The error code does not match");
+        PeselResponse response = getPesel("98123323122");
+        List<PeselError> errorCode = response.errorCodes();
+        Assert.assertEquals(errorCode.get(0), PeselError.INVD, "The error code does not match");
         Assert.assertEquals(errorCode.size(),1,"there are more than one error on the error list");
     }
 
@@ -251,8 +247,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailDay0Msg() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98123323122");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("98123323122");
+        List<String> errorMessage = response.errorMessages();
         Assert.assertEquals(errorMessage.get(0), "Invalid day.", "The error message does not match");
         Assert.assertEquals(errorMessage.size(),1,"there are more than one error on the error list");
     }
@@ -265,9 +261,9 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailDay33() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98123323122");
-        ArrayList<String> errorCode = response.path("errors.errorCode");
-        Assert.assertEquals(errorCode.get(0), "INVD", "The error code does not match");
+        PeselResponse response = getPesel("98123323122");
+        List<PeselError> errorCode = response.errorCodes();
+        Assert.assertEquals(errorCode.get(0), PeselError.INVD, "The error code does not match");
         Assert.assertEquals(errorCode.size(),1,"there are more than one error on the error list");
     }
 
@@ -279,8 +275,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailDay33Msg() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=98123323122");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("98123323122");
+        List<String> errorMessage = response.errorMessages();
         Assert.assertEquals(errorMessage.get(0), "Invalid day.", "The error message does not match");
         Assert.assertEquals(errorMessage.size(),1,"there are more than one error on the error list");
 
@@ -295,10 +291,10 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailItIsNotLeapYear() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=17222900014");
-        ArrayList<String> errorCode = response.path("errors.errorCode");
+        PeselResponse response = getPesel("17222900014");
+        List<PeselError> errorCode = response.errorCodes();
 
-        Assert.assertEquals(errorCode.get(0), "INVD", "The error code does not match");
+        Assert.assertEquals(errorCode.get(0), PeselError.INVD, "The error code does not match");
     }
 
     /**
@@ -310,8 +306,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldFailItIsNotLeapYearMsg() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=17222900014");
-        ArrayList<String> errorMsg = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("17222900014");
+        List<String> errorMsg = response.errorMessages();
         Assert.assertEquals(errorMsg.get(0), "Invalid day.", "The error messages do not match");
         Assert.assertEquals(errorMsg.size(),1,"there are more than one error on the error list");
 
@@ -324,9 +320,9 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnINVC() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=80013131572");
-        ArrayList<String> errorCode = response.path("errors.errorCode");
-        Assert.assertEquals(errorCode.get(0), "INVC", "The error code does not match");
+        PeselResponse response = getPesel("80013131572");
+        List<PeselError> errorCode = response.errorCodes();
+        Assert.assertEquals(errorCode.get(0), PeselError.INVC, "The error code does not match");
         Assert.assertEquals(errorCode.size(),1,"there are more than one error on the error list");
 
     }
@@ -338,8 +334,8 @@ public class PeselValidatorErrorTests {
      */
     @Test
     public static void shouldReturnINVCMsg() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=80013131572");
-        ArrayList<String> errorMessage = response.path("errors.errorMessage");
+        PeselResponse response = getPesel("80013131572");
+        List<String> errorMessage = response.errorMessages();
         Assert.assertEquals(errorMessage.get(0), "Check sum is invalid. Check last digit.", "The error message does not match");
         Assert.assertEquals(errorMessage.size(),1,"there are more than one error on the error list");
 
@@ -1,11 +1,13 @@
-import io.restassured.response.Response;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.client.PeselResponse;
 
-import static io.restassured.RestAssured.get;
+import java.time.LocalDate;
 
-public class PeselValidatorResponseBodyTests {
+
+public class PeselValidatorResponseBodyTests extends PeselApiTestBase {
 
     /**
     Given correct pesel format, check if response 'pesel' field equals
@@ -13,10 +15,9 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldBeIdentical(){
-        String adress = "https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=97022153388";
-        String givenPesel =adress.split("=")[1];
-        Response response=get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=97022153388");
-        String pesel = response.path("pesel");
+        String givenPesel = "97022153388";
+        PeselResponse response=getPesel(givenPesel);
+        String pesel = response.pesel();
         Assert.assertEquals(pesel,givenPesel,"pesel in response body does not equals the one given in request");
     }
 
@@ -25,8 +26,8 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldBeTrue(){
-        Response response=get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=97022153388");
-        boolean isValid  = response.path("isValid");
+        PeselResponse response=getPesel("97022153388");
+        Boolean isValid = response.isValid();
         Assert.assertEquals(isValid, true, "Pesel format is not valid(should be)");
     }
 
@@ -35,42 +36,40 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldBeFalse(){
-        Response response=get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=9702215d3388");
-        boolean isValid  = response.path("isValid");
+        PeselResponse response=getPesel("9702215d3388");
+        Boolean isValid = response.isValid();
         Assert.assertEquals(isValid, false, "Pesel format is valid (should not be)");
     }
-    @DataProvider
+    @DataProvider(parallel = true)
     public static Object[][] maleOrFemalePesel(){
-        return new Object[][]{
-                {"97022137812","Male"},   //gender digit: 1
-                {"97022137836","Male"},   //gender digit: 3
-                {"97022137850","Male"},   //gender digit: 5
-                {"97022137874","Male"},   //gender digit: 7
-                {"97022137898","Male"},   //gender digit: 9
+        return prefetch(new Object[][]{
+                {"97022137812",Gender.MALE},   //gender digit: 1
+                {"97022137836",Gender.MALE},   //gender digit: 3
+                {"97022137850",Gender.MALE},   //gender digit: 5
+                {"97022137874",Gender.MALE},   //gender digit: 7
+                {"97022137898",Gender.MALE},   //gender digit: 9
 
-                {"97022153302","Female"}, //gender digit: 0
-                {"97022153326","Female"}, //gender digit: 2
-                {"97022153340","Female"}, //gender digit: 4
-                {"97022153364","Female"}, //gender digit: 6
-                {"97022153388","Female"}  //gender digit: 8
-        };
+                {"97022153302",Gender.FEMALE}, //gender digit: 0
+                {"97022153326",Gender.FEMALE}, //gender digit: 2
+                {"97022153340",Gender.FEMALE}, //gender digit: 4
+                {"97022153364",Gender.FEMALE}, //gender digit: 6
+                {"97022153388",Gender.FEMALE}  //gender digit: 8
+        }, row -> (String) row[0]);
     }
 
     /**
     Given the male or female pesel the response should be adequate
      */
     @Test(dataProvider = "maleOrFemalePesel")
-    public static void shouldRecognizeGender(String pesel, String expGender){
-        String url = "https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=%s";
-
-        Response response=get(String.format(url,pesel));
-        String actGender = response.path("gender");
+    public static void shouldRecognizeGender(String pesel, Gender expGender){
+        PeselResponse response=getPesel(pesel);
+        Gender actGender = response.gender();
         Assert.assertEquals(actGender, expGender, "Pesel gender is not valid in case of:"+pesel+" pesel");
     }
 
-    @DataProvider
+    @DataProvider(parallel = true)
     public static Object[][] correctDates(){
-        return new Object[][]{
+        return prefetch(new Object[][]{
                 //1998 is not a leap year
                 {"98013116872", "1998-01-31"},
                 {"98022889471", "1998-02-28"},
@@ -84,14 +83,13 @@ public class PeselValidatorResponseBodyTests {
                 {"98103136771", "1998-10-31"},
                 {"98113082639", "1998-11-30"},
                 {"98123159932", "1998-12-31"}
-        };
+        }, row -> (String) row[0]);
     }
     @Test(dataProvider = "correctDates")
     public static void shouldRecognizeBoundaryDays(String pesel,String expDate){
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel="+pesel);
-        String outputDate = response.path("dateOfBirth");
-        outputDate = outputDate.split("T")[0];
-        Assert.assertEquals(outputDate, expDate, "Displayed Date of Birth is not correct");
+        PeselResponse response = getPesel(pesel);
+        LocalDate outputDate = response.dateOfBirth();
+        Assert.assertEquals(outputDate, LocalDate.parse(expDate), "Displayed Date of Birth is not correct");
     }
 
     /**
@@ -105,11 +103,9 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldRecognizeSbdyBornIn1800() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=00813000019");
-        String outputDate = response.path("dateOfBirth");
-        outputDate = outputDate.split("T")[0];
-        System.out.println(outputDate);
-        String expectedDate = "1800-01-30";
+        PeselResponse response = getPesel("00813000019");
+        LocalDate outputDate = response.dateOfBirth();
+        LocalDate expectedDate = LocalDate.of(1800, 1, 30);
         Assert.assertEquals(outputDate, expectedDate, "Displayed Date of Birth is not correct");
     }
 
@@ -123,11 +119,9 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldRecognizeSbdyBornIn1900(){
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=00013020813");
-        String outputDate = response.path("dateOfBirth");
-        outputDate = outputDate.split("T")[0];
-        System.out.println(outputDate);
-        String expectedDate = "1900-01-30";
+        PeselResponse response = getPesel("00013020813");
+        LocalDate outputDate = response.dateOfBirth();
+        LocalDate expectedDate = LocalDate.of(1900, 1, 30);
         Assert.assertEquals(outputDate, expectedDate, "Displayed Date of Birth is not correct");
     }
     /**
@@ -140,11 +134,9 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldRecognizeSbdyBornIn2000(){
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=00213073091");
-        String outputDate = response.path("dateOfBirth");
-        outputDate = outputDate.split("T")[0];
-        System.out.println(outputDate);
-        String expectedDate = "2000-01-30";
+        PeselResponse response = getPesel("00213073091");
+        LocalDate outputDate = response.dateOfBirth();
+        LocalDate expectedDate = LocalDate.of(2000, 1, 30);
         Assert.assertEquals(outputDate, expectedDate, "Displayed Date of Birth is not correct");
     }
 
@@ -158,11 +150,9 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldRecognizeSbdyBornIn2100(){
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=00413000017");
-        String outputDate = response.path("dateOfBirth");
-        outputDate = outputDate.split("T")[0];
-        System.out.println(outputDate);
-        String expectedDate = "2100-01-30";
+        PeselResponse response = getPesel("00413000017");
+        LocalDate outputDate = response.dateOfBirth();
+        LocalDate expectedDate = LocalDate.of(2100, 1, 30);
         Assert.assertEquals(outputDate, expectedDate, "Displayed Date of Birth is not correct");
     }
 
@@ -176,11 +166,9 @@ public class PeselValidatorResponseBodyTests {
      */
     @Test
     public static void shouldRecognizeSbdyBornIn2200(){
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=00613000013");
-        String outputDate = response.path("dateOfBirth");
-        outputDate = outputDate.split("T")[0];
-        System.out.println(outputDate);
-        String expectedDate = "2200-01-30";
+        PeselResponse response = getPesel("00613000013");
+        LocalDate outputDate = response.dateOfBirth();
+        LocalDate expectedDate = LocalDate.of(2200, 1, 30);
         Assert.assertEquals(outputDate, expectedDate, "Displayed Date of Birth is not correct");
     }
 
@@ -195,11 +183,9 @@ public class PeselValidatorResponseBodyTests {
     @Test
     public static void shouldRecognizeSbdyBornIn2299(){
 
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=99613000017");
-        String outputDate = response.path("dateOfBirth");
-        outputDate = outputDate.split("T")[0];
-        System.out.println(outputDate);
-        String expectedDate = "2299-01-30";
+        PeselResponse response = getPesel("99613000017");
+        LocalDate outputDate = response.dateOfBirth();
+        LocalDate expectedDate = LocalDate.of(2299, 1, 30);
         Assert.assertEquals(outputDate, expectedDate, "Displayed Date of Birth is not correct");
     }
 }
\ No newline at end of file
@@ -1,11 +1,8 @@
-import io.restassured.response.Response;
-
-import static io.restassured.RestAssured.get;
-
 import org.testng.Assert;
 import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.client.PeselResponse;
 
-public class PeselValidatorResponseCodeTests {
+public class PeselValidatorResponseCodeTests extends PeselApiTestBase {
 
     /**
      * send REST GET request containing valid pesel format
@@ -13,9 +10,8 @@ public class PeselValidatorResponseCodeTests {
      */
     @Test
     public static void shouldReturn200() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=97022137850");
+        PeselResponse response = getPesel("97022137850");
         Assert.assertEquals(response.statusCode(), 200, "Status code does not equals 200");
-        System.out.println(response.asPrettyString().contains("Male"));
     }
 
     /**
@@ -24,7 +20,7 @@ public class PeselValidatorResponseCodeTests {
      */
     @Test
     public static void shouldAlsoReturn200() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel?pesel=97o22137850");
+        PeselResponse response = getPesel("97o22137850");
         Assert.assertEquals(response.statusCode(), 200, "Status code does not equals 200");
     }
 
@@ -34,7 +30,7 @@ public class PeselValidatorResponseCodeTests {
      */
     @Test
     public static void shouldReturn400() {
-        Response response = get("https://peselvalidatorapitest.azurewebsites.net/api/Pesel");
+        PeselResponse response = getWithoutPesel();
         Assert.assertEquals(response.statusCode(), 400, "Status code does not equals 400");
     }
 }
\ No newline at end of file
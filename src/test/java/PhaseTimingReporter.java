@@ -0,0 +1,247 @@
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.internal.TestResult;
+import pl.edu.agh.qa.pesel.client.RequestTiming;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Reports the phase timings of the API requests made by the tests.
+ *
+ * Writes to the TestNG output directory:
+ * 'phase-timings.csv' - one line per response read by a test method or DataProvider row,
+ * 'phase-timings.json' - the timings aggregated per test class.
+ * A response read from the response cache is reported with the timing of the request that produced it
+ * and cached=true; only the first read counts into the aggregates, and the phases of a batch request
+ * answering several reads only once.
+ */
+public class PhaseTimingReporter implements ITestListener {
+
+    private static final String ATTRIBUTE = PhaseTimingReporter.class.getName();
+    private static final String CSV_HEADER = "class,method,row,parameters,query,batch_size,cached,status,bytes,"
+            + "new_connection,dns_us,connect_us,tls_us,ttfb_us,body_us,total_us";
+
+    private final Queue<ITestResult> results = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Attributes the timing to the currently running test; does nothing outside of a test
+     * or when the timing is off.
+     */
+    static void record(RequestTiming timing, boolean cached) {
+        ITestResult test = Reporter.getCurrentTestResult();
+        if (timing == null || test == null) {
+            return;
+        }
+        synchronized (test) {
+            @SuppressWarnings("unchecked")
+            List<Read> reads = (List<Read>) test.getAttribute(ATTRIBUTE);
+            if (reads == null) {
+                reads = new ArrayList<>();
+                test.setAttribute(ATTRIBUTE, reads);
+            }
+            reads.add(new Read(timing, cached));
+        }
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onFinish(ITestContext context) {
+        Map<String, ClassTimings> byClass = new TreeMap<>();
+        List<String> lines = new ArrayList<>();
+        for (Iterator<ITestResult> it = results.iterator(); it.hasNext(); ) {
+            ITestResult result = it.next();
+            if (result.getTestContext() != context) {
+                continue;
+            }
+            it.remove();
+            String className = result.getMethod().getRealClass().getSimpleName();
+            ClassTimings timings = byClass.computeIfAbsent(className, key -> new ClassTimings());
+            timings.tests++;
+            for (Read read : reads(result)) {
+                lines.add(csvLine(className, result, read));
+                timings.add(read);
+            }
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        Path csv = Paths.get(context.getOutputDirectory(), "phase-timings.csv");
+        Path json = Paths.get(context.getOutputDirectory(), "phase-timings.json");
+        try {
+            Files.createDirectories(csv.getParent());
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(csv, StandardCharsets.UTF_8))) {
+                out.println(CSV_HEADER);
+                lines.forEach(out::println);
+            }
+            try (JsonGenerator out = new JsonFactory().createGenerator(json.toFile(), JsonEncoding.UTF8)) {
+                out.useDefaultPrettyPrinter();
+                out.writeStartObject();
+                for (Map.Entry<String, ClassTimings> entry : byClass.entrySet()) {
+                    if (entry.getValue().reads() == 0) {
+                        continue;
+                    }
+                    out.writeFieldName(entry.getKey());
+                    entry.getValue().write(out);
+                }
+                out.writeEndObject();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write " + csv + " / " + json + ": " + e);
+        }
+    }
+
+    /**
+     * @return total microseconds of each request the test made, reads of cached responses excluded
+     */
+    static long[] requestMicros(ITestResult result) {
+        return reads(result).stream().filter(read -> !read.cached).mapToLong(read -> read.timing.totalMicros()).toArray();
+    }
+
+    private static List<Read> reads(ITestResult result) {
+        synchronized (result) {
+            @SuppressWarnings("unchecked")
+            List<Read> reads = (List<Read>) result.getAttribute(ATTRIBUTE);
+            return reads == null ? Collections.emptyList() : new ArrayList<>(reads);
+        }
+    }
+
+    private static String csvLine(String className, ITestResult result, Read read) {
+        RequestTiming timing = read.timing;
+        int row = result instanceof TestResult ? ((TestResult) result).getParameterIndex() : -1;
+        String parameters = Arrays.stream(result.getParameters()).map(String::valueOf).collect(Collectors.joining(" "));
+        return String.join(",", className, result.getMethod().getMethodName(),
+                result.getParameters().length == 0 ? "" : String.valueOf(row), csv(parameters), csv(timing.query()),
+                String.valueOf(timing.batchSize()), String.valueOf(read.cached), String.valueOf(timing.status()),
+                String.valueOf(timing.bytes()),
+                String.valueOf(timing.newConnection()), String.valueOf(timing.dnsMicros()),
+                String.valueOf(timing.connectMicros()), String.valueOf(timing.tlsMicros()),
+                String.valueOf(timing.timeToFirstByteMicros()), String.valueOf(timing.bodyMicros()),
+                String.valueOf(timing.totalMicros()));
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static final class Read {
+
+        final RequestTiming timing;
+        final boolean cached;
+
+        Read(RequestTiming timing, boolean cached) {
+            this.timing = timing;
+            this.cached = cached;
+        }
+    }
+
+    private static final class ClassTimings {
+
+        // a batch request answers several reads, its phases are counted once
+        final Set<RequestTiming> requests = new HashSet<>();
+        int tests;
+        long responses;
+        long cachedReads;
+        long newConnections;
+        long bytes;
+        long dns;
+        long connect;
+        long tls;
+        long timeToFirstByte;
+        long body;
+        long total;
+        long maxTotal;
+
+        long reads() {
+            return responses + cachedReads;
+        }
+
+        void add(Read read) {
+            if (read.cached) {
+                cachedReads++;
+                return;
+            }
+            RequestTiming timing = read.timing;
+            responses++;
+            if (!requests.add(timing)) {
+                return;
+            }
+            newConnections += timing.newConnection() ? 1 : 0;
+            bytes += timing.bytes();
+            dns += timing.dnsMicros();
+            connect += timing.connectMicros();
+            tls += timing.tlsMicros();
+            timeToFirstByte += timing.timeToFirstByteMicros();
+            body += timing.bodyMicros();
+            total += timing.totalMicros();
+            maxTotal = Math.max(maxTotal, timing.totalMicros());
+        }
+
+        void write(JsonGenerator out) throws IOException {
+            out.writeStartObject();
+            out.writeNumberField("tests", tests);
+            out.writeNumberField("responses", responses);
+            out.writeNumberField("requests", requests.size());
+            out.writeNumberField("cachedReads", cachedReads);
+            out.writeNumberField("newConnections", newConnections);
+            out.writeNumberField("bytes", bytes);
+            out.writeObjectFieldStart("sumMicros");
+            writePhases(out, dns, connect, tls, timeToFirstByte, body, total);
+            out.writeEndObject();
+            out.writeObjectFieldStart("meanMicros");
+            long n = Math.max(1, requests.size());
+            writePhases(out, dns / n, connect / n, tls / n, timeToFirstByte / n, body / n, total / n);
+            out.writeEndObject();
+            out.writeNumberField("maxTotalMicros", maxTotal);
+            out.writeEndObject();
+        }
+
+        private static void writePhases(JsonGenerator out, long dns, long connect, long tls, long timeToFirstByte,
+                                        long body, long total) throws IOException {
+            out.writeNumberField("dns", dns);
+            out.writeNumberField("connect", connect);
+            out.writeNumberField("tls", tls);
+            out.writeNumberField("timeToFirstByte", timeToFirstByte);
+            out.writeNumberField("body", body);
+            out.writeNumberField("total", total);
+        }
+    }
+}
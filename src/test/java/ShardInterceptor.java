@@ -0,0 +1,31 @@
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import pl.edu.agh.qa.pesel.shard.Shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the test methods of the current {@link Shard}: all data-driven ones, whose DataProvider rows are
+ * dealt out by {@link PeselApiTestBase#prefetch}, and the single tests whose name hashes to the shard.
+ */
+public class ShardInterceptor implements IMethodInterceptor {
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        Shard shard = Shard.fromSystemProperties();
+        if (!shard.isPartial()) {
+            return methods;
+        }
+        List<IMethodInstance> kept = new ArrayList<>();
+        for (IMethodInstance instance : methods) {
+            ITestNGMethod method = instance.getMethod();
+            if (method.isDataDriven() || shard.owns(method.getRealClass().getSimpleName() + "." + method.getMethodName())) {
+                kept.add(instance);
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,96 @@
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import pl.edu.agh.qa.pesel.shard.Shard;
+import pl.edu.agh.qa.pesel.shard.ShardResults;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the {@link ShardResults} of a sharded run ('pesel.shard.count' above 1, or 'pesel.shard.dir' set)
+ * to 'pesel.shard.dir' (default target/shards) when the suite ends: every test method and DataProvider row
+ * with its status, duration and the latency of the requests it made.
+ */
+public class ShardReporter implements ITestListener, ISuiteListener {
+
+    // filled from the parallel DataProvider threads
+    private final Queue<ITestResult> results = new ConcurrentLinkedQueue<>();
+    private long startMillis;
+
+    @Override
+    public void onStart(ISuite suite) {
+        startMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        results.add(result);
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        Shard shard = Shard.fromSystemProperties();
+        if (!shard.isPartial() && System.getProperty(Shard.DIR_PROPERTY) == null) {
+            return;
+        }
+        List<ITestResult> finished = new ArrayList<>(results);
+        results.clear();
+        finished.sort(Comparator.comparingLong(ITestResult::getStartMillis));
+        List<ShardResults.Test> tests = new ArrayList<>(finished.size());
+        for (ITestResult result : finished) {
+            tests.add(new ShardResults.Test(result.getMethod().getRealClass().getSimpleName(),
+                    result.getMethod().getMethodName(), status(result), result.getStartMillis(),
+                    result.getEndMillis() - result.getStartMillis(), PhaseTimingReporter.requestMicros(result),
+                    result.getStatus() == ITestResult.FAILURE && result.getThrowable() != null
+                            ? result.getThrowable().toString() : null,
+                    Arrays.stream(result.getParameters()).map(String::valueOf).collect(Collectors.toList())));
+        }
+        Path directory = Paths.get(System.getProperty(Shard.DIR_PROPERTY, "target/shards"));
+        try {
+            Path file = new ShardResults(shard, host(), startMillis, System.currentTimeMillis(), tests).write(directory);
+            System.out.println("PESEL API " + shard + ": " + tests.size() + " tests written to " + file);
+        } catch (IOException e) {
+            System.err.println("Could not write the results of " + shard + " to " + directory + ": " + e);
+        }
+    }
+
+    private static String status(ITestResult result) {
+        switch (result.getStatus()) {
+            case ITestResult.SUCCESS:
+                return ShardResults.PASS;
+            case ITestResult.FAILURE:
+                return ShardResults.FAIL;
+            default:
+                return ShardResults.SKIP;
+        }
+    }
+
+    private static String host() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pl.edu.agh.qa.pesel;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.fuzz.FuzzInputs;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class PeselBatchValidatorTest {
+
+    @DataProvider
+    public static Object[][] validators() {
+        return new Object[][]{{PeselBatchValidator.create()}, {PeselBatchValidator.scalar()}};
+    }
+
+    /**
+     * The build runs the tests with jdk.incubator.vector on JDK 17+.
+     */
+    @Test
+    public void shouldPickVectorImplementationWhenModuleIsPresent() {
+        boolean vector = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        Assert.assertEquals(PeselBatchValidator.create().name().startsWith("vector"), vector,
+                PeselBatchValidator.create().name());
+    }
+
+    /**
+     * Bit-for-bit the results of PeselValidator, for text and UTF-8 input, on fuzzer inputs (lengths, Unicode,
+     * near-valid PESELs), random digits, malformed UTF-8 and batches of every size up to a few vectors.
+     */
+    @Test(dataProvider = "validators")
+    public void shouldMatchSingleValidation(PeselBatchValidator validator) {
+        List<byte[]> inputs = new ArrayList<>();
+        FuzzInputs fuzz = new FuzzInputs(17);
+        for (long index = 0; index < 50_000; index++) {
+            inputs.add(fuzz.input(index).getBytes(StandardCharsets.UTF_8));
+        }
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 50_000; i++) {
+            byte[] digits = new byte[PeselValidator.LENGTH];
+            for (int j = 0; j < digits.length; j++) {
+                digits[j] = (byte) ('0' + random.nextInt(10));
+            }
+            inputs.add(digits);
+        }
+        inputs.add(new byte[]{(byte) 0xC3, '1', '2', '3', '4', '5', '6', '7', '8', '9', '0'});
+        inputs.add(new byte[]{(byte) 0x80, '1', '2', '3', '4', '5', '6', '7', '8', '9', '0'});
+        inputs.add(new byte[]{'9', '9', '9', '9', '9', '9', '9', '9', '9', '9', (byte) 0xFF});
+
+        for (int capacity : new int[]{1, 7, 16, 33, 1024}) {
+            PeselBatch text = new PeselBatch(capacity);
+            PeselBatch bytes = new PeselBatch(capacity);
+            PeselBatch buffer = new PeselBatch(capacity);
+            ByteBuffer direct = ByteBuffer.allocateDirect(64);
+            for (int start = 0; start < inputs.size(); start += capacity) {
+                int end = Math.min(inputs.size(), start + capacity);
+                text.clear();
+                bytes.clear();
+                buffer.clear();
+                for (int i = start; i < end; i++) {
+                    byte[] input = inputs.get(i);
+                    text.add(new String(input, StandardCharsets.UTF_8));
+                    bytes.add(input, 0, input.length);
+                    if (input.length <= direct.capacity()) {
+                        direct.clear();
+                        direct.put(input);
+                        buffer.add(direct, 0, input.length);
+                    } else {
+                        buffer.add(input, 0, input.length);
+                    }
+                }
+                validator.validate(text);
+                validator.validate(bytes);
+                validator.validate(buffer);
+                for (int i = start; i < end; i++) {
+                    byte[] input = inputs.get(i);
+                    String description = validator.name() + ", capacity " + capacity + ", input #" + i + " "
+                            + new String(input, StandardCharsets.UTF_8);
+                    Assert.assertEquals(text.result(i - start),
+                            PeselValidator.validate(new String(input, StandardCharsets.UTF_8)), description);
+                    Assert.assertEquals(bytes.result(i - start), PeselValidator.validate(input), description);
+                    Assert.assertEquals(buffer.result(i - start), PeselValidator.validate(input), description);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldRejectAddToFullBatch() {
+        PeselBatch batch = new PeselBatch(1);
+        batch.add("44051401458");
+        Assert.assertTrue(batch.isFull());
+        Assert.assertThrows(IllegalStateException.class, () -> batch.add("44051401458"));
+        batch.clear();
+        Assert.assertEquals(batch.add("123"), 0);
+    }
+}
@@ -0,0 +1,54 @@
+package pl.edu.agh.qa.pesel;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+public class PeselDatesTest {
+
+    /**
+     * All 10^6 YYMMDD prefixes against java.time: validity, epoch day, century and errors.
+     */
+    @Test
+    public void shouldAgreeWithLocalDateOnEveryPrefix() {
+        int[] centuries = {1900, 2000, 2100, 2200, 1800};
+        int valid = 0;
+        for (int yymmdd = 0; yymmdd < PeselDates.PREFIXES; yymmdd++) {
+            int year = yymmdd / 10000;
+            int month = yymmdd / 100 % 100;
+            int day = yymmdd % 100;
+            int packed = PeselDates.lookup(yymmdd);
+            int monthOfYear = month % 20;
+            if (monthOfYear < 1 || monthOfYear > 12) {
+                Assert.assertFalse(PeselDates.isValid(yymmdd), "Valid " + yymmdd);
+                Assert.assertEquals(PeselDates.errors(packed), PeselError.INVY.mask() | PeselError.INVM.mask(),
+                        "Errors of " + yymmdd);
+                Assert.assertEquals(PeselDates.century(packed), 0, "Century of " + yymmdd);
+                Assert.assertEquals(PeselDates.epochDay(packed), 0, "Epoch day of " + yymmdd);
+                continue;
+            }
+            int century = centuries[month / 20];
+            Assert.assertEquals(PeselDates.century(packed), century, "Century of " + yymmdd);
+            LocalDate expected;
+            try {
+                expected = LocalDate.of(century + year, monthOfYear, day);
+            } catch (DateTimeException e) {
+                expected = null;
+            }
+            if (expected == null) {
+                Assert.assertFalse(PeselDates.isValid(yymmdd), "Valid " + yymmdd);
+                Assert.assertEquals(PeselDates.errors(packed), PeselError.INVD.mask(), "Errors of " + yymmdd);
+                Assert.assertEquals(PeselDates.epochDay(packed), 0, "Epoch day of " + yymmdd);
+            } else {
+                valid++;
+                Assert.assertTrue(PeselDates.isValid(yymmdd), "Invalid " + yymmdd);
+                Assert.assertEquals(PeselDates.errors(packed), 0, "Errors of " + yymmdd);
+                Assert.assertEquals(PeselDates.epochDay(packed), expected.toEpochDay(), "Epoch day of " + yymmdd);
+            }
+        }
+        // every day from 1800-01-01 to 2299-12-31
+        Assert.assertEquals(valid, LocalDate.of(2300, 1, 1).toEpochDay() - LocalDate.of(1800, 1, 1).toEpochDay());
+    }
+}
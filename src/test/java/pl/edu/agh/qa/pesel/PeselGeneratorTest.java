@@ -0,0 +1,116 @@
+package pl.edu.agh.qa.pesel;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+public class PeselGeneratorTest {
+
+    /**
+     * Hand-made PESELs of the API suites.
+     */
+    @Test
+    public void shouldGenerateSuitePesels() {
+        Assert.assertEquals(generator("2200-01-30", Gender.MALE, 1, null).get(0), "00613000013");
+        Assert.assertEquals(generator("2299-01-30", Gender.MALE, 1, null).get(0), "99613000017");
+        Assert.assertEquals(generator("1800-01-30", Gender.MALE, 1, null).get(0), "00813000019");
+        Assert.assertEquals(generator("1998-01-31", Gender.MALE, 1687, null).get(0), "98013116872");
+        Assert.assertEquals(generator("1998-12-31", Gender.MALE, 5993, null).get(0), "98123159932");
+    }
+
+    @Test
+    public void shouldGenerateEveryValidPeselOfTheRange() {
+        LocalDate from = LocalDate.of(1899, 12, 30);
+        LocalDate to = LocalDate.of(1900, 3, 2);
+        PeselGenerator generator = new PeselGenerator(from, to, Gender.FEMALE, 10, 29, null);
+        Assert.assertEquals(generator.size(), 63 * 10);
+
+        List<String> pesels = generator.stream()
+                .map(digits -> new String(digits, StandardCharsets.US_ASCII))
+                .collect(Collectors.toList());
+        Assert.assertEquals(pesels.size(), 630);
+        Assert.assertEquals(new HashSet<>(pesels).size(), 630);
+        Assert.assertEquals(pesels.get(0), PeselEncoder.encode(1899, 12, 30, 10));
+        Assert.assertEquals(pesels.get(9), PeselEncoder.encode(1899, 12, 30, 28));
+        Assert.assertEquals(pesels.get(629), PeselEncoder.encode(1900, 3, 2, 28));
+        LocalDate previous = from;
+        for (String pesel : pesels) {
+            long result = PeselValidator.validate(pesel);
+            Assert.assertTrue(PeselValidator.isValid(result), pesel);
+            Assert.assertFalse(PeselValidator.isMale(result), pesel);
+            LocalDate date = PeselValidator.dateOfBirth(result);
+            Assert.assertFalse(date.isBefore(previous) || date.isAfter(to), pesel);
+            previous = date;
+        }
+    }
+
+    @DataProvider
+    public static Object[][] variants() {
+        return new Object[][]{
+                {PeselError.INVC, PeselError.INVC.mask(), 366 * 20},
+                {PeselError.INVD, PeselError.INVD.mask(), 2 * 13 * 20},
+                {PeselError.INVM, PeselError.INVY.mask() | PeselError.INVM.mask(), 2 * 40 * 20},
+                {PeselError.INVY, PeselError.INVY.mask() | PeselError.INVM.mask(), 2 * 40 * 20}
+        };
+    }
+
+    @Test(dataProvider = "variants")
+    public void shouldGenerateInvalidVariants(PeselError variant, int errors, int size) {
+        PeselGenerator generator = new PeselGenerator(LocalDate.of(2099, 12, 31), LocalDate.of(2100, 12, 31), null,
+                0, 19, variant);
+        Assert.assertEquals(generator.size(), size);
+        Set<Long> seen = new HashSet<>();
+        generator.numbers().forEach(number -> {
+            String pesel = String.format("%011d", number);
+            Assert.assertEquals(PeselValidator.errors(PeselValidator.validate(pesel)), errors, pesel);
+            Assert.assertTrue(seen.add(number), pesel);
+        });
+    }
+
+    @Test
+    public void shouldSplitEvenlyAndMatchSequentialOrder() {
+        PeselGenerator generator = new PeselGenerator(LocalDate.of(1800, 1, 1), LocalDate.of(1800, 12, 31));
+        Spliterator<byte[]> spliterator = generator.spliterator();
+        Spliterator<byte[]> prefix = spliterator.trySplit();
+        Assert.assertEquals(prefix.estimateSize(), generator.size() / 2);
+        Assert.assertEquals(spliterator.estimateSize(), generator.size() - generator.size() / 2);
+
+        long expected = generator.numbers().sum();
+        Assert.assertEquals(generator.numbers().parallel().sum(), expected);
+        Assert.assertEquals(generator.numbers().parallel().skip(1234567).findFirst().getAsLong(),
+                Long.parseLong(generator.get(1234567)));
+
+        byte[][] seen = new byte[2][];
+        generator.spliterator().tryAdvance(digits -> seen[0] = digits);
+        Spliterator<byte[]> reused = generator.spliterator();
+        reused.tryAdvance(digits -> seen[0] = digits);
+        reused.tryAdvance(digits -> seen[1] = digits);
+        Assert.assertSame(seen[1], seen[0]);
+        Assert.assertEquals(new String(seen[1], StandardCharsets.US_ASCII), generator.get(1));
+    }
+
+    @Test
+    public void shouldRejectImpossibleRanges() {
+        LocalDate day = LocalDate.of(2000, 1, 1);
+        Assert.expectThrows(IllegalArgumentException.class, () -> new PeselGenerator(LocalDate.of(1799, 12, 31), day));
+        Assert.expectThrows(IllegalArgumentException.class, () -> new PeselGenerator(day, day.minusDays(1)));
+        Assert.expectThrows(IllegalArgumentException.class, () -> new PeselGenerator(day, day, null, 5, 10000, null));
+        Assert.expectThrows(IllegalArgumentException.class, () -> new PeselGenerator(day, day, Gender.MALE, 4, 4, null));
+        Assert.expectThrows(IllegalArgumentException.class,
+                () -> new PeselGenerator(day, day, null, 0, 9999, PeselError.NBRQ));
+        Assert.expectThrows(IndexOutOfBoundsException.class, () -> new PeselGenerator(day, day).get(10000));
+    }
+
+    private static PeselGenerator generator(String date, Gender gender, int serial, PeselError variant) {
+        LocalDate day = LocalDate.parse(date);
+        return new PeselGenerator(day, day, gender, serial, serial, variant);
+    }
+}
@@ -0,0 +1,119 @@
+package pl.edu.agh.qa.pesel;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static pl.edu.agh.qa.pesel.PeselError.INVC;
+import static pl.edu.agh.qa.pesel.PeselError.INVD;
+import static pl.edu.agh.qa.pesel.PeselError.INVL;
+import static pl.edu.agh.qa.pesel.PeselError.INVM;
+import static pl.edu.agh.qa.pesel.PeselError.INVY;
+import static pl.edu.agh.qa.pesel.PeselError.NBRQ;
+
+public class PeselValidatorTest {
+
+    /**
+     * Inputs of the API suites with the errors the API returns for them.
+     */
+    @DataProvider
+    public static Object[][] apiCases() {
+        return new Object[][]{
+                {"123", mask(INVL)},
+                {"123123123123", mask(INVL)},
+                {"jedenaściel", mask(NBRQ)},
+                {"1231231231ł", mask(NBRQ)},
+                {"1231231231#", mask(NBRQ)},
+                {"9702215d3388", mask(INVL)},
+                {"97o22137850", mask(NBRQ)},
+                {"98000100011", mask(INVY, INVM)},
+                {"98130100017", mask(INVY, INVM)},
+                {"98123323122", mask(INVD)},
+                {"17222900014", mask(INVD)},
+                {"80013131572", mask(INVC)},
+                {"97022153388", 0},
+                {"00813000019", 0},
+                {"99613000017", 0}
+        };
+    }
+
+    @Test(dataProvider = "apiCases")
+    public void shouldReturnApiErrors(String pesel, int expectedErrors) {
+        long result = PeselValidator.validate(pesel);
+        Assert.assertEquals(PeselValidator.errors(result), expectedErrors, "Errors do not match for " + pesel);
+        Assert.assertEquals(PeselValidator.isValid(result), expectedErrors == 0);
+    }
+
+    @Test(dataProvider = "apiCases")
+    public void shouldValidateUtf8BytesLikeText(String pesel, int expectedErrors) {
+        byte[] padded = ("xx" + pesel + "yy").getBytes(StandardCharsets.UTF_8);
+        int length = pesel.getBytes(StandardCharsets.UTF_8).length;
+        Assert.assertEquals(PeselValidator.validate(padded, 2, length), PeselValidator.validate(pesel),
+                "byte[] and CharSequence results differ for " + pesel);
+    }
+
+    @Test(dataProvider = "apiCases")
+    public void shouldValidateByteBufferLikeText(String pesel, int expectedErrors) {
+        ByteBuffer padded = ByteBuffer.allocateDirect(64);
+        padded.put(("xx" + pesel + "yy").getBytes(StandardCharsets.UTF_8)).position(1);
+        int length = pesel.getBytes(StandardCharsets.UTF_8).length;
+        Assert.assertEquals(PeselValidator.validate(padded, 2, length), PeselValidator.validate(pesel),
+                "ByteBuffer and CharSequence results differ for " + pesel);
+        Assert.assertEquals(padded.position(), 1);
+    }
+
+    @Test
+    public void shouldDecodeGenderAndDateOfBirth() {
+        long male = PeselValidator.validate("97022137812");
+        Assert.assertTrue(PeselValidator.isMale(male));
+        Assert.assertEquals(PeselValidator.dateOfBirth(male), LocalDate.of(1997, 2, 21));
+
+        long female = PeselValidator.validate("97022153388");
+        Assert.assertFalse(PeselValidator.isMale(female));
+        Assert.assertEquals(PeselValidator.dateOfBirth(female), LocalDate.of(1997, 2, 21));
+
+        long bornIn2200 = PeselValidator.validate("00613000013");
+        Assert.assertEquals(PeselValidator.dateOfBirth(bornIn2200), LocalDate.of(2200, 1, 30));
+
+        long invalidDay = PeselValidator.validate("98123323122");
+        Assert.assertTrue(PeselValidator.hasGender(invalidDay));
+        Assert.assertFalse(PeselValidator.hasDateOfBirth(invalidDay));
+        Assert.assertNull(PeselValidator.dateOfBirth(invalidDay));
+    }
+
+    /**
+     * Every day of every month 0-99, day 0-39 of every two-digit year, against java.time.
+     */
+    @Test
+    public void shouldAgreeWithLocalDateOnEveryEncodedDate() {
+        int[] centuries = {1900, 2000, 2100, 2200, 1800};
+        for (int year = 0; year < 100; year++) {
+            for (int month = 0; month < 100; month++) {
+                for (int day = 0; day < 40; day++) {
+                    long result = PeselValidator.decode(year * 10000 + month * 100 + day, 0, true);
+                    LocalDate expected = null;
+                    if (month % 20 >= 1 && month % 20 <= 12) {
+                        int fullYear = centuries[month / 20] + year;
+                        if (day >= 1 && day <= LocalDate.of(fullYear, month % 20, 1).lengthOfMonth()) {
+                            expected = LocalDate.of(fullYear, month % 20, day);
+                        }
+                    }
+                    Assert.assertEquals(PeselValidator.dateOfBirth(result), expected,
+                            "Wrong date for year " + year + ", month " + month + ", day " + day);
+                }
+            }
+        }
+    }
+
+    private static int mask(PeselError... errors) {
+        int mask = 0;
+        for (PeselError error : errors) {
+            mask |= error.mask();
+        }
+        return mask;
+    }
+}
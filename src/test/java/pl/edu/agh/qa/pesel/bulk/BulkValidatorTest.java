@@ -0,0 +1,155 @@
+package pl.edu.agh.qa.pesel.bulk;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.fuzz.FuzzInputs;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+public class BulkValidatorTest {
+
+    private Path file;
+    private String content;
+    private ForkJoinPool pool;
+
+    /**
+     * Fuzzer inputs without line ends, some of them blank or ending in '\r'.
+     */
+    @BeforeClass
+    public void writeFile() throws IOException {
+        FuzzInputs inputs = new FuzzInputs(5);
+        StringBuilder lines = new StringBuilder();
+        for (long index = 0; index < 5000; index++) {
+            String input = inputs.input(index).replace("\n", "").replace("\r", "");
+            lines.append(input).append(index % 7 == 0 ? "\r\n" : "\n");
+            if (index % 1000 == 0) {
+                lines.append('\n');
+            }
+        }
+        lines.append("44051401458");
+        content = lines.toString();
+        file = Files.createTempFile("pesels", ".txt");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void deleteFile() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Chunks of any size, down to a byte, give the counts and rejected offsets of validating line by line.
+     */
+    @Test
+    public void shouldCountLikeLineByLineValidation() throws IOException {
+        BulkCounts expected = new BulkCounts();
+        StringBuilder expectedRejected = new StringBuilder();
+        long offset = 0;
+        for (String line : content.split("\n", -1)) {
+            String pesel = line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+            if (pesel.isEmpty()) {
+                expected.countBlank();
+            } else {
+                long result = PeselValidator.validate(pesel);
+                expected.count(result);
+                if (!PeselValidator.isValid(result)) {
+                    expectedRejected.append(offset).append('\t').append(codes(result)).append('\n');
+                }
+            }
+            offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+
+        for (long chunkSize : new long[]{1, 13, 4096, 1 << 20}) {
+            StringWriter rejected = new StringWriter();
+            BulkCounts counts = new BulkValidator(file, pool, chunkSize).run(rejected, 0, 1);
+            Assert.assertEquals(counts.lines(), expected.lines(), "Lines with chunks of " + chunkSize);
+            Assert.assertEquals(counts.valid(), expected.valid(), "Valid lines with chunks of " + chunkSize);
+            Assert.assertEquals(counts.blank(), expected.blank(), "Blank lines with chunks of " + chunkSize);
+            for (PeselError error : PeselError.values()) {
+                Assert.assertEquals(counts.errors(error), expected.errors(error), error + " with chunks of " + chunkSize);
+            }
+            Assert.assertEquals(counts.bytes(), Files.size(file));
+            Assert.assertEquals(rejected.toString(), expectedRejected.toString(), "Rejected with chunks of " + chunkSize);
+        }
+    }
+
+    @Test
+    public void shouldDrawSameSampleForSameSeed() throws IOException {
+        BulkValidator first = new BulkValidator(file, pool, 1000);
+        first.run(null, 100, 3);
+        ForkJoinPool single = new ForkJoinPool(1);
+        BulkValidator second = new BulkValidator(file, single, 1000);
+        second.run(null, 100, 3);
+        single.shutdown();
+
+        Assert.assertEquals(first.samples().size(), 100);
+        for (int i = 0; i < 100; i++) {
+            BulkValidator.Line line = first.samples().get(i);
+            Assert.assertTrue(content.startsWith(line.text(), utf16Index(line.offset())),
+                    "Sampled line does not start at offset " + line.offset());
+            Assert.assertEquals(second.samples().get(i).offset(), line.offset(), "Sample differs with one thread");
+        }
+        Assert.assertNotEquals(first.samples().get(0).offset(), first.samples().get(99).offset());
+    }
+
+    @Test
+    public void shouldAgreeWithStandIn() throws Exception {
+        PeselValidatorStub stub = PeselValidatorStub.start(0);
+        ExecutorService executor = VirtualThreads.newExecutor("bulk-test");
+        try {
+            BulkValidator validator = new BulkValidator(file, pool, 4096);
+            validator.run(null, 200, 11);
+            PeselHttpClient client = new PeselHttpClient(stub.baseUri(), Duration.ofSeconds(5), executor);
+            Assert.assertEquals(validator.crossCheck(client, 16), Collections.emptyList());
+        } finally {
+            executor.shutdownNow();
+            stub.stop();
+        }
+    }
+
+    @Test
+    public void shouldFindLineEnds() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int firstEnd = content.indexOf('\n') + 1;
+            Assert.assertEquals(BulkValidator.lineEnd(channel, 1, size), firstEnd);
+            Assert.assertEquals(BulkValidator.lineEnd(channel, firstEnd, size), firstEnd);
+            Assert.assertEquals(BulkValidator.lineEnd(channel, size - 3, size), size);
+            Assert.assertEquals(BulkValidator.lineEnd(channel, size + 5, size), size);
+        }
+    }
+
+    private int utf16Index(long byteOffset) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new String(bytes, 0, (int) byteOffset, StandardCharsets.UTF_8).length();
+    }
+
+    private static String codes(long result) {
+        StringBuilder codes = new StringBuilder();
+        for (PeselError error : PeselError.values()) {
+            if (PeselValidator.hasError(result, error)) {
+                codes.append(codes.length() > 0 ? " " : "").append(error.code());
+            }
+        }
+        return codes.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package pl.edu.agh.qa.pesel.cases;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.PeselError;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PeselCaseReaderTest {
+
+    @Test
+    public void shouldReadCsv() {
+        PeselCaseReader reader = new PeselCaseReader(new StringReader(String.join("\n",
+                "# comment",
+                "dateOfBirth,gender,pesel,errors,status",
+                "1944-05-14,Male,44051401458,,",
+                "",
+                ",,\"12,3\",INVL|NBRQ,200",
+                ",,,,400",
+                ",,\"\",,400",
+                ",,\"a\"\"b\",NBRQ,")), "t.csv", PeselCaseReader.Format.CSV);
+
+        PeselCase valid = reader.next();
+        Assert.assertEquals(valid.source(), "t.csv:3");
+        Assert.assertEquals(valid.pesel(), "44051401458");
+        Assert.assertEquals(valid.status(), 200);
+        Assert.assertTrue(valid.isValid());
+        Assert.assertEquals(valid.gender(), Gender.MALE);
+        Assert.assertEquals(valid.dateOfBirth(), LocalDate.of(1944, 5, 14));
+
+        PeselCase quoted = reader.next();
+        Assert.assertEquals(quoted.source(), "t.csv:5");
+        Assert.assertEquals(quoted.pesel(), "12,3");
+        Assert.assertEquals(quoted.errors(), Arrays.asList(PeselError.INVL, PeselError.NBRQ));
+        Assert.assertEquals(quoted.messages(), Arrays.asList(PeselError.INVL.message(), PeselError.NBRQ.message()));
+        Assert.assertFalse(quoted.isValid());
+        Assert.assertNull(quoted.gender());
+
+        PeselCase withoutParameter = reader.next();
+        Assert.assertNull(withoutParameter.pesel());
+        Assert.assertEquals(withoutParameter.status(), 400);
+        Assert.assertEquals(reader.next().pesel(), "");
+        Assert.assertEquals(reader.next().pesel(), "a\"b");
+        Assert.assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void shouldReadJsonLines() {
+        PeselCaseReader reader = new PeselCaseReader(new StringReader(String.join("\n",
+                "{\"pesel\":\"44051401458\",\"status\":200,\"errors\":[],\"gender\":\"Male\",\"dateOfBirth\":\"1944-05-14\"}",
+                "{\"pesel\":\"44051401459\",\"errors\":[\"INVC\"],\"messages\":[\"Other message\"]}",
+                "{\"status\":400}")), "t.jsonl", PeselCaseReader.Format.JSONL);
+
+        PeselCase valid = reader.next();
+        Assert.assertTrue(valid.isValid());
+        Assert.assertEquals(valid.gender(), Gender.MALE);
+        PeselCase invalid = reader.next();
+        Assert.assertEquals(invalid.status(), 200);
+        Assert.assertEquals(invalid.errors(), Collections.singletonList(PeselError.INVC));
+        Assert.assertEquals(invalid.messages(), Collections.singletonList("Other message"));
+        Assert.assertNull(reader.next().pesel());
+        Assert.assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void shouldNameLineOfMalformedCase() {
+        List<String> malformed = Arrays.asList(
+                "pesel,errors\n1,XXXX",
+                "pesel,status\n1,OK",
+                "pesel,errors,messages\n1,INVL,a|b",
+                "pesel,gender\n1,Other",
+                "pesel,dateOfBirth\n1,1999-02-30",
+                "pesel\n\"1",
+                "status\n200");
+        for (String csv : malformed) {
+            PeselCaseReader reader = new PeselCaseReader(new StringReader(csv), "t.csv", PeselCaseReader.Format.CSV);
+            IllegalArgumentException e = Assert.expectThrows(IllegalArgumentException.class, reader::next);
+            Assert.assertTrue(e.getMessage().startsWith("t.csv:"), e.getMessage());
+        }
+        PeselCaseReader json = new PeselCaseReader(new StringReader("{\"pesel\":[1]}"), "t.jsonl",
+                PeselCaseReader.Format.JSONL);
+        Assert.assertEquals(Assert.expectThrows(IllegalArgumentException.class, json::next).getMessage(),
+                "t.jsonl:1: 'pesel' must not be an array");
+    }
+
+    /**
+     * The first case of a table of millions is returned after reading only its first lines.
+     */
+    @Test
+    public void shouldReadLazily() {
+        CountingReader input = new CountingReader(10_000_000);
+        PeselCaseReader reader = new PeselCaseReader(input, "generated.csv", PeselCaseReader.Format.CSV);
+
+        Assert.assertEquals(reader.next().pesel(), "44051401458");
+        Assert.assertTrue(input.read < 64 * 1024, "Read " + input.read + " characters");
+        for (int i = 1; i < 100_000; i++) {
+            reader.next();
+        }
+        Assert.assertTrue(input.read < 4_000_000, "Read " + input.read + " characters");
+    }
+
+    /**
+     * Generates a header and {@code lines} cases without holding them.
+     */
+    private static final class CountingReader extends Reader {
+
+        private static final String HEADER = "pesel,status,gender,dateOfBirth\n";
+        private static final String LINE = "44051401458,200,Male,1944-05-14\n";
+
+        private final long size;
+        long read;
+
+        CountingReader(long lines) {
+            this.size = HEADER.length() + lines * LINE.length();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (read == size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - read);
+            for (int i = 0; i < count; i++) {
+                long position = read + i;
+                buffer[offset + i] = position < HEADER.length()
+                        ? HEADER.charAt((int) position)
+                        : LINE.charAt((int) ((position - HEADER.length()) % LINE.length()));
+            }
+            read += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package pl.edu.agh.qa.pesel.cassette;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+public class CassetteTest {
+
+    private Path directory;
+    private Path path;
+
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("cassette");
+        path = directory.resolve("pesel.cassette");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteDirectory() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void shouldReplayRecordedResponses() throws IOException {
+        try (CassetteRecorder recorder = CassetteRecorder.open(path, "")) {
+            for (int i = 0; i < 1000; i++) {
+                recorder.record("GET /api/Pesel?pesel=" + i, 200, body(i));
+            }
+            recorder.record("GET /api/Pesel", 400, new byte[0]);
+            Assert.assertEquals(recorder.recordCount(), 1001);
+        }
+
+        try (Cassette cassette = Cassette.open(path)) {
+            Assert.assertEquals(cassette.size(), 1001);
+            Assert.assertEquals(cassette.baseUri(), "");
+            for (int i = 0; i < 1000; i++) {
+                Cassette.Entry entry = cassette.replay("GET /api/Pesel?pesel=" + i, null);
+                Assert.assertEquals(entry.status(), 200);
+                Assert.assertEquals(entry.body(), body(i));
+            }
+            Assert.assertEquals(cassette.replay("GET /api/Pesel", null).status(), 400);
+            Assert.assertNull(cassette.find("GET /api/Pesel?pesel=1000"));
+        }
+    }
+
+    /**
+     * Recording to an existing cassette appends; the later recording of a request wins.
+     */
+    @Test
+    public void shouldReplayLastRecording() throws IOException {
+        try (CassetteRecorder recorder = CassetteRecorder.open(path, "https://example.org")) {
+            recorder.record("GET /api/Pesel?pesel=ł", 200, body(1));
+        }
+        try (CassetteRecorder recorder = CassetteRecorder.open(path, "https://example.org")) {
+            recorder.record("GET /api/Pesel?pesel=ł", 500, body(2));
+        }
+
+        try (Cassette cassette = Cassette.open(path)) {
+            Assert.assertEquals(cassette.size(), 1);
+            Cassette.Entry entry = cassette.find("GET /api/Pesel?pesel=ł");
+            Assert.assertEquals(entry.status(), 500);
+            Assert.assertEquals(entry.body(), body(2));
+        }
+    }
+
+    @Test
+    public void shouldReportMissingRecording() throws IOException {
+        try (CassetteRecorder recorder = CassetteRecorder.open(path, "")) {
+            recorder.record("GET /api/Pesel?pesel=1", 200, body(1));
+        }
+
+        try (Cassette cassette = Cassette.open(path)) {
+            CassetteMissException miss = Assert.expectThrows(CassetteMissException.class,
+                    () -> cassette.replay("GET /api/Pesel?pesel=2", null));
+            Assert.assertEquals(miss.key(), "GET /api/Pesel?pesel=2");
+            Assert.assertTrue(miss.getMessage().contains("was not recorded"), miss.getMessage());
+            Assert.assertTrue(cassette.stats().contains("misses: 1"), cassette.stats());
+        }
+    }
+
+    @Test
+    public void shouldReportStaleRecording() throws Exception {
+        try (CassetteRecorder recorder = CassetteRecorder.open(path, "")) {
+            recorder.record("GET /api/Pesel?pesel=1", 200, body(1));
+        }
+        Thread.sleep(20);
+
+        try (Cassette cassette = Cassette.open(path)) {
+            Assert.assertEquals(cassette.replay("GET /api/Pesel?pesel=1", Duration.ofDays(1)).status(), 200);
+            CassetteMissException stale = Assert.expectThrows(CassetteMissException.class,
+                    () -> cassette.replay("GET /api/Pesel?pesel=1", Duration.ofMillis(10)));
+            Assert.assertTrue(stale.getMessage().contains("is stale"), stale.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldRejectPartialRecord() throws IOException {
+        try (CassetteRecorder recorder = CassetteRecorder.open(path, "")) {
+            recorder.record("GET /api/Pesel?pesel=1", 200, body(1));
+            recorder.record("GET /api/Pesel?pesel=2", 200, body(2));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        IOException partial = Assert.expectThrows(IOException.class, () -> Cassette.open(path));
+        Assert.assertTrue(partial.getMessage().contains("partial record"), partial.getMessage());
+    }
+
+    @Test
+    public void shouldRejectDamagedRecord() throws IOException {
+        try (CassetteRecorder recorder = CassetteRecorder.open(path, "")) {
+            recorder.record("GET /api/Pesel?pesel=1", 200, body(1));
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 2] ^= 1;
+        Files.write(path, bytes);
+
+        try (Cassette cassette = Cassette.open(path)) {
+            IllegalStateException damaged = Assert.expectThrows(IllegalStateException.class,
+                    () -> cassette.find("GET /api/Pesel?pesel=1"));
+            Assert.assertTrue(damaged.getMessage().contains("damaged"), damaged.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldNotAppendRecordingsOfAnotherService() throws IOException {
+        CassetteRecorder.open(path, "").close();
+
+        IOException other = Assert.expectThrows(IOException.class,
+                () -> CassetteRecorder.open(path, "https://example.org"));
+        Assert.assertTrue(other.getMessage().contains("embedded stand-in"), other.getMessage());
+    }
+
+    private static byte[] body(int i) {
+        return ("{\"pesel\":\"" + i + "\",\"isValid\":false}").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,55 @@
+package pl.edu.agh.qa.pesel.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+public class AdaptiveRateLimiterTest {
+
+    @Test
+    public void shouldSpaceRequestsByRate() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(10, 1, 10, 1, 0.5, Duration.ZERO);
+        Assert.assertEquals(limiter.reserve(), 0);
+        long second = limiter.reserve();
+        long third = limiter.reserve();
+        // 100 ms apart, minus the time between the calls
+        Assert.assertTrue(second > 90_000_000 && second <= 100_000_000, "Second waits " + second);
+        Assert.assertTrue(third > 190_000_000 && third <= 200_000_000, "Third waits " + third);
+        Assert.assertFalse(limiter.tryReserve());
+    }
+
+    @Test
+    public void shouldDecreaseMultiplicativelyAndIncreaseAdditively() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 10, 100, 20, 0.5, Duration.ZERO);
+        Assert.assertTrue(limiter.onThrottled());
+        Assert.assertTrue(limiter.onThrottled());
+        Assert.assertEquals(limiter.rate(), 25.0);
+        Assert.assertTrue(limiter.onThrottled());
+        Assert.assertTrue(limiter.onThrottled());
+        Assert.assertEquals(limiter.rate(), 10.0, "Bounded by minRate");
+        Assert.assertEquals(limiter.backoffs(), 4);
+
+        // about one second of successes adds 20 requests per second
+        for (int i = 0; i < 10; i++) {
+            limiter.onSuccess();
+        }
+        Assert.assertTrue(limiter.rate() > 20 && limiter.rate() < 30, "Rate " + limiter.rate());
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSuccess();
+        }
+        Assert.assertEquals(limiter.rate(), 100.0, "Bounded by maxRate");
+    }
+
+    /**
+     * Throttled responses of one overload back off once.
+     */
+    @Test
+    public void shouldBackOffOncePerCooldown() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 1, 100, 1, 0.5, Duration.ofHours(1));
+        Assert.assertTrue(limiter.onThrottled());
+        Assert.assertFalse(limiter.onThrottled());
+        Assert.assertEquals(limiter.rate(), 50.0);
+        Assert.assertEquals(limiter.backoffs(), 1);
+    }
+}
@@ -0,0 +1,76 @@
+package pl.edu.agh.qa.pesel.client;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+public class PeselAsyncClientTest {
+
+    private PeselValidatorStub stub;
+    private ExecutorService executor;
+    private PeselHttpClient client;
+
+    @BeforeClass
+    public void startStub() throws Exception {
+        stub = PeselValidatorStub.start(0);
+        executor = VirtualThreads.newExecutor("async-test");
+        client = new PeselHttpClient(stub.baseUri(), Duration.ofSeconds(5), executor);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStub() {
+        executor.shutdownNow();
+        stub.stop();
+    }
+
+    /**
+     * Every request gets its own decoded response, with at most maxInFlight outstanding at a time.
+     */
+    @Test
+    public void shouldBoundRequestsInFlight() {
+        PeselAsyncClient async = new PeselAsyncClient(client, 4);
+        List<CompletableFuture<PeselAsyncClient.Call>> calls = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            calls.add(async.get(i % 2 == 0 ? "44051401458" : "4405140145"));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).join();
+
+        for (int i = 0; i < calls.size(); i++) {
+            PeselResponse response = calls.get(i).join().response();
+            Assert.assertEquals(response.statusCode(), 200);
+            Assert.assertEquals(response.isValid(), Boolean.valueOf(i % 2 == 0), "Response #" + i);
+        }
+        Assert.assertEquals(async.requestCount(), 50);
+        Assert.assertTrue(async.peakInFlight() <= 4, "Peak in flight: " + async.peakInFlight());
+    }
+
+    /**
+     * The stand-in speaks HTTP/1.1 only, so HTTP/2 requests fall back to it.
+     */
+    @Test
+    public void shouldFallBackToHttp11() {
+        PeselAsyncClient async = new PeselAsyncClient(client, 2);
+        PeselAsyncClient.Call call = async.get("44051401458").join();
+
+        Assert.assertEquals(call.response().gender(), Gender.MALE);
+        Assert.assertEquals(call.timing().status(), 200);
+        Assert.assertEquals(async.responses(HttpClient.Version.HTTP_1_1), 1);
+    }
+
+    @Test
+    public void shouldSendRequestWithoutParameter() {
+        PeselAsyncClient async = new PeselAsyncClient(client, 1);
+        Assert.assertEquals(async.get(null).join().response().statusCode(), 400);
+    }
+}
@@ -0,0 +1,113 @@
+package pl.edu.agh.qa.pesel.client;
+
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.response.Response;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class PeselBatcherTest {
+
+    private static final List<String> PESELS = Arrays.asList("44051401458", "97022153388", "9702215d3388",
+            "98123323122", "0a0a0a0a0a0", "!@#$%^&*()_", "60813000015", "ąęćłńóśźżĄĘ", "1234567890", "\"quoted\"",
+            "02270803628", "00613000013");
+
+    private PeselValidatorStub stub;
+    private PeselApiClient client;
+
+    @BeforeClass
+    public void startStub() throws Exception {
+        stub = PeselValidatorStub.start(0);
+        client = new PeselApiClient(stub.baseUri(), PeselApiClient.Settings.fromSystemProperties());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStub() {
+        client.close();
+        stub.stop();
+    }
+
+    /**
+     * Concurrent requests are answered by full batches and get the same bodies as single GET requests.
+     */
+    @Test
+    public void shouldCoalesceConcurrentRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PESELS.size());
+        try (PeselBatcher batcher = new PeselBatcher(client, 4, 10_000)) {
+            List<Future<PeselResponse>> responses = new ArrayList<>();
+            for (String pesel : PESELS) {
+                responses.add(executor.submit(() -> batcher.get(pesel)));
+            }
+            for (int i = 0; i < PESELS.size(); i++) {
+                PeselResponse batched = responses.get(i).get(5, TimeUnit.SECONDS);
+                Response single = client.get(PESELS.get(i));
+                Assert.assertEquals(batched.statusCode(), 200);
+                Assert.assertEquals(batched.bodyAsString(), single.asString(), "Different result for " + PESELS.get(i));
+                Assert.assertEquals(batched.pesel(), PESELS.get(i));
+            }
+            Assert.assertEquals(batcher.batchCount(), 3);
+            Assert.assertEquals(batcher.batchedRequestCount(), PESELS.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A lone request is sent after the delay, empty PESELs are sent on their own.
+     */
+    @Test
+    public void shouldSendIncompleteBatchAfterDelay() {
+        try (PeselBatcher batcher = new PeselBatcher(client, 32, 5)) {
+            Assert.assertEquals(batcher.get("44051401458").isValid(), Boolean.TRUE);
+            Assert.assertEquals(batcher.get("").statusCode(), 400);
+            Assert.assertEquals(batcher.batchedRequestCount(), 1);
+        }
+    }
+
+    @Test
+    public void shouldRejectMalformedBatch() {
+        Response response = client.request().contentType("application/json").body("{\"pesel\":\"44051401458\"}")
+                .post("/batch");
+        Assert.assertEquals(response.statusCode(), 400);
+    }
+
+    /**
+     * Against a service without the batch endpoint requests fall back to single GET requests.
+     */
+    @Test
+    public void shouldFallBackWithoutBatchEndpoint() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            boolean get = "GET".equals(exchange.getRequestMethod());
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            byte[] body = (get ? "{\"isValid\":true}" : "").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(get ? 200 : 404, body.length == 0 ? -1 : body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        String baseUri = "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort();
+        try (PeselApiClient noBatch = new PeselApiClient(baseUri, PeselApiClient.Settings.fromSystemProperties());
+             PeselBatcher batcher = new PeselBatcher(noBatch, 32, 1)) {
+            Assert.assertEquals(batcher.get("44051401458").isValid(), Boolean.TRUE);
+            Assert.assertEquals(batcher.get("97022153388").isValid(), Boolean.TRUE);
+            Assert.assertEquals(batcher.batchCount(), 0);
+            Assert.assertEquals(noBatch.requestCount(), 3, "Expected one batch attempt and two single requests");
+        } finally {
+            server.stop(0);
+        }
+    }
+}
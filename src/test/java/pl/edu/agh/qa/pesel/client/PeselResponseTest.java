@@ -0,0 +1,122 @@
+package pl.edu.agh.qa.pesel.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.Gender;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class PeselResponseTest {
+
+    @Test
+    public void shouldDecodeValidPesel() throws IOException {
+        PeselResponse response = decode(200, "{\"pesel\":\"44051401458\",\"isValid\":true,\"gender\":\"Male\","
+                + "\"dateOfBirth\":\"1944-05-14T00:00:00\",\"errors\":[]}");
+        Assert.assertEquals(response.pesel(), "44051401458");
+        Assert.assertEquals(response.isValid(), Boolean.TRUE);
+        Assert.assertEquals(response.gender(), Gender.MALE);
+        Assert.assertEquals(response.dateOfBirth(), LocalDate.of(1944, 5, 14));
+        Assert.assertEquals(response.errors(), Collections.emptyList());
+    }
+
+    @Test
+    public void shouldDecodeErrorsInOrder() throws IOException {
+        PeselResponse response = decode(200, "{\"pesel\":\"98000100011\",\"isValid\":false,\"gender\":null,"
+                + "\"dateOfBirth\":null,\"errors\":[{\"errorCode\":\"INVY\",\"errorMessage\":\"Invalid year.\"},"
+                + "{\"errorCode\":\"INVM\",\"errorMessage\":\"Invalid month.\"}]}");
+        Assert.assertEquals(response.isValid(), Boolean.FALSE);
+        Assert.assertNull(response.gender());
+        Assert.assertNull(response.dateOfBirth());
+        Assert.assertEquals(response.errorCodes(), Arrays.asList(PeselError.INVY, PeselError.INVM));
+        Assert.assertEquals(response.errorMessages(), Arrays.asList("Invalid year.", "Invalid month."));
+    }
+
+    /**
+     * Only 200 responses carry a validation result.
+     */
+    @Test
+    public void shouldKeepBodyOfOtherStatuses() throws IOException {
+        String body = "{\"title\":\"One or more validation errors occurred.\",\"status\":400}";
+        PeselResponse response = decode(400, body);
+        Assert.assertEquals(response.statusCode(), 400);
+        Assert.assertNull(response.isValid());
+        Assert.assertEquals(response.errors(), Collections.emptyList());
+        Assert.assertEquals(response.bodyAsString(), body);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldRejectUnknownErrorCode() throws IOException {
+        decode(200, "{\"isValid\":false,\"errors\":[{\"errorCode\":\"XXXX\",\"errorMessage\":\"?\"}]}");
+    }
+
+    /**
+     * A gender other than Male or Female makes the answer undecodable rather than a Female one.
+     */
+    @Test
+    public void shouldRejectUnknownGenderInPackedResult() throws IOException {
+        String female = "{\"pesel\":\"44051401465\",\"isValid\":true,\"gender\":\"Female\","
+                + "\"dateOfBirth\":\"1944-05-14T00:00:00\",\"errors\":[]}";
+        Assert.assertEquals(PeselResponseDecoder.decode(female.getBytes(StandardCharsets.UTF_8)),
+                PeselValidator.validate("44051401465"));
+        for (String gender : new String[]{"Unknown", "female", ""}) {
+            byte[] body = female.replace("Female", gender).getBytes(StandardCharsets.UTF_8);
+            Assert.expectThrows(IOException.class, () -> PeselResponseDecoder.decode(body));
+        }
+    }
+
+    /**
+     * The suites' view and the packed result of the tools come from one parser, so they accept and reject the same
+     * bodies and agree on their fields.
+     */
+    @Test
+    public void shouldJudgeBodiesLikePackedResult() throws IOException {
+        String[] bodies = {
+                "{\"pesel\":\"44051401458\",\"isValid\":true,\"gender\":\"Male\","
+                        + "\"dateOfBirth\":\"1944-05-14T00:00:00\",\"errors\":[]}",
+                "{\"isValid\":false,\"gender\":null,\"errors\":[{\"errorCode\":\"INVC\",\"errorMessage\":\"x\"},"
+                        + "{\"errorMessage\":\"no code\"}]}",
+                "{\"isValid\":true,\"gender\":\"Unknown\",\"errors\":[]}",
+                "{\"isValid\":false,\"errors\":[{\"errorCode\":\"XXXX\"}]}",
+                "{\"isValid\":\"yes\",\"errors\":[]}",
+                "{\"isValid\":true,\"errors\":{}}",
+                "[]"
+        };
+        for (String body : bodies) {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            PeselResponse response = null;
+            Long packed = null;
+            try {
+                response = PeselResponse.decode(200, bytes);
+            } catch (IOException e) {
+                // compared below
+            }
+            try {
+                packed = PeselResponseDecoder.decodeWithValidity(bytes);
+            } catch (IOException e) {
+                // compared below
+            }
+            Assert.assertEquals(packed == null, response == null, body);
+            if (response == null) {
+                continue;
+            }
+            int errors = 0;
+            for (PeselError code : response.errorCodes()) {
+                errors |= code == null ? 0 : code.mask();
+            }
+            Assert.assertEquals(PeselValidator.errors(packed), errors, body);
+            Assert.assertEquals(PeselResponseDecoder.isValidField(packed), Boolean.TRUE.equals(response.isValid()), body);
+            Assert.assertEquals(PeselValidator.hasGender(packed), response.gender() != null, body);
+            Assert.assertEquals(PeselValidator.dateOfBirth(packed), response.dateOfBirth(), body);
+        }
+    }
+
+    private static PeselResponse decode(int status, String body) throws IOException {
+        return PeselResponse.decode(status, body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,107 @@
+package pl.edu.agh.qa.pesel.client;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class RequestPolicyTest {
+
+    private static final long DELAY_MILLIS = 1000;
+
+    private PeselValidatorStub stub;
+    private ExecutorService executor;
+
+    @AfterMethod(alwaysRun = true)
+    public void stopStub() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    private PeselHttpClient start(PeselValidatorStub.Faults faults) throws Exception {
+        stub = PeselValidatorStub.start(0, faults);
+        executor = VirtualThreads.newExecutor("policy-test");
+        return new PeselHttpClient(stub.baseUri(), Duration.ofSeconds(5), executor);
+    }
+
+    private static RequestPolicy.Settings settings(boolean hedging, int maxRetries) {
+        return new RequestPolicy.Settings(hedging, 0.95, Duration.ofMillis(20), maxRetries,
+                100, 10_000, 100, 0.5, Duration.ofMillis(100));
+    }
+
+    /**
+     * Every 50th request of the stand-in is late; once the window knows the p95, those get a hedge that wins.
+     */
+    @Test
+    public void shouldHedgeSlowRequests() throws Exception {
+        PeselHttpClient client = start(new PeselValidatorStub.Faults(50, DELAY_MILLIS, 0, 503));
+        RequestPolicy policy = new RequestPolicy(settings(true, 0));
+        for (int i = 0; i < RequestPolicy.MIN_SAMPLES; i++) {
+            Assert.assertEquals(policy.send(() -> client.get("44051401458")).join().statusCode(), 200);
+        }
+
+        long slowest = 0;
+        for (int i = 0; i < 150; i++) {
+            long start = System.nanoTime();
+            HttpResponse<byte[]> response = policy.send(() -> client.get("44051401458")).join();
+            slowest = Math.max(slowest, System.nanoTime() - start);
+            Assert.assertEquals(response.statusCode(), 200);
+        }
+        Assert.assertTrue(stub.injectedDelays() >= 2, "Delays: " + stub.injectedDelays());
+        Assert.assertTrue(policy.hedgeWins() >= 2, policy.stats());
+        Assert.assertTrue(slowest < TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS / 2),
+                "Slowest " + slowest / 1_000_000 + " ms, " + policy.stats());
+    }
+
+    /**
+     * Every third request fails; the retry of each lands on a healthy one, and the rate backs off.
+     */
+    @Test
+    public void shouldBackOffAndRetryThrottledRequests() throws Exception {
+        PeselHttpClient client = start(new PeselValidatorStub.Faults(0, 0, 3, 429));
+        RequestPolicy policy = new RequestPolicy(settings(false, 1));
+        for (int i = 0; i < 60; i++) {
+            Assert.assertEquals(policy.send(() -> client.get("44051401458")).join().statusCode(), 200,
+                    "Request #" + i);
+        }
+        Assert.assertEquals(policy.throttledCount(), stub.injectedErrors());
+        Assert.assertEquals(policy.retryCount(), policy.throttledCount());
+        Assert.assertTrue(policy.throttledCount() >= 20, policy.stats());
+        Assert.assertTrue(policy.backoffCount() >= 1, policy.stats());
+        Assert.assertTrue(policy.rate() < 10_000, policy.stats());
+    }
+
+    /**
+     * With no retries left the throttled response is the answer.
+     */
+    @Test
+    public void shouldReturnLastThrottledResponse() throws Exception {
+        PeselHttpClient client = start(new PeselValidatorStub.Faults(0, 0, 1, 503));
+        RequestPolicy policy = new RequestPolicy(settings(false, 2));
+
+        Assert.assertEquals(policy.send(() -> client.get("44051401458")).join().statusCode(), 503);
+        Assert.assertEquals(policy.retryCount(), 2);
+        Assert.assertEquals(stub.injectedErrors(), 3);
+    }
+
+    @Test
+    public void shouldCountTimeouts() throws Exception {
+        start(new PeselValidatorStub.Faults(1, DELAY_MILLIS, 0, 503));
+        PeselHttpClient client = new PeselHttpClient(stub.baseUri(), Duration.ofMillis(100), executor);
+        RequestPolicy policy = new RequestPolicy(settings(false, 1));
+
+        Assert.assertThrows(Exception.class, () -> policy.send(() -> client.get("44051401458")).join());
+        Assert.assertEquals(policy.timeoutCount(), 2);
+        Assert.assertTrue(policy.backoffCount() >= 1, policy.stats());
+    }
+}
@@ -0,0 +1,118 @@
+package pl.edu.agh.qa.pesel.client;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightCacheTest {
+
+    /**
+     * Concurrent callers of the same key share one load.
+     */
+    @Test
+    public void shouldLoadOnceForConcurrentCallers() throws Exception {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("98123323122", key -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "INVD";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                Assert.assertEquals(result.get(5, TimeUnit.SECONDS), "INVD");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(loads.get(), 1, "The value was loaded more than once");
+        Assert.assertEquals(cache.misses(), 1);
+        Assert.assertEquals(cache.hits(), 7);
+    }
+
+    /**
+     * The least recently used entry is evicted first.
+     */
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(2);
+        cache.get("a", key -> "1");
+        cache.get("b", key -> "2");
+        cache.get("a", key -> "unexpected");
+        cache.get("c", key -> "3");
+
+        Assert.assertEquals(cache.get("a", key -> "reloaded"), "1", "Recently used entry was evicted");
+        Assert.assertEquals(cache.get("b", key -> "reloaded"), "reloaded", "Eldest entry was not evicted");
+        Assert.assertEquals(cache.size(), 2);
+    }
+
+    /**
+     * Loads in flight are not evicted when more keys than the cache holds are loading, so their callers still share
+     * them; the cache shrinks back to its size once they complete.
+     */
+    @Test
+    public void shouldNotEvictLoadsInFlight() {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(2);
+        List<CompletableFuture<String>> loads = new ArrayList<>();
+        List<CompletableFuture<String>> first = new ArrayList<>();
+        for (String key : new String[]{"a", "b", "c", "d"}) {
+            first.add(cache.getAsync(key, k -> {
+                CompletableFuture<String> load = new CompletableFuture<>();
+                loads.add(load);
+                return load;
+            }));
+        }
+        for (String key : new String[]{"a", "b", "c", "d"}) {
+            cache.getAsync(key, k -> {
+                throw new AssertionError("Second load of " + k + " while the first is in flight");
+            });
+        }
+        Assert.assertEquals(cache.size(), 4);
+        Assert.assertEquals(cache.evictions(), 0);
+
+        for (int i = 0; i < loads.size(); i++) {
+            loads.get(i).complete(Integer.toString(i));
+        }
+        Assert.assertEquals(first.get(3).join(), "3");
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.evictions(), 2);
+        Assert.assertEquals(cache.get("d", key -> "reloaded"), "3", "Most recent entry was evicted");
+    }
+
+    /**
+     * A failed load is not cached, the next caller tries again.
+     */
+    @Test
+    public void shouldNotCacheFailures() {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>(2);
+        Assert.assertThrows(IllegalStateException.class, () -> cache.get("a", key -> {
+            throw new IllegalStateException("connection refused");
+        }));
+        Assert.assertEquals(cache.get("a", key -> "1"), "1");
+        Assert.assertEquals(cache.misses(), 2);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package pl.edu.agh.qa.pesel.fuzz;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+
+public class PeselFuzzerTest {
+
+    private PeselValidatorStub stub;
+    private ExecutorService executor;
+    private PeselHttpClient client;
+
+    @BeforeClass
+    public void startStub() throws Exception {
+        stub = PeselValidatorStub.start(0);
+        executor = VirtualThreads.newExecutor("fuzz-test");
+        client = new PeselHttpClient(stub.baseUri(), Duration.ofSeconds(5), executor);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStub() {
+        executor.shutdownNow();
+        stub.stop();
+    }
+
+    /**
+     * The stand-in follows the local rules, whether the inputs are sent in batches or one by one.
+     */
+    @Test
+    public void shouldFindNoFailuresInStandIn() throws Exception {
+        PeselFuzzer batched = new PeselFuzzer(7, client, 100, 4);
+        batched.run(0, 4000);
+        Assert.assertEquals(batched.completedCount(), 4000);
+        Assert.assertEquals(batched.failingInputs(), Collections.emptyList());
+
+        PeselFuzzer single = new PeselFuzzer(7, client, 0, 16);
+        single.run(0, 400);
+        Assert.assertEquals(single.completedCount(), 400);
+        Assert.assertEquals(single.failingInputs(), Collections.emptyList());
+    }
+
+    @Test
+    public void shouldGenerateSameInputsForSameSeed() {
+        FuzzInputs first = new FuzzInputs(42);
+        FuzzInputs second = new FuzzInputs(42);
+        for (long index = 0; index < 1000; index++) {
+            Assert.assertEquals(first.input(index), second.input(index));
+        }
+        Assert.assertNotEquals(new FuzzInputs(43).input(3), first.input(3));
+    }
+
+    /**
+     * Every input survives the trip through UTF-8, i.e. has no unpaired surrogates.
+     */
+    @Test
+    public void shouldGenerateWellFormedStrings() {
+        FuzzInputs inputs = new FuzzInputs(1);
+        for (long index = 0; index < 20000; index++) {
+            String input = inputs.input(index);
+            Assert.assertEquals(new String(input.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), input,
+                    "Input #" + index + " is not well-formed");
+        }
+    }
+
+    @Test
+    public void shouldReportWrongAnswer() {
+        byte[] valid = "{\"pesel\":\"44051401458\",\"isValid\":true,\"gender\":\"Male\",\"dateOfBirth\":\"1944-05-14T00:00:00\",\"errors\":[]}"
+                .getBytes(StandardCharsets.UTF_8);
+        Assert.assertNull(PeselFuzzer.mismatch("44051401458", 200, valid));
+        Assert.assertNotNull(PeselFuzzer.mismatch("44051401459", 200, valid));
+        Assert.assertNotNull(PeselFuzzer.mismatch("", 200, valid));
+        Assert.assertNull(PeselFuzzer.mismatch("", 400, new byte[0]));
+    }
+
+    @Test
+    public void shouldShrinkToMinimalCounterexample() {
+        Assert.assertEquals(Shrinker.shrink("12ł45678901", input -> input.contains("ł"), 1000), "ł");
+        Assert.assertEquals(Shrinker.shrink("98😀23323122", input -> input.contains("😀"), 1000), "😀");
+        Assert.assertEquals(Shrinker.shrink("1234567890123", input -> input.length() > 11, 1000), "000000000000");
+    }
+
+    @Test
+    public void shouldStopShrinkingAfterMaxTries() {
+        int[] tries = {0};
+        Shrinker.shrink("1234567890123", input -> ++tries[0] > 0 && input.length() > 11, 5);
+        Assert.assertTrue(tries[0] <= 5, "Shrinking tried " + tries[0] + " candidates");
+    }
+}
@@ -0,0 +1,64 @@
+package pl.edu.agh.qa.pesel.load;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+import pl.edu.agh.qa.pesel.concurrent.VirtualThreads;
+import pl.edu.agh.qa.pesel.stub.PeselValidatorStub;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+public class LoadGeneratorTest {
+
+    private PeselValidatorStub stub;
+    private ExecutorService executor;
+    private LoadGenerator generator;
+
+    @BeforeClass
+    public void startStub() throws Exception {
+        stub = PeselValidatorStub.start(0);
+        executor = VirtualThreads.newExecutor("load-test");
+        generator = new LoadGenerator(new PeselHttpClient(stub.baseUri(), Duration.ofSeconds(5), executor),
+                RequestMix.parse(RequestMix.ALL_EQUAL));
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopStub() {
+        executor.shutdownNow();
+        stub.stop();
+    }
+
+    /**
+     * Every case of the mix gets its share of a fixed-rate run and the stand-in answers with the expected status.
+     */
+    @Test
+    public void shouldSendFixedRateOfEveryCase() throws Exception {
+        LoadStats stats = generator.runOpen(120, 100, Duration.ofSeconds(1));
+        for (LoadCase loadCase : LoadCase.values()) {
+            Assert.assertEquals(stats.count(loadCase), 20, "Wrong number of " + loadCase + " requests");
+            Assert.assertEquals(stats.errors(loadCase), 0, "Unexpected status for " + loadCase);
+        }
+    }
+
+    @Test
+    public void shouldKeepUsersBusy() throws Exception {
+        LoadStats stats = generator.runClosed(4, Duration.ofMillis(500));
+        Assert.assertTrue(stats.total().getTotalCount() > 4, "Closed model sent no follow-up requests");
+        for (LoadCase loadCase : LoadCase.values()) {
+            Assert.assertEquals(stats.errors(loadCase), 0, "Unexpected status for " + loadCase);
+        }
+    }
+
+    @Test
+    public void shouldInterleaveWeightedCases() {
+        RequestMix mix = RequestMix.parse("VALID:3,MISSING:1");
+        Assert.assertEquals(mix.pick(0), LoadCase.VALID);
+        Assert.assertEquals(mix.pick(1), LoadCase.MISSING);
+        Assert.assertEquals(mix.pick(2), LoadCase.VALID);
+        Assert.assertEquals(mix.pick(3), LoadCase.VALID);
+        Assert.assertEquals(mix.pick(4), LoadCase.VALID);
+    }
+}
@@ -0,0 +1,66 @@
+package pl.edu.agh.qa.pesel.perf;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class LatencyGateTest {
+
+    @Test
+    public void shouldWriteAndReadBaseline() throws Exception {
+        LatencyGate recording = new LatencyGate(null, 0.25, 0, 0.9);
+        Assert.assertTrue(recording.add("A.test GET /api/Pesel?pesel=1", new long[]{10, 20}).isEmpty());
+        recording.add("A.test GET /api/Pesel?pesel=1", new long[]{30});
+        recording.add("B.test(a\tb\\c\n) GET /api/Pesel", new long[]{5});
+
+        Path file = Files.createTempFile("latency", ".tsv");
+        try {
+            recording.recorded().write(file, "recorded\nin a test");
+            Assert.assertTrue(Files.readAllLines(file).get(0).startsWith("# recorded in a test"));
+
+            LatencyBaseline read = LatencyBaseline.read(file);
+            Assert.assertEquals(read.keys().size(), 2);
+            Assert.assertEquals(read.samples("A.test GET /api/Pesel?pesel=1"), new long[]{10, 20, 30});
+            Assert.assertEquals(read.samples("B.test(a\tb\\c\n) GET /api/Pesel"), new long[]{5});
+            Assert.assertNull(read.samples("C.test"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void shouldReportRegressedNewAndMissingTests() {
+        SplittableRandom random = new SplittableRandom(5);
+        LatencyGate recording = new LatencyGate(null, 0.25, 0, 0.9);
+        recording.add("fast", QuantileComparisonTest.latencies(random, 20, 1000));
+        recording.add("slower", QuantileComparisonTest.latencies(random, 20, 1000));
+        recording.add("gone", QuantileComparisonTest.latencies(random, 20, 1000));
+
+        LatencyGate gate = new LatencyGate(recording.recorded(), 0.25, 0, 0.9);
+        Assert.assertTrue(gate.add("fast", QuantileComparisonTest.latencies(random, 20, 1000)).isEmpty());
+        Assert.assertFalse(gate.add("slower", QuantileComparisonTest.latencies(random, 20, 3000)).isEmpty());
+        Assert.assertTrue(gate.add("added", QuantileComparisonTest.latencies(random, 20, 1000)).isEmpty());
+
+        Assert.assertEquals(gate.regressions(), 1);
+        String[] lines = gate.report().split("\n");
+        Assert.assertEquals(lines.length, 6);
+        Assert.assertTrue(lines[1].startsWith("REGRESSED") && lines[1].endsWith("slower"), lines[1]);
+        Assert.assertTrue(lines[2].startsWith("ok") && lines[2].endsWith("fast"), lines[2]);
+        Assert.assertTrue(lines[3].startsWith("new") && lines[3].endsWith("added"), lines[3]);
+        Assert.assertTrue(lines[4].startsWith("missing") && lines[4].endsWith("gone"), lines[4]);
+        Assert.assertTrue(lines[5].endsWith(LatencyGate.ALL), lines[5]);
+    }
+
+    @Test
+    public void shouldDescribeRegression() {
+        LatencyGate gate = new LatencyGate(new LatencyBaseline(Map.of("t", new long[]{1000, 1000, 1000})),
+                0.25, 0, 0.9);
+        String description = LatencyGate.describe(gate.add("t", new long[]{3000, 3000, 3000}));
+        Assert.assertEquals(description, "p95 3.00 ms, baseline 1.00 ms (+200%, at least +200%); "
+                + "p99 3.00 ms, baseline 1.00 ms (+200%, at least +200%)");
+    }
+}
@@ -0,0 +1,83 @@
+package pl.edu.agh.qa.pesel.perf;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.SplittableRandom;
+
+public class QuantileComparisonTest {
+
+    @Test
+    public void shouldTakeNearestRankQuantile() {
+        long[] sorted = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        Assert.assertEquals(QuantileComparison.quantile(sorted, 0.5), 5);
+        Assert.assertEquals(QuantileComparison.quantile(sorted, 0.95), 10);
+        Assert.assertEquals(QuantileComparison.quantile(sorted, 0.0), 1);
+        Assert.assertEquals(QuantileComparison.quantile(new long[]{7}, 0.99), 7);
+    }
+
+    @Test
+    public void shouldNotFlagSameDistribution() {
+        long[] baseline = latencies(new SplittableRandom(1), 40, 1000);
+        long[] current = latencies(new SplittableRandom(2), 40, 1000);
+
+        QuantileComparison p95 = QuantileComparison.compare(baseline, current, 0.95, 0.25, 0, 0.9, 7);
+        Assert.assertFalse(p95.regressed(), "change " + p95.change() + ", at least " + p95.lowerChange());
+    }
+
+    @Test
+    public void shouldFlagConsistentSlowdown() {
+        long[] baseline = latencies(new SplittableRandom(1), 40, 1000);
+        long[] current = latencies(new SplittableRandom(2), 40, 2000);
+
+        QuantileComparison p95 = QuantileComparison.compare(baseline, current, 0.95, 0.25, 0, 0.9, 7);
+        Assert.assertTrue(p95.regressed(), "change " + p95.change() + ", at least " + p95.lowerChange());
+        Assert.assertTrue(p95.lowerChange() > 0.25);
+        Assert.assertTrue(p95.change() >= p95.lowerChange());
+    }
+
+    @Test
+    public void shouldNotFlagSlowdownBelowMinIncrease() {
+        long[] baseline = latencies(new SplittableRandom(1), 40, 1000);
+        long[] current = latencies(new SplittableRandom(2), 40, 2000);
+
+        QuantileComparison p95 = QuantileComparison.compare(baseline, current, 0.95, 0.25, 5000, 0.9, 7);
+        Assert.assertFalse(p95.regressed());
+        Assert.assertTrue(p95.lowerIncrease() > 0 && p95.lowerIncrease() < 5000, "at least " + p95.lowerIncrease());
+    }
+
+    @Test
+    public void shouldNotFlagSingleOutlier() {
+        long[] baseline = latencies(new SplittableRandom(1), 20, 1000);
+        long[] current = baseline.clone();
+        current[3] = 50_000;
+
+        Assert.assertFalse(QuantileComparison.compare(baseline, current, 0.99, 0.25, 0, 0.9, 7).regressed());
+    }
+
+    @Test
+    public void shouldBeReproducibleForSeed() {
+        long[] baseline = latencies(new SplittableRandom(1), 30, 1000);
+        long[] current = latencies(new SplittableRandom(2), 30, 1300);
+
+        Assert.assertEquals(QuantileComparison.compare(baseline, current, 0.95, 0.25, 0, 0.9, 3).lowerChange(),
+                QuantileComparison.compare(baseline, current, 0.95, 0.25, 0, 0.9, 3).lowerChange());
+    }
+
+    @Test
+    public void shouldRejectEmptySample() {
+        Assert.expectThrows(IllegalArgumentException.class,
+                () -> QuantileComparison.compare(new long[0], new long[]{1}, 0.95, 0.25, 0, 0.9, 1));
+    }
+
+    /**
+     * Around {@code typical} with a tail up to twice as slow.
+     */
+    static long[] latencies(SplittableRandom random, int count, long typical) {
+        long[] micros = new long[count];
+        for (int i = 0; i < count; i++) {
+            micros[i] = typical + random.nextLong(typical / 10) + (random.nextInt(10) == 0 ? random.nextLong(typical) : 0);
+        }
+        return micros;
+    }
+}
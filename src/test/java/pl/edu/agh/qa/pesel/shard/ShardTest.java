@@ -0,0 +1,115 @@
+package pl.edu.agh.qa.pesel.shard;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ShardTest {
+
+    @Test
+    public void shouldGiveEveryRowAndTestToOneShard() {
+        List<Shard> shards = Arrays.asList(new Shard(0, 3), new Shard(1, 3), new Shard(2, 3));
+        int[] rows = new int[3];
+        for (long position = 0; position < 300; position++) {
+            long finalPosition = position;
+            Assert.assertEquals(shards.stream().filter(shard -> shard.owns(finalPosition)).count(), 1);
+            rows[(int) (position % 3)]++;
+        }
+        Assert.assertEquals(rows, new int[]{100, 100, 100});
+        for (String test : Arrays.asList("PeselValidatorErrorTests.shouldX", "A.b", "", "ą")) {
+            Assert.assertEquals(shards.stream().filter(shard -> shard.owns(test)).count(), 1, test);
+        }
+        Assert.assertTrue(Shard.ALL.owns(7) && Shard.ALL.owns("A.b"));
+        Assert.assertFalse(Shard.ALL.isPartial());
+        Assert.expectThrows(IllegalArgumentException.class, () -> new Shard(3, 3));
+        Assert.expectThrows(IllegalArgumentException.class, () -> new Shard(0, 0));
+    }
+
+    @Test
+    public void shouldReadBackWrittenResults() throws Exception {
+        Path directory = Files.createTempDirectory("shards");
+        ShardResults.Test failed = new ShardResults.Test("PeselValidatorCaseTests", "shouldAnswer", ShardResults.FAIL,
+                1000, 12, new long[]{1500, 800}, "java.lang.AssertionError: a\tb\nc \\ d",
+                Arrays.asList("row\twith tab", null, "x"));
+        Path file = new ShardResults(new Shard(1, 2), "host-1", 1000, 2000, Collections.singletonList(failed))
+                .write(directory);
+        Assert.assertEquals(file.getFileName().toString(), "shard-1-of-2.tsv");
+
+        ShardResults read = ShardResults.read(file);
+        Assert.assertEquals(read.shard(), new Shard(1, 2));
+        Assert.assertEquals(read.host(), "host-1");
+        ShardResults.Test test = read.tests().get(0);
+        Assert.assertEquals(test.toString(), failed.toString());
+        Assert.assertEquals(test.failure(), failed.failure());
+        Assert.assertEquals(test.parameters(), failed.parameters());
+        Assert.assertEquals(test.requestMicros(), new long[]{1500, 800});
+
+        Files.write(directory.resolve("shard-0-of-2.tsv"), "class\tmethod\n".getBytes(StandardCharsets.UTF_8));
+        Assert.expectThrows(java.io.IOException.class, () -> ShardMerge.read(directory));
+    }
+
+    @Test
+    public void shouldMergeShardsIntoTestNgResults() throws Exception {
+        ShardResults first = new ShardResults(new Shard(0, 3), "a", 1_000, 5_000, Arrays.asList(
+                test("PeselValidatorErrorTests", "shouldX", ShardResults.PASS, 1_000, "123"),
+                test("PeselValidatorCaseTests", "shouldAnswer", ShardResults.FAIL, 2_000, "00000000000")));
+        ShardResults second = new ShardResults(new Shard(1, 3), "b", 2_000, 9_000, Collections.singletonList(
+                test("PeselValidatorCaseTests", "shouldAnswer", ShardResults.PASS, 3_000, "44051401458")));
+        ShardMerge merge = new ShardMerge(Arrays.asList(second, first));
+
+        Assert.assertEquals(merge.missing(), Collections.singletonList(2));
+        Assert.assertEquals(merge.total(), 3);
+        Assert.assertEquals(merge.count(ShardResults.FAIL), 1);
+        Assert.assertFalse(merge.succeeded());
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        merge.print(new PrintStream(printed, true, "UTF-8"));
+        String summary = printed.toString("UTF-8");
+        Assert.assertTrue(summary.startsWith("2 of 3 shards, 3 tests: 2 passed, 1 failed, 0 skipped"), summary);
+        // 3 tests and 6 requests from the first start (1 s) to the last finish (9 s)
+        Assert.assertTrue(summary.contains("Run: 8.0 s from the first start to the last finish, 0.4 tests/s, 6 requests"),
+                summary);
+
+        Path file = Files.createTempDirectory("merged").resolve("testng-results.xml");
+        merge.writeTestNgResults(file);
+        Document xml = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file.toFile());
+        Element root = xml.getDocumentElement();
+        Assert.assertEquals(root.getAttribute("total"), "3");
+        Assert.assertEquals(root.getAttribute("failed"), "1");
+        NodeList tests = xml.getElementsByTagName("test");
+        Assert.assertEquals(tests.getLength(), 2);
+        Assert.assertEquals(((Element) tests.item(0)).getAttribute("name"), "shard-0-of-3 on a");
+        Element failedMethod = (Element) xml.getElementsByTagName("test-method").item(1);
+        Assert.assertEquals(failedMethod.getAttribute("status"), "FAIL");
+        Assert.assertEquals(((Element) failedMethod.getParentNode()).getAttribute("name"), "PeselValidatorCaseTests");
+        Assert.assertEquals(failedMethod.getElementsByTagName("value").item(0).getTextContent(), "00000000000");
+        Element exception = (Element) failedMethod.getElementsByTagName("exception").item(0);
+        Assert.assertEquals(exception.getAttribute("class"), "java.lang.AssertionError");
+        Assert.assertEquals(exception.getTextContent(), "status <]]> expected");
+    }
+
+    @Test
+    public void shouldRefuseShardsOfDifferentRuns() {
+        ShardResults ofTwo = new ShardResults(new Shard(0, 2), "a", 0, 1, Collections.emptyList());
+        ShardResults ofThree = new ShardResults(new Shard(1, 3), "a", 0, 1, Collections.emptyList());
+        Assert.expectThrows(IllegalArgumentException.class, () -> new ShardMerge(Arrays.asList(ofTwo, ofThree)));
+        Assert.expectThrows(IllegalArgumentException.class, () -> new ShardMerge(Arrays.asList(ofTwo, ofTwo)));
+    }
+
+    private static ShardResults.Test test(String className, String method, String status, long start, String pesel) {
+        return new ShardResults.Test(className, method, status, start, 40, new long[]{2000, 3000}, status.equals(
+                ShardResults.FAIL) ? "java.lang.AssertionError: status <]]> expected" : null,
+                Collections.singletonList(pesel));
+    }
+}
@@ -0,0 +1,259 @@
+package pl.edu.agh.qa.pesel.store;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.client.PeselResponseDecoder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class ResultStoreTest {
+
+    private static final String[] PESELS = {
+            "00810100002", "44051401458", "44051401459", "97022137898", "02270803628", "00000000000", "99999999999"
+    };
+
+    @Test
+    public void shouldReadBackWhatWasWritten() throws IOException {
+        Path directory = Files.createTempDirectory("store");
+        try (ResultStoreWriter writer = new ResultStoreWriter(directory, "test", "pesels")) {
+            for (String pesel : PESELS) {
+                writer.append(ResultStore.input(pesel), 200, PeselValidator.apiView(PeselValidator.validate(pesel)));
+            }
+            writer.append(ResultStore.input(PESELS[0]), 503, PeselValidator.validate(PESELS[0]));
+            writer.append(ResultStore.input(PESELS[1]), ResultStore.NO_RESPONSE, 0);
+        }
+
+        try (ResultStore store = ResultStore.open(directory)) {
+            Assert.assertEquals(store.size(), PESELS.length + 2);
+            Assert.assertEquals(store.source(), "test");
+            Assert.assertEquals(store.corpus(), "pesels");
+            Assert.assertEquals(Files.size(directory.resolve("input.i64")), store.size() * 8);
+            ResultStore.Rows rows = store.rows(0, (int) store.size());
+            for (int row = 0; row < PESELS.length; row++) {
+                long expected = PeselValidator.apiView(PeselValidator.validate(PESELS[row]));
+                Assert.assertEquals(ResultStore.format(rows.input(row)), PESELS[row]);
+                Assert.assertEquals(rows.status(row), 200);
+                Assert.assertEquals(rows.result(row), expected, PESELS[row]);
+                Assert.assertEquals(rows.isValid(row), PeselValidator.isValid(expected), PESELS[row]);
+            }
+            Assert.assertEquals(rows.status(PESELS.length), 503);
+            Assert.assertFalse(rows.isValid(PESELS.length));
+            Assert.assertEquals(rows.result(PESELS.length), 0);
+            Assert.assertEquals(rows.status(PESELS.length + 1), ResultStore.NO_RESPONSE);
+
+            ResultStore.Rows tail = store.rows(3, 2);
+            Assert.assertEquals(ResultStore.format(tail.input(0)), PESELS[3]);
+            Assert.expectThrows(IndexOutOfBoundsException.class, () -> store.rows(8, 2));
+        }
+    }
+
+    @Test
+    public void shouldOnlyStoreElevenDigits() {
+        Assert.assertEquals(ResultStore.input("00000000001"), 1);
+        Assert.assertEquals(ResultStore.input("4405140145"), -1);
+        Assert.assertEquals(ResultStore.input("4405140145a"), -1);
+        Assert.assertEquals(ResultStore.format(1), "00000000001");
+    }
+
+    @Test
+    public void shouldRejectIncompleteStore() throws IOException {
+        Path directory = Files.createTempDirectory("store");
+        ResultStoreWriter writer = new ResultStoreWriter(directory, "test", "pesels");
+        writer.append(1, 200, 0);
+        Assert.expectThrows(IOException.class, () -> ResultStore.open(directory));
+        writer.close();
+        Files.write(directory.resolve("errors.u8"), new byte[3]);
+        Assert.expectThrows(IOException.class, () -> ResultStore.open(directory));
+    }
+
+    @Test
+    public void shouldGroupChangesByKind() throws IOException {
+        Path before = Files.createTempDirectory("before");
+        Path after = Files.createTempDirectory("after");
+        try (ResultStoreWriter a = new ResultStoreWriter(before, "v1", "pesels");
+             ResultStoreWriter b = new ResultStoreWriter(after, "v2", "pesels")) {
+            for (int i = 0; i < 100; i++) {
+                String pesel = PESELS[i % PESELS.length];
+                long result = PeselValidator.apiView(PeselValidator.validate(pesel));
+                a.append(ResultStore.input(pesel), 200, result);
+                if (i % PESELS.length == 1 && i < 30) {
+                    // 44051401458 becomes invalid
+                    b.append(ResultStore.input(pesel), 200, PeselError.INVC.mask());
+                } else if (i == 50) {
+                    b.append(ResultStore.input(pesel), 503, 0);
+                } else if (i == 73) {
+                    // 97022137898 becomes female
+                    b.append(ResultStore.input(pesel), 200, result & ~(long) (1 << 8));
+                } else {
+                    b.append(ResultStore.input(pesel), 200, result);
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (ResultStore a = ResultStore.open(before); ResultStore b = ResultStore.open(after)) {
+            StringWriter changes = new StringWriter();
+            List<ResultDiff.ChangeGroup> groups = new ResultDiff(a, b, pool, 7, 2).run(changes);
+
+            Assert.assertEquals(groups.stream().map(ResultDiff.ChangeGroup::kind).collect(Collectors.toList()),
+                    Arrays.asList("valid -> INVC", "HTTP 200 -> HTTP 503", "gender Male -> Female"));
+            Assert.assertEquals(groups.get(0).count(), 5);
+            Assert.assertEquals(groups.get(0).examples(), Arrays.asList(
+                    "row 1: 44051401458 valid, Male, 1944-05-14 -> INVC",
+                    "row 8: 44051401458 valid, Male, 1944-05-14 -> INVC"));
+            Assert.assertEquals(groups.get(1).count(), 1);
+            Assert.assertEquals(groups.get(2).examples(), Arrays.asList(
+                    "row 73: 97022137898 valid, Male, 1997-02-21 -> valid, Female, 1997-02-21"));
+
+            String[] lines = changes.toString().split("\n");
+            Assert.assertEquals(lines.length, 1 + 7);
+            Assert.assertEquals(lines[0], "row,pesel,before,after");
+            Assert.assertEquals(lines[1], "1,44051401458,\"valid, Male, 1944-05-14\",INVC");
+            Assert.assertTrue(lines[6].startsWith("50,"), lines[6]);
+
+            Assert.assertTrue(new ResultDiff(a, a, pool, 7, 2).run(null).isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A deployment that only changes the 'isValid' field, keeping the errors, is a change of its own.
+     */
+    @Test
+    public void shouldReportIsValidChangeAlone() throws IOException {
+        String[][] answers = {
+                {"44051401459", "{\"isValid\":false,\"errors\":[{\"errorCode\":\"INVC\"}]}",
+                        "{\"isValid\":true,\"errors\":[{\"errorCode\":\"INVC\"}]}"},
+                {"44051401458", "{\"isValid\":true,\"gender\":\"Male\",\"dateOfBirth\":\"1944-05-14T00:00:00\",\"errors\":[]}",
+                        "{\"isValid\":false,\"gender\":\"Male\",\"dateOfBirth\":\"1944-05-14T00:00:00\",\"errors\":[]}"},
+                {"97022137898", "{\"isValid\":true,\"errors\":[]}", "{\"isValid\":true,\"errors\":[]}"}
+        };
+        Path before = Files.createTempDirectory("before");
+        Path after = Files.createTempDirectory("after");
+        try (ResultStoreWriter a = new ResultStoreWriter(before, "v1", "pesels");
+             ResultStoreWriter b = new ResultStoreWriter(after, "v2", "pesels")) {
+            for (String[] answer : answers) {
+                append(a, answer[0], answer[1]);
+                append(b, answer[0], answer[2]);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try (ResultStore a = ResultStore.open(before); ResultStore b = ResultStore.open(after)) {
+            ResultStore.Rows rows = b.rows(0, answers.length);
+            Assert.assertTrue(rows.isValid(0));
+            Assert.assertEquals(PeselValidator.errors(rows.result(0)), PeselError.INVC.mask());
+            Assert.assertFalse(rows.isValid(1));
+
+            List<ResultDiff.ChangeGroup> groups = new ResultDiff(a, b, pool, 2, 1).run(null);
+            Assert.assertEquals(groups.stream().map(ResultDiff.ChangeGroup::kind).sorted().collect(Collectors.toList()),
+                    Arrays.asList("isValid false -> true with INVC", "isValid true -> false with no errors"));
+            Assert.assertEquals(groups.stream().flatMap(group -> group.examples().stream()).sorted()
+                    .collect(Collectors.toList()), Arrays.asList(
+                    "row 0: 44051401459 INVC -> INVC, isValid true",
+                    "row 1: 44051401458 valid, Male, 1944-05-14 -> valid, Male, 1944-05-14, isValid false"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Answers with the same errors that start to carry a gender or date of birth are a named change.
+     */
+    @Test
+    public void shouldNameGenderAndDateChangesOfInvalidAnswers() throws IOException {
+        Path before = Files.createTempDirectory("before");
+        Path after = Files.createTempDirectory("after");
+        long invc = PeselError.INVC.mask();
+        long withGender = PeselValidator.result(PeselError.INVC.mask(), true, null);
+        long withDate = PeselValidator.result(PeselError.INVC.mask() | PeselError.INVD.mask(), null, 1000);
+        try (ResultStoreWriter a = new ResultStoreWriter(before, "v1", "pesels");
+             ResultStoreWriter b = new ResultStoreWriter(after, "v2", "pesels")) {
+            a.append(ResultStore.input("44051401459"), 200, invc);
+            b.append(ResultStore.input("44051401459"), 200, withGender);
+            a.append(ResultStore.input("44051401458"), 200, PeselError.INVC.mask() | PeselError.INVD.mask());
+            b.append(ResultStore.input("44051401458"), 200, withDate);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try (ResultStore a = ResultStore.open(before); ResultStore b = ResultStore.open(after)) {
+            List<ResultDiff.ChangeGroup> groups = new ResultDiff(a, b, pool, 2, 1).run(null);
+            Assert.assertEquals(groups.stream().map(ResultDiff.ChangeGroup::kind).sorted().collect(Collectors.toList()),
+                    Arrays.asList("dateOfBirth appeared with INVD INVC", "gender none -> Male with INVC"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void append(ResultStoreWriter writer, String pesel, String body) throws IOException {
+        long decoded = PeselResponseDecoder.decodeWithValidity(body.getBytes(StandardCharsets.UTF_8));
+        writer.append(ResultStore.input(pesel), 200, decoded, PeselResponseDecoder.isValidField(decoded));
+    }
+
+    @Test
+    public void shouldRefuseStoresOfDifferentCorpora() throws IOException {
+        Path first = Files.createTempDirectory("first");
+        Path second = Files.createTempDirectory("second");
+        Path shorter = Files.createTempDirectory("shorter");
+        try (ResultStoreWriter a = new ResultStoreWriter(first, "v1", "one");
+             ResultStoreWriter b = new ResultStoreWriter(second, "v1", "other");
+             ResultStoreWriter c = new ResultStoreWriter(shorter, "v1", "one")) {
+            for (int i = 0; i < 10; i++) {
+                a.append(i, 200, PeselError.INVC.mask());
+                b.append(i == 9 ? 99 : i, 200, PeselError.INVC.mask());
+                c.append(i, 200, PeselError.INVC.mask());
+            }
+            c.append(10, 200, 0);
+        }
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try (ResultStore a = ResultStore.open(first); ResultStore b = ResultStore.open(second);
+             ResultStore c = ResultStore.open(shorter)) {
+            IllegalStateException e = Assert.expectThrows(IllegalStateException.class,
+                    () -> new ResultDiff(a, b, pool, 4, 1).run(null));
+            Assert.assertTrue(e.getMessage().startsWith("Row 9 holds 00000000009"), e.getMessage());
+            Assert.expectThrows(IllegalArgumentException.class, () -> new ResultDiff(a, c, pool, 4, 1));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The stand-in answers the sweep cases like the reference rules, so their stores do not differ.
+     */
+    @Test
+    public void shouldRecordStandInLikeReferenceRules() throws Exception {
+        Path directory = Files.createTempDirectory("snapshot");
+        String[] corpus = {"--from=2099-12-20", "--to=2100-01-10", "--samples=3", "--invalid=false", "--in-flight=16"};
+        ResultSnapshot.main(concat(corpus, "--out=" + directory.resolve("local"), "--local"));
+        ResultSnapshot.main(concat(corpus, "--out=" + directory.resolve("stand-in")));
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try (ResultStore local = ResultStore.open(directory.resolve("local"));
+             ResultStore standIn = ResultStore.open(directory.resolve("stand-in"))) {
+            Assert.assertEquals(local.size(), 22 * 3);
+            Assert.assertEquals(standIn.corpus(), local.corpus());
+            Assert.assertTrue(standIn.source().startsWith("http://"), standIn.source());
+            List<ResultDiff.ChangeGroup> groups = new ResultDiff(local, standIn, pool, 4096, 3).run(null);
+            Assert.assertTrue(groups.isEmpty(), groups.isEmpty() ? "" : groups.get(0).examples().toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String[] concat(String[] first, String... rest) {
+        String[] all = Arrays.copyOf(first, first.length + rest.length);
+        System.arraycopy(rest, 0, all, first.length, rest.length);
+        return all;
+    }
+}
@@ -0,0 +1,137 @@
+package pl.edu.agh.qa.pesel.sweep;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import pl.edu.agh.qa.pesel.PeselError;
+import pl.edu.agh.qa.pesel.PeselValidator;
+import pl.edu.agh.qa.pesel.client.PeselHttpClient;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class DifferentialSweepTest {
+
+    /**
+     * Valid cases decode to their own date, invalid ones fail the date rules and nothing else.
+     */
+    @Test
+    public void shouldEnumerateValidDatesAndInvalidEncodings() {
+        SweepCases cases = new SweepCases(LocalDate.of(1999, 12, 30), LocalDate.of(2000, 1, 2), 2, 7, true);
+        Assert.assertEquals(cases.size(), 4 * 2 + SweepCases.INVALID_CASES);
+
+        byte[] digits = new byte[PeselValidator.LENGTH];
+        for (int index = 0; index < 8; index++) {
+            cases.write(index, digits);
+            long result = PeselValidator.validate(digits);
+            Assert.assertTrue(PeselValidator.isValid(result), new String(digits, StandardCharsets.US_ASCII));
+            Assert.assertEquals(PeselValidator.dateOfBirth(result), LocalDate.of(1999, 12, 30).plusDays(index / 2));
+        }
+        int dateErrors = PeselError.INVY.mask() | PeselError.INVM.mask() | PeselError.INVD.mask();
+        for (long index = 8; index < cases.size(); index++) {
+            cases.write(index, digits);
+            int errors = PeselValidator.errors(PeselValidator.validate(digits));
+            Assert.assertTrue(errors != 0 && (errors & ~dateErrors) == 0,
+                    new String(digits, StandardCharsets.US_ASCII) + ": " + errors);
+        }
+    }
+
+    /**
+     * A sweep of the embedded stand-in finds no mismatches and a finished sweep is not repeated.
+     */
+    @Test
+    public void shouldFindNoMismatchesAgainstStandInAndResume() throws Exception {
+        Path directory = Files.createTempDirectory("sweep");
+        Path checkpoint = directory.resolve("sweep.checkpoint");
+        Path mismatches = directory.resolve("mismatches.csv");
+        String[] args = {
+                "--from=2099-12-01", "--to=2100-03-01", "--samples=3", "--invalid=false", "--in-flight=16",
+                "--checkpoint=" + checkpoint, "--mismatches=" + mismatches
+        };
+
+        DifferentialSweep.main(args);
+        String fingerprint = new SweepCases(LocalDate.of(2099, 12, 1), LocalDate.of(2100, 3, 1), 3, 0, false).fingerprint();
+        Assert.assertEquals(DifferentialSweep.readCheckpoint(checkpoint, fingerprint), 91 * 3);
+        List<String> lines = Files.readAllLines(mismatches);
+        Assert.assertEquals(lines.size(), 1, "Unexpected mismatches: " + lines);
+
+        DifferentialSweep.main(args);
+        Assert.assertEquals(Files.readAllLines(mismatches), lines, "Resumed sweep repeated finished cases");
+    }
+
+    /**
+     * A mismatch that cannot be written stops the sweep, and the checkpoint does not move past it.
+     */
+    @Test(timeOut = 30_000)
+    public void shouldStopBeforeUnwrittenMismatch() throws Exception {
+        SweepCases cases = new SweepCases(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31), 2, 0, false);
+        Path checkpoint = Files.createTempDirectory("sweep").resolve("sweep.checkpoint");
+        Writer broken = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try {
+            // nothing listens on port 1, every case is a failed request and so a mismatch
+            PeselHttpClient client = new PeselHttpClient("http://127.0.0.1:1", Duration.ofSeconds(5), executor);
+            DifferentialSweep sweep = new DifferentialSweep(cases, client, 16, checkpoint, broken);
+            IOException e = Assert.expectThrows(IOException.class, () -> sweep.run(0, reporter, 60));
+            Assert.assertTrue(e.getMessage().startsWith("Could not record mismatch"), e.getMessage());
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(DifferentialSweep.readCheckpoint(checkpoint, cases.fingerprint()), 0);
+    }
+
+    /**
+     * A request that cannot even be sent is a mismatch like a failed one, and does not hold its in-flight slot.
+     */
+    @Test(timeOut = 30_000)
+    public void shouldReportRequestsThatCannotBeSent() throws Exception {
+        SweepCases cases = new SweepCases(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 20), 1, 0, false);
+        Path checkpoint = Files.createTempDirectory("sweep").resolve("sweep.checkpoint");
+        StringWriter mismatches = new StringWriter();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try {
+            // the space makes every request URI invalid, so get() throws before sending
+            PeselHttpClient client = new PeselHttpClient("http://no such host", Duration.ofSeconds(5), executor);
+            new DifferentialSweep(cases, client, 4, checkpoint, mismatches).run(0, reporter, 60);
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(mismatches.toString().split("\n").length, 20, mismatches.toString());
+        Assert.assertEquals(DifferentialSweep.readCheckpoint(checkpoint, cases.fingerprint()), 20);
+    }
+
+    @Test
+    public void shouldRejectCheckpointOfAnotherSweep() throws Exception {
+        Path checkpoint = Files.createTempFile("sweep", ".checkpoint");
+        DifferentialSweep.writeCheckpoint(checkpoint, "1800-01-01/2299-12-31/1/0/true", 42);
+        Assert.assertEquals(DifferentialSweep.readCheckpoint(checkpoint, "1800-01-01/2299-12-31/1/0/true"), 42);
+        Assert.assertThrows(IllegalStateException.class,
+                () -> DifferentialSweep.readCheckpoint(checkpoint, "1800-01-01/2299-12-31/2/0/true"));
+    }
+}